@@ -11,6 +11,8 @@ import org.postgresql.jdbc.AutoSave;
 import org.postgresql.jdbc.PreferQueryMode;
 import org.postgresql.largeobject.LargeObjectManager;
 import org.postgresql.replication.PGReplicationConnection;
+import org.postgresql.util.PGBinaryCodec;
+import org.postgresql.util.PGCompositeFactory;
 import org.postgresql.util.PGobject;
 
 import java.sql.Array;
@@ -137,6 +139,43 @@ public interface PGConnection {
    */
   void addDataType(String type, Class<? extends PGobject> klass) throws SQLException;
 
+  /**
+   * Registers a codec that converts values of the given type straight between their binary wire
+   * format and Java objects. Unless binary transfer is disabled for the type, it is requested in
+   * binary format from then on, {@code ResultSet.getObject} returns the decoded values and
+   * {@code PreparedStatement.setObject} encodes instances of {@link PGBinaryCodec#getJavaClass()}
+   * with the codec.
+   *
+   * <p>
+   * <b>NOTE:</b> This is not part of JDBC, but an extension.
+   *
+   * @param type the PostgreSQL type to register
+   * @param codec the codec handling values of the type
+   * @throws SQLException if the type does not exist or the connection is closed
+   * @see org.postgresql.util.PGBinaryCodec
+   */
+  void addBinaryCodec(String type, PGBinaryCodec<?> codec) throws SQLException;
+
+  /**
+   * Registers a factory that maps values of the given composite type to Java objects.
+   * {@code ResultSet.getObject} returns the objects created by the factory for columns of the type,
+   * and arrays of the type contain such objects. Unless binary transfer is disabled for them, the
+   * type and its array type are requested in binary format from then on, in which case
+   * {@code ResultSet.getString} returns the {@code toString()} of the created object.
+   *
+   * <p>The type {@code record} may be registered as well to map anonymous row values such as
+   * {@code array_agg(row(a, b))}; the factory then receives no attribute names.</p>
+   *
+   * <p>
+   * <b>NOTE:</b> This is not part of JDBC, but an extension.
+   *
+   * @param type the PostgreSQL composite type to register, or {@code record}
+   * @param factory the factory creating objects from the attributes of a value
+   * @throws SQLException if the type is not a composite type or the connection is closed
+   * @see org.postgresql.util.PGCompositeFactory
+   */
+  void addCompositeType(String type, PGCompositeFactory<?> factory) throws SQLException;
+
   /**
    * Set the default statement reuse threshold before enabling server-side prepare. See
    * {@link org.postgresql.PGStatement#setPrepareThreshold(int)} for details.
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql;
+
+import java.io.InputStream;
+import java.sql.SQLException;
+
+/**
+ * This interface defines the public PostgreSQL extensions to java.sql.PreparedStatement. All
+ * PreparedStatements constructed by the PostgreSQL driver implement PGPreparedStatement.
+ */
+public interface PGPreparedStatement extends PGStatement {
+
+  /**
+   * Sets the designated parameter to a text value of the given type, such as a {@code json} or
+   * {@code jsonb} document, read from a stream of UTF-8 encoded bytes. The bytes are written to the
+   * backend as they are read when the statement is executed, so large documents are never decoded
+   * into a {@code String} on the client side. The stream should remain valid until the statement
+   * has been executed.
+   *
+   * @param parameterIndex the first parameter is 1, the second is 2, ...
+   * @param x the UTF-8 encoded value
+   * @param length the number of bytes in the stream
+   * @param pgType the PostgreSQL type name of the parameter, for instance {@code "jsonb"}
+   * @throws SQLException if the type is unknown or a database access error occurs
+   */
+  void setTextStream(int parameterIndex, InputStream x, int length, String pgType)
+      throws SQLException;
+}
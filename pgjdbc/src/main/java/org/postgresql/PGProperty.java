@@ -364,11 +364,18 @@ public enum PGProperty {
       "any", "master", "slave", "secondary",  "preferSlave", "preferSecondary"),
 
   LOAD_BALANCE_HOSTS("loadBalanceHosts", "false",
-      "If disabled hosts are connected in the given order. If enabled hosts are chosen randomly from the set of suitable candidates"),
+      "If disabled hosts are connected in the given order. If enabled hosts are chosen randomly from the set of suitable candidates. With latency, hosts that answer faster and have fewer open connections and less replication lag are preferred",
+      false, "false", "true", "latency"),
 
   HOST_RECHECK_SECONDS("hostRecheckSeconds", "10",
       "Specifies period (seconds) after which the host status is checked again in case it has changed"),
 
+  HOST_MONITOR_INTERVAL("hostMonitorInterval", "0",
+      "When greater than 0, multi-host connections start a background monitor that checks the status of each host every hostMonitorInterval milliseconds"),
+
+  PARALLEL_CONNECT_DELAY("parallelConnectDelay", "0",
+      "When greater than 0, hosts are connected in parallel, starting an attempt to the next host every parallelConnectDelay milliseconds until one succeeds"),
+
   /**
    * Specifies which mode is used to execute queries to database: simple means ('Q' execute, no parse, no bind, text mode only),
    * extended means always use bind/execute messages, extendedForPrepared means extended for prepared statements only,
@@ -401,6 +408,15 @@ public enum PGProperty {
   REWRITE_BATCHED_INSERTS("reWriteBatchedInserts", "false",
       "Enable optimization to rewrite and collapse compatible INSERT statements that are batched."),
 
+  /**
+   * Return the same String instance for repeated values of a text column within a result set.
+   * Columns whose values turn out to be mostly distinct stop being deduplicated. Values of enum
+   * types are always deduplicated.
+   */
+  DEDUPLICATE_STRINGS("deduplicateStrings", "false",
+      "Return the same String instance for repeated values of a text column within a result set,"
+          + " which saves memory for low-cardinality columns that are kept in memory"),
+
   /**
    * <p>Connection parameter passed in the startup message. This parameter accepts two values; "true"
    * and "database". Passing "true" tells the backend to go into walsender mode, wherein a small set
@@ -21,6 +21,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.sql.SQLException;
 
 /**
@@ -38,6 +41,9 @@ public class CopyManager {
   private final QueryExecutor queryExecutor;
   private final BaseConnection connection;
 
+  // the buffer reused by the copies to streams and channels, or null while one is running
+  private ByteBuffer channelBuffer;
+
   public CopyManager(BaseConnection connection) throws SQLException {
     this.encoding = connection.getEncoding();
     this.queryExecutor = connection.getQueryExecutor();
@@ -122,12 +128,17 @@ public class CopyManager {
    * @throws IOException upon output stream or database connection failure
    */
   public long copyOut(final String sql, OutputStream to) throws SQLException, IOException {
-    byte[] buf;
+    ByteBuffer buffer = borrowChannelBuffer();
     CopyOut cp = copyOut(sql);
     try {
-      while ((buf = cp.readFromCopy()) != null) {
-        to.write(buf);
+      // the rows are received straight into one array, and written whenever it is full
+      while (cp.readPartFromCopy(buffer, true) >= 0) {
+        if (!buffer.hasRemaining()) {
+          to.write(buffer.array(), 0, buffer.position());
+          buffer.clear();
+        }
       }
+      to.write(buffer.array(), 0, buffer.position());
       return cp.getHandledRowCount();
     } catch (IOException ioEX) {
       // if not handled this way the close call will hang, at least in 8.2
@@ -135,7 +146,106 @@ public class CopyManager {
         cp.cancelCopy();
       }
       try { // read until excausted or operation cancelled SQLException
-        while ((buf = cp.readFromCopy()) != null) {
+        while (cp.readFromCopy() != null) {
+        }
+      } catch (SQLException sqlEx) {
+      } // typically after several kB
+      throw ioEX;
+    } finally { // see to it that we do not leave the connection locked
+      if (cp.isActive()) {
+        cp.cancelCopy();
+      }
+      returnChannelBuffer(buffer);
+    }
+  }
+
+  /**
+   * Pass results of a COPY TO STDOUT query from database into a channel, such as a
+   * {@link java.nio.channels.FileChannel}. The rows are received from the connection straight into
+   * one buffer, reused by the copies of this connection, and written to the channel whenever the
+   * buffer is full.
+   *
+   * @param sql COPY TO STDOUT statement
+   * @param to the channel to write the results to
+   * @return number of rows updated for server 8.2 or newer; -1 for older
+   * @throws SQLException on database usage errors
+   * @throws IOException upon channel or database connection failure
+   */
+  public long copyOut(final String sql, WritableByteChannel to) throws SQLException, IOException {
+    ByteBuffer buffer = borrowChannelBuffer();
+    CopyOut cp = copyOut(sql);
+    try {
+      while (cp.readPartFromCopy(buffer, true) >= 0) {
+        if (!buffer.hasRemaining()) {
+          buffer.flip();
+          writeFully(buffer, to);
+          buffer.clear();
+        }
+      }
+      buffer.flip();
+      writeFully(buffer, to);
+      return cp.getHandledRowCount();
+    } catch (IOException ioEX) {
+      // if not handled this way the close call will hang, at least in 8.2
+      if (cp.isActive()) {
+        cp.cancelCopy();
+      }
+      try { // read until excausted or operation cancelled SQLException
+        while (cp.readFromCopy() != null) {
+        }
+      } catch (SQLException sqlEx) {
+      } // typically after several kB
+      throw ioEX;
+    } finally { // see to it that we do not leave the connection locked
+      if (cp.isActive()) {
+        cp.cancelCopy();
+      }
+      returnChannelBuffer(buffer);
+    }
+  }
+
+  /**
+   * Pass the rows of a COPY TO STDOUT query in text or CSV format to a handler, one at a time. The
+   * rows are received from the connection into one buffer, reused by the copies of this
+   * connection, and passed to the handler without their terminating newline. Only rows larger than
+   * that buffer are received into new arrays.
+   *
+   * @param sql COPY TO STDOUT statement, in text or CSV format
+   * @param handler the handler to pass the rows to
+   * @return number of rows updated for server 8.2 or newer; -1 for older
+   * @throws SQLException on database usage errors, if the copy is in binary format, or if the
+   *     handler fails
+   * @throws IOException upon handler or database connection failure
+   */
+  public long copyOut(final String sql, CopyRowHandler handler) throws SQLException, IOException {
+    ByteBuffer buffer = borrowChannelBuffer();
+    CopyOut cp = copyOut(sql);
+    try {
+      if (cp.getFormat() != 0) {
+        throw new PSQLException(GT.tr("Only text and CSV copies can be read by rows."),
+            PSQLState.WRONG_OBJECT_TYPE);
+      }
+      while (true) {
+        buffer.clear();
+        int length = cp.readFromCopy(buffer, true);
+        if (length < 0) {
+          break;
+        }
+        // the server sends each row in a message of its own
+        byte[] row = buffer.position() == length ? buffer.array() : cp.readFromCopy();
+        if (length > 0 && row[length - 1] == '\n') {
+          length--;
+        }
+        handler.handleRow(row, 0, length);
+      }
+      return cp.getHandledRowCount();
+    } catch (IOException ioEX) {
+      // if not handled this way the close call will hang, at least in 8.2
+      if (cp.isActive()) {
+        cp.cancelCopy();
+      }
+      try { // read until excausted or operation cancelled SQLException
+        while (cp.readFromCopy() != null) {
         }
       } catch (SQLException sqlEx) {
       } // typically after several kB
@@ -144,6 +254,7 @@ public class CopyManager {
       if (cp.isActive()) {
         cp.cancelCopy();
       }
+      returnChannelBuffer(buffer);
     }
   }
 
@@ -231,4 +342,59 @@ public class CopyManager {
       }
     }
   }
+
+  /**
+   * Use COPY FROM STDIN for very fast copying from a channel, such as a
+   * {@link java.nio.channels.FileChannel}, into a database table. The data is read into one
+   * buffer, reused by the copies of this connection, and sent from that buffer whenever it is
+   * full.
+   *
+   * @param sql COPY FROM STDIN statement
+   * @param from a CSV file or such
+   * @return number of rows updated for server 8.2 or newer; -1 for older
+   * @throws SQLException on database usage issues
+   * @throws IOException upon channel or database connection failure
+   */
+  public long copyIn(final String sql, ReadableByteChannel from)
+      throws SQLException, IOException {
+    ByteBuffer buffer = borrowChannelBuffer();
+    CopyIn cp = copyIn(sql);
+    try {
+      while (from.read(buffer) >= 0) {
+        if (!buffer.hasRemaining()) {
+          cp.writeToCopy(buffer.array(), 0, buffer.position());
+          buffer.clear();
+        }
+      }
+      if (buffer.position() > 0) {
+        cp.writeToCopy(buffer.array(), 0, buffer.position());
+      }
+      return cp.endCopy();
+    } finally { // see to it that we do not leave the connection locked
+      if (cp.isActive()) {
+        cp.cancelCopy();
+      }
+      returnChannelBuffer(buffer);
+    }
+  }
+
+  private static void writeFully(ByteBuffer buffer, WritableByteChannel to) throws IOException {
+    while (buffer.hasRemaining()) {
+      to.write(buffer);
+    }
+  }
+
+  private synchronized ByteBuffer borrowChannelBuffer() {
+    ByteBuffer buffer = channelBuffer;
+    channelBuffer = null;
+    if (buffer == null) {
+      buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  private synchronized void returnChannelBuffer(ByteBuffer buffer) {
+    channelBuffer = buffer;
+  }
 }
@@ -5,6 +5,7 @@
 
 package org.postgresql.copy;
 
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 
 public interface CopyOut extends CopyOperation {
@@ -26,4 +27,36 @@ public interface CopyOut extends CopyOperation {
    * @throws SQLException if something goes wrong for example socket timeout
    */
   byte[] readFromCopy(boolean block) throws SQLException;
+
+  /**
+   * Receives the next message from server into the given buffer instead of a new array, so that
+   * reading many messages does not allocate memory for each of them.
+   *
+   * @param buffer the buffer to append the message to, from its position on; it may be a direct
+   *              buffer
+   * @param block {@code true} if need wait data from server otherwise {@code false} and will read
+   *              pending message from server
+   * @return the length of the message, or -1 if copy is complete or, when not blocking, no message
+   *     is pending. A message longer than the space remaining in the buffer is not copied, and the
+   *     buffer is left as it was: the next call returns it again, for instance with a larger
+   *     buffer, as does {@link #readFromCopy()}
+   * @throws SQLException if something goes wrong for example socket timeout
+   */
+  int readFromCopy(ByteBuffer buffer, boolean block) throws SQLException;
+
+  /**
+   * Receives data from server into the given buffer, straight from the connection: the rest of a
+   * message partly received by the previous call, or the next message, as much of it as fits in
+   * the buffer. Unlike {@link #readFromCopy(ByteBuffer, boolean)}, messages longer than the
+   * buffer are received over several calls, so that a buffer of any size can read the data.
+   *
+   * @param buffer the buffer to append data to, from its position up to its limit; it may be a
+   *              direct buffer
+   * @param block {@code true} if need wait data from server otherwise {@code false} and will read
+   *              pending message from server
+   * @return the number of bytes received, or -1 if copy is complete or, when not blocking, no
+   *     message is pending
+   * @throws SQLException if something goes wrong for example socket timeout
+   */
+  int readPartFromCopy(ByteBuffer buffer, boolean block) throws SQLException;
 }
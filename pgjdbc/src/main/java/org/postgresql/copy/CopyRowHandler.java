@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.copy;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Receives the rows of a COPY TO STDOUT operation in text or CSV format, one at a time.
+ *
+ * @see CopyManager#copyOut(String, CopyRowHandler)
+ */
+public interface CopyRowHandler {
+  /**
+   * Handles a row. The array is reused for the next rows, so the row must be decoded or copied
+   * before returning.
+   *
+   * @param row the array holding the row, in the client encoding
+   * @param offset the index of the first byte of the row
+   * @param length the length of the row, without its terminating newline
+   * @throws SQLException if handling the row fails
+   * @throws IOException if handling the row fails
+   */
+  void handleRow(byte[] row, int offset, int length) throws SQLException, IOException;
+}
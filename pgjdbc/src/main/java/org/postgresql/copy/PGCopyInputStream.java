@@ -12,6 +12,7 @@ import org.postgresql.util.PSQLState;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 
 /**
@@ -22,6 +23,8 @@ public class PGCopyInputStream extends InputStream implements CopyOut {
   private byte[] buf;
   private int at;
   private int len;
+  // wraps the last array passed to read(byte[], int, int), to receive data straight into it
+  private ByteBuffer target;
 
   /**
    * Uses given connection for specified COPY TO STDOUT operation
@@ -86,11 +89,36 @@ public class PGCopyInputStream extends InputStream implements CopyOut {
   public int read(byte[] buf, int off, int siz) throws IOException {
     checkClosed();
     int got = 0;
-    boolean didReadSomething = false;
-    while (got < siz && (didReadSomething = gotBuf())) {
-      buf[off + got++] = this.buf[at++];
+    if (this.buf != null && at < len) {
+      // the rest of a row partly read by read()
+      got = Math.min(siz, len - at);
+      System.arraycopy(this.buf, at, buf, off, got);
+      at += got;
     }
-    return got == 0 && !didReadSomething ? -1 : got;
+    if (got == siz || at < 0) {
+      return got == 0 && siz > 0 ? -1 : got;
+    }
+
+    if (target == null || target.array() != buf) {
+      target = ByteBuffer.wrap(buf);
+    }
+    target.clear();
+    target.limit(off + siz);
+    target.position(off + got);
+    try {
+      while (target.hasRemaining()) {
+        if (op.readPartFromCopy(target, true) < 0) {
+          // end of copy
+          this.buf = null;
+          at = -1;
+          break;
+        }
+      }
+    } catch (SQLException sqle) {
+      throw new IOException(GT.tr("Copying from database failed: {0}", sqle));
+    }
+    got = target.position() - off;
+    return got == 0 && siz > 0 ? -1 : got;
   }
 
   public byte[] readFromCopy() throws SQLException {
@@ -117,6 +145,31 @@ public class PGCopyInputStream extends InputStream implements CopyOut {
     return readFromCopy();
   }
 
+  @Override
+  public int readFromCopy(ByteBuffer buffer, boolean block) throws SQLException {
+    if (buf != null && at < len) {
+      // the rest of a row partly read from this stream
+      int length = len - at;
+      if (length <= buffer.remaining()) {
+        buffer.put(buf, at, length);
+        at = len;
+      }
+      return length;
+    }
+    return op.readFromCopy(buffer, block);
+  }
+
+  @Override
+  public int readPartFromCopy(ByteBuffer buffer, boolean block) throws SQLException {
+    if (buf != null && at < len) {
+      int length = Math.min(len - at, buffer.remaining());
+      buffer.put(buf, at, length);
+      at += length;
+      return length;
+    }
+    return op.readPartFromCopy(buffer, block);
+  }
+
   public void close() throws IOException {
     // Don't complain about a double close.
     if (op == null) {
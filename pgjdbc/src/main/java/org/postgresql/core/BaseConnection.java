@@ -169,6 +169,14 @@ public interface BaseConnection extends PGConnection, Connection {
    */
   boolean isColumnSanitiserDisabled();
 
+  /**
+   * Return whether result sets return the same String instance for repeated text values.
+   *
+   * @return true if string deduplication is enabled
+   * @see org.postgresql.PGProperty#DEDUPLICATE_STRINGS
+   */
+  boolean isStringDeduplicationEnabled();
+
   /**
    * Schedule a TimerTask for later execution. The task will be scheduled with the shared Timer for
    * this connection.
@@ -25,7 +25,17 @@ public class Encoding {
   private static final Logger LOGGER = Logger.getLogger(Encoding.class.getName());
 
   private static final Encoding DEFAULT_ENCODING = new Encoding();
-  private static final Encoding UTF8_ENCODING = new Encoding("UTF-8");
+
+  /*
+   * Database text is decoded by the JDK, which replaces malformed input with U+FFFD. Only the
+   * encoding takes the ASCII fast path of UTF8Encoding.
+   */
+  private static final Encoding UTF8_ENCODING = new Encoding("UTF-8") {
+    @Override
+    public byte[] encode(String s) {
+      return s == null ? null : UTF8Encoding.encodeUTF8(s);
+    }
+  };
 
   /*
    * Preferred JVM encodings for backend encodings.
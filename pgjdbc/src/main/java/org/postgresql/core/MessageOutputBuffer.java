@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Collects outgoing protocol messages until {@link #flush} so that a whole pipeline of messages
+ * (Parse, Bind, Describe, Execute, Sync or a batch of them) reaches the wrapped stream in a single
+ * write. Unlike {@link java.io.BufferedOutputStream} the buffer grows, up to
+ * {@link #MAXIMUM_COALESCED_SIZE}, instead of being written out every time it fills up.
+ *
+ * <p>Messages may be started with {@link #startMessage} and completed with {@link #endMessage},
+ * which writes the message length in place, so that callers do not need to compute it
+ * upfront. Such a message stays in the buffer until it is complete, however large it gets.</p>
+ *
+ * <p>Like {@link VisibleBufferedInputStream}, this class does no synchronisation.</p>
+ */
+public class MessageOutputBuffer extends OutputStream {
+
+  /**
+   * Buffered data beyond this size is written out before more data is appended. Larger arrays are
+   * written directly after the buffered data rather than copied into the buffer.
+   */
+  static final int MAXIMUM_COALESCED_SIZE = 1024 * 1024;
+
+  /**
+   * The largest buffer kept after a flush. Larger buffers are only used until the data is sent.
+   */
+  static final int MAXIMUM_RETAINED_SIZE = 65536;
+
+  /**
+   * The wrapped output stream.
+   */
+  private final OutputStream wrapped;
+
+  /**
+   * The size the buffer was created with.
+   */
+  private final int initialSize;
+
+  /**
+   * The buffer.
+   */
+  private byte[] buffer;
+
+  /**
+   * The number of bytes in the buffer.
+   */
+  private int count;
+
+  /**
+   * The position of the length field of the message being built, or -1.
+   */
+  private int messageStart = -1;
+
+  /**
+   * Creates a new buffer around the given stream.
+   *
+   * @param out The stream to write to.
+   * @param bufferSize The initial size of the buffer.
+   */
+  public MessageOutputBuffer(OutputStream out, int bufferSize) {
+    wrapped = out;
+    initialSize = bufferSize;
+    buffer = new byte[bufferSize];
+  }
+
+  /**
+   * Starts a message whose length is filled in by {@link #endMessage}.
+   *
+   * @param type the message type
+   * @throws IOException if the buffered data could not be written
+   * @throws IllegalStateException if the previous message was not ended
+   */
+  public void startMessage(int type) throws IOException {
+    if (messageStart != -1) {
+      throw new IllegalStateException("The previous message was not ended");
+    }
+    write(type);
+    ensureCapacity(4);
+    messageStart = count;
+    count += 4;
+  }
+
+  /**
+   * Completes the message begun by {@link #startMessage}, writing its length.
+   *
+   * @throws IllegalStateException if no message was started
+   */
+  public void endMessage() {
+    if (messageStart == -1) {
+      throw new IllegalStateException("No message was started");
+    }
+    int length = count - messageStart;
+    buffer[messageStart] = (byte) (length >>> 24);
+    buffer[messageStart + 1] = (byte) (length >>> 16);
+    buffer[messageStart + 2] = (byte) (length >>> 8);
+    buffer[messageStart + 3] = (byte) length;
+    messageStart = -1;
+  }
+
+  /**
+   * Appends a 4-byte integer.
+   *
+   * @param val the integer
+   * @throws IOException if the buffered data could not be written
+   */
+  public void writeInteger4(int val) throws IOException {
+    ensureCapacity(4);
+    buffer[count] = (byte) (val >>> 24);
+    buffer[count + 1] = (byte) (val >>> 16);
+    buffer[count + 2] = (byte) (val >>> 8);
+    buffer[count + 3] = (byte) val;
+    count += 4;
+  }
+
+  /**
+   * Appends a 2-byte integer.
+   *
+   * @param val the integer
+   * @throws IOException if the buffered data could not be written
+   */
+  public void writeInteger2(int val) throws IOException {
+    ensureCapacity(2);
+    buffer[count] = (byte) (val >>> 8);
+    buffer[count + 1] = (byte) val;
+    count += 2;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureCapacity(1);
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len > buffer.length - count && messageStart == -1
+        && count + len > MAXIMUM_COALESCED_SIZE) {
+      // send what we have, and large arrays as they are
+      writeBuffer();
+      if (len >= buffer.length) {
+        wrapped.write(b, off, len);
+        return;
+      }
+    }
+    ensureCapacity(len);
+    System.arraycopy(b, off, buffer, count, len);
+    count += len;
+  }
+
+  /**
+   * Makes room for the given number of bytes, growing the buffer or writing out its content.
+   */
+  private void ensureCapacity(int len) throws IOException {
+    if (len <= buffer.length - count) {
+      return;
+    }
+    if (messageStart == -1 && count + len > MAXIMUM_COALESCED_SIZE) {
+      writeBuffer();
+      if (len <= buffer.length) {
+        return;
+      }
+    }
+    int size = buffer.length;
+    while (size - count < len) {
+      size = size > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : size * 2;
+    }
+    byte[] buf = new byte[size];
+    System.arraycopy(buffer, 0, buf, 0, count);
+    buffer = buf;
+  }
+
+  private void writeBuffer() throws IOException {
+    if (count > 0) {
+      wrapped.write(buffer, 0, count);
+      count = 0;
+    }
+  }
+
+  /**
+   * Writes the buffered messages to the wrapped stream in a single write and flushes it.
+   *
+   * @throws IOException if writing fails
+   * @throws IllegalStateException if a message was started but not ended
+   */
+  @Override
+  public void flush() throws IOException {
+    if (messageStart != -1) {
+      throw new IllegalStateException("Cannot flush a message that was not ended");
+    }
+    writeBuffer();
+    wrapped.flush();
+    if (buffer.length > MAXIMUM_RETAINED_SIZE && buffer.length > initialSize) {
+      // do not keep the memory of an occasional large message
+      buffer = new byte[Math.max(initialSize, MAXIMUM_RETAINED_SIZE)];
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (messageStart == -1) {
+        flush();
+      }
+    } finally {
+      wrapped.close();
+    }
+  }
+
+  /**
+   * Returns the number of bytes waiting to be written.
+   *
+   * @return the number of buffered bytes
+   */
+  public int getBufferedSize() {
+    return count;
+  }
+}
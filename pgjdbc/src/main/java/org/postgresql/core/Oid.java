@@ -71,12 +71,20 @@ public class Oid {
   public static final int XML_ARRAY = 143;
   public static final int POINT = 600;
   public static final int POINT_ARRAY = 1017;
+  public static final int LSEG = 601;
+  public static final int PATH = 602;
   public static final int BOX = 603;
+  public static final int POLYGON = 604;
+  public static final int LINE = 628;
+  public static final int CIRCLE = 718;
+  public static final int JSONB = 3802;
   public static final int JSONB_ARRAY = 3807;
   public static final int JSON = 114;
   public static final int JSON_ARRAY = 199;
   public static final int REF_CURSOR = 1790;
   public static final int REF_CURSOR_ARRAY = 2201;
+  public static final int RECORD = 2249;
+  public static final int RECORD_ARRAY = 2287;
 
   private static final Map<Integer, String> OID_TO_NAME = new HashMap<Integer, String>(100);
   private static final Map<String, Integer> NAME_TO_OID = new HashMap<String, Integer>(100);
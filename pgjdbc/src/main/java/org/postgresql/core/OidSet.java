@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+/**
+ * An immutable set of type OIDs with allocation-free lookups. Builtin types have OIDs below
+ * {@link #DENSE_LIMIT} and are kept in a bitset, other types (extensions, user defined types) in
+ * an open addressing hash table of primitive ints.
+ *
+ * <p>Sets are canonicalized: {@link #of} returns the same instance for the same OIDs, so that
+ * connections configured alike share a single set.</p>
+ */
+public final class OidSet {
+  /**
+   * OIDs below this limit are stored in the bitset. The backend assigns OIDs from 16384
+   * ({@code FirstNormalObjectId}) on to objects created after initdb.
+   */
+  static final int DENSE_LIMIT = 16384;
+
+  private static final int[] NO_OIDS = new int[0];
+
+  private static final Map<OidSet, WeakReference<OidSet>> CANONICAL =
+      new WeakHashMap<OidSet, WeakReference<OidSet>>();
+
+  public static final OidSet EMPTY = of(NO_OIDS);
+
+  private final long[] dense;
+  // zero marks an empty slot, which is fine since OID 0 always lives in the bitset
+  private final int[] table;
+  private final int mask;
+  // sorted, used for equals, hashCode and toSet
+  private final int[] oids;
+  private final int hashCode;
+
+  private OidSet(int[] oids) {
+    this.oids = oids;
+    this.hashCode = Arrays.hashCode(oids);
+
+    int maxDense = -1;
+    int sparse = 0;
+    for (int oid : oids) {
+      if (isDense(oid)) {
+        maxDense = Math.max(maxDense, oid);
+      } else {
+        sparse++;
+      }
+    }
+
+    dense = new long[(maxDense >> 6) + 1];
+    int capacity = Integer.highestOneBit(Math.max(sparse, 1) * 2) * 2;
+    table = sparse == 0 ? NO_OIDS : new int[capacity];
+    mask = table.length - 1;
+
+    for (int oid : oids) {
+      if (isDense(oid)) {
+        dense[oid >> 6] |= 1L << oid;
+      } else {
+        int slot = hash(oid) & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = oid;
+      }
+    }
+  }
+
+  private static boolean isDense(int oid) {
+    // OIDs are unsigned, the ones above Integer.MAX_VALUE are negative here
+    return oid >= 0 && oid < DENSE_LIMIT;
+  }
+
+  private static int hash(int oid) {
+    int h = oid * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns the set holding the given OIDs.
+   *
+   * @param oids the OIDs
+   * @return a shared immutable set
+   */
+  public static OidSet of(Collection<Integer> oids) {
+    int[] values = new int[oids.size()];
+    int i = 0;
+    for (Integer oid : oids) {
+      values[i++] = oid;
+    }
+    return of(values);
+  }
+
+  private static OidSet of(int[] values) {
+    int[] sorted = values.clone();
+    Arrays.sort(sorted);
+    int n = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[n - 1]) {
+        sorted[n++] = sorted[i];
+      }
+    }
+    OidSet set = new OidSet(n == sorted.length ? sorted : Arrays.copyOf(sorted, n));
+
+    synchronized (CANONICAL) {
+      WeakReference<OidSet> ref = CANONICAL.get(set);
+      OidSet canonical = ref == null ? null : ref.get();
+      if (canonical != null) {
+        return canonical;
+      }
+      CANONICAL.put(set, new WeakReference<OidSet>(set));
+      return set;
+    }
+  }
+
+  /**
+   * Returns the set holding the OIDs of this set and the given one.
+   *
+   * @param oid the OID to add
+   * @return a shared immutable set, this one if it contains the OID already
+   */
+  public OidSet with(int oid) {
+    if (contains(oid)) {
+      return this;
+    }
+    int[] values = Arrays.copyOf(oids, oids.length + 1);
+    values[oids.length] = oid;
+    return of(values);
+  }
+
+  /**
+   * Checks if the given OID belongs to this set.
+   *
+   * @param oid the type OID
+   * @return true if the set contains the OID
+   */
+  public boolean contains(int oid) {
+    if (isDense(oid)) {
+      int word = oid >> 6;
+      return word < dense.length && (dense[word] & (1L << oid)) != 0;
+    }
+    if (table.length == 0) {
+      return false;
+    }
+    int slot = hash(oid) & mask;
+    int value;
+    while ((value = table[slot]) != 0) {
+      if (value == oid) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  public int size() {
+    return oids.length;
+  }
+
+  /**
+   * Returns the OIDs of this set, mainly for logging.
+   *
+   * @return a new sorted set of the OIDs
+   */
+  public Set<Integer> toSet() {
+    Set<Integer> set = new TreeSet<Integer>();
+    for (int oid : oids) {
+      set.add(oid);
+    }
+    return set;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof OidSet && Arrays.equals(oids, ((OidSet) obj).oids);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(oids);
+  }
+}
@@ -10,7 +10,6 @@ import org.postgresql.util.HostSpec;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 
-import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.FilterOutputStream;
@@ -21,6 +20,7 @@ import java.io.OutputStream;
 import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import javax.net.SocketFactory;
 
@@ -40,7 +40,7 @@ public class PGStream implements Closeable, Flushable {
 
   private Socket connection;
   private VisibleBufferedInputStream pg_input;
-  private OutputStream pg_output;
+  private MessageOutputBuffer pg_output;
   private byte[] streamBuffer;
 
   private Encoding encoding;
@@ -129,7 +129,7 @@ public class PGStream implements Closeable, Flushable {
 
     // Buffer sizes submitted by Sverre H Huseby <sverrehu@online.no>
     pg_input = new VisibleBufferedInputStream(connection.getInputStream(), 8192);
-    pg_output = new BufferedOutputStream(connection.getOutputStream(), 8192);
+    pg_output = new MessageOutputBuffer(connection.getOutputStream(), 8192);
 
     if (encoding != null) {
       setEncoding(encoding);
@@ -189,6 +189,24 @@ public class PGStream implements Closeable, Flushable {
     return encodingWriter;
   }
 
+  /**
+   * Starts a message whose length is computed by {@link #endMessage}, once the message content has
+   * been sent.
+   *
+   * @param type the message type
+   * @throws IOException if an I/O error occurs
+   */
+  public void startMessage(int type) throws IOException {
+    pg_output.startMessage(type);
+  }
+
+  /**
+   * Completes the message begun by {@link #startMessage}.
+   */
+  public void endMessage() {
+    pg_output.endMessage();
+  }
+
   /**
    * Sends a single character to the back end
    *
@@ -206,11 +224,7 @@ public class PGStream implements Closeable, Flushable {
    * @throws IOException if an I/O error occurs
    */
   public void sendInteger4(int val) throws IOException {
-    _int4buf[0] = (byte) (val >>> 24);
-    _int4buf[1] = (byte) (val >>> 16);
-    _int4buf[2] = (byte) (val >>> 8);
-    _int4buf[3] = (byte) (val);
-    pg_output.write(_int4buf);
+    pg_output.writeInteger4(val);
   }
 
   /**
@@ -224,9 +238,7 @@ public class PGStream implements Closeable, Flushable {
       throw new IOException("Tried to send an out-of-range integer as a 2-byte value: " + val);
     }
 
-    _int2buf[0] = (byte) (val >>> 8);
-    _int2buf[1] = (byte) val;
-    pg_output.write(_int2buf);
+    pg_output.writeInteger2(val);
   }
 
   /**
@@ -334,6 +346,10 @@ public class PGStream implements Closeable, Flushable {
    * @throws IOException if something wrong happens
    */
   public String receiveString(int len) throws IOException {
+    if (len > pg_input.getBuffer().length) {
+      // read values larger than the buffer into their own array rather than growing the buffer
+      return encoding.decode(receive(len));
+    }
     if (!pg_input.ensureBytes(len)) {
       throw new EOFException();
     }
@@ -352,24 +368,34 @@ public class PGStream implements Closeable, Flushable {
    * @throws IOException if something wrong happens
    */
   public EncodingPredictor.DecodeResult receiveErrorString(int len) throws IOException {
+    if (len > pg_input.getBuffer().length) {
+      return decodeErrorString(receive(len), 0, len);
+    }
     if (!pg_input.ensureBytes(len)) {
       throw new EOFException();
     }
 
+    EncodingPredictor.DecodeResult res =
+        decodeErrorString(pg_input.getBuffer(), pg_input.getIndex(), len);
+    pg_input.skip(len);
+    return res;
+  }
+
+  private EncodingPredictor.DecodeResult decodeErrorString(byte[] bytes, int offset, int len)
+      throws IOException {
     EncodingPredictor.DecodeResult res;
     try {
-      String value = encoding.decode(pg_input.getBuffer(), pg_input.getIndex(), len);
+      String value = encoding.decode(bytes, offset, len);
       // no autodetect warning as the message was converted on its own
       res = new EncodingPredictor.DecodeResult(value, null);
     } catch (IOException e) {
-      res = EncodingPredictor.decode(pg_input.getBuffer(), pg_input.getIndex(), len);
+      res = EncodingPredictor.decode(bytes, offset, len);
       if (res == null) {
         Encoding enc = Encoding.defaultEncoding();
-        String value = enc.decode(pg_input.getBuffer(), pg_input.getIndex(), len);
+        String value = enc.decode(bytes, offset, len);
         res = new EncodingPredictor.DecodeResult(value, enc.name());
       }
     }
-    pg_input.skip(len);
     return res;
   }
 
@@ -454,6 +480,28 @@ public class PGStream implements Closeable, Flushable {
     }
   }
 
+  /**
+   * Reads in a given number of bytes from the backend into a buffer, which may be direct.
+   *
+   * @param buf buffer to store result, from its position on
+   * @param siz number of bytes to read, at most the bytes remaining in the buffer
+   * @throws IOException if a data I/O error occurs
+   */
+  public void receive(ByteBuffer buf, int siz) throws IOException {
+    if (!pg_input.read(buf, siz)) {
+      throw new EOFException();
+    }
+  }
+
+  /**
+   * Adapts the size of the receive buffer to the recent message sizes, releasing the memory taken
+   * by an occasional large message. Should be called when the backend is done with a request, for
+   * instance on ReadyForQuery.
+   */
+  public void adaptReceiveBuffer() {
+    pg_input.adaptBufferSize();
+  }
+
   public void skip(int size) throws IOException {
     long s = 0;
     while (s < size) {
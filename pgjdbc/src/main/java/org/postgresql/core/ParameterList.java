@@ -136,6 +136,20 @@ public interface ParameterList {
    */
   void setText(int index, InputStream stream) throws SQLException;
 
+  /**
+   * Binds a text-format value of the given type stored as an InputStream that is a valid UTF-8
+   * byte stream. The bytes are copied to the backend as they are read, so the value is never
+   * decoded on the client side. The stream should remain valid until query execution has
+   * completed.
+   *
+   * @param index the 1-based parameter index to bind.
+   * @param stream a stream containing the parameter data.
+   * @param length the number of bytes of parameter data to read from <code>stream</code>.
+   * @param oid the type OID of the parameter.
+   * @throws SQLException on error or if <code>index</code> is out of range
+   */
+  void setText(int index, InputStream stream, int length, int oid) throws SQLException;
+
   /**
    * Binds given byte[] value to a parameter. The bytes must already be in correct format matching
    * the OID.
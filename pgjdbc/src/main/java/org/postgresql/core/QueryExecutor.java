@@ -15,6 +15,7 @@ import org.postgresql.jdbc.PreferQueryMode;
 import org.postgresql.util.HostSpec;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.util.List;
@@ -255,6 +256,42 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    */
   byte[] fastpathCall(int fnid, ParameterList params, boolean suppressBegin) throws SQLException;
 
+  /**
+   * Invoke a backend function via the fastpath interface, receiving its result straight into the
+   * given buffer instead of a new array.
+   *
+   * @param fnid the OID of the backend function to invoke
+   * @param params a ParameterList returned from {@link #createFastpathParameters} containing the
+   *        parameters to pass to the backend function
+   * @param suppressBegin if begin should be suppressed
+   * @param result the buffer to receive the binary-format result into, from its position on; it
+   *        may be a direct buffer
+   * @return the length of the result, or -1 if a void result was returned
+   * @throws SQLException if an error occurs while executing the fastpath call, or if the result is
+   *         longer than the space remaining in the buffer
+   */
+  int fastpathCall(int fnid, ParameterList params, boolean suppressBegin, ByteBuffer result)
+      throws SQLException;
+
+  /**
+   * Invokes several backend functions via the fastpath interface in one round trip: all the calls
+   * are sent before the results are read. The calls run one after the other, as if they were
+   * invoked with {@link #fastpathCall}, and a failing call does not prevent the next ones from
+   * running.
+   *
+   * <p>The server is not read while the calls are sent, so either the calls or their results must
+   * be small: sending large arguments to calls with large results may block both ends.</p>
+   *
+   * @param fnids the OIDs of the backend functions to invoke
+   * @param params for each call, a ParameterList returned from {@link #createFastpathParameters}
+   * @param suppressBegin if begin should be suppressed
+   * @return the binary-format results of the calls, null for void results
+   * @throws SQLException if an error occurs while executing any of the calls, once all of them were
+   *         executed
+   */
+  byte[][] fastpathCalls(int[] fnids, ParameterList[] params, boolean suppressBegin)
+      throws SQLException;
+
   /**
    * Issues a COPY FROM STDIN / COPY TO STDOUT statement and returns handler for associated
    * operation. Until the copy operation completes, no other database operation may be performed.
@@ -279,6 +316,13 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    */
   void setBinaryReceiveOids(Set<Integer> useBinaryForOids);
 
+  /**
+   * Sets the oids that should be received using binary encoding.
+   *
+   * @param useBinaryForOids The oids to request with binary encoding.
+   */
+  void setBinaryReceiveOids(OidSet useBinaryForOids);
+
   /**
    * Sets the oids that should be sent using binary encoding.
    *
@@ -286,6 +330,13 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    */
   void setBinarySendOids(Set<Integer> useBinaryForOids);
 
+  /**
+   * Sets the oids that should be sent using binary encoding.
+   *
+   * @param useBinaryForOids The oids to send with binary encoding.
+   */
+  void setBinarySendOids(OidSet useBinaryForOids);
+
   /**
    * Returns true if server uses integer instead of double for binary date and time encodings.
    *
@@ -353,6 +404,15 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    */
   String getServerVersion();
 
+  /**
+   * Returns the value the server last reported for a parameter in a ParameterStatus message. The
+   * server reports the parameters it marks as {@code GUC_REPORT}, which depend on its version.
+   *
+   * @param parameterName the name of the parameter, case insensitive
+   * @return the reported value, or null if the server did not report the parameter
+   */
+  String getParameterStatus(String parameterName);
+
   /**
    * Retrieve and clear the set of asynchronous notifications pending on this connection.
    *
@@ -7,6 +7,7 @@ package org.postgresql.core;
 
 import org.postgresql.PGNotification;
 import org.postgresql.PGProperty;
+import org.postgresql.hostchooser.HostLoadTracker;
 import org.postgresql.jdbc.AutoSave;
 import org.postgresql.jdbc.PreferQueryMode;
 import org.postgresql.util.HostSpec;
@@ -19,7 +20,10 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,6 +38,7 @@ public abstract class QueryExecutorBase implements QueryExecutor {
   private int cancelPid;
   private int cancelKey;
   private boolean closed = false;
+  private final AtomicBoolean loadCounted = new AtomicBoolean();
   private String serverVersion;
   private int serverVersionNum = 0;
   private TransactionState transactionState;
@@ -48,6 +53,8 @@ public abstract class QueryExecutorBase implements QueryExecutor {
 
   private SQLWarning warnings;
   private final ArrayList<PGNotification> notifications = new ArrayList<PGNotification>();
+  private final Map<String, String> parameterStatuses =
+      new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
 
   private final LruCache<Object, CachedQuery> statementCache;
   private final CachedQueryCreateAction cachedQueryCreateAction;
@@ -114,6 +121,22 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     return cancelPid;
   }
 
+  /**
+   * Counts this connection as open to its host, for {@code loadBalanceHosts=latency}. Called once
+   * the connection is established; {@link #close} and {@link #abort} count it as closed again.
+   */
+  protected void countConnection() {
+    if (loadCounted.compareAndSet(false, true)) {
+      HostLoadTracker.connectionOpened(pgStream.getHostSpec());
+    }
+  }
+
+  private void uncountConnection() {
+    if (loadCounted.compareAndSet(true, false)) {
+      HostLoadTracker.connectionClosed(pgStream.getHostSpec());
+    }
+  }
+
   @Override
   public void abort() {
     try {
@@ -121,6 +144,7 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     } catch (IOException e) {
       // ignore
     }
+    uncountConnection();
     closed = true;
   }
 
@@ -139,6 +163,7 @@ public abstract class QueryExecutorBase implements QueryExecutor {
       LOGGER.log(Level.FINEST, "Discarding IOException on close:", ioe);
     }
 
+    uncountConnection();
     closed = true;
   }
 
@@ -226,6 +251,21 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     return serverVersionNum = Utils.parseServerVersionStr(serverVersion);
   }
 
+  @Override
+  public synchronized String getParameterStatus(String parameterName) {
+    return parameterStatuses.get(parameterName);
+  }
+
+  /**
+   * Records the value of a parameter reported by the server.
+   *
+   * @param parameterName the name of the parameter
+   * @param value the new value
+   */
+  protected synchronized void onParameterStatus(String parameterName, String value) {
+    parameterStatuses.put(parameterName, value);
+  }
+
   public void setServerVersion(String serverVersion) {
     this.serverVersion = serverVersion;
   }
@@ -5,6 +5,8 @@
 
 package org.postgresql.core;
 
+import org.postgresql.util.PGBinaryCodec;
+import org.postgresql.util.PGCompositeFactory;
 import org.postgresql.util.PGobject;
 
 import java.sql.SQLException;
@@ -16,6 +18,24 @@ public interface TypeInfo {
 
   void addDataType(String type, Class<? extends PGobject> klass) throws SQLException;
 
+  /**
+   * Registers a binary codec for the given type, replacing any codec previously registered for it.
+   *
+   * @param type the PostgreSQL type name
+   * @param codec the codec handling values of the type
+   */
+  void addBinaryCodec(String type, PGBinaryCodec<?> codec);
+
+  /**
+   * Registers a factory for values of the given composite type and loads the attributes of the
+   * type, replacing any factory previously registered for it.
+   *
+   * @param type the PostgreSQL type name, a composite type or {@code record}
+   * @param factory the factory creating objects from the attributes of a value
+   * @throws SQLException if the type does not exist or is not a composite type
+   */
+  void addCompositeType(String type, PGCompositeFactory<?> factory) throws SQLException;
+
   /**
    * Look up the SQL typecode for a given type oid.
    *
@@ -85,6 +105,57 @@ public interface TypeInfo {
 
   Class<? extends PGobject> getPGobject(String type);
 
+  /**
+   * Look up the binary codec registered for the given type.
+   *
+   * @param type the PostgreSQL type name
+   * @return the codec, or null if the type has none
+   */
+  PGBinaryCodec<?> getBinaryCodec(String type);
+
+  /**
+   * Find the type whose binary codec handles instances of the given class.
+   *
+   * @param klass the class of a parameter value
+   * @return the PostgreSQL type name, or null if no codec handles the class
+   */
+  String getBinaryCodecType(Class<?> klass);
+
+  /**
+   * Checks if the given type is known to be an enum. Only types that have been looked up already
+   * are considered, this method never queries the database.
+   *
+   * @param oid the type's OID
+   * @return true if the type has been resolved before and is an enum
+   */
+  boolean isEnum(int oid);
+
+  /**
+   * Look up the factory registered for the given composite type.
+   *
+   * @param oid the composite type's OID
+   * @return the factory, or null if the type has none
+   */
+  PGCompositeFactory<?> getCompositeFactory(int oid);
+
+  /**
+   * Look up the attribute names of a registered composite type.
+   *
+   * @param oid the composite type's OID
+   * @return the attribute names in declaration order, or null if the type is not registered or is
+   *         {@code record}
+   */
+  String[] getCompositeAttributeNames(int oid);
+
+  /**
+   * Look up the attribute type OIDs of a registered composite type.
+   *
+   * @param oid the composite type's OID
+   * @return the attribute types in declaration order, or null if the type is not registered or is
+   *         {@code record}
+   */
+  int[] getCompositeAttributeTypes(int oid);
+
   String getJavaClass(int oid) throws SQLException;
 
   String getTypeForAlias(String alias);
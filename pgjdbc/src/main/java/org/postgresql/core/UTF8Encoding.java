@@ -8,8 +8,15 @@ package org.postgresql.core;
 import org.postgresql.util.GT;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 class UTF8Encoding extends Encoding {
+  /**
+   * Keep a local copy of the UTF-8 Charset so we can avoid synchronization overhead from looking up
+   * the Charset by name as String.getBytes(String) requires.
+   */
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
   private static final int MIN_2_BYTES = 0x80;
   private static final int MIN_3_BYTES = 0x800;
   private static final int MIN_4_BYTES = 0x10000;
@@ -67,12 +74,87 @@ class UTF8Encoding extends Encoding {
             actualLen, expectedLen, ch));
   }
 
+  /**
+   * Returns the offset of the first byte that is not ASCII. Eight bytes are checked per iteration:
+   * the bytes are sign extended when they are or-ed together, so the result is negative as soon as
+   * one of them has the high bit set.
+   *
+   * @param data the array containing UTF8-encoded data
+   * @param offset the offset of the first byte to check
+   * @param end the offset after the last byte to check
+   * @return the offset of the first byte with the high bit set, or {@code end}
+   */
+  static int skipAscii(byte[] data, int offset, int end) {
+    int i = offset;
+    for (int limit = end - 8; i <= limit; i += 8) {
+      if ((data[i] | data[i + 1] | data[i + 2] | data[i + 3]
+          | data[i + 4] | data[i + 5] | data[i + 6] | data[i + 7]) < 0) {
+        break;
+      }
+    }
+    while (i < end && data[i] >= 0) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Checks if all the characters of the string are ASCII, eight of them per iteration.
+   */
+  private static boolean isAscii(String s, int length) {
+    int i = 0;
+    for (int limit = length - 8; i <= limit; i += 8) {
+      if (((s.charAt(i) | s.charAt(i + 1) | s.charAt(i + 2) | s.charAt(i + 3)
+          | s.charAt(i + 4) | s.charAt(i + 5) | s.charAt(i + 6) | s.charAt(i + 7)) & 0xFF80) != 0) {
+        return false;
+      }
+    }
+    for (; i < length; i++) {
+      if (s.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Encodes a string to UTF-8. ASCII strings, by far the most common case for SQL text and
+   * identifiers, are copied into an array of the exact size. {@link String#getBytes(Charset)}
+   * allocates three bytes per char on JDK 8 and then trims the result.
+   *
+   * @param s the string to encode
+   * @return the UTF-8 bytes of the string
+   */
+  @SuppressWarnings("deprecation")
+  static byte[] encodeUTF8(String s) {
+    int length = s.length();
+    if (!isAscii(s, length)) {
+      return s.getBytes(UTF_8);
+    }
+    byte[] bytes = new byte[length];
+    // drops the high byte of each char, which is zero for ASCII
+    s.getBytes(0, length, bytes, 0);
+    return bytes;
+  }
+
+  @Override
+  public byte[] encode(String s) throws IOException {
+    if (s == null) {
+      return null;
+    }
+    return encodeUTF8(s);
+  }
+
   /**
    * Custom byte[] -> String conversion routine for UTF-8 only. This is about twice as fast as using
    * the String(byte[],int,int,String) ctor, at least under JDK 1.4.2. The extra checks for illegal
    * representations add about 10-15% overhead, but they seem worth it given the number of SQL_ASCII
    * databases out there.
    *
+   * <p>Runs of ASCII bytes are found eight bytes at a time. Values that are entirely ASCII are
+   * turned into a string without the intermediate char array and without locking, on JDK 9+ such
+   * a string is stored in its compact (Latin-1) form with a single copy.</p>
+   *
    * @param data the array containing UTF8-encoded data
    * @param offset the offset of the first byte in {@code data} to decode from
    * @param length the number of bytes to decode
@@ -80,7 +162,20 @@ class UTF8Encoding extends Encoding {
    * @throws IOException if something goes wrong
    */
   @Override
-  public synchronized String decode(byte[] data, int offset, int length) throws IOException {
+  @SuppressWarnings("deprecation")
+  public String decode(byte[] data, int offset, int length) throws IOException {
+    int end = offset + length;
+    int ascii = skipAscii(data, offset, end);
+    if (ascii == end) {
+      // the hibyte constructor widens every byte to a char with a zero high byte
+      return new String(data, 0, offset, length);
+    }
+    return decodeMultibyte(data, offset, ascii, end);
+  }
+
+  private synchronized String decodeMultibyte(byte[] data, int offset, int ascii, int end)
+      throws IOException {
+    int length = end - offset;
     char[] cdata = decoderArray;
     if (cdata.length < length) {
       cdata = decoderArray = new char[length];
@@ -88,7 +183,9 @@ class UTF8Encoding extends Encoding {
 
     int in = offset;
     int out = 0;
-    int end = length + offset;
+    while (in < ascii) {
+      cdata[out++] = (char) data[in++];
+    }
 
     try {
       while (in < end) {
@@ -8,6 +8,7 @@ package org.postgresql.core;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A faster version of BufferedInputStream. Does no synchronisation and allows direct access to the
@@ -29,6 +30,12 @@ public class VisibleBufferedInputStream extends InputStream {
    */
   private static final int STRING_SCAN_SPAN = 1024;
 
+  /**
+   * The largest buffer kept by {@link #adaptBufferSize} when the observed demand is high. Larger
+   * buffers are only used while a message needs them.
+   */
+  static final int MAXIMUM_RETAINED_SIZE = 65536;
+
   /**
    * The wrapped input stream.
    */
@@ -49,6 +56,23 @@ public class VisibleBufferedInputStream extends InputStream {
    */
   private int endIndex;
 
+  /**
+   * The size the buffer was created with, it never shrinks below it.
+   */
+  private final int initialSize;
+
+  /**
+   * The largest number of bytes that had to be available in the buffer since the last call to
+   * {@link #adaptBufferSize}.
+   */
+  private int peakDemand;
+
+  /**
+   * The buffer size expected to be needed, the peak demand of recent cycles decaying by half on
+   * every cycle.
+   */
+  private int demand;
+
   /**
    * Creates a new buffer around the given stream.
    *
@@ -57,7 +81,8 @@ public class VisibleBufferedInputStream extends InputStream {
    */
   public VisibleBufferedInputStream(InputStream in, int bufferSize) {
     wrapped = in;
-    buffer = new byte[bufferSize < MINIMUM_READ ? MINIMUM_READ : bufferSize];
+    initialSize = bufferSize < MINIMUM_READ ? MINIMUM_READ : bufferSize;
+    buffer = new byte[initialSize];
   }
 
   /**
@@ -104,6 +129,9 @@ public class VisibleBufferedInputStream extends InputStream {
    * @throws IOException If reading of the wrapped stream failed.
    */
   public boolean ensureBytes(int n) throws IOException {
+    if (n > peakDemand) {
+      peakDemand = n;
+    }
     int required = n - endIndex + index;
     while (required > 0) {
       if (!readMore(required)) {
@@ -154,6 +182,27 @@ public class VisibleBufferedInputStream extends InputStream {
     buffer = buf;
   }
 
+  /**
+   * Resizes the buffer to the demand observed recently. This is meant to be called between
+   * messages, when the buffer is (nearly) drained: a buffer that grew to hold one large message is
+   * released, so that idle connections do not keep it, while a workload that keeps needing a larger
+   * buffer keeps it (up to {@link #MAXIMUM_RETAINED_SIZE}) rather than growing it over again.
+   */
+  public void adaptBufferSize() {
+    demand = Math.max(peakDemand, demand / 2);
+    peakDemand = 0;
+
+    int target = initialSize;
+    while (target < demand && target < MAXIMUM_RETAINED_SIZE) {
+      target <<= 1;
+    }
+    if (buffer.length > target && endIndex - index <= target) {
+      byte[] buf = new byte[target];
+      moveBufferTo(buf);
+      buffer = buf;
+    }
+  }
+
   /**
    * Compacts the unread bytes of the buffer to the beginning of the buffer.
    */
@@ -223,6 +272,42 @@ public class VisibleBufferedInputStream extends InputStream {
     return read;
   }
 
+  /**
+   * Reads exactly {@code len} bytes into the given buffer, starting at its position, which is
+   * advanced. Bytes already buffered are copied straight into the buffer, so that direct buffers
+   * are filled without a temporary array.
+   *
+   * @param to the buffer to fill, which must have {@code len} bytes remaining
+   * @param len the number of bytes to read
+   * @return false if the end of the stream was reached first
+   * @throws IOException if reading the wrapped stream fails
+   */
+  public boolean read(ByteBuffer to, int len) throws IOException {
+    if (to.hasArray()) {
+      int off = to.arrayOffset() + to.position();
+      int read = 0;
+      while (read < len) {
+        int r = read(to.array(), off + read, len - read);
+        if (r < 0) {
+          return false;
+        }
+        read += r;
+      }
+      to.position(to.position() + len);
+      return true;
+    }
+    while (len > 0) {
+      if (index == endIndex && !readMore(Math.min(len, buffer.length))) {
+        return false;
+      }
+      int n = Math.min(len, endIndex - index);
+      to.put(buffer, index, n);
+      index += n;
+      len -= n;
+    }
+    return true;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -287,10 +372,14 @@ public class VisibleBufferedInputStream extends InputStream {
           return pos - index;
         }
       }
+      int scanned = pos - index;
+      if (scanned + STRING_SCAN_SPAN > peakDemand) {
+        peakDemand = scanned + STRING_SCAN_SPAN;
+      }
       if (!readMore(STRING_SCAN_SPAN)) {
         throw new EOFException();
       }
-      pos = index;
+      pos = index + scanned;
     }
   }
 }
@@ -112,6 +112,11 @@ class CompositeParameterList implements V3ParameterList {
     subparams[sub].setText(index - offsets[sub], stream);
   }
 
+  public void setText(int index, InputStream stream, int length, int oid) throws SQLException {
+    int sub = findSubParam(index);
+    subparams[sub].setText(index - offsets[sub], stream, length, oid);
+  }
+
   public void setNull(int index, int oid) throws SQLException {
     int sub = findSubParam(index);
     subparams[sub].setNull(index - offsets[sub], oid);
@@ -19,6 +19,7 @@ import org.postgresql.hostchooser.CandidateHost;
 import org.postgresql.hostchooser.GlobalHostStatusTracker;
 import org.postgresql.hostchooser.HostChooser;
 import org.postgresql.hostchooser.HostChooserFactory;
+import org.postgresql.hostchooser.HostLoadTracker;
 import org.postgresql.hostchooser.HostRequirement;
 import org.postgresql.hostchooser.HostStatus;
 import org.postgresql.sspi.ISSPIClient;
@@ -31,6 +32,7 @@ import org.postgresql.util.ServerErrorMessage;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.net.Socket;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -39,6 +41,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -129,6 +134,21 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
 
     HostChooser hostChooser =
         HostChooserFactory.createHostChooser(hostSpecs, targetServerType, info);
+
+    int parallelConnectDelay = PGProperty.PARALLEL_CONNECT_DELAY.getInt(info);
+    if (parallelConnectDelay > 0 && hostSpecs.length > 1) {
+      List<HostSpec> hosts = new ArrayList<HostSpec>();
+      for (CandidateHost candidateHost : hostChooser) {
+        if (!hosts.contains(candidateHost.hostSpec)) {
+          hosts.add(candidateHost.hostSpec);
+        }
+      }
+      ParallelConnect parallelConnect = new ParallelConnect(user, database, info, socketFactory,
+          trySSL, requireSSL, requireTCPKeepAlive, connectTimeout,
+          targetServerType != HostRequirement.any);
+      return parallelConnect.connect(hosts, targetServerType, parallelConnectDelay);
+    }
+
     Iterator<CandidateHost> hostIter = hostChooser.iterator();
     Map<HostSpec, HostStatus> knownStates = new HashMap<HostSpec, HostStatus>();
     while (hostIter.hasNext()) {
@@ -153,68 +173,18 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
 
       PGStream newStream = null;
       try {
+        int startupVersion = getStartupVersion(info);
+        long start = System.nanoTime();
         newStream = new PGStream(socketFactory, hostSpec, connectTimeout);
+        newStream = tryConnect(newStream, user, database, info, trySSL, requireSSL,
+            requireTCPKeepAlive, connectTimeout, startupVersion);
 
-        // Construct and send an ssl startup packet if requested.
-        if (trySSL) {
-          newStream = enableSSL(newStream, requireSSL, info, connectTimeout);
-        }
-
-        // Set the socket timeout if the "socketTimeout" property has been set.
-        int socketTimeout = PGProperty.SOCKET_TIMEOUT.getInt(info);
-        if (socketTimeout > 0) {
-          newStream.getSocket().setSoTimeout(socketTimeout * 1000);
-        }
-
-        // Enable TCP keep-alive probe if required.
-        newStream.getSocket().setKeepAlive(requireTCPKeepAlive);
-
-        // Try to set SO_SNDBUF and SO_RECVBUF socket options, if requested.
-        // If receiveBufferSize and send_buffer_size are set to a value greater
-        // than 0, adjust. -1 means use the system default, 0 is ignored since not
-        // supported.
-
-        // Set SO_RECVBUF read buffer size
-        int receiveBufferSize = PGProperty.RECEIVE_BUFFER_SIZE.getInt(info);
-        if (receiveBufferSize > -1) {
-          // value of 0 not a valid buffer size value
-          if (receiveBufferSize > 0) {
-            newStream.getSocket().setReceiveBufferSize(receiveBufferSize);
-          } else {
-            LOGGER.log(Level.WARNING, "Ignore invalid value for receiveBufferSize: {0}", receiveBufferSize);
-          }
-        }
-
-        // Set SO_SNDBUF write buffer size
-        int sendBufferSize = PGProperty.SEND_BUFFER_SIZE.getInt(info);
-        if (sendBufferSize > -1) {
-          if (sendBufferSize > 0) {
-            newStream.getSocket().setSendBufferSize(sendBufferSize);
-          } else {
-            LOGGER.log(Level.WARNING, "Ignore invalid value for sendBufferSize: {0}", sendBufferSize);
-          }
-        }
-
-        LOGGER.log(Level.FINE, "Receive Buffer Size is {0}", newStream.getSocket().getReceiveBufferSize());
-        LOGGER.log(Level.FINE, "Send Buffer Size is {0}", newStream.getSocket().getSendBufferSize());
-
-        List<String[]> paramList = getParametersForStartup(user, database, info);
-        sendStartupPacket(newStream, paramList);
-
-        // Do authentication (until AuthenticationOk).
-        doAuthentication(newStream, hostSpec.getHost(), user, info);
-
-        int cancelSignalTimeout = PGProperty.CANCEL_SIGNAL_TIMEOUT.getInt(info) * 1000;
-
-        // Do final startup.
-        QueryExecutor queryExecutor = new QueryExecutorImpl(newStream, user, database,
-            cancelSignalTimeout, info);
+        QueryExecutor queryExecutor = createQueryExecutor(newStream, user, database, info);
 
         // Check Master or Secondary
-        HostStatus hostStatus = HostStatus.ConnectOK;
-        if (candidateHost.targetServerType != HostRequirement.any) {
-          hostStatus = isMaster(queryExecutor) ? HostStatus.Master : HostStatus.Secondary;
-        }
+        HostStatus hostStatus = setupConnection(queryExecutor, info, startupVersion,
+            candidateHost.targetServerType != HostRequirement.any);
+        HostLoadTracker.recordLatency(hostSpec, System.nanoTime() - start);
         GlobalHostStatusTracker.reportHostStatus(hostSpec, hostStatus);
         knownStates.put(hostSpec, hostStatus);
         if (!candidateHost.targetServerType.allowConnectingTo(hostStatus)) {
@@ -222,8 +192,6 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
           continue;
         }
 
-        runInitialQueries(queryExecutor, info);
-
         // And we're done.
         return queryExecutor;
       } catch (UnsupportedProtocolException upe) {
@@ -273,7 +241,329 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
         PSQLState.CONNECTION_UNABLE_TO_CONNECT);
   }
 
-  private List<String[]> getParametersForStartup(String user, String database, Properties info) {
+  /**
+   * Races connection attempts to several hosts, in the spirit of "happy eyeballs" (RFC 8305). The
+   * attempts start one after another, each {@code parallelConnectDelay} milliseconds after the
+   * previous one or as soon as an attempt fails, and run on their own threads up to the check of
+   * the server type. The first connection to a host of the required type wins and the others are
+   * aborted. With {@code preferSecondary}, a master is only used once no secondary turned up.
+   */
+  private class ParallelConnect {
+    private final String user;
+    private final String database;
+    private final Properties info;
+    private final SocketFactory socketFactory;
+    private final boolean trySSL;
+    private final boolean requireSSL;
+    private final boolean requireTCPKeepAlive;
+    private final int connectTimeout;
+    private final boolean checkStatus;
+    private final BlockingQueue<Attempt> completed = new LinkedBlockingQueue<Attempt>();
+
+    ParallelConnect(String user, String database, Properties info, SocketFactory socketFactory,
+        boolean trySSL, boolean requireSSL, boolean requireTCPKeepAlive, int connectTimeout,
+        boolean checkStatus) {
+      this.user = user;
+      this.database = database;
+      this.info = info;
+      this.socketFactory = socketFactory;
+      this.trySSL = trySSL;
+      this.requireSSL = requireSSL;
+      this.requireTCPKeepAlive = requireTCPKeepAlive;
+      this.connectTimeout = connectTimeout;
+      this.checkStatus = checkStatus;
+    }
+
+    QueryExecutor connect(List<HostSpec> hosts, HostRequirement targetServerType, int delay)
+        throws SQLException {
+      HostRequirement preferred = targetServerType == HostRequirement.preferSecondary
+          ? HostRequirement.secondary : targetServerType;
+      List<Attempt> attempts = new ArrayList<Attempt>();
+      Attempt winner = null;
+      SQLException lastError = null;
+      boolean connected = false;
+      int running = 0;
+      try {
+        while (winner == null && (running > 0 || attempts.size() < hosts.size())) {
+          Attempt attempt = null;
+          if (running > 0) {
+            attempt = attempts.size() < hosts.size()
+                ? completed.poll(delay, TimeUnit.MILLISECONDS) : completed.take();
+          }
+          if (attempt == null) {
+            // nothing is running, or the running attempts are slow: try the next host
+            attempts.add(start(hosts.get(attempts.size())));
+            running++;
+            continue;
+          }
+          running--;
+          if (attempt.error != null) {
+            lastError = attempt.error;
+            if (attempts.size() < hosts.size()) {
+              attempts.add(start(hosts.get(attempts.size())));
+              running++;
+            }
+          } else {
+            connected = true;
+            if (preferred.allowConnectingTo(attempt.hostStatus)) {
+              winner = attempt;
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        abandon(attempts, null);
+        throw new PSQLException(GT.tr("Interrupted while attempting to connect."),
+            PSQLState.CONNECTION_UNABLE_TO_CONNECT, e);
+      }
+
+      if (winner == null) {
+        // every attempt is over, fall back to the first acceptable host in order
+        for (Attempt attempt : attempts) {
+          if (attempt.error == null && targetServerType.allowConnectingTo(attempt.hostStatus)) {
+            winner = attempt;
+            break;
+          }
+        }
+      }
+      abandon(attempts, winner);
+      if (winner != null) {
+        return winner.queryExecutor;
+      }
+      if (lastError != null && !connected) {
+        throw lastError;
+      }
+      throw new PSQLException(GT
+          .tr("Could not find a server with specified targetServerType: {0}", targetServerType),
+          PSQLState.CONNECTION_UNABLE_TO_CONNECT);
+    }
+
+    private Attempt start(HostSpec hostSpec) {
+      Attempt attempt = new Attempt(hostSpec);
+      Thread thread = new Thread(attempt, "PostgreSQL JDBC driver connection thread");
+      thread.setDaemon(true); // Don't prevent the VM from shutting down
+      thread.start();
+      return attempt;
+    }
+
+    private void abandon(List<Attempt> attempts, Attempt winner) {
+      for (Attempt attempt : attempts) {
+        if (attempt != winner) {
+          attempt.abandon();
+        }
+      }
+    }
+
+    /**
+     * A connection attempt to one host.
+     */
+    private class Attempt implements Runnable {
+      private final HostSpec hostSpec;
+      private Socket socket;
+      private boolean abandoned;
+      // set before the attempt is queued as completed
+      private QueryExecutor queryExecutor;
+      private HostStatus hostStatus = HostStatus.ConnectFail;
+      private SQLException error;
+
+      Attempt(HostSpec hostSpec) {
+        this.hostSpec = hostSpec;
+      }
+
+      public void run() {
+        LOGGER.log(Level.FINE, "Trying to establish a protocol version 3 connection to {0}",
+            hostSpec);
+        QueryExecutor newExecutor = null;
+        HostStatus newStatus = HostStatus.ConnectFail;
+        SQLException newError = null;
+        PGStream newStream = null;
+        try {
+          int startupVersion = getStartupVersion(info);
+          long start = System.nanoTime();
+          newStream = new PGStream(socketFactory, hostSpec, connectTimeout);
+          synchronized (this) {
+            // closing the plain socket aborts the SSL handshake and authentication too
+            socket = newStream.getSocket();
+            if (abandoned) {
+              closeStream(newStream);
+              return;
+            }
+          }
+          newStream = tryConnect(newStream, user, database, info, trySSL, requireSSL,
+              requireTCPKeepAlive, connectTimeout, startupVersion);
+          newExecutor = createQueryExecutor(newStream, user, database, info);
+          newStatus = setupConnection(newExecutor, info, startupVersion, checkStatus);
+          HostLoadTracker.recordLatency(hostSpec, System.nanoTime() - start);
+        } catch (ConnectException cex) {
+          newError = new PSQLException(GT.tr(
+              "Connection to {0} refused. Check that the hostname and port are correct and that the postmaster is accepting TCP/IP connections.",
+              hostSpec), PSQLState.CONNECTION_UNABLE_TO_CONNECT, cex);
+        } catch (IOException ioe) {
+          newError = new PSQLException(GT.tr("The connection attempt failed."),
+              PSQLState.CONNECTION_UNABLE_TO_CONNECT, ioe);
+        } catch (SQLException se) {
+          newError = se;
+        } catch (RuntimeException e) {
+          newError = new PSQLException(GT.tr(
+              "Something unusual has occurred to cause the driver to fail. Please report this exception."),
+              PSQLState.UNEXPECTED_ERROR, e);
+        }
+
+        if (newError != null) {
+          closeStream(newStream);
+          newStatus = HostStatus.ConnectFail;
+        }
+        synchronized (this) {
+          if (abandoned) {
+            // another host won, and failures caused by the abort say nothing about this one
+            if (newError == null) {
+              newExecutor.close();
+            }
+            return;
+          }
+          queryExecutor = newExecutor;
+          hostStatus = newStatus;
+          error = newError;
+        }
+        if (newError != null) {
+          log(Level.WARNING, "Exception occurred while connecting to {0}", newError, hostSpec);
+        }
+        GlobalHostStatusTracker.reportHostStatus(hostSpec, newStatus);
+        completed.add(this);
+      }
+
+      /**
+       * Aborts the attempt, or closes its connection if it completed already.
+       */
+      synchronized void abandon() {
+        abandoned = true;
+        if (queryExecutor != null) {
+          queryExecutor.close();
+          queryExecutor = null;
+        } else if (socket != null) {
+          try {
+            socket.close();
+          } catch (IOException e) {
+            // ignore
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Sets up a new connection up to AuthenticationOk: negotiates SSL, sets the socket options and
+   * sends the StartupMessage.
+   *
+   * @return the stream, which may differ from the given one if SSL had to be given up
+   */
+  private PGStream tryConnect(PGStream newStream, String user, String database, Properties info,
+      boolean trySSL, boolean requireSSL, boolean requireTCPKeepAlive, int connectTimeout,
+      int startupVersion) throws SQLException, IOException {
+    HostSpec hostSpec = newStream.getHostSpec();
+
+    // Construct and send an ssl startup packet if requested.
+    if (trySSL) {
+      newStream = enableSSL(newStream, requireSSL, info, connectTimeout);
+    }
+
+    // Set the socket timeout if the "socketTimeout" property has been set.
+    int socketTimeout = PGProperty.SOCKET_TIMEOUT.getInt(info);
+    if (socketTimeout > 0) {
+      newStream.getSocket().setSoTimeout(socketTimeout * 1000);
+    }
+
+    // Enable TCP keep-alive probe if required.
+    newStream.getSocket().setKeepAlive(requireTCPKeepAlive);
+
+    // Try to set SO_SNDBUF and SO_RECVBUF socket options, if requested.
+    // If receiveBufferSize and send_buffer_size are set to a value greater
+    // than 0, adjust. -1 means use the system default, 0 is ignored since not
+    // supported.
+
+    // Set SO_RECVBUF read buffer size
+    int receiveBufferSize = PGProperty.RECEIVE_BUFFER_SIZE.getInt(info);
+    if (receiveBufferSize > -1) {
+      // value of 0 not a valid buffer size value
+      if (receiveBufferSize > 0) {
+        newStream.getSocket().setReceiveBufferSize(receiveBufferSize);
+      } else {
+        LOGGER.log(Level.WARNING, "Ignore invalid value for receiveBufferSize: {0}", receiveBufferSize);
+      }
+    }
+
+    // Set SO_SNDBUF write buffer size
+    int sendBufferSize = PGProperty.SEND_BUFFER_SIZE.getInt(info);
+    if (sendBufferSize > -1) {
+      if (sendBufferSize > 0) {
+        newStream.getSocket().setSendBufferSize(sendBufferSize);
+      } else {
+        LOGGER.log(Level.WARNING, "Ignore invalid value for sendBufferSize: {0}", sendBufferSize);
+      }
+    }
+
+    LOGGER.log(Level.FINE, "Receive Buffer Size is {0}", newStream.getSocket().getReceiveBufferSize());
+    LOGGER.log(Level.FINE, "Send Buffer Size is {0}", newStream.getSocket().getSendBufferSize());
+
+    List<String[]> paramList = getParametersForStartup(user, database, info, startupVersion);
+    sendStartupPacket(newStream, paramList);
+
+    // Do authentication (until AuthenticationOk).
+    doAuthentication(newStream, hostSpec.getHost(), user, info);
+
+    return newStream;
+  }
+
+  private QueryExecutor createQueryExecutor(PGStream newStream, String user, String database,
+      Properties info) throws SQLException, IOException {
+    int cancelSignalTimeout = PGProperty.CANCEL_SIGNAL_TIMEOUT.getInt(info) * 1000;
+
+    // Do final startup.
+    return new QueryExecutorImpl(newStream, user, database, cancelSignalTimeout, info);
+  }
+
+  /**
+   * Runs the initial queries on a new connection and, if asked to, finds out whether the server
+   * is a master.
+   *
+   * @return {@link HostStatus#Master} or {@link HostStatus#Secondary} if asked to check the
+   *         status, {@link HostStatus#ConnectOK} otherwise
+   */
+  private HostStatus setupConnection(QueryExecutor queryExecutor, Properties info,
+      int startupVersion, boolean checkStatus) throws SQLException, IOException {
+    String initialQueries = getInitialQueries(queryExecutor, info, startupVersion);
+    HostStatus hostStatus = HostStatus.ConnectOK;
+    if (checkStatus) {
+      Boolean readOnly = getReportedReadOnly(queryExecutor);
+      if (readOnly == null) {
+        // ask in the same round trip as the initial queries
+        String sql = "show transaction_read_only";
+        if (initialQueries != null) {
+          sql = initialQueries + "; " + sql;
+          initialQueries = null;
+        }
+        byte[][] results = SetupQueryRunner.run(queryExecutor, sql, true);
+        readOnly = !queryExecutor.getEncoding().decode(results[0]).equalsIgnoreCase("off");
+      }
+      hostStatus = readOnly ? HostStatus.Secondary : HostStatus.Master;
+    }
+    if (initialQueries != null) {
+      SetupQueryRunner.run(queryExecutor, initialQueries, false);
+    }
+    return hostStatus;
+  }
+
+  /**
+   * Returns the server version to assume when building the StartupMessage, as given by the
+   * {@code assumeMinServerVersion} property. Nothing else may enable the settings of newer
+   * servers there: connection poolers in front of the server reject unknown startup parameters.
+   */
+  private static int getStartupVersion(Properties info) {
+    return Utils.parseServerVersionStr(PGProperty.ASSUME_MIN_SERVER_VERSION.get(info));
+  }
+
+  private List<String[]> getParametersForStartup(String user, String database, Properties info,
+      int startupVersion) {
     List<String[]> paramList = new ArrayList<String[]>();
     paramList.add(new String[]{"user", user});
     paramList.add(new String[]{"database", database});
@@ -283,7 +573,7 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
 
     Version assumeVersion = ServerVersion.from(PGProperty.ASSUME_MIN_SERVER_VERSION.get(info));
 
-    if (assumeVersion.getVersionNum() >= ServerVersion.v9_0.getVersionNum()) {
+    if (startupVersion >= ServerVersion.v9_0.getVersionNum()) {
       // User is explicitly telling us this is a 9.0+ server so set properties here:
       paramList.add(new String[]{"extra_float_digits", "3"});
       String appName = PGProperty.APPLICATION_NAME.get(info);
@@ -670,34 +960,51 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
 
   }
 
-  private void runInitialQueries(QueryExecutor queryExecutor, Properties info)
-      throws SQLException {
-    String assumeMinServerVersion = PGProperty.ASSUME_MIN_SERVER_VERSION.get(info);
-    if (Utils.parseServerVersionStr(assumeMinServerVersion) >= ServerVersion.v9_0.getVersionNum()) {
+  /**
+   * Returns the statements that set up the session when the StartupMessage could not carry the
+   * settings, or null if there are none.
+   */
+  private String getInitialQueries(QueryExecutor queryExecutor, Properties info,
+      int startupVersion) throws SQLException {
+    if (startupVersion >= ServerVersion.v9_0.getVersionNum()) {
       // We already sent the parameter values in the StartupMessage so skip this
-      return;
+      return null;
     }
 
     final int dbVersion = queryExecutor.getServerVersionNum();
-
-    if (dbVersion >= ServerVersion.v9_0.getVersionNum()) {
-      SetupQueryRunner.run(queryExecutor, "SET extra_float_digits = 3", false);
+    if (dbVersion < ServerVersion.v9_0.getVersionNum()) {
+      return null;
     }
 
+    StringBuilder sql = new StringBuilder("SET extra_float_digits = 3");
     String appName = PGProperty.APPLICATION_NAME.get(info);
-    if (appName != null && dbVersion >= ServerVersion.v9_0.getVersionNum()) {
-      StringBuilder sql = new StringBuilder();
-      sql.append("SET application_name = '");
+    if (appName != null) {
+      sql.append("; SET application_name = '");
       Utils.escapeLiteral(sql, appName, queryExecutor.getStandardConformingStrings());
       sql.append("'");
-      SetupQueryRunner.run(queryExecutor, sql.toString(), false);
     }
-
+    return sql.toString();
   }
 
-  private boolean isMaster(QueryExecutor queryExecutor) throws SQLException, IOException {
-    byte[][] results = SetupQueryRunner.run(queryExecutor, "show transaction_read_only", true);
-    String value = queryExecutor.getEncoding().decode(results[0]);
-    return value.equalsIgnoreCase("off");
+  /**
+   * Tells from the ParameterStatus messages received at startup whether the server only accepts
+   * read-only transactions, which saves a query on servers that report it.
+   *
+   * @return whether new transactions are read-only, or null if the server did not report it
+   */
+  private static Boolean getReportedReadOnly(QueryExecutor queryExecutor) {
+    String readOnly = queryExecutor.getParameterStatus("transaction_read_only");
+    if (readOnly != null) {
+      return !readOnly.equalsIgnoreCase("off");
+    }
+    String hotStandby = queryExecutor.getParameterStatus("in_hot_standby");
+    if (hotStandby == null) {
+      return null;
+    }
+    if (!hotStandby.equalsIgnoreCase("off")) {
+      return true;
+    }
+    String defaultReadOnly = queryExecutor.getParameterStatus("default_transaction_read_only");
+    return defaultReadOnly == null ? null : !defaultReadOnly.equalsIgnoreCase("off");
   }
 }
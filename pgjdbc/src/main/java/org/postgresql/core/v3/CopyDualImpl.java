@@ -8,12 +8,13 @@ package org.postgresql.core.v3;
 import org.postgresql.copy.CopyDual;
 import org.postgresql.util.PSQLException;
 
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.Queue;
 
 public class CopyDualImpl extends CopyOperationImpl implements CopyDual {
-  private Queue<byte[]> received = new LinkedList<byte[]>();
+  private LinkedList<byte[]> received = new LinkedList<byte[]>();
 
   public void writeToCopy(byte[] data, int off, int siz) throws SQLException {
     queryExecutor.writeToCopy(this, data, off, siz);
@@ -44,6 +45,42 @@ public class CopyDualImpl extends CopyOperationImpl implements CopyDual {
     return received.poll();
   }
 
+  @Override
+  public int readFromCopy(ByteBuffer buffer, boolean block) throws SQLException {
+    if (received.isEmpty()) {
+      int length = receiveInto(buffer, block);
+      if (length >= 0) {
+        return length;
+      }
+    }
+
+    byte[] data = received.peek();
+    if (data == null) {
+      return -1;
+    }
+    if (data.length <= buffer.remaining()) {
+      buffer.put(data);
+      received.poll();
+    }
+    return data.length;
+  }
+
+  @Override
+  public int readPartFromCopy(ByteBuffer buffer, boolean block) throws SQLException {
+    byte[] data = received.peek();
+    if (data == null) {
+      return receivePartInto(buffer, block);
+    }
+
+    int length = Math.min(data.length, buffer.remaining());
+    buffer.put(data, 0, length);
+    received.poll();
+    if (length < data.length) {
+      received.addFirst(Arrays.copyOfRange(data, length, data.length));
+    }
+    return length;
+  }
+
   @Override
   public void handleCommandStatus(String status) throws PSQLException {
   }
@@ -10,6 +10,7 @@ import org.postgresql.util.GT;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 
 public abstract class CopyOperationImpl implements CopyOperation {
@@ -18,6 +19,28 @@ public abstract class CopyOperationImpl implements CopyOperation {
   int[] fieldFormats;
   long handledRowCount = -1;
 
+  /**
+   * The buffer the next CopyData payload is received into instead of a new array, or null. A
+   * payload that does not fit in the remaining space is handed to {@link #handleCopydata} instead.
+   */
+  ByteBuffer copyTarget;
+
+  /**
+   * Whether {@link #copyTarget} accepts the part of a payload that fits in its remaining space.
+   */
+  boolean copyTargetPartial;
+
+  /**
+   * The length of the payload received into {@link #copyTarget}, or -1 if none was.
+   */
+  int copyTargetLength = -1;
+
+  /**
+   * The number of bytes of the current CopyData payload that were not received yet, when only part
+   * of it was received into {@link #copyTarget}.
+   */
+  int copyDataRemaining;
+
   void init(QueryExecutorImpl q, int fmt, int[] fmts) {
     queryExecutor = q;
     rowFormat = fmt;
@@ -64,6 +87,45 @@ public abstract class CopyOperationImpl implements CopyOperation {
    */
   protected abstract void handleCopydata(byte[] data) throws PSQLException;
 
+  /**
+   * Receives the next CopyData payload into the given buffer, at its position.
+   *
+   * @param buffer the buffer to append the payload to
+   * @param block whether to block waiting for data
+   * @return the length of the payload received into the buffer, or -1 if none was. A payload
+   *     longer than the space remaining in the buffer is passed to {@link #handleCopydata}
+   * @throws SQLException if reading fails
+   */
+  int receiveInto(ByteBuffer buffer, boolean block) throws SQLException {
+    return receiveInto(buffer, false, block);
+  }
+
+  /**
+   * Receives CopyData payloads into the given buffer, at its position, up to its limit: the rest
+   * of a payload partly received by the previous call, or the next payload. The payloads are
+   * received straight from the connection, over several calls if they do not fit.
+   *
+   * @param buffer the buffer to append data to
+   * @param block whether to block waiting for data
+   * @return the number of bytes received into the buffer, or -1 if none was
+   * @throws SQLException if reading fails
+   */
+  int receivePartInto(ByteBuffer buffer, boolean block) throws SQLException {
+    return receiveInto(buffer, true, block);
+  }
+
+  private int receiveInto(ByteBuffer buffer, boolean partial, boolean block) throws SQLException {
+    copyTarget = buffer;
+    copyTargetPartial = partial;
+    copyTargetLength = -1;
+    try {
+      queryExecutor.readFromCopy(this, block);
+    } finally {
+      copyTarget = null;
+    }
+    return copyTargetLength;
+  }
+
   public long getHandledRowCount() {
     return handledRowCount;
   }
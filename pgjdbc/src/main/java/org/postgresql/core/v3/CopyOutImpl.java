@@ -7,7 +7,9 @@ package org.postgresql.core.v3;
 
 import org.postgresql.copy.CopyOut;
 
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.Arrays;
 
 /**
  * Anticipated flow of a COPY TO STDOUT operation:
@@ -32,9 +34,44 @@ public class CopyOutImpl extends CopyOperationImpl implements CopyOut {
 
   @Override
   public byte[] readFromCopy(boolean block) throws SQLException {
+    // a row left by readFromCopy(ByteBuffer) comes first
+    if (currentDataRow == null) {
+      queryExecutor.readFromCopy(this, block);
+    }
+    byte[] row = currentDataRow;
     currentDataRow = null;
-    queryExecutor.readFromCopy(this, block);
-    return currentDataRow;
+    return row;
+  }
+
+  @Override
+  public int readFromCopy(ByteBuffer buffer, boolean block) throws SQLException {
+    if (currentDataRow == null) {
+      int length = receiveInto(buffer, block);
+      if (length >= 0 || currentDataRow == null) {
+        return length;
+      }
+    }
+
+    byte[] row = currentDataRow;
+    if (row.length <= buffer.remaining()) {
+      buffer.put(row);
+      currentDataRow = null;
+    }
+    return row.length;
+  }
+
+  @Override
+  public int readPartFromCopy(ByteBuffer buffer, boolean block) throws SQLException {
+    if (currentDataRow == null) {
+      return receivePartInto(buffer, block);
+    }
+
+    // a row left by readFromCopy(ByteBuffer), only when both are used
+    byte[] row = currentDataRow;
+    int length = Math.min(row.length, buffer.remaining());
+    buffer.put(row, 0, length);
+    currentDataRow = length == row.length ? null : Arrays.copyOfRange(row, length, row.length);
+    return length;
   }
 
   protected void handleCopydata(byte[] data) {
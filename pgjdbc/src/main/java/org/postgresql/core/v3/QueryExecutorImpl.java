@@ -15,6 +15,7 @@ import org.postgresql.core.EncodingPredictor;
 import org.postgresql.core.Field;
 import org.postgresql.core.NativeQuery;
 import org.postgresql.core.Oid;
+import org.postgresql.core.OidSet;
 import org.postgresql.core.PGBindException;
 import org.postgresql.core.PGStream;
 import org.postgresql.core.ParameterList;
@@ -48,6 +49,7 @@ import java.lang.ref.ReferenceQueue;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
@@ -56,7 +58,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
@@ -91,14 +92,15 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   private boolean integerDateTimes;
 
   /**
-   * Bit set that has a bit set for each oid which should be received using binary format.
+   * Oids which should be received using binary format. Consulted for every field, so it is a
+   * primitive lookup structure shared by connections with the same configuration.
    */
-  private final Set<Integer> useBinaryReceiveForOids = new HashSet<Integer>();
+  private OidSet useBinaryReceiveForOids = OidSet.EMPTY;
 
   /**
-   * Bit set that has a bit set for each oid which should be sent using binary format.
+   * Oids which should be sent using binary format.
    */
-  private final Set<Integer> useBinarySendForOids = new HashSet<Integer>();
+  private OidSet useBinarySendForOids = OidSet.EMPTY;
 
   /**
    * This is a fake query object so processResults can distinguish "ReadyForQuery" messages
@@ -129,6 +131,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     this.allowEncodingChanges = PGProperty.ALLOW_ENCODING_CHANGES.getBoolean(info);
     this.replicationProtocol = new V3ReplicationProtocol(this, pgStream);
     readStartupMessages();
+    countConnection();
   }
 
   @Override
@@ -545,6 +548,11 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   // Fastpath
   //
 
+  /**
+   * Marks the fastpath results that were received into a buffer.
+   */
+  private static final byte[] EMPTY_RESULT = new byte[0];
+
   public synchronized byte[] fastpathCall(int fnid, ParameterList parameters, boolean suppressBegin)
       throws SQLException {
     waitOnLock();
@@ -553,7 +561,49 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     }
     try {
       sendFastpathCall(fnid, (SimpleParameterList) parameters);
-      return receiveFastpathResult();
+      pgStream.flush();
+      return receiveFastpathResults(1, null)[0];
+    } catch (IOException ioe) {
+      abort();
+      throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+          PSQLState.CONNECTION_FAILURE, ioe);
+    }
+  }
+
+  public synchronized int fastpathCall(int fnid, ParameterList parameters, boolean suppressBegin,
+      ByteBuffer result) throws SQLException {
+    waitOnLock();
+    if (!suppressBegin) {
+      doSubprotocolBegin();
+    }
+    try {
+      sendFastpathCall(fnid, (SimpleParameterList) parameters);
+      pgStream.flush();
+      int start = result.position();
+      return receiveFastpathResults(1, result)[0] == null ? -1 : result.position() - start;
+    } catch (IOException ioe) {
+      abort();
+      throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+          PSQLState.CONNECTION_FAILURE, ioe);
+    }
+  }
+
+  public synchronized byte[][] fastpathCalls(int[] fnids, ParameterList[] parameters,
+      boolean suppressBegin) throws SQLException {
+    if (fnids.length != parameters.length) {
+      throw new PSQLException(GT.tr("Got {0} functions for {1} parameter lists.", fnids.length,
+          parameters.length), PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    waitOnLock();
+    if (!suppressBegin) {
+      doSubprotocolBegin();
+    }
+    try {
+      for (int i = 0; i < fnids.length; i++) {
+        sendFastpathCall(fnids[i], (SimpleParameterList) parameters[i]);
+      }
+      pgStream.flush();
+      return receiveFastpathResults(fnids.length, null);
     } catch (IOException ioe) {
       abort();
       throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
@@ -651,7 +701,6 @@ public class QueryExecutorImpl extends QueryExecutorBase {
       }
     }
     pgStream.sendInteger2(1); // Binary result format
-    pgStream.flush();
   }
 
   // Just for API compatibility with previous versions.
@@ -747,12 +796,22 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     }
   }
 
-  private byte[] receiveFastpathResult() throws IOException, SQLException {
-    boolean endQuery = false;
+  /**
+   * Receives the results of fastpath calls.
+   *
+   * @param count the number of calls
+   * @param target the buffer to receive the result of a single call into, or null to receive the
+   *     results into new arrays
+   * @return the results, null for void results. The results received into the target are empty
+   *     arrays.
+   */
+  private byte[][] receiveFastpathResults(int count, ByteBuffer target)
+      throws IOException, SQLException {
+    int received = 0;
     SQLException error = null;
-    byte[] returnValue = null;
+    byte[][] returnValues = new byte[count][];
 
-    while (!endQuery) {
+    while (received < count) {
       int c = pgStream.receiveChar();
       switch (c) {
         case 'A': // Asynchronous Notify
@@ -777,7 +836,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
         case 'Z': // Ready For Query (eventual response to Sync)
           receiveRFQ();
-          endQuery = true;
+          received++;
           break;
 
         case 'V': // FunctionCallResponse
@@ -786,10 +845,26 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
           LOGGER.log(Level.FINEST, " <=BE FunctionCallResponse({0} bytes)", valueLen);
 
-          if (valueLen != -1) {
+          if (valueLen == -1) {
+            break;
+          }
+          if (target == null) {
             byte[] buf = new byte[valueLen];
             pgStream.receive(buf, 0, valueLen);
-            returnValue = buf;
+            returnValues[received] = buf;
+          } else if (valueLen <= target.remaining()) {
+            pgStream.receive(target, valueLen);
+            returnValues[received] = EMPTY_RESULT;
+          } else {
+            pgStream.skip(valueLen);
+            SQLException tooLong = new PSQLException(
+                GT.tr("The function result of {0} bytes does not fit in the {1} bytes of the buffer.",
+                    valueLen, target.remaining()), PSQLState.INVALID_PARAMETER_VALUE);
+            if (error == null) {
+              error = tooLong;
+            } else {
+              error.setNextException(tooLong);
+            }
           }
 
           break;
@@ -806,7 +881,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
       throw error;
     }
 
-    return returnValue;
+    return returnValues;
   }
 
   //
@@ -910,6 +985,13 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           } while (hasLock(op));
         }
       } else if (op instanceof CopyOut) {
+        synchronized (this) {
+          // keep the connection in step with the server's messages
+          if (op.copyDataRemaining > 0) {
+            pgStream.skip(op.copyDataRemaining);
+            op.copyDataRemaining = 0;
+          }
+        }
         sendQueryCancel();
       }
 
@@ -1050,6 +1132,12 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   CopyOperationImpl processCopyResults(CopyOperationImpl op, boolean block)
       throws SQLException, IOException {
 
+    if (op != null && op.copyDataRemaining > 0) {
+      // the rest of a CopyData message partly received into a buffer
+      receiveCopyData(op, op.copyDataRemaining);
+      return op;
+    }
+
     boolean endReceiving = false;
     SQLException error = null;
     SQLException errors = null;
@@ -1165,16 +1253,17 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           LOGGER.log(Level.FINEST, " <=BE CopyData");
 
           len = pgStream.receiveInteger4() - 4;
-          byte[] buf = pgStream.receive(len);
           if (op == null) {
+            pgStream.skip(len);
             error = new PSQLException(GT.tr("Got CopyData without an active copy operation"),
                 PSQLState.OBJECT_NOT_IN_STATE);
           } else if (!(op instanceof CopyOut)) {
+            pgStream.skip(len);
             error = new PSQLException(
                 GT.tr("Unexpected copydata from server for {0}", op.getClass().getName()),
                 PSQLState.COMMUNICATION_ERROR);
           } else {
-            op.handleCopydata(buf);
+            receiveCopyData(op, len);
           }
           endReceiving = true;
           break;
@@ -1251,6 +1340,23 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     return op;
   }
 
+  /**
+   * Receives the payload of a CopyData message, or its rest, straight into the buffer of the
+   * operation if it fits or if the operation accepts part of it, or else into a new array.
+   */
+  private void receiveCopyData(CopyOperationImpl op, int len) throws IOException, SQLException {
+    ByteBuffer target = op.copyTarget;
+    if (target != null && (len <= target.remaining() || op.copyTargetPartial)) {
+      int received = Math.min(len, target.remaining());
+      pgStream.receive(target, received);
+      op.copyTargetLength = received;
+      op.copyDataRemaining = len - received;
+    } else {
+      op.copyDataRemaining = 0;
+      op.handleCopydata(pgStream.receive(len));
+    }
+  }
+
   /*
    * To prevent client/server protocol deadlocks, we try to manage the estimated recv buffer size
    * and force a sync +flush and process results if we think it might be getting too full.
@@ -1358,8 +1464,8 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   private void sendSync() throws IOException {
     LOGGER.log(Level.FINEST, " FE=> Sync");
 
-    pgStream.sendChar('S'); // Sync
-    pgStream.sendInteger4(4); // Length
+    pgStream.startMessage('S'); // Sync
+    pgStream.endMessage();
     pgStream.flush();
     // Below "add queues" are likely not required at all
     pendingExecuteQueue.add(new ExecuteRequest(sync, null, true));
@@ -1420,17 +1526,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
     byte[] queryUtf8 = Utils.encodeUTF8(nativeSql);
 
-    // Total size = 4 (size field)
-    // + N + 1 (statement name, zero-terminated)
-    // + N + 1 (query, zero terminated)
-    // + 2 (parameter count) + N * 4 (parameter types)
-    int encodedSize = 4
-        + (encodedStatementName == null ? 0 : encodedStatementName.length) + 1
-        + queryUtf8.length + 1
-        + 2 + 4 * params.getParameterCount();
-
-    pgStream.sendChar('P'); // Parse
-    pgStream.sendInteger4(encodedSize);
+    pgStream.startMessage('P'); // Parse
     if (encodedStatementName != null) {
       pgStream.send(encodedStatementName);
     }
@@ -1441,6 +1537,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     for (int i = 1; i <= params.getParameterCount(); ++i) {
       pgStream.sendInteger4(params.getTypeOID(i));
     }
+    pgStream.endMessage();
 
     pendingParseQueue.add(query);
   }
@@ -1598,16 +1695,13 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
     byte[] encodedPortalName = (portal == null ? null : portal.getEncodedPortalName());
 
-    // Total size = 4 (size field) + 1 (describe type, 'P') + N + 1 (portal name)
-    int encodedSize = 4 + 1 + (encodedPortalName == null ? 0 : encodedPortalName.length) + 1;
-
-    pgStream.sendChar('D'); // Describe
-    pgStream.sendInteger4(encodedSize); // message size
+    pgStream.startMessage('D'); // Describe
     pgStream.sendChar('P'); // Describe (Portal)
     if (encodedPortalName != null) {
       pgStream.send(encodedPortalName); // portal name to close
     }
     pgStream.sendChar(0); // end of portal name
+    pgStream.endMessage();
 
     pendingDescribePortalQueue.add(query);
     query.setPortalDescribed(true);
@@ -1621,16 +1715,13 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
     byte[] encodedStatementName = query.getEncodedStatementName();
 
-    // Total size = 4 (size field) + 1 (describe type, 'S') + N + 1 (portal name)
-    int encodedSize = 4 + 1 + (encodedStatementName == null ? 0 : encodedStatementName.length) + 1;
-
-    pgStream.sendChar('D'); // Describe
-    pgStream.sendInteger4(encodedSize); // Message size
+    pgStream.startMessage('D'); // Describe
     pgStream.sendChar('S'); // Describe (Statement);
     if (encodedStatementName != null) {
       pgStream.send(encodedStatementName); // Statement name
     }
     pgStream.sendChar(0); // end message
+    pgStream.endMessage();
 
     // Note: statement name can change over time for the same query object
     // Thus we take a snapshot of the query name
@@ -1650,16 +1741,14 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     }
 
     byte[] encodedPortalName = (portal == null ? null : portal.getEncodedPortalName());
-    int encodedSize = (encodedPortalName == null ? 0 : encodedPortalName.length);
 
-    // Total size = 4 (size field) + 1 + N (source portal) + 4 (max rows)
-    pgStream.sendChar('E'); // Execute
-    pgStream.sendInteger4(4 + 1 + encodedSize + 4); // message size
+    pgStream.startMessage('E'); // Execute
     if (encodedPortalName != null) {
       pgStream.send(encodedPortalName); // portal name
     }
     pgStream.sendChar(0); // portal name terminator
     pgStream.sendInteger4(limit); // row limit
+    pgStream.endMessage();
 
     pendingExecuteQueue.add(new ExecuteRequest(query, portal, false));
   }
@@ -1672,16 +1761,14 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     LOGGER.log(Level.FINEST, " FE=> ClosePortal({0})", portalName);
 
     byte[] encodedPortalName = (portalName == null ? null : Utils.encodeUTF8(portalName));
-    int encodedSize = (encodedPortalName == null ? 0 : encodedPortalName.length);
 
-    // Total size = 4 (size field) + 1 (close type, 'P') + 1 + N (portal name)
-    pgStream.sendChar('C'); // Close
-    pgStream.sendInteger4(4 + 1 + 1 + encodedSize); // message size
+    pgStream.startMessage('C'); // Close
     pgStream.sendChar('P'); // Close (Portal)
     if (encodedPortalName != null) {
       pgStream.send(encodedPortalName);
     }
     pgStream.sendChar(0); // unnamed portal
+    pgStream.endMessage();
   }
 
   private void sendCloseStatement(String statementName) throws IOException {
@@ -1693,12 +1780,11 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
     byte[] encodedStatementName = Utils.encodeUTF8(statementName);
 
-    // Total size = 4 (size field) + 1 (close type, 'S') + N + 1 (statement name)
-    pgStream.sendChar('C'); // Close
-    pgStream.sendInteger4(4 + 1 + encodedStatementName.length + 1); // message size
+    pgStream.startMessage('C'); // Close
     pgStream.sendChar('S'); // Close (Statement)
     pgStream.send(encodedStatementName); // statement to close
     pgStream.sendChar(0); // statement name terminator
+    pgStream.endMessage();
   }
 
 
@@ -2526,6 +2612,9 @@ public class QueryExecutorImpl extends QueryExecutorBase {
         throw new IOException(
             "unexpected transaction state in ReadyForQuery message: " + (int) tStatus);
     }
+
+    // the request is complete, give back the buffer space taken by large messages
+    pgStream.adaptReceiveBuffer();
   }
 
   @Override
@@ -2596,6 +2685,8 @@ public class QueryExecutorImpl extends QueryExecutorBase {
       LOGGER.log(Level.FINEST, " <=BE ParameterStatus({0} = {1})", new Object[]{name, value});
     }
 
+    onParameterStatus(name, value);
+
     if (name.equals("client_encoding")) {
       if (allowEncodingChanges) {
         if (!value.equalsIgnoreCase("UTF8") && !value.equalsIgnoreCase("UTF-8")) {
@@ -2687,8 +2778,17 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
   @Override
   public void setBinaryReceiveOids(Set<Integer> oids) {
-    useBinaryReceiveForOids.clear();
-    useBinaryReceiveForOids.addAll(oids);
+    setBinaryReceiveOids(OidSet.of(oids));
+  }
+
+  @Override
+  public void setBinaryReceiveOids(OidSet oids) {
+    useBinaryReceiveForOids = oids;
+  }
+
+  @Override
+  public OidSet getBinaryReceiveOids() {
+    return useBinaryReceiveForOids;
   }
 
   @Override
@@ -2698,8 +2798,17 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
   @Override
   public void setBinarySendOids(Set<Integer> oids) {
-    useBinarySendForOids.clear();
-    useBinarySendForOids.addAll(oids);
+    setBinarySendOids(OidSet.of(oids));
+  }
+
+  @Override
+  public void setBinarySendOids(OidSet oids) {
+    useBinarySendForOids = oids;
+  }
+
+  @Override
+  public OidSet getBinarySendOids() {
+    return useBinarySendForOids;
   }
 
   private void setIntegerDateTimes(boolean state) {
@@ -152,6 +152,11 @@ class SimpleParameterList implements V3ParameterList {
     bind(index, new StreamWrapper(stream), Oid.TEXT, TEXT);
   }
 
+  @Override
+  public void setText(int index, InputStream stream, int length, int oid) throws SQLException {
+    bind(index, new StreamWrapper(stream, length), oid, TEXT);
+  }
+
   @Override
   public void setNull(int index, int oid) throws SQLException {
 
@@ -5,6 +5,8 @@
 
 package org.postgresql.core.v3;
 
+import org.postgresql.core.OidSet;
+
 public interface TypeTransferModeRegistry {
   /**
    * Returns if given oid should be sent in binary format
@@ -19,4 +21,16 @@ public interface TypeTransferModeRegistry {
    * @return true if given oid should be received in binary format
    */
   boolean useBinaryForReceive(int oid);
+
+  /**
+   * Returns the oids that are sent in binary format
+   * @return the immutable set of oids sent in binary format
+   */
+  OidSet getBinarySendOids();
+
+  /**
+   * Returns the oids that are received in binary format
+   * @return the immutable set of oids received in binary format
+   */
+  OidSet getBinaryReceiveOids();
 }
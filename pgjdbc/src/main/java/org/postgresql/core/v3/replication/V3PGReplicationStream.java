@@ -5,18 +5,22 @@
 
 package org.postgresql.core.v3.replication;
 
+import org.postgresql.Driver;
 import org.postgresql.copy.CopyDual;
 import org.postgresql.replication.LogSequenceNumber;
 import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.ReplicationMessageBatch;
 import org.postgresql.replication.ReplicationType;
 import org.postgresql.util.GT;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
+import org.postgresql.util.SharedTimer;
 
 import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -25,19 +29,37 @@ public class V3PGReplicationStream implements PGReplicationStream {
 
   private static final Logger LOGGER = Logger.getLogger(V3PGReplicationStream.class.getName());
   public static final long POSTGRES_EPOCH_2000_01_01 = 946684800000L;
+  /**
+   * The size of the 'w' byte, start LSN, end LSN and clock that precede the WAL data.
+   */
+  private static final int XLOG_DATA_HEADER_SIZE = 1 + 8 + 8 + 8;
+  /**
+   * The size of the 'r' byte, the three LSNs, the clock and the reply flag of a status update.
+   */
+  private static final int STATUS_UPDATE_SIZE = 1 + 8 + 8 + 8 + 8 + 1;
   private final CopyDual copyDual;
   private final long updateInterval;
   private final ReplicationType replicationType;
-  private long lastStatusUpdate;
+  private volatile long lastStatusUpdate;
   private boolean closeFlag = false;
 
-  private LogSequenceNumber lastServerLSN = LogSequenceNumber.INVALID_LSN;
+  /**
+   * Guards the status update buffer and {@link #reading}, so that the background status updates
+   * neither interleave with the updates of the reading thread nor wait for a blocking read.
+   */
+  private final Object statusLock = new Object();
+  private final ByteBuffer statusUpdate = ByteBuffer.allocate(STATUS_UPDATE_SIZE);
+  private boolean reading;
+  private final SharedTimer timer;
+  private StatusUpdateTask statusTask;
+
+  private volatile LogSequenceNumber lastServerLSN = LogSequenceNumber.INVALID_LSN;
   /**
    * Last receive LSN + payload size
    */
-  private LogSequenceNumber lastReceiveLSN = LogSequenceNumber.INVALID_LSN;
-  private LogSequenceNumber lastAppliedLSN = LogSequenceNumber.INVALID_LSN;
-  private LogSequenceNumber lastFlushedLSN = LogSequenceNumber.INVALID_LSN;
+  private volatile LogSequenceNumber lastReceiveLSN = LogSequenceNumber.INVALID_LSN;
+  private volatile LogSequenceNumber lastAppliedLSN = LogSequenceNumber.INVALID_LSN;
+  private volatile LogSequenceNumber lastFlushedLSN = LogSequenceNumber.INVALID_LSN;
 
   /**
    * @param copyDual         bidirectional copy protocol
@@ -54,11 +76,39 @@ public class V3PGReplicationStream implements PGReplicationStream {
   public V3PGReplicationStream(CopyDual copyDual, LogSequenceNumber startLSN, long updateIntervalMs,
       ReplicationType replicationType
   ) {
+    this(copyDual, startLSN, updateIntervalMs, replicationType, null);
+  }
+
+  /**
+   * @param copyDual         bidirectional copy protocol
+   * @param startLSN         the position in the WAL that we want to initiate replication from
+   * @param updateIntervalMs the number of millisecond between status packets sent back to the
+   *                         server, 0 to disable the periodic status updates
+   * @param replicationType  LOGICAL or PHYSICAL
+   * @param backgroundStatusUpdates whether to also send the periodic status updates from the
+   *                         timer thread of the driver, so that they are sent while the stream is
+   *                         not read
+   */
+  public V3PGReplicationStream(CopyDual copyDual, LogSequenceNumber startLSN, long updateIntervalMs,
+      ReplicationType replicationType, boolean backgroundStatusUpdates) {
+    this(copyDual, startLSN, updateIntervalMs, replicationType,
+        backgroundStatusUpdates ? Driver.getSharedTimer() : null);
+  }
+
+  V3PGReplicationStream(CopyDual copyDual, LogSequenceNumber startLSN, long updateIntervalMs,
+      ReplicationType replicationType, SharedTimer timer) {
     this.copyDual = copyDual;
     this.updateInterval = updateIntervalMs;
     this.lastStatusUpdate = System.currentTimeMillis() - updateIntervalMs;
     this.lastReceiveLSN = startLSN;
     this.replicationType = replicationType;
+    this.timer = updateIntervalMs > 0 ? timer : null;
+    if (this.timer != null) {
+      statusTask = new StatusUpdateTask();
+      // checking twice per interval bounds the time between updates to 1.5 intervals
+      long period = Math.max(1, updateIntervalMs / 2);
+      this.timer.getTimer().schedule(statusTask, period, period);
+    }
   }
 
   @Override
@@ -78,6 +128,18 @@ public class V3PGReplicationStream implements PGReplicationStream {
     return readInternal(false);
   }
 
+  @Override
+  public int read(ReplicationMessageBatch batch) throws SQLException {
+    checkClose();
+    return readBatch(batch, true);
+  }
+
+  @Override
+  public int readPending(ReplicationMessageBatch batch) throws SQLException {
+    checkClose();
+    return readBatch(batch, false);
+  }
+
   @Override
   public LogSequenceNumber getLastReceiveLSN() {
     return lastReceiveLSN;
@@ -115,9 +177,8 @@ public class V3PGReplicationStream implements PGReplicationStream {
   }
 
   private ByteBuffer readInternal(boolean block) throws SQLException {
-    boolean updateStatusRequired = false;
     while (copyDual.isActive()) {
-      if (updateStatusRequired || isTimeUpdate()) {
+      if (isTimeUpdate()) {
         timeUpdateStatus();
       }
 
@@ -132,8 +193,10 @@ public class V3PGReplicationStream implements PGReplicationStream {
       switch (code) {
 
         case 'k': //KeepAlive message
-          updateStatusRequired = processKeepAliveMessage(buffer);
-          updateStatusRequired |= updateInterval == 0;
+          if (processKeepAliveMessage(buffer) || updateInterval == 0) {
+            // reply at once: the server asks when it is about to drop the connection
+            timeUpdateStatus();
+          }
           break;
 
         case 'w': //XLogData
@@ -151,6 +214,7 @@ public class V3PGReplicationStream implements PGReplicationStream {
   }
 
   private ByteBuffer receiveNextData(boolean block) throws SQLException {
+    beginRead();
     try {
       byte[] message = copyDual.readFromCopy(block);
       if (message != null) {
@@ -165,6 +229,132 @@ public class V3PGReplicationStream implements PGReplicationStream {
       }
 
       throw e;
+    } finally {
+      endRead();
+    }
+  }
+
+  /**
+   * Receives messages straight into the buffer of the batch. A keepalive message is processed and
+   * its space reused; XLogData messages are added to the batch, their header left in the buffer
+   * before the payload.
+   */
+  private int readBatch(ReplicationMessageBatch batch, boolean block) throws SQLException {
+    batch.clear();
+    ByteBuffer buffer = batch.getBuffer();
+    // the LSNs are only turned into objects once per batch
+    long receiveLSN = lastReceiveLSN.asLong();
+    long serverLSN = lastServerLSN.asLong();
+
+    try {
+      while (copyDual.isActive() && !batch.isFull()) {
+        if (isTimeUpdate()) {
+          updateLSN(receiveLSN, serverLSN);
+          timeUpdateStatus();
+        }
+
+        int start = buffer.position();
+        int remaining = buffer.remaining();
+        int length = receiveNextData(buffer, block && batch.size() == 0);
+        if (length < 0) {
+          if (block && batch.size() == 0) {
+            continue;
+          }
+          break;
+        }
+        if (length > remaining) {
+          if (batch.size() > 0) {
+            // the message stays pending for the next read
+            break;
+          }
+          throw new PSQLException(GT.tr(
+              "A replication message of {0} bytes does not fit in a buffer of {1} bytes.",
+              length, remaining), PSQLState.INVALID_PARAMETER_VALUE);
+        }
+
+        int code = buffer.get(start);
+        switch (code) {
+
+          case 'k': //KeepAlive message
+            updateLSN(receiveLSN, serverLSN);
+            buffer.position(start + 1);
+            if (processKeepAliveMessage(buffer) || updateInterval == 0) {
+              timeUpdateStatus();
+            }
+            receiveLSN = lastReceiveLSN.asLong();
+            serverLSN = lastServerLSN.asLong();
+            buffer.position(start);
+            break;
+
+          case 'w': //XLogData
+            long startLsn = buffer.getLong(start + 1);
+            serverLSN = buffer.getLong(start + 9);
+            int payloadSize = length - XLOG_DATA_HEADER_SIZE;
+            receiveLSN = replicationType == ReplicationType.PHYSICAL
+                ? startLsn + payloadSize : startLsn;
+            batch.add(start + XLOG_DATA_HEADER_SIZE, payloadSize, receiveLSN);
+            if (LOGGER.isLoggable(Level.FINEST)) {
+              LOGGER.log(Level.FINEST, "  <=BE XLogData(currWal: {0}, lastServerWal: {1})",
+                  new Object[]{LogSequenceNumber.valueOf(receiveLSN).asString(),
+                      LogSequenceNumber.valueOf(serverLSN).asString()});
+            }
+            break;
+
+          default:
+            throw new PSQLException(
+                GT.tr("Unexpected packet type during replication: {0}", Integer.toString(code)),
+                PSQLState.PROTOCOL_VIOLATION
+            );
+        }
+      }
+    } finally {
+      updateLSN(receiveLSN, serverLSN);
+    }
+    return batch.size();
+  }
+
+  private void updateLSN(long receiveLSN, long serverLSN) {
+    if (receiveLSN != lastReceiveLSN.asLong()) {
+      lastReceiveLSN = LogSequenceNumber.valueOf(receiveLSN);
+    }
+    if (serverLSN != lastServerLSN.asLong()) {
+      lastServerLSN = LogSequenceNumber.valueOf(serverLSN);
+    }
+  }
+
+  private int receiveNextData(ByteBuffer buffer, boolean block) throws SQLException {
+    beginRead();
+    try {
+      return copyDual.readFromCopy(buffer, block);
+    } catch (PSQLException e) {
+      if (e.getCause() instanceof SocketTimeoutException) {
+        //signal for keep alive
+        return -1;
+      }
+
+      throw e;
+    } finally {
+      endRead();
+    }
+  }
+
+  /**
+   * Marks the stream as being read, which holds the connection, so that the background status
+   * updates are skipped rather than wait for the read to complete.
+   */
+  private void beginRead() {
+    if (timer != null) {
+      synchronized (statusLock) {
+        reading = true;
+      }
+    }
+  }
+
+  private void endRead() {
+    if (timer != null) {
+      synchronized (statusLock) {
+        reading = false;
+      }
     }
   }
 
@@ -185,20 +375,21 @@ public class V3PGReplicationStream implements PGReplicationStream {
       LogSequenceNumber received, LogSequenceNumber flushed, LogSequenceNumber applied,
       boolean replyRequired)
       throws SQLException {
-    byte[] reply = prepareUpdateStatus(received, flushed, applied, replyRequired);
-    copyDual.writeToCopy(reply, 0, reply.length);
-    copyDual.flushCopy();
-
-    lastStatusUpdate = System.currentTimeMillis();
+    synchronized (statusLock) {
+      ByteBuffer reply = prepareUpdateStatus(received, flushed, applied, replyRequired);
+      copyDual.writeToCopy(reply.array(), 0, reply.limit());
+      copyDual.flushCopy();
+    }
   }
 
-  private byte[] prepareUpdateStatus(LogSequenceNumber received, LogSequenceNumber flushed,
+  private ByteBuffer prepareUpdateStatus(LogSequenceNumber received, LogSequenceNumber flushed,
       LogSequenceNumber applied, boolean replyRequired) {
-    ByteBuffer byteBuffer = ByteBuffer.allocate(1 + 8 + 8 + 8 + 8 + 1);
+    ByteBuffer byteBuffer = statusUpdate;
+    byteBuffer.clear();
 
     long now = System.currentTimeMillis();
     long systemClock = TimeUnit.MICROSECONDS.convert((now - POSTGRES_EPOCH_2000_01_01),
-        TimeUnit.MICROSECONDS);
+        TimeUnit.MILLISECONDS);
 
     if (LOGGER.isLoggable(Level.FINEST)) {
       LOGGER.log(Level.FINEST, " FE=> StandbyStatusUpdate(received: {0}, flushed: {1}, applied: {2}, clock: {3})",
@@ -217,7 +408,8 @@ public class V3PGReplicationStream implements PGReplicationStream {
     }
 
     lastStatusUpdate = now;
-    return byteBuffer.array();
+    byteBuffer.flip();
+    return byteBuffer;
   }
 
   private boolean processKeepAliveMessage(ByteBuffer buffer) {
@@ -272,6 +464,7 @@ public class V3PGReplicationStream implements PGReplicationStream {
   }
 
   public void close() throws SQLException {
+    stopStatusUpdates();
     if (isClosed()) {
       return;
     }
@@ -282,4 +475,39 @@ public class V3PGReplicationStream implements PGReplicationStream {
 
     closeFlag = true;
   }
+
+  private void stopStatusUpdates() {
+    synchronized (statusLock) {
+      if (statusTask != null) {
+        statusTask.cancel();
+        statusTask = null;
+        timer.releaseTimer();
+      }
+    }
+  }
+
+  /**
+   * Sends the periodic status updates while the stream is not read.
+   */
+  private class StatusUpdateTask extends TimerTask {
+    @Override
+    public void run() {
+      if (isClosed()) {
+        stopStatusUpdates();
+        return;
+      }
+      synchronized (statusLock) {
+        if (reading || statusTask != this || !isTimeUpdate()) {
+          return;
+        }
+        try {
+          timeUpdateStatus();
+        } catch (SQLException e) {
+          // the reading thread gets the failure on its next read
+          LOGGER.log(Level.FINE, "Failed to send a replication status update", e);
+          stopStatusUpdates();
+        }
+      }
+    }
+  }
 }
@@ -61,7 +61,8 @@ public class V3ReplicationProtocol implements ReplicationProtocol {
         copyDual,
         options.getStartLSNPosition(),
         options.getStatusInterval(),
-        replicationType
+        replicationType,
+        options.isBackgroundStatusUpdates()
     );
   }
 
@@ -696,6 +696,40 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     return PGProperty.HOST_RECHECK_SECONDS.getIntNoCheck(properties);
   }
 
+  /**
+   * @param hostMonitorInterval milliseconds between two status checks of each host by the
+   *        background monitor, 0 to disable the monitor
+   * @see PGProperty#HOST_MONITOR_INTERVAL
+   */
+  public void setHostMonitorInterval(int hostMonitorInterval) {
+    PGProperty.HOST_MONITOR_INTERVAL.set(properties, hostMonitorInterval);
+  }
+
+  /**
+   * @return milliseconds between two status checks of each host by the background monitor
+   * @see PGProperty#HOST_MONITOR_INTERVAL
+   */
+  public int getHostMonitorInterval() {
+    return PGProperty.HOST_MONITOR_INTERVAL.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param parallelConnectDelay delay in milliseconds between parallel connection attempts, 0 to
+   *        connect to the hosts one after another
+   * @see PGProperty#PARALLEL_CONNECT_DELAY
+   */
+  public void setParallelConnectDelay(int parallelConnectDelay) {
+    PGProperty.PARALLEL_CONNECT_DELAY.set(properties, parallelConnectDelay);
+  }
+
+  /**
+   * @return delay in milliseconds between parallel connection attempts
+   * @see PGProperty#PARALLEL_CONNECT_DELAY
+   */
+  public int getParallelConnectDelay() {
+    return PGProperty.PARALLEL_CONNECT_DELAY.getIntNoCheck(properties);
+  }
+
   /**
    * @param enabled if TCP keep alive should be enabled
    * @see PGProperty#TCP_KEEP_ALIVE
@@ -1310,6 +1344,22 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     PGProperty.REWRITE_BATCHED_INSERTS.set(properties, reWrite);
   }
 
+  /**
+   * @return true if repeated text values share a single String instance
+   * @see PGProperty#DEDUPLICATE_STRINGS
+   */
+  public boolean getDeduplicateStrings() {
+    return PGProperty.DEDUPLICATE_STRINGS.getBoolean(properties);
+  }
+
+  /**
+   * @param deduplicateStrings if repeated text values should share a single String instance
+   * @see PGProperty#DEDUPLICATE_STRINGS
+   */
+  public void setDeduplicateStrings(boolean deduplicateStrings) {
+    PGProperty.DEDUPLICATE_STRINGS.set(properties, deduplicateStrings);
+  }
+
   //#if mvn.project.property.postgresql.jdbc.spec >= "JDBC4.1"
   public java.util.logging.Logger getParentLogger() {
     return Logger.getLogger("org.postgresql");
@@ -10,13 +10,18 @@ import org.postgresql.core.ParameterList;
 import org.postgresql.core.QueryExecutor;
 import org.postgresql.util.ByteConverter;
 import org.postgresql.util.GT;
+import org.postgresql.util.HostSpec;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 
 /**
@@ -34,11 +39,21 @@ public class Fastpath {
   // of long -> signed int which the backend interprets as unsigned.
   private static final long NUM_OIDS = 4294967296L; // 2^32
 
+  // Objects created after initdb, such as user functions, get oids from this one on
+  // (FirstNormalObjectId in the backend). Below it, the oid of a function is fixed by the server.
+  private static final int FIRST_NORMAL_OBJECT_ID = 16384;
+
+  // The ids of the builtin functions, shared by all the connections to a server so that they are
+  // only looked up once.
+  private static final ConcurrentMap<HostSpec, ConcurrentMap<String, Integer>> BUILTIN_FUNCTIONS =
+      new ConcurrentHashMap<HostSpec, ConcurrentMap<String, Integer>>();
+
   // This maps the functions names to their id's (possible unique just
   // to a connection).
   private final Map<String, Integer> func = new HashMap<String, Integer>();
   private final QueryExecutor executor;
   private final BaseConnection connection;
+  private final ConcurrentMap<String, Integer> builtinFunctions;
 
   /**
    * Initialises the fastpath system
@@ -48,6 +63,19 @@ public class Fastpath {
   public Fastpath(BaseConnection conn) {
     this.connection = conn;
     this.executor = conn.getQueryExecutor();
+    this.builtinFunctions = builtinFunctions(executor.getHostSpec());
+  }
+
+  private static ConcurrentMap<String, Integer> builtinFunctions(HostSpec hostSpec) {
+    ConcurrentMap<String, Integer> functions = BUILTIN_FUNCTIONS.get(hostSpec);
+    if (functions == null) {
+      ConcurrentMap<String, Integer> newFunctions = new ConcurrentHashMap<String, Integer>();
+      functions = BUILTIN_FUNCTIONS.putIfAbsent(hostSpec, newFunctions);
+      if (functions == null) {
+        functions = newFunctions;
+      }
+    }
+    return functions;
   }
 
   /**
@@ -101,6 +129,64 @@ public class Fastpath {
     return executor.fastpathCall(fnId, params, connection.getAutoCommit());
   }
 
+  /**
+   * Send a function call to the PostgreSQL backend, receiving its result into a buffer instead of
+   * a new array.
+   *
+   * @param fnId Function id
+   * @param args FastpathArguments to pass to fastpath
+   * @param result the buffer to receive the result into, from its position on
+   * @return the length of the result, or -1 if no data
+   * @throws SQLException if a database-access error occurs, or if the result does not fit in the
+   *         buffer
+   */
+  public int fastpath(int fnId, FastpathArg[] args, ByteBuffer result) throws SQLException {
+    ParameterList params = executor.createFastpathParameters(args.length);
+    for (int i = 0; i < args.length; ++i) {
+      args[i].populateParameter(params, i + 1);
+    }
+    return executor.fastpathCall(fnId, params, connection.getAutoCommit(), result);
+  }
+
+  /**
+   * Calls a function several times in one round trip: all the calls are sent before the results
+   * are read, so that the calls do not wait for each other's results.
+   *
+   * @param fnId Function id
+   * @param calls the FastpathArguments of each call
+   * @return the result of each call, null if no data, byte[] otherwise
+   * @throws SQLException if a database-access error occurs in any of the calls
+   * @see QueryExecutor#fastpathCalls(int[], ParameterList[], boolean)
+   */
+  public byte[][] fastpath(int fnId, FastpathArg[][] calls) throws SQLException {
+    int[] fnIds = new int[calls.length];
+    Arrays.fill(fnIds, fnId);
+    return fastpath(fnIds, calls);
+  }
+
+  /**
+   * Calls several functions in one round trip: all the calls are sent before the results are
+   * read, so that the calls do not wait for each other's results. The calls run one after the
+   * other, and a failing call does not prevent the next ones from running.
+   *
+   * @param fnIds the Function id of each call
+   * @param calls the FastpathArguments of each call
+   * @return the result of each call, null if no data, byte[] otherwise
+   * @throws SQLException if a database-access error occurs in any of the calls
+   * @see #createBatch()
+   */
+  public byte[][] fastpath(int[] fnIds, FastpathArg[][] calls) throws SQLException {
+    ParameterList[] params = new ParameterList[calls.length];
+    for (int i = 0; i < calls.length; i++) {
+      FastpathArg[] args = calls[i];
+      params[i] = executor.createFastpathParameters(args.length);
+      for (int j = 0; j < args.length; ++j) {
+        args[j].populateParameter(params[i], j + 1);
+      }
+    }
+    return executor.fastpathCalls(fnIds, params, connection.getAutoCommit());
+  }
+
   /**
    * @param name Function name
    * @param resulttype True if the result is a numeric (Integer or Long)
@@ -142,6 +228,48 @@ public class Fastpath {
     return fastpath(getID(name), args);
   }
 
+  /**
+   * Send a function call to the PostgreSQL backend by name, receiving its result into a buffer
+   * instead of a new array.
+   *
+   * @param name Function name
+   * @param args FastpathArguments to pass to fastpath
+   * @param result the buffer to receive the result into, from its position on
+   * @return the length of the result, or -1 if no data
+   * @throws SQLException if name is unknown, if a database-access error occurs, or if the result
+   *         does not fit in the buffer
+   * @see #fastpath(int, FastpathArg[], ByteBuffer)
+   */
+  public int fastpath(String name, FastpathArg[] args, ByteBuffer result) throws SQLException {
+    connection.getLogger().log(Level.FINEST, "Fastpath: calling {0}", name);
+    return fastpath(getID(name), args, result);
+  }
+
+  /**
+   * Calls a function by name several times in one round trip.
+   *
+   * @param name Function name
+   * @param calls the FastpathArguments of each call
+   * @return the result of each call, null if no data, byte[] otherwise
+   * @throws SQLException if name is unknown or if a database-access error occurs in any of the
+   *         calls
+   * @see #fastpath(int, FastpathArg[][])
+   */
+  public byte[][] fastpath(String name, FastpathArg[][] calls) throws SQLException {
+    connection.getLogger().log(Level.FINEST, "Fastpath: calling {0} {1} times",
+        new Object[]{name, calls.length});
+    return fastpath(getID(name), calls);
+  }
+
+  /**
+   * Creates a batch, to queue calls to functions and send them in one round trip.
+   *
+   * @return a new, empty batch
+   */
+  public FastpathBatch createBatch() {
+    return new FastpathBatch(this);
+  }
+
   /**
    * This convenience method assumes that the return value is an integer
    *
@@ -234,6 +362,7 @@ public class Fastpath {
    */
   public void addFunction(String name, int fnid) {
     func.put(name, fnid);
+    shareFunction(name, fnid);
   }
 
   /**
@@ -273,15 +402,39 @@ public class Fastpath {
    */
   public void addFunctions(ResultSet rs) throws SQLException {
     while (rs.next()) {
-      func.put(rs.getString(1), rs.getInt(2));
+      addFunction(rs.getString(1), rs.getInt(2));
+    }
+  }
+
+  private void shareFunction(String name, int fnid) {
+    // the ids of other functions may change when they are dropped and created again
+    if (fnid >= 0 && fnid < FIRST_NORMAL_OBJECT_ID) {
+      builtinFunctions.put(name, fnid);
+    }
+  }
+
+  /**
+   * Tells whether the ids of functions are known, added to this connection or, for the builtin
+   * functions of the server, to another connection to the same server.
+   *
+   * @param names Function names to lookup
+   * @return true if {@link #getID(String)} knows all the functions
+   */
+  public boolean hasFunctions(String... names) {
+    for (String name : names) {
+      if (!func.containsKey(name) && !builtinFunctions.containsKey(name)) {
+        return false;
+      }
     }
+    return true;
   }
 
   /**
    * This returns the function id associated by its name.
    *
    * <p>
-   * If addFunction() or addFunctions() have not been called for this name, then an SQLException is
+   * If addFunction() or addFunctions() have not been called for this name, on this connection or,
+   * for a builtin function, on another connection to the same server, then an SQLException is
    * thrown.
    *
    * @param name Function name to lookup
@@ -290,6 +443,12 @@ public class Fastpath {
    */
   public int getID(String name) throws SQLException {
     Integer id = func.get(name);
+    if (id == null) {
+      id = builtinFunctions.get(name);
+      if (id != null) {
+        func.put(name, id);
+      }
+    }
 
     // may be we could add a lookup to the database here, and store the result
     // in our lookup table, throwing the exception if that fails.
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.fastpath;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Queues calls to backend functions, possibly different ones, to send them all in one round trip
+ * with {@link #execute()} instead of waiting for the result of each call before sending the next
+ * one.
+ *
+ * <p>
+ * The server is not read while the calls are sent, so either the calls or their results should be
+ * small: sending large arguments to calls with large results may block both ends.
+ *
+ * <p>
+ * A batch is created by {@link Fastpath#createBatch()}, and like the connection it comes from, it
+ * should not be used by several threads at once.
+ */
+public class FastpathBatch {
+  private final Fastpath fastpath;
+  private int[] fnIds = new int[8];
+  private FastpathArg[][] calls = new FastpathArg[8][];
+  private int count;
+
+  FastpathBatch(Fastpath fastpath) {
+    this.fastpath = fastpath;
+  }
+
+  /**
+   * Queues a function call.
+   *
+   * @param fnId Function id
+   * @param args FastpathArguments to pass to the function
+   * @return this batch
+   */
+  public FastpathBatch add(int fnId, FastpathArg[] args) {
+    if (count == fnIds.length) {
+      fnIds = Arrays.copyOf(fnIds, count * 2);
+      calls = Arrays.copyOf(calls, count * 2);
+    }
+    fnIds[count] = fnId;
+    calls[count] = args;
+    count++;
+    return this;
+  }
+
+  /**
+   * Queues a function call by name.
+   *
+   * @param name Function name
+   * @param args FastpathArguments to pass to the function
+   * @return this batch
+   * @throws SQLException if name is unknown
+   * @see Fastpath#getID(String)
+   */
+  public FastpathBatch add(String name, FastpathArg[] args) throws SQLException {
+    return add(fastpath.getID(name), args);
+  }
+
+  /**
+   * @return the number of queued calls
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * Sends the queued calls in one round trip and returns their results. The batch is empty
+   * afterwards, even if a call failed.
+   *
+   * @return the result of each call, in the order they were queued, null if no data, byte[]
+   *         otherwise
+   * @throws SQLException if a database-access error occurs in any of the calls
+   */
+  public byte[][] execute() throws SQLException {
+    int[] queuedIds = Arrays.copyOf(fnIds, count);
+    FastpathArg[][] queuedCalls = Arrays.copyOf(calls, count);
+    Arrays.fill(calls, 0, count, null);
+    count = 0;
+    if (queuedIds.length == 0) {
+      return new byte[0][];
+    }
+    return fastpath.fastpath(queuedIds, queuedCalls);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.geometric;
+
+import org.postgresql.util.PGBinaryCodec;
+import org.postgresql.util.PGBinaryObject;
+import org.postgresql.util.PGobject;
+
+import java.sql.SQLException;
+
+/**
+ * Binary codecs for the geometric types. They are registered with every connection, so geometric
+ * values are decoded from the binary wire format without going through their text representation.
+ */
+public final class GeometricCodecs {
+  public static final PGBinaryCodec<PGpoint> POINT = new Codec<PGpoint>(PGpoint.class) {
+    @Override
+    protected PGpoint create() {
+      return new PGpoint();
+    }
+  };
+
+  public static final PGBinaryCodec<PGlseg> LSEG = new Codec<PGlseg>(PGlseg.class) {
+    @Override
+    protected PGlseg create() {
+      return new PGlseg();
+    }
+  };
+
+  public static final PGBinaryCodec<PGpath> PATH = new Codec<PGpath>(PGpath.class) {
+    @Override
+    protected PGpath create() {
+      return new PGpath();
+    }
+  };
+
+  public static final PGBinaryCodec<PGbox> BOX = new Codec<PGbox>(PGbox.class) {
+    @Override
+    protected PGbox create() {
+      return new PGbox();
+    }
+  };
+
+  public static final PGBinaryCodec<PGpolygon> POLYGON = new Codec<PGpolygon>(PGpolygon.class) {
+    @Override
+    protected PGpolygon create() {
+      return new PGpolygon();
+    }
+  };
+
+  public static final PGBinaryCodec<PGline> LINE = new Codec<PGline>(PGline.class) {
+    @Override
+    protected PGline create() {
+      return new PGline();
+    }
+  };
+
+  public static final PGBinaryCodec<PGcircle> CIRCLE = new Codec<PGcircle>(PGcircle.class) {
+    @Override
+    protected PGcircle create() {
+      return new PGcircle();
+    }
+  };
+
+  private GeometricCodecs() {
+  }
+
+  /**
+   * Adapts the {@link PGBinaryObject} implementation of a geometric type to {@link PGBinaryCodec}.
+   */
+  private abstract static class Codec<T extends PGobject & PGBinaryObject>
+      implements PGBinaryCodec<T> {
+    private final Class<T> javaClass;
+
+    Codec(Class<T> javaClass) {
+      this.javaClass = javaClass;
+    }
+
+    protected abstract T create();
+
+    @Override
+    public Class<T> getJavaClass() {
+      return javaClass;
+    }
+
+    @Override
+    public int lengthInBytes(T value) {
+      return value.lengthInBytes();
+    }
+
+    @Override
+    public void encode(T value, byte[] bytes, int offset) {
+      value.toBytes(bytes, offset);
+    }
+
+    @Override
+    public T decode(byte[] bytes, int offset, int length) throws SQLException {
+      T value = create();
+      value.setByteValue(bytes, offset);
+      return value;
+    }
+  }
+}
@@ -5,7 +5,9 @@
 
 package org.postgresql.geometric;
 
+import org.postgresql.util.ByteConverter;
 import org.postgresql.util.GT;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
 import org.postgresql.util.PSQLException;
@@ -17,7 +19,7 @@ import java.sql.SQLException;
 /**
  * This represents org.postgresql's circle datatype, consisting of a point and a radius
  */
-public class PGcircle extends PGobject implements Serializable, Cloneable {
+public class PGcircle extends PGobject implements PGBinaryObject, Serializable, Cloneable {
   /**
    * This is the center point
    */
@@ -84,6 +86,15 @@ public class PGcircle extends PGobject implements Serializable, Cloneable {
     }
   }
 
+  /**
+   * @param b Definition of this circle in PostgreSQL's binary syntax
+   */
+  public void setByteValue(byte[] b, int offset) {
+    center = new PGpoint();
+    center.setByteValue(b, offset);
+    radius = ByteConverter.float8(b, offset + center.lengthInBytes());
+  }
+
   /**
    * @param obj Object to compare with
    * @return true if the two circles are identical
@@ -115,4 +126,16 @@ public class PGcircle extends PGobject implements Serializable, Cloneable {
   public String getValue() {
     return "<" + center + "," + radius + ">";
   }
+
+  public int lengthInBytes() {
+    return center.lengthInBytes() + 8;
+  }
+
+  /**
+   * Populate the byte array with PGcircle in the binary syntax expected by org.postgresql
+   */
+  public void toBytes(byte[] bytes, int offset) {
+    center.toBytes(bytes, offset);
+    ByteConverter.float8(bytes, offset + center.lengthInBytes(), radius);
+  }
 }
@@ -5,7 +5,9 @@
 
 package org.postgresql.geometric;
 
+import org.postgresql.util.ByteConverter;
 import org.postgresql.util.GT;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
 import org.postgresql.util.PSQLException;
@@ -17,7 +19,7 @@ import java.sql.SQLException;
 /**
  * This implements a line represented by the linear equation Ax + By + C = 0
  **/
-public class PGline extends PGobject implements Serializable, Cloneable {
+public class PGline extends PGobject implements PGBinaryObject, Serializable, Cloneable {
 
   /**
    * Coefficient of x
@@ -124,6 +126,15 @@ public class PGline extends PGobject implements Serializable, Cloneable {
     }
   }
 
+  /**
+   * @param bytes Definition of this line in PostgreSQL's binary syntax
+   */
+  public void setByteValue(byte[] bytes, int offset) {
+    a = ByteConverter.float8(bytes, offset);
+    b = ByteConverter.float8(bytes, offset + 8);
+    c = ByteConverter.float8(bytes, offset + 16);
+  }
+
   /**
    * @param obj Object to compare with
    * @return true if the two lines are identical
@@ -165,6 +176,19 @@ public class PGline extends PGobject implements Serializable, Cloneable {
     return "{" + a + "," + b + "," + c + "}";
   }
 
+  public int lengthInBytes() {
+    return 24;
+  }
+
+  /**
+   * Populate the byte array with PGline in the binary syntax expected by org.postgresql
+   */
+  public void toBytes(byte[] bytes, int offset) {
+    ByteConverter.float8(bytes, offset, a);
+    ByteConverter.float8(bytes, offset + 8, b);
+    ByteConverter.float8(bytes, offset + 16, c);
+  }
+
   @Override
   public Object clone() throws CloneNotSupportedException {
     // squid:S2157 "Cloneables" should implement "clone
@@ -6,6 +6,7 @@
 package org.postgresql.geometric;
 
 import org.postgresql.util.GT;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
 import org.postgresql.util.PSQLException;
@@ -17,7 +18,7 @@ import java.sql.SQLException;
 /**
  * This implements a lseg (line segment) consisting of two points
  */
-public class PGlseg extends PGobject implements Serializable, Cloneable {
+public class PGlseg extends PGobject implements PGBinaryObject, Serializable, Cloneable {
   /**
    * These are the two points.
    */
@@ -75,6 +76,16 @@ public class PGlseg extends PGobject implements Serializable, Cloneable {
     point[1] = new PGpoint(t.getToken(1));
   }
 
+  /**
+   * @param b Definition of this line segment in PostgreSQL's binary syntax
+   */
+  public void setByteValue(byte[] b, int offset) {
+    point[0] = new PGpoint();
+    point[0].setByteValue(b, offset);
+    point[1] = new PGpoint();
+    point[1].setByteValue(b, offset + point[0].lengthInBytes());
+  }
+
   /**
    * @param obj Object to compare with
    * @return true if the two line segments are identical
@@ -111,4 +122,16 @@ public class PGlseg extends PGobject implements Serializable, Cloneable {
   public String getValue() {
     return "[" + point[0] + "," + point[1] + "]";
   }
+
+  public int lengthInBytes() {
+    return point[0].lengthInBytes() + point[1].lengthInBytes();
+  }
+
+  /**
+   * Populate the byte array with PGlseg in the binary syntax expected by org.postgresql
+   */
+  public void toBytes(byte[] bytes, int offset) {
+    point[0].toBytes(bytes, offset);
+    point[1].toBytes(bytes, offset + point[0].lengthInBytes());
+  }
 }
@@ -5,7 +5,9 @@
 
 package org.postgresql.geometric;
 
+import org.postgresql.util.ByteConverter;
 import org.postgresql.util.GT;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
 import org.postgresql.util.PSQLException;
@@ -17,7 +19,7 @@ import java.sql.SQLException;
 /**
  * This implements a path (a multiple segmented line, which may be closed)
  */
-public class PGpath extends PGobject implements Serializable, Cloneable {
+public class PGpath extends PGobject implements PGBinaryObject, Serializable, Cloneable {
   /**
    * True if the path is open, false if closed
    */
@@ -79,6 +81,22 @@ public class PGpath extends PGobject implements Serializable, Cloneable {
     }
   }
 
+  /**
+   * @param b Definition of this path in PostgreSQL's binary syntax: a closed flag byte, the number
+   *        of points and the points themselves
+   */
+  public void setByteValue(byte[] b, int offset) {
+    open = b[offset] == 0;
+    int npoints = ByteConverter.int4(b, offset + 1);
+    points = new PGpoint[npoints];
+    int pos = offset + 5;
+    for (int p = 0; p < npoints; p++) {
+      points[p] = new PGpoint();
+      points[p].setByteValue(b, pos);
+      pos += points[p].lengthInBytes();
+    }
+  }
+
   /**
    * @param obj Object to compare with
    * @return true if the two paths are identical
@@ -143,6 +161,27 @@ public class PGpath extends PGobject implements Serializable, Cloneable {
     return b.toString();
   }
 
+  public int lengthInBytes() {
+    int length = 5;
+    for (PGpoint point : points) {
+      length += point.lengthInBytes();
+    }
+    return length;
+  }
+
+  /**
+   * Populate the byte array with PGpath in the binary syntax expected by org.postgresql
+   */
+  public void toBytes(byte[] bytes, int offset) {
+    bytes[offset] = (byte) (open ? 0 : 1);
+    ByteConverter.int4(bytes, offset + 1, points.length);
+    int pos = offset + 5;
+    for (PGpoint point : points) {
+      point.toBytes(bytes, pos);
+      pos += point.lengthInBytes();
+    }
+  }
+
   public boolean isOpen() {
     return open;
   }
@@ -5,6 +5,8 @@
 
 package org.postgresql.geometric;
 
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
 
@@ -14,7 +16,7 @@ import java.sql.SQLException;
 /**
  * This implements the polygon datatype within PostgreSQL.
  */
-public class PGpolygon extends PGobject implements Serializable, Cloneable {
+public class PGpolygon extends PGobject implements PGBinaryObject, Serializable, Cloneable {
   /**
    * The points defining the polygon
    */
@@ -59,6 +61,21 @@ public class PGpolygon extends PGobject implements Serializable, Cloneable {
     }
   }
 
+  /**
+   * @param b Definition of this polygon in PostgreSQL's binary syntax: the number of points
+   *        followed by the points themselves
+   */
+  public void setByteValue(byte[] b, int offset) {
+    int npoints = ByteConverter.int4(b, offset);
+    points = new PGpoint[npoints];
+    int pos = offset + 4;
+    for (int p = 0; p < npoints; p++) {
+      points[p] = new PGpoint();
+      points[p].setByteValue(b, pos);
+      pos += points[p].lengthInBytes();
+    }
+  }
+
   /**
    * @param obj Object to compare with
    * @return true if the two polygons are identical
@@ -119,4 +136,24 @@ public class PGpolygon extends PGobject implements Serializable, Cloneable {
     b.append(")");
     return b.toString();
   }
+
+  public int lengthInBytes() {
+    int length = 4;
+    for (PGpoint point : points) {
+      length += point.lengthInBytes();
+    }
+    return length;
+  }
+
+  /**
+   * Populate the byte array with PGpolygon in the binary syntax expected by org.postgresql
+   */
+  public void toBytes(byte[] bytes, int offset) {
+    ByteConverter.int4(bytes, offset, points.length);
+    int pos = offset + 4;
+    for (PGpoint point : points) {
+      point.toBytes(bytes, pos);
+      pos += point.lengthInBytes();
+    }
+  }
 }
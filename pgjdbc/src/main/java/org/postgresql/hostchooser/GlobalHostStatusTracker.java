@@ -10,16 +10,17 @@ import static java.lang.System.currentTimeMillis;
 import org.postgresql.util.HostSpec;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Keeps track of HostSpec targets in a global map.
+ * Keeps track of HostSpec targets in a global map. The map holds immutable entries, so that
+ * reading it does not block connection attempts, or a {@link HostMonitor} reporting statuses.
  */
 public class GlobalHostStatusTracker {
   private static final Map<HostSpec, HostSpecStatus> hostStatusMap =
-      new HashMap<HostSpec, HostSpecStatus>();
+      new ConcurrentHashMap<HostSpec, HostSpecStatus>();
 
   /**
    * Store the actual observed host status.
@@ -28,16 +29,31 @@ public class GlobalHostStatusTracker {
    * @param hostStatus Latest known status for the host.
    */
   public static void reportHostStatus(HostSpec hostSpec, HostStatus hostStatus) {
-    long now = currentTimeMillis();
-    synchronized (hostStatusMap) {
-      HostSpecStatus hostSpecStatus = hostStatusMap.get(hostSpec);
-      if (hostSpecStatus == null) {
-        hostSpecStatus = new HostSpecStatus(hostSpec);
-        hostStatusMap.put(hostSpec, hostSpecStatus);
-      }
-      hostSpecStatus.status = hostStatus;
-      hostSpecStatus.lastUpdated = now;
-    }
+    reportHostStatus(hostSpec, hostStatus, -1, -1);
+  }
+
+  /**
+   * Store the actual observed host status along with the measurements of a {@link HostMonitor}.
+   *
+   * @param hostSpec The host whose status is known.
+   * @param hostStatus Latest known status for the host.
+   * @param roundTripNanos The time a query took, or -1 if unknown.
+   * @param replicationLagMillis How far behind its master a secondary is, or -1 if unknown.
+   */
+  static void reportHostStatus(HostSpec hostSpec, HostStatus hostStatus, long roundTripNanos,
+      long replicationLagMillis) {
+    hostStatusMap.put(hostSpec, new HostSpecStatus(hostSpec, hostStatus, currentTimeMillis(),
+        roundTripNanos, replicationLagMillis));
+  }
+
+  /**
+   * Returns the latest known status of a host.
+   *
+   * @param hostSpec The host.
+   * @return the status, or null if the host was not seen yet
+   */
+  static HostSpecStatus getHostStatus(HostSpec hostSpec) {
+    return hostStatusMap.get(hostSpec);
   }
 
   /**
@@ -52,15 +68,13 @@ public class GlobalHostStatusTracker {
       HostRequirement targetServerType, long hostRecheckMillis) {
     List<HostSpec> candidates = new ArrayList<HostSpec>(hostSpecs.length);
     long latestAllowedUpdate = currentTimeMillis() - hostRecheckMillis;
-    synchronized (hostStatusMap) {
-      for (HostSpec hostSpec : hostSpecs) {
-        HostSpecStatus hostInfo = hostStatusMap.get(hostSpec);
-        // candidates are nodes we do not know about and the nodes with correct type
-        if (hostInfo == null
-            || hostInfo.lastUpdated < latestAllowedUpdate
-            || targetServerType.allowConnectingTo(hostInfo.status)) {
-          candidates.add(hostSpec);
-        }
+    for (HostSpec hostSpec : hostSpecs) {
+      HostSpecStatus hostInfo = hostStatusMap.get(hostSpec);
+      // candidates are nodes we do not know about and the nodes with correct type
+      if (hostInfo == null
+          || hostInfo.lastUpdated < latestAllowedUpdate
+          || targetServerType.allowConnectingTo(hostInfo.status)) {
+        candidates.add(hostSpec);
       }
     }
     return candidates;
@@ -68,11 +82,18 @@ public class GlobalHostStatusTracker {
 
   static class HostSpecStatus {
     final HostSpec host;
-    HostStatus status;
-    long lastUpdated;
+    final HostStatus status;
+    final long lastUpdated;
+    final long roundTripNanos;
+    final long replicationLagMillis;
 
-    HostSpecStatus(HostSpec host) {
+    HostSpecStatus(HostSpec host, HostStatus status, long lastUpdated, long roundTripNanos,
+        long replicationLagMillis) {
       this.host = host;
+      this.status = status;
+      this.lastUpdated = lastUpdated;
+      this.roundTripNanos = roundTripNanos;
+      this.replicationLagMillis = replicationLagMillis;
     }
 
     @Override
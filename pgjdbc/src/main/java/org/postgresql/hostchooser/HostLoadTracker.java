@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.hostchooser;
+
+import org.postgresql.hostchooser.GlobalHostStatusTracker.HostSpecStatus;
+import org.postgresql.util.HostSpec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps JVM wide load figures for each host, used by {@code loadBalanceHosts=latency}: an
+ * exponentially weighted moving average of the time connections take to be established and, with
+ * {@code hostMonitorInterval}, of the round trip time of the monitor queries, along with the
+ * number of connections open to the host.
+ *
+ * <p>Hosts are ordered by the "power of two choices": of two hosts picked at random, the one with
+ * the lower cost comes first. This sends most connections to the fastest, least loaded hosts
+ * while still spreading them, so that all the connections of a burst do not pile up on the host
+ * that looked best when the burst started.</p>
+ */
+public class HostLoadTracker {
+  /**
+   * The weight of a new latency sample in the moving average.
+   */
+  static final double ALPHA = 0.2;
+
+  private static final ConcurrentMap<HostSpec, HostLoad> LOADS =
+      new ConcurrentHashMap<HostSpec, HostLoad>();
+
+  private static final Random RANDOM = new Random();
+
+  static class HostLoad {
+    /**
+     * The moving average of the latency in nanoseconds, or 0 if no sample was taken yet.
+     */
+    final AtomicLong latencyNanos = new AtomicLong();
+    final AtomicInteger openConnections = new AtomicInteger();
+
+    void addLatency(long nanos) {
+      long sample = Math.max(1, nanos);
+      while (true) {
+        long current = latencyNanos.get();
+        long next = current == 0 ? sample : (long) (current + ALPHA * (sample - current));
+        if (latencyNanos.compareAndSet(current, Math.max(1, next))) {
+          return;
+        }
+      }
+    }
+  }
+
+  private HostLoadTracker() {
+  }
+
+  private static HostLoad load(HostSpec hostSpec) {
+    HostLoad load = LOADS.get(hostSpec);
+    if (load == null) {
+      HostLoad newLoad = new HostLoad();
+      load = LOADS.putIfAbsent(hostSpec, newLoad);
+      if (load == null) {
+        load = newLoad;
+      }
+    }
+    return load;
+  }
+
+  /**
+   * Records the time a connection to a host or a query on it took.
+   *
+   * @param hostSpec The host.
+   * @param nanos The time taken, in nanoseconds.
+   */
+  public static void recordLatency(HostSpec hostSpec, long nanos) {
+    load(hostSpec).addLatency(nanos);
+  }
+
+  /**
+   * Counts a connection opened to a host.
+   *
+   * @param hostSpec The host.
+   */
+  public static void connectionOpened(HostSpec hostSpec) {
+    load(hostSpec).openConnections.incrementAndGet();
+  }
+
+  /**
+   * Counts a connection to a host as closed. Must be called once for each call to
+   * {@link #connectionOpened}.
+   *
+   * @param hostSpec The host.
+   */
+  public static void connectionClosed(HostSpec hostSpec) {
+    load(hostSpec).openConnections.decrementAndGet();
+  }
+
+  static long getLatencyNanos(HostSpec hostSpec) {
+    HostLoad load = LOADS.get(hostSpec);
+    return load == null ? 0 : load.latencyNanos.get();
+  }
+
+  static int getOpenConnections(HostSpec hostSpec) {
+    HostLoad load = LOADS.get(hostSpec);
+    return load == null ? 0 : load.openConnections.get();
+  }
+
+  static void clear() {
+    LOADS.clear();
+  }
+
+  /**
+   * Returns the cost of connecting to a host: its latency, plus its replication lag when known,
+   * scaled by the number of connections already open to it. Hosts without a latency sample cost
+   * nothing, so that they get tried.
+   *
+   * @param hostSpec The host.
+   * @return the cost, in nanoseconds
+   */
+  static double cost(HostSpec hostSpec) {
+    double latency = getLatencyNanos(hostSpec);
+    if (latency == 0) {
+      return 0;
+    }
+    HostSpecStatus status = GlobalHostStatusTracker.getHostStatus(hostSpec);
+    if (status != null && status.replicationLagMillis > 0) {
+      latency += status.replicationLagMillis * 1000000.0;
+    }
+    return latency * (Math.max(0, getOpenConnections(hostSpec)) + 1);
+  }
+
+  /**
+   * Orders hosts by repeatedly taking the cheaper of two random hosts not taken yet.
+   *
+   * @param hostSpecs The hosts.
+   * @return the hosts in the order they should be tried.
+   */
+  static List<HostSpec> orderByLoad(List<HostSpec> hostSpecs) {
+    int remaining = hostSpecs.size();
+    HostSpec[] hosts = hostSpecs.toArray(new HostSpec[remaining]);
+    double[] costs = new double[remaining];
+    for (int i = 0; i < remaining; i++) {
+      costs[i] = cost(hosts[i]);
+    }
+
+    List<HostSpec> ordered = new ArrayList<HostSpec>(remaining);
+    while (remaining > 1) {
+      int first = RANDOM.nextInt(remaining);
+      int second = RANDOM.nextInt(remaining - 1);
+      if (second >= first) {
+        second++;
+      }
+      int chosen = costs[second] < costs[first] ? second : first;
+      ordered.add(hosts[chosen]);
+      // move the last remaining host into the slot of the chosen one
+      remaining--;
+      hosts[chosen] = hosts[remaining];
+      costs[chosen] = costs[remaining];
+    }
+    if (remaining == 1) {
+      ordered.add(hosts[0]);
+    }
+    return ordered;
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.hostchooser;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.ConnectionFactory;
+import org.postgresql.core.QueryExecutor;
+import org.postgresql.core.ServerVersion;
+import org.postgresql.core.SetupQueryRunner;
+import org.postgresql.util.HostSpec;
+import org.postgresql.util.PSQLState;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Probes a host in the background and reports its status to {@link GlobalHostStatusTracker}, so
+ * that connection attempts find fresh statuses instead of discovering them by connecting to each
+ * host in turn. A monitor keeps one connection to its host, on which it checks every
+ * {@code hostMonitorInterval} milliseconds whether the server is a master or a secondary, how
+ * long the query took and, on secondaries, how far replay lags behind.
+ *
+ * <p>A monitor connects with the credentials of the connections it serves, so it is shared by the
+ * connections to the same host, user and database only. Connections start the monitors of their
+ * hosts with {@link #startMonitoring} when they open and release them with
+ * {@link #stopMonitoring} when they close; a monitor runs on a daemon thread until the last
+ * connection using it is closed.</p>
+ */
+public class HostMonitor implements Runnable {
+  private static final Logger LOGGER = Logger.getLogger(HostMonitor.class.getName());
+
+  /**
+   * The longest time between two attempts to connect to a failing host. A host that fails is
+   * tried less and less often, so that an unreachable host does not flood the log.
+   */
+  static final long MAX_RETRY_MILLIS = 10000;
+
+  // guarded by itself
+  private static final Map<MonitorKey, HostMonitor> MONITORS =
+      new HashMap<MonitorKey, HostMonitor>();
+
+  private final MonitorKey key;
+  private final HostSpec hostSpec;
+  private final String user;
+  private final String database;
+  private final Properties info;
+  private final int intervalMillis;
+  // guarded by MONITORS
+  private int refCount;
+  private volatile boolean stopped;
+  // only used by the monitor thread
+  private QueryExecutor queryExecutor;
+
+  private HostMonitor(MonitorKey key, Properties info, int intervalMillis) {
+    this.key = key;
+    this.hostSpec = key.hostSpec;
+    this.user = key.user;
+    this.database = key.database;
+    this.intervalMillis = intervalMillis;
+
+    // a single host, whose type must be known, and no monitor of its own
+    this.info = new Properties();
+    for (String name : info.stringPropertyNames()) {
+      this.info.setProperty(name, info.getProperty(name));
+    }
+    PGProperty.TARGET_SERVER_TYPE.set(this.info, HostRequirement.preferSecondary.name());
+    if (!PGProperty.CONNECT_TIMEOUT.isPresent(this.info)) {
+      // do not let an unreachable host hold up the monitor for the operating system timeout
+      PGProperty.CONNECT_TIMEOUT.set(this.info, Math.max(1, 2 * intervalMillis / 1000));
+    }
+    this.info.remove(PGProperty.HOST_MONITOR_INTERVAL.getName());
+    this.info.remove(PGProperty.PARALLEL_CONNECT_DELAY.getName());
+  }
+
+  /**
+   * Makes sure the given hosts are monitored, starting monitors as needed. Every call must be
+   * followed by a call to {@link #stopMonitoring} with the returned monitors once they are no
+   * longer needed.
+   *
+   * @param hostSpecs the hosts
+   * @param user the user the monitors connect as
+   * @param database the database the monitors connect to
+   * @param info the connection properties, used by the monitors to connect
+   * @param intervalMillis the time between two probes of a host
+   * @return the monitors of the hosts
+   */
+  public static HostMonitor[] startMonitoring(HostSpec[] hostSpecs, String user, String database,
+      Properties info, int intervalMillis) {
+    HostMonitor[] monitors = new HostMonitor[hostSpecs.length];
+    List<HostMonitor> started = new ArrayList<HostMonitor>();
+    synchronized (MONITORS) {
+      for (int i = 0; i < hostSpecs.length; i++) {
+        MonitorKey key = new MonitorKey(hostSpecs[i], user, database);
+        HostMonitor monitor = MONITORS.get(key);
+        if (monitor == null) {
+          monitor = new HostMonitor(key, info, intervalMillis);
+          MONITORS.put(key, monitor);
+          started.add(monitor);
+        }
+        monitor.refCount++;
+        monitors[i] = monitor;
+      }
+    }
+    for (HostMonitor monitor : started) {
+      Thread thread =
+          new Thread(monitor, "PostgreSQL JDBC driver host monitor " + monitor.hostSpec);
+      thread.setDaemon(true); // Don't prevent the VM from shutting down
+      thread.start();
+    }
+    return monitors;
+  }
+
+  /**
+   * Releases monitors returned by {@link #startMonitoring}, stopping those no connection uses
+   * anymore.
+   *
+   * @param monitors the monitors
+   */
+  public static void stopMonitoring(HostMonitor[] monitors) {
+    synchronized (MONITORS) {
+      for (HostMonitor monitor : monitors) {
+        if (--monitor.refCount == 0) {
+          monitor.stop();
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops all the monitors and closes their connections.
+   */
+  public static void stopAll() {
+    synchronized (MONITORS) {
+      for (HostMonitor monitor : new ArrayList<HostMonitor>(MONITORS.values())) {
+        monitor.stop();
+      }
+    }
+  }
+
+  private void stop() {
+    stopped = true;
+    synchronized (MONITORS) {
+      if (MONITORS.get(key) == this) {
+        MONITORS.remove(key);
+      }
+    }
+  }
+
+  public void run() {
+    LOGGER.log(Level.FINE, "Monitoring host {0}", hostSpec);
+    try {
+      int failures = 0;
+      while (!stopped) {
+        failures = probe() ? 0 : Math.min(failures + 1, 16);
+        Thread.sleep(failures == 0
+            ? intervalMillis : Math.min((long) intervalMillis << failures, MAX_RETRY_MILLIS));
+      }
+    } catch (InterruptedException e) {
+      stop();
+    } finally {
+      close();
+      LOGGER.log(Level.FINE, "Stopped monitoring host {0}", hostSpec);
+    }
+  }
+
+  /**
+   * Checks the status of the host and reports it.
+   *
+   * @return false if the host could not be reached
+   */
+  private boolean probe() {
+    try {
+      if (queryExecutor == null || queryExecutor.isClosed()) {
+        queryExecutor =
+            ConnectionFactory.openConnection(new HostSpec[]{hostSpec}, user, database, info);
+        // a host that stops answering counts as failed after a couple of intervals
+        queryExecutor.setNetworkTimeout(Math.max(2 * intervalMillis, 1000));
+      }
+      boolean withLag = queryExecutor.getServerVersionNum() >= ServerVersion.v9_1.getVersionNum();
+      long start = System.nanoTime();
+      byte[][] row = SetupQueryRunner.run(queryExecutor, withLag
+          ? "SELECT current_setting('transaction_read_only'),"
+              + " extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000"
+          : "show transaction_read_only", true);
+      long roundTripNanos = System.nanoTime() - start;
+
+      boolean readOnly = !queryExecutor.getEncoding().decode(row[0]).equalsIgnoreCase("off");
+      long lag = -1;
+      if (readOnly && withLag && row[1] != null) {
+        lag = Math.max(0, (long) Double.parseDouble(queryExecutor.getEncoding().decode(row[1])));
+      }
+      HostLoadTracker.recordLatency(hostSpec, roundTripNanos);
+      GlobalHostStatusTracker.reportHostStatus(hostSpec,
+          readOnly ? HostStatus.Secondary : HostStatus.Master, roundTripNanos, lag);
+      return true;
+    } catch (SQLException e) {
+      failed(e, isConnectionFailure(e));
+    } catch (IOException e) {
+      failed(e, true);
+    }
+    return false;
+  }
+
+  /**
+   * Tells whether the host could not be reached, as opposed to errors such as a wrong password, a
+   * missing database or too many connections, which say nothing about whether connections of
+   * other users can reach the host.
+   */
+  private static boolean isConnectionFailure(SQLException e) {
+    String sqlState = e.getSQLState();
+    return PSQLState.CONNECTION_UNABLE_TO_CONNECT.getState().equals(sqlState)
+        || PSQLState.CONNECTION_FAILURE.getState().equals(sqlState);
+  }
+
+  private void failed(Exception e, boolean unreachable) {
+    LOGGER.log(unreachable ? Level.FINE : Level.WARNING, "Probe of host " + hostSpec + " failed",
+        e);
+    close();
+    if (unreachable) {
+      GlobalHostStatusTracker.reportHostStatus(hostSpec, HostStatus.ConnectFail);
+    }
+  }
+
+  private static final class MonitorKey {
+    final HostSpec hostSpec;
+    final String user;
+    final String database;
+
+    MonitorKey(HostSpec hostSpec, String user, String database) {
+      this.hostSpec = hostSpec;
+      this.user = user;
+      this.database = database;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof MonitorKey)) {
+        return false;
+      }
+      MonitorKey that = (MonitorKey) o;
+      return hostSpec.equals(that.hostSpec) && equal(user, that.user)
+          && equal(database, that.database);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = hostSpec.hashCode();
+      result = 31 * result + (user == null ? 0 : user.hashCode());
+      result = 31 * result + (database == null ? 0 : database.hashCode());
+      return result;
+    }
+
+    private static boolean equal(String a, String b) {
+      return a == null ? b == null : a.equals(b);
+    }
+  }
+
+  private void close() {
+    if (queryExecutor != null) {
+      queryExecutor.close();
+      queryExecutor = null;
+    }
+  }
+}
@@ -27,6 +27,7 @@ class MultiHostChooser implements HostChooser {
   private final HostRequirement targetServerType;
   private int hostRecheckTime;
   private boolean loadBalance;
+  private boolean latencyAware;
 
   MultiHostChooser(HostSpec[] hostSpecs, HostRequirement targetServerType,
       Properties info) {
@@ -34,7 +35,9 @@ class MultiHostChooser implements HostChooser {
     this.targetServerType = targetServerType;
     try {
       hostRecheckTime = PGProperty.HOST_RECHECK_SECONDS.getInt(info) * 1000;
-      loadBalance = PGProperty.LOAD_BALANCE_HOSTS.getBoolean(info);
+      String loadBalanceHosts = PGProperty.LOAD_BALANCE_HOSTS.get(info);
+      latencyAware = "latency".equalsIgnoreCase(loadBalanceHosts);
+      loadBalance = latencyAware || Boolean.valueOf(loadBalanceHosts);
     } catch (PSQLException e) {
       throw new RuntimeException(e);
     }
@@ -46,7 +49,9 @@ class MultiHostChooser implements HostChooser {
     if (!res.hasNext()) {
       // In case all the candidate hosts are unavailable or do not match, try all the hosts just in case
       List<HostSpec> allHosts = Arrays.asList(hostSpecs);
-      if (loadBalance) {
+      if (latencyAware) {
+        allHosts = HostLoadTracker.orderByLoad(allHosts);
+      } else if (loadBalance) {
         allHosts = new ArrayList<HostSpec>(allHosts);
         Collections.shuffle(allHosts);
       }
@@ -87,7 +92,9 @@ class MultiHostChooser implements HostChooser {
   private List<CandidateHost> getCandidateHosts(HostRequirement hostRequirement) {
     List<HostSpec> candidates =
         GlobalHostStatusTracker.getCandidateHosts(hostSpecs, hostRequirement, hostRecheckTime);
-    if (loadBalance) {
+    if (latencyAware) {
+      candidates = HostLoadTracker.orderByLoad(candidates);
+    } else if (loadBalance) {
       shuffle(candidates);
     }
     return withReqStatus(hostRequirement, candidates);
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import org.postgresql.core.Encoding;
+
+import java.io.IOException;
+
+/**
+ * Returns the same String instance for repeated values of a result set column, keyed by the raw
+ * bytes of the values. This is meant for low-cardinality columns (status codes, country names,
+ * enums) read into long lived structures, where every row would otherwise hold its own copy of a
+ * handful of distinct strings.
+ *
+ * <p>The cache holds a bounded number of short values. Unless it was created with
+ * {@code always}, it measures its hit rate over the first lookups and turns itself off when most
+ * values are distinct, after which {@link #decode} is a plain {@link Encoding#decode}.</p>
+ *
+ * <p>Like the result set that owns it, the cache is not thread-safe.</p>
+ */
+final class ColumnStringCache {
+  /**
+   * Cache used for columns that are not deduplicated.
+   */
+  static final ColumnStringCache NONE = new ColumnStringCache(false, false);
+
+  // longer values are unlikely to repeat, and comparing them costs about as much as decoding
+  static final int MAX_VALUE_LENGTH = 64;
+  static final int CAPACITY = 256;
+  private static final int MAX_ENTRIES = CAPACITY * 3 / 4;
+  // lookups after which the hit rate is checked
+  static final int SAMPLE_SIZE = 1024;
+
+  private final boolean always;
+  private boolean enabled;
+  private byte[][] keys;
+  private String[] values;
+  private int entries;
+  private int lookups;
+  private int hits;
+
+  /**
+   * Creates a cache.
+   *
+   * @param enabled false to create a cache that never deduplicates
+   * @param always true to keep deduplicating whatever the hit rate, as for enums
+   */
+  ColumnStringCache(boolean enabled, boolean always) {
+    this.enabled = enabled;
+    this.always = always;
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Decodes a value, returning the cached instance when the same bytes were decoded before.
+   *
+   * @param bytes the buffer containing the value
+   * @param offset the offset of the value in the buffer
+   * @param length the length of the value
+   * @param encoding the encoding of the value
+   * @return the decoded string
+   * @throws IOException if the value cannot be decoded
+   */
+  String decode(byte[] bytes, int offset, int length, Encoding encoding) throws IOException {
+    if (!enabled || length > MAX_VALUE_LENGTH) {
+      return encoding.decode(bytes, offset, length);
+    }
+    if (keys == null) {
+      keys = new byte[CAPACITY][];
+      values = new String[CAPACITY];
+    }
+
+    int slot = hash(bytes, offset, length) & (CAPACITY - 1);
+    byte[] key;
+    while ((key = keys[slot]) != null) {
+      if (matches(key, bytes, offset, length)) {
+        hits++;
+        countLookup();
+        return values[slot];
+      }
+      slot = (slot + 1) & (CAPACITY - 1);
+    }
+
+    String value = encoding.decode(bytes, offset, length);
+    if (entries < MAX_ENTRIES) {
+      byte[] copy = new byte[length];
+      System.arraycopy(bytes, offset, copy, 0, length);
+      keys[slot] = copy;
+      values[slot] = value;
+      entries++;
+    }
+    countLookup();
+    return value;
+  }
+
+  private void countLookup() {
+    if (always || ++lookups != SAMPLE_SIZE) {
+      return;
+    }
+    if (hits < SAMPLE_SIZE / 2) {
+      // mostly distinct values: give up and let the entries be collected
+      enabled = false;
+      keys = null;
+      values = null;
+    }
+  }
+
+  private static int hash(byte[] bytes, int offset, int length) {
+    int h = length;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      h = 31 * h + bytes[i];
+    }
+    return h ^ (h >>> 16);
+  }
+
+  private static boolean matches(byte[] key, byte[] bytes, int offset, int length) {
+    if (key.length != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (key[i] != bytes[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.postgresql.core.TypeInfo;
+import org.postgresql.jdbc2.ArrayAssistantRegistry;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.GT;
+import org.postgresql.util.PGBinaryCodec;
+import org.postgresql.util.PGCompositeFactory;
+import org.postgresql.util.PGbytea;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Converts composite values of types registered with
+ * {@link org.postgresql.PGConnection#addCompositeType} into the objects built by their
+ * {@link PGCompositeFactory}.
+ *
+ * <p>The binary record format is a int4 attribute count followed by the type OID, the int4 length
+ * (-1 for NULL) and the binary value of every attribute. The text format is the parenthesized
+ * list produced by {@code record_out}, whose attributes are converted according to the attribute
+ * types loaded when the composite type was registered.</p>
+ */
+final class CompositeDecoder {
+
+  private CompositeDecoder() {
+  }
+
+  static boolean isComposite(BaseConnection connection, int oid) {
+    return connection.getTypeInfo().getCompositeFactory(oid) != null;
+  }
+
+  static Class<?> getJavaClass(BaseConnection connection, int oid) {
+    return connection.getTypeInfo().getCompositeFactory(oid).getJavaClass();
+  }
+
+  /**
+   * Tells whether values of a registered composite type can be received in binary, that is whether
+   * {@link #decodeBinary} supports the binary format of every attribute. Anonymous records are
+   * only described at run time, so they are never received in binary.
+   *
+   * @param connection the connection the type was registered with
+   * @param oid the oid of the composite type
+   * @return true if every attribute can be decoded from its binary format
+   * @throws SQLException if the type of an attribute cannot be looked up
+   */
+  static boolean supportsBinary(BaseConnection connection, int oid) throws SQLException {
+    int[] types = connection.getTypeInfo().getCompositeAttributeTypes(oid);
+    if (types == null) {
+      return false;
+    }
+    for (int type : types) {
+      if (!supportsBinaryValue(connection, type)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // mirrors decodeBinaryValue
+  private static boolean supportsBinaryValue(BaseConnection connection, int oid)
+      throws SQLException {
+    switch (oid) {
+      case Oid.BOOL:
+      case Oid.INT2:
+      case Oid.INT4:
+      case Oid.INT8:
+      case Oid.OID:
+      case Oid.FLOAT4:
+      case Oid.FLOAT8:
+      case Oid.NUMERIC:
+      case Oid.CHAR:
+      case Oid.BPCHAR:
+      case Oid.VARCHAR:
+      case Oid.TEXT:
+      case Oid.NAME:
+      case Oid.JSON:
+      case Oid.XML:
+      case Oid.JSONB:
+      case Oid.BYTEA:
+      case Oid.UUID:
+      case Oid.DATE:
+      case Oid.TIME:
+      case Oid.TIMETZ:
+      case Oid.TIMESTAMP:
+      case Oid.TIMESTAMPTZ:
+        return true;
+      default:
+        break;
+    }
+
+    if (isComposite(connection, oid)) {
+      return supportsBinary(connection, oid);
+    }
+
+    TypeInfo typeInfo = connection.getTypeInfo();
+    if (typeInfo.getBinaryCodec(typeInfo.getPGType(oid)) != null) {
+      return true;
+    }
+
+    switch (typeInfo.getSQLType(oid)) {
+      case Types.ARRAY:
+        return supportsBinaryArrayElement(connection, typeInfo.getPGArrayElement(oid));
+      case Types.CHAR:
+      case Types.VARCHAR:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // mirrors the element types supported by PgArray when it reads a binary array
+  private static boolean supportsBinaryArrayElement(BaseConnection connection, int oid)
+      throws SQLException {
+    switch (oid) {
+      case Oid.INT2:
+      case Oid.INT4:
+      case Oid.INT8:
+      case Oid.FLOAT4:
+      case Oid.FLOAT8:
+      case Oid.TEXT:
+      case Oid.VARCHAR:
+      case Oid.BOOL:
+        return true;
+      default:
+        if (ArrayAssistantRegistry.getAssistant(oid) != null) {
+          return true;
+        }
+        return isComposite(connection, oid) && supportsBinary(connection, oid);
+    }
+  }
+
+  static Object decodeBinary(BaseConnection connection, int oid, byte[] bytes, int offset,
+      int length) throws SQLException {
+    TypeInfo typeInfo = connection.getTypeInfo();
+    PGCompositeFactory<?> factory = typeInfo.getCompositeFactory(oid);
+    String[] names = typeInfo.getCompositeAttributeNames(oid);
+
+    if (length < 4) {
+      throw new PSQLException(
+          GT.tr("Unsupported binary encoding of {0}.", typeInfo.getPGType(oid)),
+          PSQLState.DATA_ERROR);
+    }
+    int count = ByteConverter.int4(bytes, offset);
+    checkAttributeCount(typeInfo, oid, names, count);
+
+    Object[] attributes = new Object[count];
+    int pos = offset + 4;
+    int end = offset + length;
+    for (int i = 0; i < count; i++) {
+      if (pos + 8 > end) {
+        throw new PSQLException(
+            GT.tr("Unsupported binary encoding of {0}.", typeInfo.getPGType(oid)),
+            PSQLState.DATA_ERROR);
+      }
+      int attributeOid = ByteConverter.int4(bytes, pos);
+      int len = ByteConverter.int4(bytes, pos + 4);
+      pos += 8;
+      if (len == -1) {
+        continue;
+      }
+      attributes[i] = decodeBinaryValue(connection, attributeOid, bytes, pos, len);
+      pos += len;
+    }
+    return factory.create(names, attributes);
+  }
+
+  static Object decodeText(BaseConnection connection, int oid, String value)
+      throws SQLException {
+    TypeInfo typeInfo = connection.getTypeInfo();
+    PGCompositeFactory<?> factory = typeInfo.getCompositeFactory(oid);
+    String[] names = typeInfo.getCompositeAttributeNames(oid);
+    int[] types = typeInfo.getCompositeAttributeTypes(oid);
+
+    List<String> values = parseTextRecord(value);
+    checkAttributeCount(typeInfo, oid, names, values.size());
+
+    Object[] attributes = new Object[values.size()];
+    for (int i = 0; i < attributes.length; i++) {
+      String attribute = values.get(i);
+      if (attribute != null) {
+        // the text format of anonymous records does not tell the attribute types
+        attributes[i] =
+            types == null ? attribute : decodeTextValue(connection, types[i], attribute);
+      }
+    }
+    return factory.create(names, attributes);
+  }
+
+  /**
+   * Splits the text representation of a record into its attributes.
+   *
+   * @param value record in the format of {@code record_out}, for instance {@code (1,"a b",)}
+   * @return unquoted attribute values, null for NULL attributes
+   * @throws PSQLException if the value is not a record
+   */
+  static List<String> parseTextRecord(String value) throws PSQLException {
+    int length = value.length();
+    if (length < 2 || value.charAt(0) != '(' || value.charAt(length - 1) != ')') {
+      throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "record", value),
+          PSQLState.DATA_TYPE_MISMATCH);
+    }
+
+    List<String> attributes = new ArrayList<String>();
+    // a record without attributes is written as ()
+    if (length == 2) {
+      return attributes;
+    }
+
+    StringBuilder sb = new StringBuilder();
+    boolean quoted = false;
+    boolean wasQuoted = false;
+    for (int i = 1; i < length - 1; i++) {
+      char c = value.charAt(i);
+      if (c == '\\' && i + 1 < length - 1) {
+        sb.append(value.charAt(++i));
+      } else if (c == '"') {
+        if (quoted && i + 1 < length - 1 && value.charAt(i + 1) == '"') {
+          // doubled quote inside a quoted value
+          sb.append('"');
+          i++;
+        } else {
+          quoted = !quoted;
+          wasQuoted = true;
+        }
+      } else if (c == ',' && !quoted) {
+        attributes.add(sb.length() == 0 && !wasQuoted ? null : sb.toString());
+        sb.setLength(0);
+        wasQuoted = false;
+      } else {
+        sb.append(c);
+      }
+    }
+    if (quoted) {
+      throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "record", value),
+          PSQLState.DATA_TYPE_MISMATCH);
+    }
+    attributes.add(sb.length() == 0 && !wasQuoted ? null : sb.toString());
+    return attributes;
+  }
+
+  private static void checkAttributeCount(TypeInfo typeInfo, int oid, String[] names, int count)
+      throws SQLException {
+    if (names != null && names.length != count) {
+      // the type was altered after it had been registered
+      throw new PSQLException(
+          GT.tr("The value has {0} attributes, but type {1} has {2}.", count,
+              typeInfo.getPGType(oid), names.length),
+          PSQLState.DATA_ERROR);
+    }
+  }
+
+  private static Object decodeBinaryValue(BaseConnection connection, int oid, byte[] bytes,
+      int pos, int len) throws SQLException {
+    TimestampUtils timestampUtils = connection.getTimestampUtils();
+    switch (oid) {
+      case Oid.BOOL:
+        return ByteConverter.bool(bytes, pos);
+      case Oid.INT2:
+        return (int) ByteConverter.int2(bytes, pos);
+      case Oid.INT4:
+        return ByteConverter.int4(bytes, pos);
+      case Oid.INT8:
+        return ByteConverter.int8(bytes, pos);
+      case Oid.OID:
+        return ByteConverter.int4(bytes, pos) & 0xFFFFFFFFL;
+      case Oid.FLOAT4:
+        return ByteConverter.float4(bytes, pos);
+      case Oid.FLOAT8:
+        return ByteConverter.float8(bytes, pos);
+      case Oid.NUMERIC:
+        return ByteConverter.numeric(bytes, pos);
+      case Oid.CHAR:
+      case Oid.BPCHAR:
+      case Oid.VARCHAR:
+      case Oid.TEXT:
+      case Oid.NAME:
+      case Oid.JSON:
+      case Oid.XML:
+        return decodeString(connection, bytes, pos, len);
+      case Oid.JSONB:
+        // skip the format version
+        return decodeString(connection, bytes, pos + 1, len - 1);
+      case Oid.BYTEA:
+        return Arrays.copyOfRange(bytes, pos, pos + len);
+      case Oid.UUID:
+        return new UUID(ByteConverter.int8(bytes, pos), ByteConverter.int8(bytes, pos + 8));
+      case Oid.DATE:
+        return timestampUtils.toDateBin(null, Arrays.copyOfRange(bytes, pos, pos + len));
+      case Oid.TIME:
+      case Oid.TIMETZ:
+        return timestampUtils.toTimeBin(null, Arrays.copyOfRange(bytes, pos, pos + len));
+      case Oid.TIMESTAMP:
+      case Oid.TIMESTAMPTZ:
+        return timestampUtils.toTimestampBin(null, Arrays.copyOfRange(bytes, pos, pos + len),
+            oid == Oid.TIMESTAMPTZ);
+      default:
+        break;
+    }
+
+    if (isComposite(connection, oid)) {
+      return decodeBinary(connection, oid, bytes, pos, len);
+    }
+
+    TypeInfo typeInfo = connection.getTypeInfo();
+    String typeName = typeInfo.getPGType(oid);
+    PGBinaryCodec<?> codec = typeInfo.getBinaryCodec(typeName);
+    if (codec != null) {
+      return codec.decode(bytes, pos, len);
+    }
+
+    switch (typeInfo.getSQLType(oid)) {
+      case Types.ARRAY:
+        return new PgArray(connection, oid, Arrays.copyOfRange(bytes, pos, pos + len)).getArray();
+      case Types.CHAR:
+      case Types.VARCHAR:
+        // enums and other types sent as plain text
+        return decodeString(connection, bytes, pos, len);
+      default:
+        throw new PSQLException(
+            GT.tr("Binary decoding of type {0} in composite values is not supported.", typeName),
+            PSQLState.NOT_IMPLEMENTED);
+    }
+  }
+
+  private static Object decodeTextValue(BaseConnection connection, int oid, String value)
+      throws SQLException {
+    TimestampUtils timestampUtils = connection.getTimestampUtils();
+    try {
+      switch (oid) {
+        case Oid.BOOL:
+          return BooleanTypeUtil.castToBoolean(value);
+        case Oid.INT2:
+        case Oid.INT4:
+          return Integer.valueOf(value);
+        case Oid.INT8:
+        case Oid.OID:
+          return Long.valueOf(value);
+        case Oid.FLOAT4:
+          return Float.valueOf(value);
+        case Oid.FLOAT8:
+          return Double.valueOf(value);
+        case Oid.NUMERIC:
+          if ("NaN".equals(value)) {
+            return Double.NaN;
+          }
+          return new BigDecimal(value);
+        case Oid.CHAR:
+        case Oid.BPCHAR:
+        case Oid.VARCHAR:
+        case Oid.TEXT:
+        case Oid.NAME:
+        case Oid.JSON:
+        case Oid.JSONB:
+        case Oid.XML:
+          return value;
+        case Oid.BYTEA:
+          return PGbytea.toBytes(connection.getEncoding().encode(value));
+        case Oid.UUID:
+          return UUID.fromString(value);
+        case Oid.DATE:
+          return timestampUtils.toDate(null, value);
+        case Oid.TIME:
+        case Oid.TIMETZ:
+          return timestampUtils.toTime(null, value);
+        case Oid.TIMESTAMP:
+        case Oid.TIMESTAMPTZ:
+          return timestampUtils.toTimestamp(null, value);
+        default:
+          break;
+      }
+    } catch (IllegalArgumentException e) {
+      // also covers NumberFormatException
+      throw new PSQLException(
+          GT.tr("Bad value for type {0} : {1}", connection.getTypeInfo().getPGType(oid), value),
+          PSQLState.DATA_TYPE_MISMATCH, e);
+    } catch (IOException ioe) {
+      throw invalidCharacterData(ioe);
+    }
+
+    if (isComposite(connection, oid)) {
+      return decodeText(connection, oid, value);
+    }
+
+    TypeInfo typeInfo = connection.getTypeInfo();
+    if (typeInfo.getSQLType(oid) == Types.ARRAY) {
+      return new PgArray(connection, oid, value).getArray();
+    }
+    return connection.getObject(typeInfo.getPGType(oid), value, null);
+  }
+
+  private static String decodeString(BaseConnection connection, byte[] bytes, int pos, int len)
+      throws SQLException {
+    try {
+      return connection.getEncoding().decode(bytes, pos, len);
+    } catch (IOException ioe) {
+      throw invalidCharacterData(ioe);
+    }
+  }
+
+  private static PSQLException invalidCharacterData(IOException ioe) {
+    return new PSQLException(
+        GT.tr(
+            "Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."),
+        PSQLState.DATA_ERROR, ioe);
+  }
+}
@@ -257,6 +257,8 @@ public class PgArray implements java.sql.Array {
             ArrayAssistant arrAssistant = ArrayAssistantRegistry.getAssistant(elementOid);
             if (arrAssistant != null) {
               arr[i] = arrAssistant.buildElement(fieldBytes, pos, len);
+            } else if (CompositeDecoder.isComposite(connection, elementOid)) {
+              arr[i] = CompositeDecoder.decodeBinary(connection, elementOid, fieldBytes, pos, len);
             }
         }
         pos += len;
@@ -402,6 +404,9 @@ public class PgArray implements java.sql.Array {
         if (arrElemBuilder != null) {
           return arrElemBuilder.baseType();
         }
+        if (CompositeDecoder.isComposite(connection, oid)) {
+          return CompositeDecoder.getJavaClass(connection, oid);
+        }
 
         throw org.postgresql.Driver.notImplemented(this.getClass(), "readBinaryArray(data,oid)");
     }
@@ -561,8 +566,8 @@ public class PgArray implements java.sql.Array {
     int length = 0;
 
     // array elements type
-    final int type =
-        connection.getTypeInfo().getSQLType(connection.getTypeInfo().getPGArrayElement(oid));
+    final int elementOid = connection.getTypeInfo().getPGArrayElement(oid);
+    final int type = connection.getTypeInfo().getSQLType(elementOid);
 
     if (type == Types.BIT) {
       boolean[] pa = null; // primitive array
@@ -761,6 +766,19 @@ public class PgArray implements java.sql.Array {
         oa[length++] = dims > 1 && v != null ? buildArray((PgArrayList) v, 0, -1)
             : (v == null ? null : connection.getTimestampUtils().toTimestamp(null, (String) v));
       }
+    } else if (CompositeDecoder.isComposite(connection, elementOid)) {
+      Class<?> javaClass = CompositeDecoder.getJavaClass(connection, elementOid);
+
+      Object[] oa = null;
+      ret = oa = (dims > 1)
+          ? (Object[]) java.lang.reflect.Array.newInstance(javaClass, dimsLength)
+          : (Object[]) java.lang.reflect.Array.newInstance(javaClass, count);
+
+      for (; count > 0; count--) {
+        Object v = input.get(index++);
+        oa[length++] = (dims > 1 && v != null) ? buildArray((PgArrayList) v, 0, -1)
+            : (v == null ? null : CompositeDecoder.decodeText(connection, elementOid, (String) v));
+      }
     } else if (ArrayAssistantRegistry.getAssistant(oid) != null) {
       ArrayAssistant arrAssistant = ArrayAssistantRegistry.getAssistant(oid);
 
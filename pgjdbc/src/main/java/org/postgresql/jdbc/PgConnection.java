@@ -15,6 +15,7 @@ import org.postgresql.core.CachedQuery;
 import org.postgresql.core.ConnectionFactory;
 import org.postgresql.core.Encoding;
 import org.postgresql.core.Oid;
+import org.postgresql.core.OidSet;
 import org.postgresql.core.Provider;
 import org.postgresql.core.Query;
 import org.postgresql.core.QueryExecutor;
@@ -27,13 +28,18 @@ import org.postgresql.core.TypeInfo;
 import org.postgresql.core.Utils;
 import org.postgresql.core.Version;
 import org.postgresql.fastpath.Fastpath;
+import org.postgresql.geometric.GeometricCodecs;
+import org.postgresql.hostchooser.HostMonitor;
 import org.postgresql.largeobject.LargeObjectManager;
 import org.postgresql.replication.PGReplicationConnection;
 import org.postgresql.replication.PGReplicationConnectionImpl;
 import org.postgresql.util.GT;
+import org.postgresql.util.HStoreConverter;
 import org.postgresql.util.HostSpec;
 import org.postgresql.util.LruCache;
+import org.postgresql.util.PGBinaryCodec;
 import org.postgresql.util.PGBinaryObject;
+import org.postgresql.util.PGCompositeFactory;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
@@ -101,8 +107,14 @@ public class PgConnection implements BaseConnection {
 
   private final TypeInfo _typeCache;
 
+  // Binary codecs and composite types registered later may extend the binary transfer sets.
+  private final boolean binaryTransfer;
+  private final OidSet binaryTransferDisabledOids;
+
   private boolean disableColumnSanitiser = false;
 
+  private boolean deduplicateStrings;
+
   // Default statement prepare threshold.
   protected int prepareThreshold;
 
@@ -133,6 +145,9 @@ public class PgConnection implements BaseConnection {
   // Only instantiated if a task is actually scheduled.
   private volatile Timer cancelTimer = null;
 
+  // Monitors of the hosts of the connection URL, when hostMonitorInterval is set.
+  private HostMonitor[] hostMonitors;
+
   private PreparedStatement checkConnectionQuery;
   /**
    * Replication protocol in current version postgresql(10devel) supports a limited number of
@@ -204,10 +219,11 @@ public class PgConnection implements BaseConnection {
       setReadOnly(true);
     }
 
-    boolean binaryTransfer = PGProperty.BINARY_TRANSFER.getBoolean(info);
+    binaryTransfer = PGProperty.BINARY_TRANSFER.getBoolean(info)
+        && queryExecutor.getProtocolVersion() >= 3;
     // Formats that currently have binary protocol support
     Set<Integer> binaryOids = new HashSet<Integer>();
-    if (binaryTransfer && queryExecutor.getProtocolVersion() >= 3) {
+    if (binaryTransfer) {
       binaryOids.add(Oid.BYTEA);
       binaryOids.add(Oid.INT2);
       binaryOids.add(Oid.INT4);
@@ -228,12 +244,20 @@ public class PgConnection implements BaseConnection {
       binaryOids.add(Oid.VARCHAR_ARRAY);
       binaryOids.add(Oid.TEXT_ARRAY);
       binaryOids.add(Oid.POINT);
+      binaryOids.add(Oid.LSEG);
+      binaryOids.add(Oid.PATH);
       binaryOids.add(Oid.BOX);
+      binaryOids.add(Oid.POLYGON);
+      binaryOids.add(Oid.LINE);
+      binaryOids.add(Oid.CIRCLE);
       binaryOids.add(Oid.UUID);
+      binaryOids.add(Oid.JSONB);
     }
 
+    Set<Integer> disabledOids = getOidSet(PGProperty.BINARY_TRANSFER_DISABLE.get(info));
+    binaryTransferDisabledOids = OidSet.of(disabledOids);
     binaryOids.addAll(getOidSet(PGProperty.BINARY_TRANSFER_ENABLE.get(info)));
-    binaryOids.removeAll(getOidSet(PGProperty.BINARY_TRANSFER_DISABLE.get(info)));
+    binaryOids.removeAll(disabledOids);
 
     // split for receive and send for better control
     Set<Integer> useBinarySendForOids = new HashSet<Integer>();
@@ -248,8 +272,15 @@ public class PgConnection implements BaseConnection {
      */
     useBinarySendForOids.remove(Oid.DATE);
 
-    queryExecutor.setBinaryReceiveOids(useBinaryReceiveForOids);
-    queryExecutor.setBinarySendOids(useBinarySendForOids);
+    /*
+     * jsonb parameters are bound as text, so only the receive side needs the version-prefixed
+     * binary format.
+     */
+    useBinarySendForOids.remove(Oid.JSONB);
+
+    // connections with the same configuration share the lookup structures
+    queryExecutor.setBinaryReceiveOids(OidSet.of(useBinaryReceiveForOids));
+    queryExecutor.setBinarySendOids(OidSet.of(useBinarySendForOids));
 
     if (LOGGER.isLoggable(Level.FINEST)) {
       LOGGER.log(Level.FINEST, "    types using binary send = {0}", oidsToString(useBinarySendForOids));
@@ -300,6 +331,7 @@ public class PgConnection implements BaseConnection {
       openStackTrace = new Throwable("Connection was created at this point:");
     }
     this.disableColumnSanitiser = PGProperty.DISABLE_COLUMN_SANITISER.getBoolean(info);
+    this.deduplicateStrings = PGProperty.DEDUPLICATE_STRINGS.getBoolean(info);
 
     TypeInfo types1 = getTypeInfo();
     if (haveMinimumServerVersion(ServerVersion.v8_3)) {
@@ -326,6 +358,13 @@ public class PgConnection implements BaseConnection {
         false);
 
     replicationConnection = PGProperty.REPLICATION.get(info) != null;
+
+    // last, so that a failing constructor leaves no monitor behind; they are released by close()
+    int hostMonitorInterval = PGProperty.HOST_MONITOR_INTERVAL.getInt(info);
+    if (hostMonitorInterval > 0 && hostSpecs.length > 1) {
+      hostMonitors =
+          HostMonitor.startMonitoring(hostSpecs, user, database, info, hostMonitorInterval);
+    }
   }
 
   private Set<Integer> getOidSet(String oidList) throws PSQLException {
@@ -612,6 +651,42 @@ public class PgConnection implements BaseConnection {
     _typeCache.addDataType(type, klass);
   }
 
+  @Override
+  public void addBinaryCodec(String type, PGBinaryCodec<?> codec) throws SQLException {
+    checkClosed();
+    int oid = _typeCache.getPGType(type);
+    if (oid == Oid.UNSPECIFIED) {
+      throw new PSQLException(GT.tr("Unknown type {0}.", type),
+          PSQLState.INVALID_PARAMETER_TYPE);
+    }
+    _typeCache.addBinaryCodec(type, codec);
+
+    if (binaryTransfer && !binaryTransferDisabledOids.contains(oid)) {
+      queryExecutor.setBinarySendOids(queryExecutor.getBinarySendOids().with(oid));
+      queryExecutor.setBinaryReceiveOids(queryExecutor.getBinaryReceiveOids().with(oid));
+    }
+  }
+
+  @Override
+  public void addCompositeType(String type, PGCompositeFactory<?> factory) throws SQLException {
+    checkClosed();
+    _typeCache.addCompositeType(type, factory);
+
+    // attributes without binary decoding are received as text along with the whole value
+    if (binaryTransfer && CompositeDecoder.supportsBinary(this, _typeCache.getPGType(type))) {
+      int oid = _typeCache.getPGType(type);
+      int arrayOid = _typeCache.getPGArrayType(type);
+      OidSet receiveOids = queryExecutor.getBinaryReceiveOids();
+      if (!binaryTransferDisabledOids.contains(oid)) {
+        receiveOids = receiveOids.with(oid);
+      }
+      if (arrayOid != Oid.UNSPECIFIED && !binaryTransferDisabledOids.contains(arrayOid)) {
+        receiveOids = receiveOids.with(arrayOid);
+      }
+      queryExecutor.setBinaryReceiveOids(receiveOids);
+    }
+  }
+
   // This initialises the objectTypes hash map
   private void initObjectTypes(Properties info) throws SQLException {
     // Add in the types that come packaged with the driver.
@@ -626,6 +701,17 @@ public class PgConnection implements BaseConnection {
     addDataType("money", org.postgresql.util.PGmoney.class);
     addDataType("interval", org.postgresql.util.PGInterval.class);
 
+    // The geometric types are in the default binary transfer set already, and hstore keeps its
+    // text format unless enabled explicitly, so no need to touch the transfer modes here.
+    _typeCache.addBinaryCodec("box", GeometricCodecs.BOX);
+    _typeCache.addBinaryCodec("circle", GeometricCodecs.CIRCLE);
+    _typeCache.addBinaryCodec("line", GeometricCodecs.LINE);
+    _typeCache.addBinaryCodec("lseg", GeometricCodecs.LSEG);
+    _typeCache.addBinaryCodec("path", GeometricCodecs.PATH);
+    _typeCache.addBinaryCodec("point", GeometricCodecs.POINT);
+    _typeCache.addBinaryCodec("polygon", GeometricCodecs.POLYGON);
+    _typeCache.addBinaryCodec("hstore", HStoreConverter.BINARY_CODEC);
+
     Enumeration<?> e = info.propertyNames();
     while (e.hasMoreElements()) {
       String propertyName = (String) e.nextElement();
@@ -656,6 +742,7 @@ public class PgConnection implements BaseConnection {
    */
   public void close() throws SQLException {
     releaseTimer();
+    releaseHostMonitors();
     queryExecutor.close();
     openStackTrace = null;
   }
@@ -1074,6 +1161,15 @@ public class PgConnection implements BaseConnection {
     LOGGER.log(Level.FINE, "  setDisableColumnSanitiser = {0}", disableColumnSanitiser);
   }
 
+  public boolean isStringDeduplicationEnabled() {
+    return deduplicateStrings;
+  }
+
+  public void setDeduplicateStrings(boolean deduplicateStrings) {
+    this.deduplicateStrings = deduplicateStrings;
+    LOGGER.log(Level.FINE, "  setDeduplicateStrings = {0}", deduplicateStrings);
+  }
+
   @Override
   public PreferQueryMode getPreferQueryMode() {
     return queryExecutor.getPreferQueryMode();
@@ -1092,6 +1188,7 @@ public class PgConnection implements BaseConnection {
 
   protected void abort() {
     queryExecutor.abort();
+    releaseHostMonitors();
   }
 
   private synchronized Timer getTimer() {
@@ -1108,6 +1205,13 @@ public class PgConnection implements BaseConnection {
     }
   }
 
+  private synchronized void releaseHostMonitors() {
+    if (hostMonitors != null) {
+      HostMonitor.stopMonitoring(hostMonitors);
+      hostMonitors = null;
+    }
+  }
+
   @Override
   public void addTimerTask(TimerTask timerTask, long milliSeconds) {
     Timer timer = getTimer();
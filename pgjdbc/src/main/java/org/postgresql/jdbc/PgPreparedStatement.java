@@ -6,6 +6,7 @@
 package org.postgresql.jdbc;
 
 import org.postgresql.Driver;
+import org.postgresql.PGPreparedStatement;
 import org.postgresql.core.BaseConnection;
 import org.postgresql.core.CachedQuery;
 import org.postgresql.core.Oid;
@@ -20,6 +21,7 @@ import org.postgresql.largeobject.LargeObjectManager;
 import org.postgresql.util.ByteConverter;
 import org.postgresql.util.GT;
 import org.postgresql.util.HStoreConverter;
+import org.postgresql.util.PGBinaryCodec;
 import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGTime;
 import org.postgresql.util.PGTimestamp;
@@ -67,7 +69,7 @@ import java.util.Map;
 import java.util.TimeZone;
 import java.util.UUID;
 
-class PgPreparedStatement extends PgStatement implements PreparedStatement {
+class PgPreparedStatement extends PgStatement implements PreparedStatement, PGPreparedStatement {
   protected final CachedQuery preparedQuery; // Query fragments for prepared statement.
   protected final ParameterList preparedParameters; // Parameter values for prepared statement.
 
@@ -448,6 +450,40 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
     preparedParameters.setBytea(parameterIndex, x, length);
   }
 
+  @Override
+  public void setTextStream(int parameterIndex, InputStream x, int length, String pgType)
+      throws SQLException {
+    checkClosed();
+
+    int oid = connection.getTypeInfo().getPGType(pgType);
+    if (oid == Oid.UNSPECIFIED) {
+      throw new PSQLException(GT.tr("Unknown type {0}.", pgType),
+          PSQLState.INVALID_PARAMETER_TYPE);
+    }
+
+    if (x == null) {
+      setString(parameterIndex, null, oid);
+      return;
+    }
+
+    if (length < 0) {
+      throw new PSQLException(GT.tr("Invalid stream length {0}.", length),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+
+    if (connection.getPreferQueryMode() == PreferQueryMode.SIMPLE) {
+      // simple protocol inlines parameters into the query text, so the value has to be decoded.
+      // length counts bytes, like for the extended protocol, so that both bind the same value
+      setString(parameterIndex, new String(readFully(x, length), Charset.forName("UTF-8")), oid);
+      return;
+    }
+
+    if (adjustIndex) {
+      parameterIndex--;
+    }
+    preparedParameters.setText(parameterIndex, x, length, oid);
+  }
+
   public void clearParameters() throws SQLException {
     preparedParameters.clear();
   }
@@ -461,7 +497,11 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
           PSQLState.INVALID_PARAMETER_TYPE);
     }
 
-    if ((x instanceof PGBinaryObject) && connection.binaryTransferSend(oid)) {
+    PGBinaryCodec<?> codec = connection.getTypeInfo().getBinaryCodec(typename);
+    if (codec != null && codec.getJavaClass().isInstance(x)
+        && connection.binaryTransferSend(oid)) {
+      bindBytes(parameterIndex, encodeBinary(codec, x), oid);
+    } else if ((x instanceof PGBinaryObject) && connection.binaryTransferSend(oid)) {
       PGBinaryObject binObj = (PGBinaryObject) x;
       byte[] data = new byte[binObj.lengthInBytes()];
       binObj.toBytes(data, 0);
@@ -471,6 +511,32 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
     }
   }
 
+  /**
+   * Binds the value with the binary codec registered for its class, if any.
+   *
+   * @return false if there is no codec for the value or its type is not sent in binary
+   */
+  private boolean setBinaryCodecValue(int parameterIndex, Object x) throws SQLException {
+    TypeInfo typeInfo = connection.getTypeInfo();
+    String typename = typeInfo.getBinaryCodecType(x.getClass());
+    if (typename == null) {
+      return false;
+    }
+    int oid = typeInfo.getPGType(typename);
+    if (oid == Oid.UNSPECIFIED || !connection.binaryTransferSend(oid)) {
+      return false;
+    }
+    bindBytes(parameterIndex, encodeBinary(typeInfo.getBinaryCodec(typename), x), oid);
+    return true;
+  }
+
+  private static <T> byte[] encodeBinary(PGBinaryCodec<T> codec, Object x) throws SQLException {
+    T value = codec.getJavaClass().cast(x);
+    byte[] data = new byte[codec.lengthInBytes(value)];
+    codec.encode(value, data, 0);
+    return data;
+  }
+
   private void setMap(int parameterIndex, Map<?, ?> x) throws SQLException {
     int oid = connection.getTypeInfo().getPGType("hstore");
     if (oid == Oid.UNSPECIFIED) {
@@ -674,7 +740,7 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
           setPGobject(parameterIndex, (PGobject) in);
         } else if (in instanceof Map) {
           setMap(parameterIndex, (Map<?, ?>) in);
-        } else {
+        } else if (!setBinaryCodecValue(parameterIndex, in)) {
           bindString(parameterIndex, in.toString(), Oid.UNSPECIFIED);
         }
         break;
@@ -962,7 +1028,7 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
       setNumber(parameterIndex, (Number) x);
     } else if (PrimitiveArraySupport.isSupportedPrimitiveArray(x)) {
       setPrimitiveArray(parameterIndex, x);
-    } else {
+    } else if (!setBinaryCodecValue(parameterIndex, x)) {
       // Can't infer a type.
       throw new PSQLException(GT.tr(
           "Can''t infer the SQL type to use for an instance of {0}. Use setObject() with an explicit Types value to specify the type to use.",
@@ -1161,6 +1227,27 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
     }
   }
 
+  private static byte[] readFully(InputStream in, int length) throws SQLException {
+    byte[] bytes = new byte[length];
+    int pos = 0;
+    try {
+      while (pos < length) {
+        int count = in.read(bytes, pos, length - pos);
+        if (count < 0) {
+          throw new PSQLException(
+              GT.tr("Premature end of input stream, expected {0} bytes, but only read {1}.",
+                  length, pos),
+              PSQLState.INVALID_PARAMETER_VALUE);
+        }
+        pos += count;
+      }
+    } catch (IOException ioe) {
+      throw new PSQLException(GT.tr("Provided InputStream failed."), PSQLState.UNEXPECTED_ERROR,
+          ioe);
+    }
+    return bytes;
+  }
+
   private String readerToString(Reader value, int maxLength) throws SQLException {
     try {
       int bufferSize = Math.min(maxLength, 1024);
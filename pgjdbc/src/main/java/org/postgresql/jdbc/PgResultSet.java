@@ -20,6 +20,7 @@ import org.postgresql.core.Utils;
 import org.postgresql.util.ByteConverter;
 import org.postgresql.util.GT;
 import org.postgresql.util.HStoreConverter;
+import org.postgresql.util.PGBinaryCodec;
 import org.postgresql.util.PGbytea;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PGtokenizer;
@@ -37,6 +38,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.Clob;
@@ -62,6 +64,7 @@ import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 //#endif
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -124,6 +127,8 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
   private ResultSetMetaData rsMetaData;
 
+  private ColumnStringCache[] stringCaches; // per column, created on first use by getString
+
   protected ResultSetMetaData createMetaData() throws SQLException {
     return new PgResultSetMetaData(connection, fields);
   }
@@ -261,10 +266,23 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
           ((PgResultSet) rs).setRefCursor(cursorName);
           return rs;
         }
-        if ("hstore".equals(type)) {
+        if (CompositeDecoder.isComposite(connection, field.getOID())) {
           if (isBinary(columnIndex)) {
-            return HStoreConverter.fromBytes(this_row[columnIndex - 1], connection.getEncoding());
+            byte[] value = this_row[columnIndex - 1];
+            return CompositeDecoder.decodeBinary(connection, field.getOID(), value, 0,
+                value.length);
+          }
+          return CompositeDecoder.decodeText(connection, field.getOID(), getString(columnIndex));
+        }
+        if (isBinary(columnIndex)) {
+          PGBinaryCodec<?> codec = connection.getTypeInfo().getBinaryCodec(type);
+          if (codec != null) {
+            byte[] value = this_row[columnIndex - 1];
+            return codec.decode(value, 0, value.length);
           }
+        }
+        if ("hstore".equals(type)) {
+          // binary values are decoded by the hstore codec above
           return HStoreConverter.fromString(getString(columnIndex));
         }
 
@@ -431,6 +449,17 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       return null;
     }
 
+    // json documents can be huge, so decode them straight from the row bytes instead of
+    // building an intermediate String
+    if (isJson(i)) {
+      try {
+        return connection.getEncoding().getDecodingReader(getJsonStream(i));
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."),
+            PSQLState.DATA_ERROR, ioe);
+      }
+    }
+
     // Version 7.2 supports AsciiStream for all the PG text types
     // As the spec/javadoc for this method indicate this is to be used for
     // large text values (i.e. LONGVARCHAR) PG doesn't have a separate
@@ -1896,8 +1925,9 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       return null;
     }
 
-    // varchar in binary is same as text, other binary fields are converted to their text format
-    if (isBinary(columnIndex) && getSQLType(columnIndex) != Types.VARCHAR) {
+    // varchar and json in binary are same as text, other binary fields are converted to their
+    // text format
+    if (isBinary(columnIndex) && getSQLType(columnIndex) != Types.VARCHAR && !isJson(columnIndex)) {
       Field field = fields[columnIndex - 1];
       Object obj = internalGetObject(columnIndex, field);
       if (obj == null) {
@@ -1917,7 +1947,10 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
     Encoding encoding = connection.getEncoding();
     try {
-      return trimString(columnIndex, encoding.decode(this_row[columnIndex - 1]));
+      byte[] value = this_row[columnIndex - 1];
+      int offset = getTextOffset(columnIndex);
+      return trimString(columnIndex,
+          getStringCache(columnIndex).decode(value, offset, value.length - offset, encoding));
     } catch (IOException ioe) {
       throw new PSQLException(
           GT.tr(
@@ -1926,6 +1959,24 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     }
   }
 
+  private ColumnStringCache getStringCache(int columnIndex) {
+    if (stringCaches == null) {
+      stringCaches = new ColumnStringCache[fields.length];
+    }
+    ColumnStringCache cache = stringCaches[columnIndex - 1];
+    if (cache == null) {
+      // enums have few distinct values by definition
+      boolean isEnum = connection.getTypeInfo().isEnum(fields[columnIndex - 1].getOID());
+      if (isEnum || connection.isStringDeduplicationEnabled()) {
+        cache = new ColumnStringCache(true, isEnum);
+      } else {
+        cache = ColumnStringCache.NONE;
+      }
+      stringCaches[columnIndex - 1] = cache;
+    }
+    return cache;
+  }
+
   /**
    * Retrieves the value of the designated column in the current row of this <code>ResultSet</code>
    * object as a <code>boolean</code> in the Java programming language.
@@ -2372,6 +2423,11 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     }
 
     if (isBinary(columnIndex)) {
+      int offset = getTextOffset(columnIndex);
+      if (offset != 0) {
+        // binary jsonb: strip the format version to match the text protocol
+        return Arrays.copyOfRange(this_row[columnIndex - 1], offset, this_row[columnIndex - 1].length);
+      }
       // If the data is already binary then just return it
       return this_row[columnIndex - 1];
     }
@@ -2446,6 +2502,10 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       return null;
     }
 
+    if (isJson(columnIndex)) {
+      return getJsonStream(columnIndex);
+    }
+
     // Version 7.2 supports BinaryStream for all PG bytea type
     // As the spec/javadoc for this method indicate this is to be used for
     // large binary values (i.e. LONGVARBINARY) PG doesn't have a separate
@@ -2570,7 +2630,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       return result;
     }
 
-    if (isBinary(columnIndex)) {
+    if (isBinary(columnIndex) && !isJson(columnIndex)) {
       return connection.getObject(getPGType(columnIndex), null, this_row[columnIndex - 1]);
     }
     return connection.getObject(getPGType(columnIndex), getString(columnIndex), null);
@@ -2772,6 +2832,76 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     wasNullFlag = (this_row[column - 1] == null);
   }
 
+  /**
+   * Returns a read-only view of the raw bytes of the given column in the current row, without
+   * copying them. For {@code json} and {@code jsonb} columns the view always holds the UTF-8
+   * encoded document text, whatever format the value was transferred in, so it can be handed
+   * directly to a JSON parser. Other columns expose the value exactly as received from the
+   * backend, in either text or binary format (see {@link Field#getFormat()}).
+   *
+   * <p>The view is only valid until the result set is moved to another row.</p>
+   *
+   * @param columnIndex the first column is 1, the second is 2, ...
+   * @return the column value, or null if the value is SQL NULL
+   * @throws SQLException if the column index is not valid or the result set is not positioned
+   *         on a row
+   */
+  public ByteBuffer getByteView(int columnIndex) throws SQLException {
+    connection.getLogger().log(Level.FINEST, "  getByteView columnIndex: {0}", columnIndex);
+    checkResultSet(columnIndex);
+    if (wasNullFlag) {
+      return null;
+    }
+
+    byte[] value = this_row[columnIndex - 1];
+    int offset = getTextOffset(columnIndex);
+    return ByteBuffer.wrap(value, offset, value.length - offset).slice().asReadOnlyBuffer();
+  }
+
+  public ByteBuffer getByteView(String columnName) throws SQLException {
+    return getByteView(findColumn(columnName));
+  }
+
+  /**
+   * Returns true if the given column is a {@code json} or {@code jsonb} column. Both are
+   * represented as UTF-8 text in the row data, with binary {@code jsonb} carrying an extra format
+   * version byte in front of it.
+   *
+   * @param column The column to check. Range starts from 1.
+   * @return True if the column holds json.
+   */
+  private boolean isJson(int column) {
+    int oid = fields[column - 1].getOID();
+    return oid == Oid.JSON || oid == Oid.JSONB;
+  }
+
+  /**
+   * Returns the offset at which the textual representation starts in the raw value of the given
+   * column. This is non-zero only for {@code jsonb} received in binary format.
+   *
+   * @param column The column to check. Range starts from 1.
+   * @return the number of bytes to skip
+   * @throws SQLException if the binary jsonb format version is not supported
+   */
+  private int getTextOffset(int column) throws SQLException {
+    if (!isBinary(column) || fields[column - 1].getOID() != Oid.JSONB) {
+      return 0;
+    }
+    byte[] value = this_row[column - 1];
+    if (value.length == 0 || value[0] != JSONB_FORMAT_VERSION) {
+      throw new PSQLException(
+          GT.tr("Unsupported binary jsonb format version: {0}", value.length == 0 ? -1 : value[0]),
+          PSQLState.DATA_ERROR);
+    }
+    return 1;
+  }
+
+  private InputStream getJsonStream(int column) throws SQLException {
+    byte[] value = this_row[column - 1];
+    int offset = getTextOffset(column);
+    return new ByteArrayInputStream(value, offset, value.length - offset);
+  }
+
   /**
    * Returns true if the value of the given column is in binary format.
    *
@@ -2782,6 +2912,11 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     return fields[column - 1].getFormat() == Field.BINARY_FORMAT;
   }
 
+  /**
+   * The only version of the binary jsonb format known to the backend so far.
+   */
+  private static final byte JSONB_FORMAT_VERSION = 1;
+
   // ----------------- Formatting Methods -------------------
 
   private static final BigInteger SHORTMAX = new BigInteger(Short.toString(Short.MAX_VALUE));
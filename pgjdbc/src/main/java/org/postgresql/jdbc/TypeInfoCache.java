@@ -12,6 +12,8 @@ import org.postgresql.core.QueryExecutor;
 import org.postgresql.core.ServerVersion;
 import org.postgresql.core.TypeInfo;
 import org.postgresql.util.GT;
+import org.postgresql.util.PGBinaryCodec;
+import org.postgresql.util.PGCompositeFactory;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
@@ -20,10 +22,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class TypeInfoCache implements TypeInfo {
 
@@ -42,6 +49,18 @@ public class TypeInfoCache implements TypeInfo {
   // pgname (String) -> extension pgobject (Class)
   private Map<String, Class<? extends PGobject>> _pgNameToPgObject;
 
+  // pgname (String) -> binary codec (PGBinaryCodec)
+  private Map<String, PGBinaryCodec<?>> _pgNameToBinaryCodec;
+
+  // parameter class (Class) -> pgname of its binary codec (String), null if it has none
+  private Map<Class<?>, String> _javaClassToBinaryCodecType;
+
+  // names of the types found to be enums by getSQLType
+  private Set<String> _enumTypes;
+
+  // composite type oid -> registered factory and attributes
+  private Map<Integer, CompositeType> _oidToCompositeType;
+
   // type array oid -> base type's oid
   private Map<Integer, Integer> _pgArrayToPgType;
 
@@ -57,6 +76,7 @@ public class TypeInfoCache implements TypeInfo {
   private PreparedStatement _getArrayElementOidStatement;
   private PreparedStatement _getArrayDelimiterStatement;
   private PreparedStatement _getTypeInfoStatement;
+  private PreparedStatement _getAttributesStatement;
 
   // basic pg types info:
   // 0 - type name
@@ -91,6 +111,7 @@ public class TypeInfoCache implements TypeInfo {
       {"refcursor", Oid.REF_CURSOR, Types.REF_CURSOR, "java.sql.ResultSet", Oid.REF_CURSOR_ARRAY},
       //#endif
       {"json", Oid.JSON, Types.OTHER, "org.postgresql.util.PGobject", Oid.JSON_ARRAY},
+      {"jsonb", Oid.JSONB, Types.OTHER, "org.postgresql.util.PGobject", Oid.JSONB_ARRAY},
       {"point", Oid.POINT, Types.OTHER, "org.postgresql.geometric.PGpoint", Oid.POINT_ARRAY}
   };
 
@@ -118,6 +139,10 @@ public class TypeInfoCache implements TypeInfo {
     _pgNameToOid = new HashMap<String, Integer>();
     _pgNameToJavaClass = new HashMap<String, String>();
     _pgNameToPgObject = new HashMap<String, Class<? extends PGobject>>();
+    _pgNameToBinaryCodec = new LinkedHashMap<String, PGBinaryCodec<?>>();
+    _javaClassToBinaryCodecType = new HashMap<Class<?>, String>();
+    _enumTypes = new HashSet<String>();
+    _oidToCompositeType = new HashMap<Integer, CompositeType>();
     _pgArrayToPgType = new HashMap<Integer, Integer>();
     _arrayOidToDelimiter = new HashMap<Integer, Character>();
 
@@ -171,6 +196,85 @@ public class TypeInfoCache implements TypeInfo {
       throws SQLException {
     _pgNameToPgObject.put(type, klass);
     _pgNameToJavaClass.put(type, klass.getName());
+
+    // a codec producing some other class would bypass the newly registered one
+    PGBinaryCodec<?> codec = _pgNameToBinaryCodec.get(type);
+    if (codec != null && codec.getJavaClass() != klass) {
+      _pgNameToBinaryCodec.remove(type);
+      _javaClassToBinaryCodecType.clear();
+    }
+  }
+
+  public synchronized void addBinaryCodec(String type, PGBinaryCodec<?> codec) {
+    _pgNameToBinaryCodec.put(type, codec);
+    _javaClassToBinaryCodecType.clear();
+  }
+
+  public synchronized void addCompositeType(String type, PGCompositeFactory<?> factory)
+      throws SQLException {
+    int oid = getPGType(type);
+    if (oid == Oid.UNSPECIFIED) {
+      throw new PSQLException(GT.tr("Unknown type {0}.", type), PSQLState.INVALID_PARAMETER_TYPE);
+    }
+
+    // anonymous records carry the type of each attribute, but have no attribute names
+    if (oid == Oid.RECORD) {
+      _oidToCompositeType.put(oid, new CompositeType(factory, null, null));
+      return;
+    }
+
+    if (_getAttributesStatement == null) {
+      String sql;
+      sql = "SELECT a.attname, a.atttypid "
+            + "FROM pg_catalog.pg_type t JOIN pg_catalog.pg_attribute a ON a.attrelid = t.typrelid "
+            + "WHERE t.oid = ? AND t.typtype = 'c' AND a.attnum > 0 AND NOT a.attisdropped "
+            + "ORDER BY a.attnum";
+      _getAttributesStatement = _conn.prepareStatement(sql);
+    }
+
+    _getAttributesStatement.setInt(1, oid);
+
+    // Go through BaseStatement to avoid transaction start.
+    if (!((BaseStatement) _getAttributesStatement)
+        .executeWithFlags(QueryExecutor.QUERY_SUPPRESS_BEGIN)) {
+      throw new PSQLException(GT.tr("No results were returned by the query."), PSQLState.NO_DATA);
+    }
+
+    ResultSet rs = _getAttributesStatement.getResultSet();
+    List<String> names = new ArrayList<String>();
+    List<Integer> types = new ArrayList<Integer>();
+    while (rs.next()) {
+      names.add(rs.getString(1));
+      types.add((int) rs.getLong(2));
+    }
+    rs.close();
+
+    if (names.isEmpty()) {
+      throw new PSQLException(GT.tr("{0} is not a composite type.", type),
+          PSQLState.INVALID_PARAMETER_TYPE);
+    }
+
+    int[] attributeTypes = new int[types.size()];
+    for (int i = 0; i < attributeTypes.length; i++) {
+      attributeTypes[i] = types.get(i);
+    }
+    _oidToCompositeType.put(oid,
+        new CompositeType(factory, names.toArray(new String[0]), attributeTypes));
+  }
+
+  public synchronized PGCompositeFactory<?> getCompositeFactory(int oid) {
+    CompositeType compositeType = _oidToCompositeType.get(oid);
+    return compositeType == null ? null : compositeType.factory;
+  }
+
+  public synchronized String[] getCompositeAttributeNames(int oid) {
+    CompositeType compositeType = _oidToCompositeType.get(oid);
+    return compositeType == null ? null : compositeType.attributeNames;
+  }
+
+  public synchronized int[] getCompositeAttributeTypes(int oid) {
+    CompositeType compositeType = _oidToCompositeType.get(oid);
+    return compositeType == null ? null : compositeType.attributeTypes;
   }
 
   public Iterator<String> getPGTypeNamesWithSQLTypes() {
@@ -240,6 +344,7 @@ public class TypeInfoCache implements TypeInfo {
         type = Types.DISTINCT;
       } else if ("e".equals(typtype)) {
         type = Types.VARCHAR;
+        _enumTypes.add(pgTypeName);
       }
     }
 
@@ -551,10 +656,35 @@ public class TypeInfoCache implements TypeInfo {
     return pgType;
   }
 
+  public synchronized boolean isEnum(int oid) {
+    String pgTypeName = _oidToPgName.get(oid);
+    return pgTypeName != null && _enumTypes.contains(pgTypeName);
+  }
+
   public synchronized Class<? extends PGobject> getPGobject(String type) {
     return _pgNameToPgObject.get(type);
   }
 
+  public synchronized PGBinaryCodec<?> getBinaryCodec(String type) {
+    return _pgNameToBinaryCodec.get(type);
+  }
+
+  public synchronized String getBinaryCodecType(Class<?> klass) {
+    if (_javaClassToBinaryCodecType.containsKey(klass)) {
+      return _javaClassToBinaryCodecType.get(klass);
+    }
+    // codecs may handle subclasses, so the first lookup of a class scans them in registration order
+    String type = null;
+    for (Map.Entry<String, PGBinaryCodec<?>> entry : _pgNameToBinaryCodec.entrySet()) {
+      if (entry.getValue().getJavaClass().isAssignableFrom(klass)) {
+        type = entry.getKey();
+        break;
+      }
+    }
+    _javaClassToBinaryCodecType.put(klass, type);
+    return type;
+  }
+
   public synchronized String getJavaClass(int oid) throws SQLException {
     String pgTypeName = getPGType(oid);
 
@@ -866,4 +996,16 @@ public class TypeInfoCache implements TypeInfo {
     }
     return true;
   }
+
+  private static class CompositeType {
+    final PGCompositeFactory<?> factory;
+    final String[] attributeNames;
+    final int[] attributeTypes;
+
+    CompositeType(PGCompositeFactory<?> factory, String[] attributeNames, int[] attributeTypes) {
+      this.factory = factory;
+      this.attributeNames = attributeNames;
+      this.attributeTypes = attributeTypes;
+    }
+  }
 }
@@ -124,7 +124,19 @@ public class ScramAuthenticator {
         new Object[] { serverFirstProcessor.getSalt(), serverFirstProcessor.getIteration() }
     );
 
-    clientFinalProcessor = serverFirstProcessor.clientFinalProcessor(password);
+    ScramKeyCache.Keys keys;
+    try {
+      keys = ScramKeyCache.getKeys(scramClient.getScramMechanism(), server(), user,
+          serverFirstProcessor.getSalt(), serverFirstProcessor.getIteration(), password);
+    } catch (IllegalArgumentException e) {
+      throw new PSQLException(
+          GT.tr("Invalid server-first-message: {0}", serverFirstMessage),
+          PSQLState.CONNECTION_REJECTED,
+          e
+      );
+    }
+    clientFinalProcessor =
+        serverFirstProcessor.clientFinalProcessor(keys.clientKey, keys.serverKey);
 
     String clientFinalMessage = clientFinalProcessor.clientFinalMessage();
     LOGGER.log(Level.FINEST, " FE=> SASLResponse( {0} )", clientFinalMessage);
@@ -149,6 +161,7 @@ public class ScramAuthenticator {
           e
       );
     } catch (ScramServerErrorException e) {
+      evictKeys();
       throw new PSQLException(
           GT.tr("SCRAM authentication failed, server returned error: {0}",
               e.getError().getErrorMessage()),
@@ -156,6 +169,7 @@ public class ScramAuthenticator {
           e
       );
     } catch (ScramInvalidServerSignatureException e) {
+      evictKeys();
       throw new PSQLException(
           GT.tr("Invalid server SCRAM signature"),
           PSQLState.CONNECTION_REJECTED,
@@ -163,4 +177,13 @@ public class ScramAuthenticator {
       );
     }
   }
+
+  private String server() {
+    return pgStream.getHostSpec().toString();
+  }
+
+  private void evictKeys() {
+    ScramKeyCache.evict(scramClient.getScramMechanism(), server(), user,
+        serverFirstProcessor.getSalt(), serverFirstProcessor.getIteration());
+  }
 }
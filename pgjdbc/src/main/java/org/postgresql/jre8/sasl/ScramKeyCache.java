@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jre8.sasl;
+
+import com.ongres.scram.common.ScramFunctions;
+import com.ongres.scram.common.ScramMechanism;
+import com.ongres.scram.common.stringprep.StringPreparations;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Keeps the SCRAM client and server keys derived from a password, so that connections opened
+ * again to the same server as the same user skip the PBKDF2 iterations of {@code Hi()}, which
+ * are meant to be slow.
+ *
+ * <p>Entries are keyed by mechanism, server, user, salt and iteration count. The server picks a
+ * new salt whenever the password of the role changes, so stale keys are never reused. Neither the
+ * password nor a plain digest of it is kept, as a digest could be brute forced from a heap dump:
+ * each entry holds an HMAC-SHA-256 of the password under a random secret drawn when the class is
+ * loaded, which is only good for telling whether a later connection uses the same password. A
+ * connection with a different password derives its keys again and replaces the entry. The cache is bounded to
+ * {@link #CACHE_SIZE} entries, least recently used first out.</p>
+ */
+final class ScramKeyCache {
+  static final int CACHE_SIZE = 32;
+
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+
+  /**
+   * The secret of the password MACs, which never leaves this process.
+   */
+  private static final SecretKeySpec SECRET = newSecret();
+
+  private static final Map<List<Object>, Keys> CACHE =
+      new LinkedHashMap<List<Object>, Keys>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Keys> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  /**
+   * The keys derived from a salted password.
+   */
+  static final class Keys {
+    private final byte[] passwordMac;
+    final byte[] clientKey;
+    final byte[] serverKey;
+
+    private Keys(byte[] passwordMac, byte[] clientKey, byte[] serverKey) {
+      this.passwordMac = passwordMac;
+      this.clientKey = clientKey;
+      this.serverKey = serverKey;
+    }
+  }
+
+  private ScramKeyCache() {
+  }
+
+  /**
+   * Returns the client and server keys for the given password, deriving them unless a previous
+   * connection did already.
+   *
+   * @param mechanism the SCRAM mechanism in use
+   * @param server the host and port of the server
+   * @param user the user name
+   * @param salt the base64 salt sent in the server-first-message
+   * @param iterations the iteration count sent in the server-first-message
+   * @param password the password
+   * @return the keys
+   * @throws IllegalArgumentException if the salt is not valid base64
+   */
+  static Keys getKeys(ScramMechanism mechanism, String server, String user, String salt,
+      int iterations, String password) {
+    List<Object> key = key(mechanism, server, user, salt, iterations);
+    byte[] passwordMac = mac(password);
+    Keys keys;
+    synchronized (CACHE) {
+      keys = CACHE.get(key);
+    }
+    if (keys != null && MessageDigest.isEqual(keys.passwordMac, passwordMac)) {
+      return keys;
+    }
+
+    byte[] saltedPassword = ScramFunctions.saltedPassword(mechanism,
+        StringPreparations.NO_PREPARATION, password, Base64.getDecoder().decode(salt), iterations);
+    keys = new Keys(passwordMac, ScramFunctions.clientKey(mechanism, saltedPassword),
+        ScramFunctions.serverKey(mechanism, saltedPassword));
+    Arrays.fill(saltedPassword, (byte) 0);
+    synchronized (CACHE) {
+      CACHE.put(key, keys);
+    }
+    return keys;
+  }
+
+  /**
+   * Forgets the keys of a server and user, for instance after the server rejected them.
+   *
+   * @param mechanism the SCRAM mechanism in use
+   * @param server the host and port of the server
+   * @param user the user name
+   * @param salt the base64 salt sent in the server-first-message
+   * @param iterations the iteration count sent in the server-first-message
+   */
+  static void evict(ScramMechanism mechanism, String server, String user, String salt,
+      int iterations) {
+    synchronized (CACHE) {
+      CACHE.remove(key(mechanism, server, user, salt, iterations));
+    }
+  }
+
+  static int size() {
+    synchronized (CACHE) {
+      return CACHE.size();
+    }
+  }
+
+  static void clear() {
+    synchronized (CACHE) {
+      CACHE.clear();
+    }
+  }
+
+  private static List<Object> key(ScramMechanism mechanism, String server, String user,
+      String salt, int iterations) {
+    return Arrays.<Object>asList(mechanism.getName(), server, user, salt, iterations);
+  }
+
+  private static SecretKeySpec newSecret() {
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    return new SecretKeySpec(secret, MAC_ALGORITHM);
+  }
+
+  private static byte[] mac(String password) {
+    try {
+      Mac mac = Mac.getInstance(MAC_ALGORITHM);
+      mac.init(SECRET);
+      return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      // every Java platform implements HmacSHA256
+      throw new IllegalStateException(e);
+    }
+  }
+}
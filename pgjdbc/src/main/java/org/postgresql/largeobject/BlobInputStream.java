@@ -48,6 +48,17 @@ public class BlobInputStream extends InputStream {
    */
   private long limit = -1;
 
+  /**
+   * The number of chunks read in each round trip
+   */
+  private int readAhead = 1;
+
+  /**
+   * The chunks read ahead, and the index of the next one
+   */
+  private byte[][] chunks;
+  private int chunkIndex;
+
   /**
    * @param lo LargeObject to read from
    */
@@ -70,12 +81,23 @@ public class BlobInputStream extends InputStream {
    * @param limit max number of bytes to read
    */
   public BlobInputStream(LargeObject lo, int bsize, long limit) {
+    this(lo, bsize, limit, 1);
+  }
+
+  /**
+   * @param lo LargeObject to read from
+   * @param bsize buffer size, the number of bytes read by each call to the server
+   * @param limit max number of bytes to read
+   * @param readAhead the number of buffers read in each round trip to the server
+   */
+  public BlobInputStream(LargeObject lo, int bsize, long limit, int readAhead) {
     this.lo = lo;
     buffer = null;
     bpos = 0;
     apos = 0;
     this.bsize = bsize;
     this.limit = limit;
+    this.readAhead = Math.max(1, readAhead);
   }
 
   /**
@@ -87,13 +109,9 @@ public class BlobInputStream extends InputStream {
       if (limit > 0 && apos >= limit) {
         return -1;
       }
-      if (buffer == null || bpos >= buffer.length) {
-        buffer = lo.read(bsize);
-        bpos = 0;
-      }
 
       // Handle EOF
-      if (bpos >= buffer.length) {
+      if (!fill()) {
         return -1;
       }
 
@@ -111,6 +129,65 @@ public class BlobInputStream extends InputStream {
     }
   }
 
+  public int read(byte[] b, int off, int len) throws IOException {
+    checkClosed();
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    try {
+      if (limit > 0) {
+        if (apos >= limit) {
+          return -1;
+        }
+        len = (int) Math.min(len, limit - apos);
+      }
+      // fill the array, like InputStream does, but a buffer at a time
+      int total = 0;
+      while (total < len && fill()) {
+        int count = Math.min(len - total, buffer.length - bpos);
+        System.arraycopy(buffer, bpos, b, off + total, count);
+        bpos += count;
+        apos += count;
+        total += count;
+      }
+      return total == 0 ? -1 : total;
+    } catch (SQLException se) {
+      throw new IOException(se.toString());
+    }
+  }
+
+  /**
+   * Reads the next buffer if the current one was consumed.
+   *
+   * @return false at the end of the object
+   */
+  private boolean fill() throws SQLException {
+    if (buffer != null && bpos < buffer.length) {
+      return true;
+    }
+    if (readAhead == 1) {
+      buffer = lo.read(bsize);
+    } else {
+      if (chunks == null || chunkIndex >= chunks.length) {
+        int count = readAhead;
+        if (limit > 0) {
+          count = (int) Math.min(count, (limit - apos + bsize - 1) / bsize);
+        }
+        chunks = lo.readChunks(bsize, count);
+        chunkIndex = 0;
+      }
+      buffer = chunks[chunkIndex];
+      chunks[chunkIndex++] = null;
+      if (buffer == null) {
+        buffer = new byte[0];
+      }
+    }
+    bpos = 0;
+    return buffer.length > 0;
+  }
 
   /**
    * Closes this input stream and releases any system resources associated with the stream.
@@ -175,6 +252,7 @@ public class BlobInputStream extends InputStream {
         lo.seek64(mpos, LargeObject.SEEK_SET);
       }
       buffer = null;
+      chunks = null;
       apos = mpos;
     } catch (SQLException se) {
       throw new IOException(se.toString());
@@ -33,6 +33,14 @@ public class BlobOutputStream extends OutputStream {
    */
   private int bpos;
 
+  /**
+   * With write-behind, the buffers written in one round trip, the current one being buf, and the
+   * number of bytes of the full ones
+   */
+  private byte[][] chunks;
+  private int[] lengths;
+  private int chunkCount;
+
   /**
    * Create an OutputStream to a large object
    *
@@ -49,18 +57,39 @@ public class BlobOutputStream extends OutputStream {
    * @param bsize The size of the buffer used to improve performance
    */
   public BlobOutputStream(LargeObject lo, int bsize) {
+    this(lo, bsize, 1);
+  }
+
+  /**
+   * Create an OutputStream to a large object that writes behind: full buffers are kept until
+   * writeBehind of them are full, and these are written in one round trip to the server.
+   *
+   * @param lo LargeObject
+   * @param bsize The size of the buffers, the number of bytes written by each call to the server
+   * @param writeBehind The number of buffers written in each round trip
+   */
+  public BlobOutputStream(LargeObject lo, int bsize, int writeBehind) {
     this.lo = lo;
     this.bsize = bsize;
     buf = new byte[bsize];
     bpos = 0;
+    if (writeBehind > 1) {
+      chunks = new byte[writeBehind][];
+      chunks[0] = buf;
+      lengths = new int[writeBehind];
+    }
   }
 
   public void write(int b) throws java.io.IOException {
     checkClosed();
     try {
       if (bpos >= bsize) {
-        lo.write(buf);
-        bpos = 0;
+        if (chunks != null) {
+          nextChunk();
+        } else {
+          lo.write(buf);
+          bpos = 0;
+        }
       }
       buf[bpos++] = (byte) b;
     } catch (SQLException se) {
@@ -70,6 +99,23 @@ public class BlobOutputStream extends OutputStream {
 
   public void write(byte[] buf, int off, int len) throws java.io.IOException {
     checkClosed();
+    if (chunks != null) {
+      try {
+        while (len > 0) {
+          if (bpos >= bsize) {
+            nextChunk();
+          }
+          int count = Math.min(len, bsize - bpos);
+          System.arraycopy(buf, off, this.buf, bpos, count);
+          bpos += count;
+          off += count;
+          len -= count;
+        }
+      } catch (SQLException se) {
+        throw new IOException(se.toString());
+      }
+      return;
+    }
     try {
       // If we have any internally buffered data, send it first
       if (bpos > 0) {
@@ -98,7 +144,12 @@ public class BlobOutputStream extends OutputStream {
   public void flush() throws IOException {
     checkClosed();
     try {
-      if (bpos > 0) {
+      if (chunks != null) {
+        if (bpos > 0) {
+          lengths[chunkCount++] = bpos;
+        }
+        writeChunks();
+      } else if (bpos > 0) {
         lo.write(buf, 0, bpos);
       }
       bpos = 0;
@@ -107,6 +158,33 @@ public class BlobOutputStream extends OutputStream {
     }
   }
 
+  /**
+   * Queues the full current buffer, writing the queued ones if all are full, and moves to the next
+   * buffer.
+   */
+  private void nextChunk() throws SQLException {
+    lengths[chunkCount++] = bpos;
+    if (chunkCount == chunks.length) {
+      writeChunks();
+    }
+    if (chunks[chunkCount] == null) {
+      chunks[chunkCount] = new byte[bsize];
+    }
+    buf = chunks[chunkCount];
+    bpos = 0;
+  }
+
+  private void writeChunks() throws SQLException {
+    if (chunkCount > 0) {
+      try {
+        lo.writeChunks(chunks, lengths, chunkCount);
+      } finally {
+        chunkCount = 0;
+        buf = chunks[0];
+      }
+    }
+  }
+
   public void close() throws IOException {
     if (lo != null) {
       try {
@@ -14,6 +14,7 @@ import org.postgresql.util.PSQLState;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 
 /**
@@ -209,12 +210,57 @@ public class LargeObject
    * @throws SQLException if a database-access error occurs.
    */
   public int read(byte[] buf, int off, int len) throws SQLException {
-    byte[] b = read(len);
-    if (b.length < len) {
-      len = b.length;
+    return read(ByteBuffer.wrap(buf, off, len));
+  }
+
+  /**
+   * Reads some data from the object into a buffer, straight from the connection.
+   *
+   * @param buffer destination buffer, filled from its position up to its limit at most
+   * @return the number of bytes actually read, 0 at the end of the object
+   * @throws SQLException if a database-access error occurs.
+   */
+  public int read(ByteBuffer buffer) throws SQLException {
+    FastpathArg[] args = new FastpathArg[2];
+    args[0] = new FastpathArg(fd);
+    args[1] = new FastpathArg(buffer.remaining());
+    return Math.max(fp.fastpath("loread", args, buffer), 0);
+  }
+
+  /**
+   * Reads consecutive chunks of the object in one round trip. The chunks after the end of the
+   * object are empty.
+   *
+   * @param chunkSize the number of bytes of each chunk
+   * @param count the number of chunks
+   * @return the chunks, the first one shorter than chunkSize being the last one with data
+   * @throws SQLException if a database-access error occurs.
+   */
+  byte[][] readChunks(int chunkSize, int count) throws SQLException {
+    FastpathArg[][] calls = new FastpathArg[count][];
+    FastpathArg fdArg = new FastpathArg(fd);
+    FastpathArg lenArg = new FastpathArg(chunkSize);
+    for (int i = 0; i < count; i++) {
+      calls[i] = new FastpathArg[]{fdArg, lenArg};
     }
-    System.arraycopy(b, 0, buf, off, len);
-    return len;
+    return fp.fastpath("loread", calls);
+  }
+
+  /**
+   * Writes chunks to the object in one round trip.
+   *
+   * @param chunks the arrays holding the chunks
+   * @param lengths the number of bytes of each chunk, from the start of its array
+   * @param count the number of chunks to write
+   * @throws SQLException if a database-access error occurs.
+   */
+  void writeChunks(byte[][] chunks, int[] lengths, int count) throws SQLException {
+    FastpathArg[][] calls = new FastpathArg[count][];
+    FastpathArg fdArg = new FastpathArg(fd);
+    for (int i = 0; i < count; i++) {
+      calls[i] = new FastpathArg[]{fdArg, new FastpathArg(chunks[i], 0, lengths[i])};
+    }
+    fp.fastpath("lowrite", calls);
   }
 
   /**
@@ -245,6 +291,25 @@ public class LargeObject
     fp.fastpath("lowrite", args);
   }
 
+  /**
+   * Writes the remaining bytes of a buffer to the object. Heap buffers are sent without copying
+   * them.
+   *
+   * @param buffer the buffer to write from its position to its limit
+   * @throws SQLException if a database-access error occurs.
+   */
+  public void write(ByteBuffer buffer) throws SQLException {
+    int len = buffer.remaining();
+    if (buffer.hasArray()) {
+      write(buffer.array(), buffer.arrayOffset() + buffer.position(), len);
+      buffer.position(buffer.limit());
+    } else {
+      byte[] buf = new byte[len];
+      buffer.get(buf);
+      write(buf, 0, len);
+    }
+  }
+
   /**
    * Sets the current position within the object.
    *
@@ -400,6 +465,20 @@ public class LargeObject
     return new BlobInputStream(this, 4096, limit);
   }
 
+  /**
+   * Returns an {@link InputStream} from this object that reads ahead: each round trip to the
+   * server reads several chunks, so that reading a large object is not bound by the latency of
+   * the connection. Up to {@code chunkSize * readAhead} bytes are buffered.
+   *
+   * @param chunkSize the number of bytes read by each call to the server
+   * @param readAhead the number of chunks read in each round trip
+   * @return {@link InputStream} from this object
+   * @throws SQLException if a database-access error occurs.
+   */
+  public InputStream getInputStream(int chunkSize, int readAhead) throws SQLException {
+    return new BlobInputStream(this, chunkSize, -1, readAhead);
+  }
+
   /**
    * Returns an {@link OutputStream} to this object.
    *
@@ -415,4 +494,29 @@ public class LargeObject
     }
     return os;
   }
+
+  /**
+   * Returns an {@link OutputStream} to this object that writes behind: written data is buffered
+   * until several chunks are full, and these are written in one round trip to the server. Up to
+   * {@code chunkSize * writeBehind} bytes are buffered, and written when the stream or this object
+   * is flushed or closed.
+   *
+   * <p>This replaces the stream {@link #getOutputStream()} returns, after flushing it.</p>
+   *
+   * @param chunkSize the number of bytes written by each call to the server
+   * @param writeBehind the number of chunks written in each round trip
+   * @return {@link OutputStream} to this object
+   * @throws SQLException if a database-access error occurs.
+   */
+  public OutputStream getOutputStream(int chunkSize, int writeBehind) throws SQLException {
+    if (os != null) {
+      try {
+        os.flush();
+      } catch (IOException ioe) {
+        throw new PSQLException("Exception flushing output stream", PSQLState.DATA_ERROR, ioe);
+      }
+    }
+    os = new BlobOutputStream(this, chunkSize, writeBehind);
+    return os;
+  }
 }
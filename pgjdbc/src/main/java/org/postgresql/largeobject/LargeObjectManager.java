@@ -6,12 +6,20 @@
 package org.postgresql.largeobject;
 
 import org.postgresql.core.BaseConnection;
+import org.postgresql.core.ServerVersion;
 import org.postgresql.fastpath.Fastpath;
 import org.postgresql.fastpath.FastpathArg;
 import org.postgresql.util.GT;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -63,10 +71,21 @@ import java.util.logging.Level;
  * @see java.sql.PreparedStatement#setUnicodeStream
  */
 public class LargeObjectManager {
+  // the functions the api calls, and those only available from 9.3 on
+  private static final String[] FUNCTIONS = {"lo_open", "lo_close", "lo_creat", "lo_unlink",
+      "lo_lseek", "lo_tell", "loread", "lowrite", "lo_truncate"};
+  private static final String[] FUNCTIONS_64 = {"lo_lseek64", "lo_tell64", "lo_truncate64"};
+
+  // the number of bytes transferred by each call when importing and exporting objects
+  private static final int TRANSFER_BUFFER_SIZE = 65536;
+
   // the fastpath api for this connection
   private Fastpath fp;
   private BaseConnection conn;
 
+  // the buffer reused by imports and exports, or null while one is running
+  private ByteBuffer transferBuffer;
+
   /**
    * This mode indicates we want to write to an object
    */
@@ -108,6 +127,14 @@ public class LargeObjectManager {
     // We need Fastpath to do anything
     this.fp = conn.getFastpathAPI();
 
+    // The ids of builtin functions are shared by the connections to a server, so only the first
+    // one needs to look them up
+    if (fp.hasFunctions(FUNCTIONS)
+        && (!conn.haveMinimumServerVersion(ServerVersion.v9_3) || fp.hasFunctions(FUNCTIONS_64))) {
+      conn.getLogger().log(Level.FINE, "Large Object initialised");
+      return;
+    }
+
     // Now get the function oid's for the api
     //
     // This is an example of Fastpath.addFunctions();
@@ -375,4 +402,126 @@ public class LargeObjectManager {
   public void delete(int oid) throws SQLException {
     delete((long) oid);
   }
+
+  /**
+   * Creates a large object with the content read from a channel, like the client-side
+   * {@code lo_import} of libpq. The content is read into one buffer, reused by the imports and
+   * exports of this connection, and written to the object from that buffer.
+   *
+   * <p>Like the other methods of this class, this must be called in a transaction, that is with
+   * auto-commit disabled.</p>
+   *
+   * @param from the channel to read until its end
+   * @return the oid of the new large object
+   * @throws SQLException if a database-access error occurs
+   * @throws IOException if reading the channel fails
+   */
+  public long importFrom(ReadableByteChannel from) throws SQLException, IOException {
+    long oid = createLO();
+    LargeObject lo = open(oid, WRITE);
+    ByteBuffer buffer = borrowTransferBuffer();
+    try {
+      while (from.read(buffer) >= 0) {
+        if (!buffer.hasRemaining()) {
+          buffer.flip();
+          lo.write(buffer);
+          buffer.clear();
+        }
+      }
+      buffer.flip();
+      if (buffer.hasRemaining()) {
+        lo.write(buffer);
+      }
+    } finally {
+      returnTransferBuffer(buffer);
+    }
+    lo.close();
+    return oid;
+  }
+
+  /**
+   * Creates a large object with the content of a file, like the client-side {@code lo_import} of
+   * libpq.
+   *
+   * @param file the file to import
+   * @return the oid of the new large object
+   * @throws SQLException if a database-access error occurs
+   * @throws IOException if reading the file fails
+   * @see #importFrom(ReadableByteChannel)
+   */
+  public long importFile(File file) throws SQLException, IOException {
+    FileInputStream in = new FileInputStream(file);
+    try {
+      return importFrom(in.getChannel());
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Writes the content of a large object to a channel, like the client-side {@code lo_export} of
+   * libpq. The content is received from the connection straight into one buffer, reused by the
+   * imports and exports of this connection, and written to the channel from that buffer.
+   *
+   * <p>Like the other methods of this class, this must be called in a transaction, that is with
+   * auto-commit disabled.</p>
+   *
+   * @param oid the oid of the large object to export
+   * @param to the channel to write to
+   * @return the number of bytes written
+   * @throws SQLException if a database-access error occurs
+   * @throws IOException if writing the channel fails
+   */
+  public long exportTo(long oid, WritableByteChannel to) throws SQLException, IOException {
+    LargeObject lo = open(oid, READ);
+    ByteBuffer buffer = borrowTransferBuffer();
+    long total = 0;
+    try {
+      while (lo.read(buffer) > 0) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          total += to.write(buffer);
+        }
+        buffer.clear();
+      }
+    } finally {
+      returnTransferBuffer(buffer);
+    }
+    lo.close();
+    return total;
+  }
+
+  /**
+   * Writes the content of a large object to a file, like the client-side {@code lo_export} of
+   * libpq. The file is created, or truncated if it exists.
+   *
+   * @param oid the oid of the large object to export
+   * @param file the file to write to
+   * @return the number of bytes written
+   * @throws SQLException if a database-access error occurs
+   * @throws IOException if writing the file fails
+   * @see #exportTo(long, WritableByteChannel)
+   */
+  public long exportFile(long oid, File file) throws SQLException, IOException {
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      return exportTo(oid, out.getChannel());
+    } finally {
+      out.close();
+    }
+  }
+
+  private synchronized ByteBuffer borrowTransferBuffer() {
+    ByteBuffer buffer = transferBuffer;
+    transferBuffer = null;
+    if (buffer == null) {
+      buffer = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  private synchronized void returnTransferBuffer(ByteBuffer buffer) {
+    transferBuffer = buffer;
+  }
 }
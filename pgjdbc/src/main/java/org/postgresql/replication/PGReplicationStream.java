@@ -56,6 +56,34 @@ public interface PGReplicationStream
    */
   ByteBuffer readPending() throws SQLException;
 
+  /**
+   * <p>Read wal records from backend into the given batch, which is emptied first. It method blocks
+   * until at least one record is received, then adds the records already received, as many as fit
+   * in the batch. Records are received straight into the buffer of the batch, so that reading them
+   * does not allocate memory for each record as {@link PGReplicationStream#read()} does.
+   *
+   * <p>Status updates are sent as with {@link PGReplicationStream#read()}, and {@link
+   * #getLastReceiveLSN()} is the LSN of the last record of the batch.
+   *
+   * @param batch the batch to fill
+   * @return the number of records read, which is 0 only if the stream was closed
+   * @throws SQLException when some internal exception occurs during read from stream, or if a
+   *     record does not fit in the empty buffer of the batch
+   */
+  int read(ReplicationMessageBatch batch) throws SQLException;
+
+  /**
+   * <p>Read the wal records already received from backend into the given batch, which is emptied
+   * first. It method can't be block, in contrast to {@link
+   * PGReplicationStream#read(ReplicationMessageBatch)}.
+   *
+   * @param batch the batch to fill
+   * @return the number of records read, 0 if no message from backend is pending
+   * @throws SQLException when some internal exception occurs during read from stream, or if a
+   *     record does not fit in the empty buffer of the batch
+   */
+  int readPending(ReplicationMessageBatch batch) throws SQLException;
+
   /**
    * Parameter updates by execute {@link PGReplicationStream#read()} method.
    *
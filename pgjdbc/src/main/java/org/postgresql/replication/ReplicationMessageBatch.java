@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable holder for the XLogData messages read by
+ * {@link PGReplicationStream#read(ReplicationMessageBatch)} and
+ * {@link PGReplicationStream#readPending(ReplicationMessageBatch)}. Messages are received straight
+ * into the buffer of the batch, which may be a direct buffer, so that reading them does not
+ * allocate memory for each message.
+ *
+ * <p>Message {@code i} occupies {@link #getLength(int)} bytes of {@link #getBuffer()} from
+ * {@link #getOffset(int)} on. The content of the batch is only valid until the next read into
+ * it.</p>
+ */
+public class ReplicationMessageBatch {
+  private final ByteBuffer buffer;
+  private final int[] offsets;
+  private final int[] lengths;
+  private final long[] lsns;
+  private int size;
+
+  /**
+   * Creates a batch backed by a new heap buffer.
+   *
+   * @param bufferSize the size of the buffer, which must hold the largest message expected
+   * @param maxMessages the most messages read at once
+   */
+  public ReplicationMessageBatch(int bufferSize, int maxMessages) {
+    this(ByteBuffer.allocate(bufferSize), maxMessages);
+  }
+
+  /**
+   * Creates a batch backed by the given buffer.
+   *
+   * @param buffer the buffer, heap or direct, which must hold the largest message expected
+   * @param maxMessages the most messages read at once
+   */
+  public ReplicationMessageBatch(ByteBuffer buffer, int maxMessages) {
+    if (maxMessages < 1) {
+      throw new IllegalArgumentException("maxMessages must be at least 1");
+    }
+    this.buffer = buffer;
+    this.offsets = new int[maxMessages];
+    this.lengths = new int[maxMessages];
+    this.lsns = new long[maxMessages];
+  }
+
+  /**
+   * @return the buffer holding the messages; its position is the end of the last message
+   */
+  public ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * @return the number of messages in the batch
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return {@code true} if no more messages can be added to the batch
+   */
+  public boolean isFull() {
+    return size == offsets.length;
+  }
+
+  /**
+   * @param index the message index, from 0 to {@link #size()} - 1
+   * @return the offset of the message in the buffer
+   */
+  public int getOffset(int index) {
+    checkIndex(index);
+    return offsets[index];
+  }
+
+  /**
+   * @param index the message index, from 0 to {@link #size()} - 1
+   * @return the length of the message
+   */
+  public int getLength(int index) {
+    checkIndex(index);
+    return lengths[index];
+  }
+
+  /**
+   * @param index the message index, from 0 to {@link #size()} - 1
+   * @return the LSN {@link PGReplicationStream#getLastReceiveLSN()} reports for the message
+   */
+  public LogSequenceNumber getLSN(int index) {
+    checkIndex(index);
+    return LogSequenceNumber.valueOf(lsns[index]);
+  }
+
+  /**
+   * Returns a view of a message, positioned at its first byte and limited to its last byte. Unlike
+   * the other accessors this creates an object for each call.
+   *
+   * @param index the message index, from 0 to {@link #size()} - 1
+   * @return a buffer sharing the content of the batch buffer
+   */
+  public ByteBuffer getMessage(int index) {
+    checkIndex(index);
+    ByteBuffer message = buffer.duplicate();
+    message.limit(offsets[index] + lengths[index]);
+    message.position(offsets[index]);
+    return message.slice();
+  }
+
+  /**
+   * Empties the batch, so that it can be filled again. Called by the replication stream before
+   * each read.
+   */
+  public void clear() {
+    buffer.clear();
+    size = 0;
+  }
+
+  /**
+   * Adds a message received into the buffer. Called by the replication stream.
+   *
+   * @param offset the offset of the message in the buffer
+   * @param length the length of the message
+   * @param lsn the LSN of the message
+   */
+  public void add(int offset, int length, long lsn) {
+    if (isFull()) {
+      throw new IllegalStateException("The batch is full");
+    }
+    offsets[size] = offset;
+    lengths[size] = length;
+    lsns[size] = lsn;
+    size++;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publishes the messages of a replication stream to a subscriber as they arrive, without polling.
+ * A dedicated thread starts the stream once a subscriber is subscribed and reads it only while the
+ * subscriber has requested messages, so that a slow subscriber holds up the server through TCP
+ * flow control instead of messages piling up in memory.
+ *
+ * <p>The {@link Subscriber} and {@link Subscription} interfaces follow the rules of {@code
+ * java.util.concurrent.Flow} and Reactive Streams, which are not available on all the Java versions
+ * the driver supports, so that adapting the publisher to them takes a few lines. Messages are
+ * signalled on the reader thread, one at a time.</p>
+ *
+ * <p>While the subscriber has not requested messages, the reader sends a status update every
+ * status interval (10 seconds if periodic updates are disabled), so that the server does not drop
+ * the connection. Received messages are acknowledged with {@link #setFlushedLSN} and
+ * {@link #setAppliedLSN}, which may be called from any thread and are reported with the next
+ * status update.</p>
+ *
+ * <p>A stream is read by one subscriber only: subscribing again fails. Cancelling the subscription
+ * stops the stream once the message being waited for, or the next keepalive message of the server,
+ * arrives; closing the replication connection stops it at once.</p>
+ */
+public class ReplicationPublisher {
+  private static final Logger LOGGER = Logger.getLogger(ReplicationPublisher.class.getName());
+
+  /**
+   * The time between status updates while no message is requested, if periodic status updates
+   * are disabled.
+   */
+  static final long DEFAULT_PAUSED_STATUS_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+  /**
+   * Receives the messages of a replication stream, like {@code java.util.concurrent.Flow.Subscriber}.
+   *
+   * @param <T> the type of the messages
+   */
+  public interface Subscriber<T> {
+    /**
+     * Called once, before any other method, with the subscription used to request messages.
+     *
+     * @param subscription the subscription
+     */
+    void onSubscribe(Subscription subscription);
+
+    /**
+     * Called with each message, no more often than requested.
+     *
+     * @param item the message
+     */
+    void onNext(T item);
+
+    /**
+     * Called once if the stream fails; no other method is called afterwards.
+     *
+     * @param throwable the failure
+     */
+    void onError(Throwable throwable);
+
+    /**
+     * Called once if the server ends the stream; no other method is called afterwards.
+     */
+    void onComplete();
+  }
+
+  /**
+   * Links a subscriber to the publisher, like {@code java.util.concurrent.Flow.Subscription}.
+   */
+  public interface Subscription {
+    /**
+     * Requests more messages. The reader blocks while no message is requested.
+     *
+     * @param n the number of messages, greater than 0
+     */
+    void request(long n);
+
+    /**
+     * Stops the delivery of messages, and the replication stream.
+     */
+    void cancel();
+  }
+
+  /**
+   * A message of the replication stream along with its position.
+   */
+  public static class Message {
+    private final ByteBuffer payload;
+    private final LogSequenceNumber lsn;
+
+    Message(ByteBuffer payload, LogSequenceNumber lsn) {
+      this.payload = payload;
+      this.lsn = lsn;
+    }
+
+    /**
+     * @return the payload, as {@link PGReplicationStream#read()} returns it
+     */
+    public ByteBuffer getPayload() {
+      return payload;
+    }
+
+    /**
+     * @return the value of {@link PGReplicationStream#getLastReceiveLSN()} after the message
+     */
+    public LogSequenceNumber getLSN() {
+      return lsn;
+    }
+  }
+
+  private final Callable<? extends PGReplicationStream> starter;
+  private final long pausedStatusInterval;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+  private volatile LogSequenceNumber flushedLSN;
+  private volatile LogSequenceNumber appliedLSN;
+
+  /**
+   * @param starter starts the replication stream; it is called on the reader thread
+   * @param statusIntervalMillis the status interval of the stream, 0 if periodic status updates are
+   *     disabled
+   */
+  public ReplicationPublisher(Callable<? extends PGReplicationStream> starter,
+      long statusIntervalMillis) {
+    this.starter = starter;
+    this.pausedStatusInterval =
+        statusIntervalMillis > 0 ? statusIntervalMillis : DEFAULT_PAUSED_STATUS_INTERVAL;
+  }
+
+  /**
+   * Subscribes to the stream, which is started on a new thread.
+   *
+   * @param subscriber the subscriber
+   */
+  public void subscribe(Subscriber<? super Message> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException("The replication stream is already subscribed"));
+      return;
+    }
+
+    Reader reader = new Reader(subscriber);
+    subscriber.onSubscribe(reader);
+    Thread thread = new Thread(reader, "PostgreSQL JDBC driver replication reader");
+    thread.setDaemon(true); // Don't prevent the VM from shutting down
+    thread.start();
+  }
+
+  /**
+   * Sets the flushed LSN, reported to the server with the next status update.
+   *
+   * @param flushed the location of the last WAL flushed to disk in the standby
+   * @see PGReplicationStream#setFlushedLSN(LogSequenceNumber)
+   */
+  public void setFlushedLSN(LogSequenceNumber flushed) {
+    this.flushedLSN = flushed;
+  }
+
+  /**
+   * Sets the applied LSN, reported to the server with the next status update.
+   *
+   * @param applied the location of the last WAL applied in the standby
+   * @see PGReplicationStream#setAppliedLSN(LogSequenceNumber)
+   */
+  public void setAppliedLSN(LogSequenceNumber applied) {
+    this.appliedLSN = applied;
+  }
+
+  private class Reader implements Runnable, Subscription {
+    private final Subscriber<? super Message> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final Object lock = new Object();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+
+    Reader(Subscriber<? super Message> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException(
+            "The number of requested messages must be positive, got " + n);
+      } else {
+        long current;
+        long next;
+        do {
+          current = demand.get();
+          next = current + n < 0 ? Long.MAX_VALUE : current + n;
+        } while (!demand.compareAndSet(current, next));
+      }
+      wakeUp();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      wakeUp();
+    }
+
+    private void wakeUp() {
+      synchronized (lock) {
+        lock.notifyAll();
+      }
+    }
+
+    @Override
+    public void run() {
+      PGReplicationStream stream = null;
+      try {
+        stream = starter.call();
+        while (awaitDemand(stream)) {
+          applyFeedback(stream);
+          ByteBuffer payload = stream.read();
+          if (payload == null) {
+            // the server ended the stream
+            if (!cancelled) {
+              subscriber.onComplete();
+            }
+            return;
+          }
+          if (cancelled) {
+            return;
+          }
+          demand.decrementAndGet();
+          subscriber.onNext(new Message(payload, stream.getLastReceiveLSN()));
+        }
+        if (invalidRequest != null) {
+          subscriber.onError(invalidRequest);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        signalError(e);
+      } catch (Exception e) {
+        signalError(e);
+      } finally {
+        close(stream);
+      }
+    }
+
+    /**
+     * Waits until messages are requested, sending status updates in the meantime.
+     *
+     * @return false if the subscription was cancelled
+     */
+    private boolean awaitDemand(PGReplicationStream stream) throws Exception {
+      long nextUpdate = System.currentTimeMillis() + pausedStatusInterval;
+      while (demand.get() == 0 && !cancelled && invalidRequest == null) {
+        long wait = nextUpdate - System.currentTimeMillis();
+        if (wait <= 0) {
+          applyFeedback(stream);
+          stream.forceUpdateStatus();
+          nextUpdate = System.currentTimeMillis() + pausedStatusInterval;
+          continue;
+        }
+        synchronized (lock) {
+          if (demand.get() == 0 && !cancelled && invalidRequest == null) {
+            lock.wait(wait);
+          }
+        }
+      }
+      return !cancelled && invalidRequest == null;
+    }
+
+    private void applyFeedback(PGReplicationStream stream) {
+      LogSequenceNumber flushed = flushedLSN;
+      if (flushed != null) {
+        stream.setFlushedLSN(flushed);
+      }
+      LogSequenceNumber applied = appliedLSN;
+      if (applied != null) {
+        stream.setAppliedLSN(applied);
+      }
+    }
+
+    private void signalError(Exception e) {
+      if (cancelled) {
+        LOGGER.log(Level.FINE, "Replication stream failed after the subscription was cancelled", e);
+      } else {
+        subscriber.onError(e);
+      }
+    }
+
+    private void close(PGReplicationStream stream) {
+      if (stream == null || stream.isClosed()) {
+        return;
+      }
+      try {
+        stream.close();
+      } catch (Exception e) {
+        LOGGER.log(Level.FINE, "Failed to close the replication stream", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication;
+
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the WAL of a physical replication stream into segment files, like {@code pg_receivewal}.
+ *
+ * <p>Segments are named after their timeline and position like the segments of the server, for
+ * instance {@code 000000010000000000000010}. The segment being written has a {@code .partial}
+ * suffix, and is filled with zeros when created, so that writes do not change the size of the
+ * file; it is renamed once complete and synced, and the directory is synced after the segment is
+ * created and renamed (on Java 7 and later, Java 6 cannot sync a directory). The writer syncs what it wrote when the size or
+ * the age of the unsynced data exceeds a threshold, at the end of each segment, and before waiting
+ * for more WAL, and {@link #receive(PGReplicationStream)} reports the synced position to the server
+ * with {@link PGReplicationStream#setFlushedLSN}, so that a replication slot keeps the WAL that
+ * was not safely written.</p>
+ *
+ * <p>The WAL must start at a segment boundary and be written without gaps, so that a segment is
+ * never completed with zeros in place of WAL it did not receive. A stream of another timeline must
+ * be written by another writer. To resume after a restart, start the stream at
+ * {@link #getResumePosition()}: the segment left partial is received again from its
+ * beginning.</p>
+ *
+ * <p>This class is not thread safe, except for {@link #stop()}.</p>
+ */
+public class WalSegmentWriter {
+  private static final Logger LOGGER = Logger.getLogger(WalSegmentWriter.class.getName());
+
+  /**
+   * The default size of segments, that of the servers built with default settings.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+  private static final String PARTIAL_SUFFIX = ".partial";
+  private static final int ZEROES_SIZE = 64 * 1024;
+  private static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+  private static final int DEFAULT_BATCH_MESSAGES = 256;
+
+  private final File directory;
+  private final int timeline;
+  private final int segmentSize;
+  private long syncInterval = 1000;
+  private long syncBytes;
+  private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+  private FileChannel channel;
+  private ByteBuffer zeroes;
+  private long segmentNumber = -1;
+  private long writtenLSN;
+  private long syncedLSN;
+  private long lastSync;
+  private volatile boolean stopped;
+
+  /**
+   * @param directory the directory to write the segments into, which must exist
+   * @param timeline the timeline of the stream
+   */
+  public WalSegmentWriter(File directory, int timeline) {
+    this(directory, timeline, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * @param directory the directory to write the segments into, which must exist
+   * @param timeline the timeline of the stream
+   * @param segmentSize the WAL segment size of the server, a power of two between 1 MB and 1 GB
+   */
+  public WalSegmentWriter(File directory, int timeline, int segmentSize) {
+    if (segmentSize < 1024 * 1024 || segmentSize > 1024 * 1024 * 1024
+        || Integer.bitCount(segmentSize) != 1) {
+      throw new IllegalArgumentException(
+          "The segment size must be a power of two between 1 MB and 1 GB, got " + segmentSize);
+    }
+    this.directory = directory;
+    this.timeline = timeline;
+    this.segmentSize = segmentSize;
+    this.syncBytes = segmentSize;
+  }
+
+  /**
+   * Sets the longest time written WAL stays unsynced while more WAL arrives. Defaults to 1 second.
+   *
+   * @param millis the time in milliseconds, 0 to sync after each write
+   */
+  public void setSyncInterval(long millis) {
+    this.syncInterval = millis;
+  }
+
+  /**
+   * Sets the amount of written WAL beyond which it is synced. Defaults to the segment size.
+   *
+   * @param bytes the number of bytes, 0 to sync after each write
+   */
+  public void setSyncBytes(long bytes) {
+    this.syncBytes = bytes;
+  }
+
+  /**
+   * Sets the size of the buffer {@link #receive(PGReplicationStream)} reads messages into, which
+   * must hold the largest message of the server. Defaults to 4 MB.
+   *
+   * @param bytes the size of the buffer
+   */
+  public void setBufferSize(int bytes) {
+    this.bufferSize = bytes;
+  }
+
+  /**
+   * Returns the name of the segment that holds a position, without suffix.
+   *
+   * @param timeline the timeline
+   * @param lsn the position
+   * @param segmentSize the segment size
+   * @return the name of the segment
+   */
+  public static String getSegmentName(int timeline, long lsn, int segmentSize) {
+    long segmentsPerId = 0x100000000L / segmentSize;
+    long segment = lsn / segmentSize;
+    return String.format(Locale.ROOT, "%08X%08X%08X", timeline, segment / segmentsPerId,
+        segment % segmentsPerId);
+  }
+
+  /**
+   * Returns the position to start streaming from to continue the segments in the directory: the
+   * start of the last partial segment, or the end of the last complete segment of the timeline.
+   *
+   * @return the position, or {@link LogSequenceNumber#INVALID_LSN} if the directory has no segment
+   *     of the timeline
+   */
+  public LogSequenceNumber getResumePosition() {
+    String prefix = String.format(Locale.ROOT, "%08X", timeline);
+    long segmentsPerId = 0x100000000L / segmentSize;
+    long resume = -1;
+    String[] names = directory.list();
+    if (names == null) {
+      return LogSequenceNumber.INVALID_LSN;
+    }
+    for (String name : names) {
+      boolean partial = name.endsWith(PARTIAL_SUFFIX);
+      if (name.length() != (partial ? 24 + PARTIAL_SUFFIX.length() : 24)) {
+        continue;
+      }
+      String segmentName = partial ? name.substring(0, 24) : name;
+      if (!segmentName.startsWith(prefix)) {
+        continue;
+      }
+      long segment;
+      try {
+        segment = Long.parseLong(segmentName.substring(8, 16), 16) * segmentsPerId
+            + Long.parseLong(segmentName.substring(16), 16);
+      } catch (NumberFormatException e) {
+        continue;
+      }
+      long position = (partial ? segment : segment + 1) * segmentSize;
+      resume = Math.max(resume, position);
+    }
+    return resume < 0 ? LogSequenceNumber.INVALID_LSN : LogSequenceNumber.valueOf(resume);
+  }
+
+  /**
+   * @return the end of the WAL written so far
+   */
+  public LogSequenceNumber getWrittenLSN() {
+    return LogSequenceNumber.valueOf(writtenLSN);
+  }
+
+  /**
+   * @return the end of the WAL synced to disk so far
+   */
+  public LogSequenceNumber getSyncedLSN() {
+    return LogSequenceNumber.valueOf(syncedLSN);
+  }
+
+  /**
+   * Writes WAL, splitting it across segments as needed, and syncs it if due.
+   *
+   * @param data the WAL, from its position to its limit. Its position is advanced to its limit
+   * @param startLSN the position of the first byte of the WAL: a segment boundary for the first
+   *     write, the end of the previous write otherwise
+   * @throws IOException if writing or syncing fails
+   * @throws IllegalArgumentException if the WAL does not start at the expected position
+   */
+  public void write(ByteBuffer data, long startLSN) throws IOException {
+    if (writtenLSN == 0) {
+      if (startLSN % segmentSize != 0) {
+        throw new IllegalArgumentException("The WAL must start at a segment boundary, got "
+            + LogSequenceNumber.valueOf(startLSN).asString());
+      }
+      // nothing before the first write needs syncing
+      writtenLSN = startLSN;
+      syncedLSN = startLSN;
+      lastSync = System.currentTimeMillis();
+    } else if (startLSN != writtenLSN) {
+      throw new IllegalArgumentException("The WAL must be written without gaps, expected "
+          + LogSequenceNumber.valueOf(writtenLSN).asString() + ", got "
+          + LogSequenceNumber.valueOf(startLSN).asString());
+    }
+    long lsn = startLSN;
+    int limit = data.limit();
+    try {
+      while (data.hasRemaining()) {
+        long segment = lsn / segmentSize;
+        if (segment != segmentNumber) {
+          openSegment(segment);
+        }
+        int offset = (int) (lsn - segment * segmentSize);
+        int chunk = Math.min(data.remaining(), segmentSize - offset);
+        data.limit(data.position() + chunk);
+        while (data.hasRemaining()) {
+          offset += channel.write(data, offset);
+        }
+        data.limit(limit);
+        lsn += chunk;
+        writtenLSN = lsn;
+        if (offset == segmentSize) {
+          completeSegment();
+        }
+      }
+    } finally {
+      data.limit(limit);
+    }
+    if (writtenLSN - syncedLSN >= syncBytes
+        || System.currentTimeMillis() - lastSync >= syncInterval) {
+      sync();
+    }
+  }
+
+  /**
+   * Syncs the written WAL to disk.
+   *
+   * @return the end of the synced WAL
+   * @throws IOException if syncing fails
+   */
+  public LogSequenceNumber sync() throws IOException {
+    if (channel != null && syncedLSN != writtenLSN) {
+      channel.force(false);
+    }
+    syncedLSN = writtenLSN;
+    lastSync = System.currentTimeMillis();
+    return LogSequenceNumber.valueOf(syncedLSN);
+  }
+
+  /**
+   * Receives WAL from a physical replication stream and writes it, until the server ends the
+   * stream or {@link #stop()} is called. The stream must start at a segment boundary. The synced position is reported with
+   * {@link PGReplicationStream#setFlushedLSN}. The stream is not closed.
+   *
+   * @param stream a physical replication stream
+   * @throws SQLException if reading the stream, or writing the WAL, fails
+   */
+  public void receive(PGReplicationStream stream) throws SQLException {
+    ReplicationMessageBatch batch =
+        new ReplicationMessageBatch(ByteBuffer.allocateDirect(bufferSize), DEFAULT_BATCH_MESSAGES);
+    // a view of the batch buffer, so that messages are written without creating slices
+    ByteBuffer view = batch.getBuffer().duplicate();
+    long reported = syncedLSN;
+    try {
+      while (!stopped && !stream.isClosed()) {
+        int count = stream.readPending(batch);
+        if (count == 0) {
+          // sync before waiting, so that the server learns the position of idle periods
+          sync();
+          if (syncedLSN != reported) {
+            reported = syncedLSN;
+            stream.setFlushedLSN(LogSequenceNumber.valueOf(reported));
+            stream.forceUpdateStatus();
+          }
+          if (stopped || stream.isClosed()) {
+            break;
+          }
+          count = stream.read(batch);
+        }
+        for (int i = 0; i < count; i++) {
+          int offset = batch.getOffset(i);
+          int length = batch.getLength(i);
+          view.limit(offset + length);
+          view.position(offset);
+          // the LSN of a physical message is that of its end
+          write(view, batch.getLSN(i).asLong() - length);
+        }
+        if (syncedLSN != reported) {
+          reported = syncedLSN;
+          stream.setFlushedLSN(LogSequenceNumber.valueOf(reported));
+        }
+      }
+      sync();
+      if (syncedLSN != reported && !stream.isClosed()) {
+        stream.setFlushedLSN(LogSequenceNumber.valueOf(syncedLSN));
+        stream.forceUpdateStatus();
+      }
+    } catch (IOException e) {
+      throw new PSQLException(GT.tr("Failed to write WAL to {0}.", directory), PSQLState.IO_ERROR,
+          e);
+    }
+  }
+
+  /**
+   * Stops {@link #receive(PGReplicationStream)} once the messages being read are written. May be
+   * called from any thread.
+   */
+  public void stop() {
+    stopped = true;
+  }
+
+  /**
+   * Syncs and closes the current segment, which is left partial if incomplete.
+   *
+   * @throws IOException if syncing or closing fails
+   */
+  public void close() throws IOException {
+    if (channel != null) {
+      sync();
+      channel.close();
+      channel = null;
+      segmentNumber = -1;
+    }
+  }
+
+  private File segmentFile(long segment, boolean partial) {
+    String name = getSegmentName(timeline, segment * segmentSize, segmentSize);
+    return new File(directory, partial ? name + PARTIAL_SUFFIX : name);
+  }
+
+  private void openSegment(long segment) throws IOException {
+    close();
+    File file = segmentFile(segment, true);
+    LOGGER.log(Level.FINE, "Writing WAL segment {0}", file);
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    FileChannel newChannel = raf.getChannel();
+    try {
+      long size = newChannel.size();
+      if (size < segmentSize) {
+        // fill the segment, so that writes do not need to update the metadata of the file
+        if (zeroes == null) {
+          zeroes = ByteBuffer.allocateDirect(ZEROES_SIZE);
+        }
+        for (long position = size; position < segmentSize; ) {
+          zeroes.clear();
+          zeroes.limit((int) Math.min(zeroes.capacity(), segmentSize - position));
+          position += newChannel.write(zeroes, position);
+        }
+        newChannel.force(true);
+        if (size == 0) {
+          syncDirectory();
+        }
+      }
+    } catch (IOException e) {
+      newChannel.close();
+      throw e;
+    }
+    channel = newChannel;
+    segmentNumber = segment;
+  }
+
+  private void completeSegment() throws IOException {
+    long segment = segmentNumber;
+    close();
+    File partial = segmentFile(segment, true);
+    File complete = segmentFile(segment, false);
+    if (!partial.renameTo(complete)) {
+      throw new IOException(GT.tr("Could not rename {0} to {1}.", partial, complete));
+    }
+    syncDirectory();
+    LOGGER.log(Level.FINE, "Completed WAL segment {0}", complete);
+  }
+
+  /**
+   * Syncs the directory, so that the creation or the renaming of a segment survives a crash.
+   */
+  private void syncDirectory() throws IOException {
+    //#if mvn.project.property.postgresql.jdbc.spec >= "JDBC4.1"
+    FileChannel dir;
+    try {
+      dir = FileChannel.open(directory.toPath(), java.nio.file.StandardOpenOption.READ);
+    } catch (IOException e) {
+      // some platforms, such as Windows, cannot open directories
+      LOGGER.log(Level.FINE, "Could not open " + directory + " to sync it", e);
+      return;
+    }
+    try {
+      dir.force(true);
+    } finally {
+      dir.close();
+    }
+    //#endif
+  }
+}
@@ -15,6 +15,7 @@ public abstract class AbstractStreamBuilder<T extends ChainedCommonStreamBuilder
   protected int statusIntervalMs = DEFAULT_STATUS_INTERVAL;
   protected LogSequenceNumber startPosition = LogSequenceNumber.INVALID_LSN;
   protected String slotName;
+  protected boolean backgroundStatusUpdates;
 
   protected abstract T self();
 
@@ -24,6 +25,12 @@ public abstract class AbstractStreamBuilder<T extends ChainedCommonStreamBuilder
     return self();
   }
 
+  @Override
+  public T withBackgroundStatusUpdates(boolean enabled) {
+    this.backgroundStatusUpdates = enabled;
+    return self();
+  }
+
   @Override
   public T withStartPosition(LogSequenceNumber lsn) {
     this.startPosition = lsn;
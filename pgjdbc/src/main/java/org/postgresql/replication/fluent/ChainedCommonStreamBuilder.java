@@ -35,6 +35,17 @@ public interface ChainedCommonStreamBuilder<T extends ChainedCommonStreamBuilder
    */
   T withStatusInterval(int time, TimeUnit format);
 
+  /**
+   * Also sends the periodic status updates from a timer thread, so that they are sent while the
+   * stream is not read, for instance while the application processes a large transaction or
+   * waits for a downstream system, instead of only from within {@code read} and
+   * {@code readPending}. Has no effect if the status interval is zero.
+   *
+   * @param enabled whether to send status updates in the background
+   * @return not null fluent
+   */
+  T withBackgroundStatusUpdates(boolean enabled);
+
   /**
    * Specify start position from wich backend will start stream changes. If parameter will not
    * specify, streaming starts from restart_lsn. For more details see pg_replication_slots
@@ -34,4 +34,9 @@ public interface CommonOptions {
    * @return the current status interval
    */
   int getStatusInterval();
+
+  /**
+   * @return whether the periodic status updates are also sent while the stream is not read
+   */
+  boolean isBackgroundStatusUpdates();
 }
@@ -6,6 +6,7 @@
 package org.postgresql.replication.fluent.logical;
 
 import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.ReplicationPublisher;
 import org.postgresql.replication.fluent.ChainedCommonStreamBuilder;
 
 import java.sql.SQLException;
@@ -21,6 +22,15 @@ public interface ChainedLogicalStreamBuilder
    */
   PGReplicationStream start() throws SQLException;
 
+  /**
+   * Creates a publisher that starts the logical replication stream once subscribed to, and reads it on
+   * a dedicated thread as the subscriber requests messages, instead of the caller polling
+   * {@link PGReplicationStream#readPending()}.
+   *
+   * @return not null publisher of the messages of the stream
+   */
+  ReplicationPublisher publisher();
+
   /**
    *
    * @param optionName name of option
@@ -7,10 +7,12 @@ package org.postgresql.replication.fluent.logical;
 
 import org.postgresql.replication.LogSequenceNumber;
 import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.ReplicationPublisher;
 import org.postgresql.replication.fluent.AbstractStreamBuilder;
 
 import java.sql.SQLException;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 
 public class LogicalStreamBuilder extends AbstractStreamBuilder<ChainedLogicalStreamBuilder>
     implements ChainedLogicalStreamBuilder, LogicalReplicationOptions {
@@ -37,6 +39,16 @@ public class LogicalStreamBuilder extends AbstractStreamBuilder<ChainedLogicalSt
     return startCallback.start(this);
   }
 
+  @Override
+  public ReplicationPublisher publisher() {
+    return new ReplicationPublisher(new Callable<PGReplicationStream>() {
+      @Override
+      public PGReplicationStream call() throws SQLException {
+        return start();
+      }
+    }, statusIntervalMs);
+  }
+
   @Override
   public String getSlotName() {
     return slotName;
@@ -89,4 +101,9 @@ public class LogicalStreamBuilder extends AbstractStreamBuilder<ChainedLogicalSt
   public int getStatusInterval() {
     return statusIntervalMs;
   }
+
+  @Override
+  public boolean isBackgroundStatusUpdates() {
+    return backgroundStatusUpdates;
+  }
 }
@@ -6,6 +6,7 @@
 package org.postgresql.replication.fluent.physical;
 
 import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.ReplicationPublisher;
 import org.postgresql.replication.fluent.ChainedCommonStreamBuilder;
 
 import java.sql.SQLException;
@@ -20,4 +21,13 @@ public interface ChainedPhysicalStreamBuilder extends
    * @throws SQLException on error
    */
   PGReplicationStream start() throws SQLException;
+
+  /**
+   * Creates a publisher that starts the physical replication stream once subscribed to, and reads it on
+   * a dedicated thread as the subscriber requests messages, instead of the caller polling
+   * {@link PGReplicationStream#readPending()}.
+   *
+   * @return not null publisher of the messages of the stream
+   */
+  ReplicationPublisher publisher();
 }
@@ -7,9 +7,11 @@ package org.postgresql.replication.fluent.physical;
 
 import org.postgresql.replication.LogSequenceNumber;
 import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.ReplicationPublisher;
 import org.postgresql.replication.fluent.AbstractStreamBuilder;
 
 import java.sql.SQLException;
+import java.util.concurrent.Callable;
 
 public class PhysicalStreamBuilder extends AbstractStreamBuilder<ChainedPhysicalStreamBuilder>
     implements ChainedPhysicalStreamBuilder, PhysicalReplicationOptions {
@@ -34,6 +36,16 @@ public class PhysicalStreamBuilder extends AbstractStreamBuilder<ChainedPhysical
     return this.startCallback.start(this);
   }
 
+  @Override
+  public ReplicationPublisher publisher() {
+    return new ReplicationPublisher(new Callable<PGReplicationStream>() {
+      @Override
+      public PGReplicationStream call() throws SQLException {
+        return start();
+      }
+    }, statusIntervalMs);
+  }
+
   @Override
   public String getSlotName() {
     return slotName;
@@ -48,4 +60,9 @@ public class PhysicalStreamBuilder extends AbstractStreamBuilder<ChainedPhysical
   public int getStatusInterval() {
     return statusIntervalMs;
   }
+
+  @Override
+  public boolean isBackgroundStatusUpdates() {
+    return backgroundStatusUpdates;
+  }
 }
@@ -0,0 +1,533 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Applies the changes of a {@code pgoutput} replication stream with several worker threads.
+ *
+ * <p>{@link PGReplicationStream#setFlushedLSN} expects LSNs to be acknowledged in order, which a
+ * single consumer thread does naturally. This consumer reads and decodes the stream on the thread
+ * calling {@link #run()}, and hands each row change to one of its workers, chosen by the table and
+ * the replica identity columns of the row: changes to the same row are applied in stream order by
+ * the same worker, while changes to different rows are applied in parallel. The consumer tracks
+ * the changes of each transaction, and acknowledges a transaction with
+ * {@link PGReplicationStream#setFlushedLSN} and {@link PGReplicationStream#setAppliedLSN} once
+ * all its changes, and those of all the transactions committed before it, were applied. The
+ * stream is only used by the thread calling {@link #run()}, so status updates stay consistent.</p>
+ *
+ * <p>Changes that cannot be ordered by a single worker, that is truncates, updates that move a
+ * row to another worker by changing its key, and updates whose key has an unchanged TOASTed value
+ * that was not sent, are applied on the thread calling {@link #run()}
+ * once all earlier changes were applied.</p>
+ *
+ * <p>Changes within a transaction to different rows may be applied in any order, and a
+ * transaction may be partly applied when the consumer stops, so the sink should be idempotent:
+ * after a restart, the server sends again the transactions that were not acknowledged.</p>
+ */
+public class ParallelChangeConsumer {
+  /**
+   * The default number of changes queued for each worker.
+   */
+  static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+  /**
+   * The time between status updates while the consumer waits for its workers.
+   */
+  static final long STATUS_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+  /**
+   * The time to wait for new messages, or for the workers to make progress, when the stream has
+   * no pending message.
+   */
+  private static final long IDLE_WAIT = 10;
+
+  /**
+   * Applies changes, for instance to another database.
+   */
+  public interface Sink {
+    /**
+     * Applies a change. Called from the worker threads, concurrently for different rows, and
+     * from the thread running the consumer for truncates and key changes.
+     *
+     * @param change the change
+     * @throws Exception to stop the consumer
+     */
+    void apply(Change change) throws Exception;
+  }
+
+  /**
+   * The kinds of changes.
+   */
+  public enum Kind {
+    INSERT, UPDATE, DELETE, TRUNCATE
+  }
+
+  /**
+   * A change to a table. Unlike {@link TupleData}, a change holds decoded values and is not
+   * reused, so that it can be applied on another thread.
+   */
+  public static class Change {
+    /**
+     * The value of the columns whose TOASTed value did not change in an update, and was not sent.
+     */
+    public static final Object UNCHANGED_TOAST = new Object() {
+      @Override
+      public String toString() {
+        return "UNCHANGED_TOAST";
+      }
+    };
+
+    private final Kind kind;
+    private final Relation relation;
+    private final LogSequenceNumber commitLSN;
+    private final Object[] oldValues;
+    private final Object[] newValues;
+
+    Change(Kind kind, Relation relation, LogSequenceNumber commitLSN, Object[] oldValues,
+        Object[] newValues) {
+      this.kind = kind;
+      this.relation = relation;
+      this.commitLSN = commitLSN;
+      this.oldValues = oldValues;
+      this.newValues = newValues;
+    }
+
+    /**
+     * @return the kind of change
+     */
+    public Kind getKind() {
+      return kind;
+    }
+
+    /**
+     * @return the changed table
+     */
+    public Relation getRelation() {
+      return relation;
+    }
+
+    /**
+     * @return the LSN of the commit record of the transaction of the change
+     */
+    public LogSequenceNumber getCommitLSN() {
+      return commitLSN;
+    }
+
+    /**
+     * @return the values of the old row, as {@link TupleData#getObject} decodes them, for deletes,
+     *     and for updates when the server sent the old row. Otherwise null
+     * @see PgOutputHandler#update
+     */
+    public Object[] getOldValues() {
+      return oldValues;
+    }
+
+    /**
+     * @return the values of the new row for inserts and updates, otherwise null
+     */
+    public Object[] getNewValues() {
+      return newValues;
+    }
+
+    @Override
+    public String toString() {
+      return kind + " " + relation + " old=" + Arrays.toString(oldValues) + " new="
+          + Arrays.toString(newValues);
+    }
+  }
+
+  /**
+   * The progress of a transaction: the transaction is complete once its commit was read and all
+   * its changes were applied.
+   */
+  private static class Transaction {
+    // one for each change being applied, and one until the commit is read
+    final AtomicInteger pending = new AtomicInteger(1);
+    final LogSequenceNumber commitLSN;
+    long endLSN;
+
+    Transaction(LogSequenceNumber commitLSN) {
+      this.commitLSN = commitLSN;
+    }
+  }
+
+  private static class Task {
+    final Change change;
+    final Transaction transaction;
+
+    Task(Change change, Transaction transaction) {
+      this.change = change;
+      this.transaction = transaction;
+    }
+  }
+
+  private static final Task STOP = new Task(null, null);
+
+  private final PGReplicationStream stream;
+  private final PgOutputDecoder decoder;
+  private final Sink sink;
+  private final Worker[] workers;
+  private final Handler handler = new Handler();
+  private final Queue<Transaction> transactions = new ArrayDeque<Transaction>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+  private final Object progress = new Object();
+  private volatile boolean stopped;
+  private volatile LogSequenceNumber acknowledgedLSN = LogSequenceNumber.INVALID_LSN;
+  private long lastStatusUpdate;
+
+  /**
+   * @param stream a stream of the {@code pgoutput} plugin
+   * @param decoder the decoder of the stream
+   * @param sink applies the changes
+   * @param workerCount the number of worker threads
+   */
+  public ParallelChangeConsumer(PGReplicationStream stream, PgOutputDecoder decoder, Sink sink,
+      int workerCount) {
+    this(stream, decoder, sink, workerCount, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * @param stream a stream of the {@code pgoutput} plugin
+   * @param decoder the decoder of the stream
+   * @param sink applies the changes
+   * @param workerCount the number of worker threads
+   * @param queueCapacity the number of changes queued for each worker, beyond which reading the
+   *     stream waits for the worker
+   */
+  public ParallelChangeConsumer(PGReplicationStream stream, PgOutputDecoder decoder, Sink sink,
+      int workerCount, int queueCapacity) {
+    if (workerCount <= 0) {
+      throw new IllegalArgumentException("The number of workers must be positive, got "
+          + workerCount);
+    }
+    this.stream = stream;
+    this.decoder = decoder;
+    this.sink = sink;
+    this.workers = new Worker[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = new Worker(queueCapacity);
+    }
+  }
+
+  /**
+   * Reads and applies the stream until the server ends it, {@link #stop()} is called, or a change
+   * fails. The workers are started when called, and stopped on return, once the changes read were
+   * applied.
+   *
+   * @throws SQLException if reading the stream fails, or the sink fails to apply a change
+   */
+  public void run() throws SQLException {
+    for (int i = 0; i < workers.length; i++) {
+      Thread thread = new Thread(workers[i], "PostgreSQL JDBC driver replication worker " + i);
+      thread.setDaemon(true); // Don't prevent the VM from shutting down
+      thread.start();
+    }
+    lastStatusUpdate = System.currentTimeMillis();
+    try {
+      while (!stopped) {
+        checkFailure();
+        acknowledge();
+        ByteBuffer message = stream.readPending();
+        if (message != null) {
+          decoder.decode(message, handler);
+          lastStatusUpdate = System.currentTimeMillis();
+        } else if (stream.isClosed()) {
+          break;
+        } else {
+          awaitProgress(IDLE_WAIT);
+        }
+      }
+      awaitWorkers();
+      checkFailure();
+      acknowledge();
+      if (!stream.isClosed()) {
+        stream.forceUpdateStatus();
+      }
+    } finally {
+      for (Worker worker : workers) {
+        worker.stop();
+      }
+    }
+  }
+
+  /**
+   * Stops {@link #run()} once the message being decoded, if any, was dispatched, and the changes
+   * read were applied. May be called from any thread.
+   */
+  public void stop() {
+    stopped = true;
+    synchronized (progress) {
+      progress.notifyAll();
+    }
+  }
+
+  /**
+   * @return the end LSN of the last transaction that was acknowledged to the server, along with
+   *     all the transactions before it
+   */
+  public LogSequenceNumber getAcknowledgedLSN() {
+    return acknowledgedLSN;
+  }
+
+  /**
+   * Acknowledges the complete transactions that follow the last acknowledged one.
+   */
+  private void acknowledge() {
+    Transaction last = null;
+    Transaction head;
+    while ((head = transactions.peek()) != null && head.pending.get() == 0) {
+      last = transactions.poll();
+    }
+    if (last != null) {
+      LogSequenceNumber lsn = LogSequenceNumber.valueOf(last.endLSN);
+      stream.setFlushedLSN(lsn);
+      stream.setAppliedLSN(lsn);
+      acknowledgedLSN = lsn;
+    }
+  }
+
+  private void checkFailure() throws SQLException {
+    Exception e = failure.get();
+    if (e != null) {
+      throw new PSQLException(GT.tr("Failed to apply a replicated change."),
+          PSQLState.UNEXPECTED_ERROR, e);
+    }
+  }
+
+  private void awaitProgress(long millis) throws SQLException {
+    synchronized (progress) {
+      try {
+        progress.wait(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new PSQLException(GT.tr("Interrupted while waiting for replicated changes."),
+            PSQLState.UNEXPECTED_ERROR, e);
+      }
+    }
+  }
+
+  /**
+   * Sends a status update when the stream was not read for a while, so that the server does not
+   * drop the connection while the consumer waits for its workers.
+   */
+  private void keepAlive() throws SQLException {
+    long now = System.currentTimeMillis();
+    if (now - lastStatusUpdate >= STATUS_INTERVAL) {
+      acknowledge();
+      stream.forceUpdateStatus();
+      lastStatusUpdate = now;
+    }
+  }
+
+  /**
+   * Waits until all the dispatched changes were applied, or one failed.
+   */
+  private void awaitWorkers() throws SQLException {
+    while (inFlight.get() > 0 && failure.get() == null) {
+      keepAlive();
+      awaitProgress(IDLE_WAIT);
+    }
+  }
+
+  private void dispatch(Change change, Transaction transaction, int partition)
+      throws SQLException {
+    transaction.pending.incrementAndGet();
+    inFlight.incrementAndGet();
+    Worker worker = workers[partition];
+    Task task = new Task(change, transaction);
+    try {
+      while (!worker.queue.offer(task, IDLE_WAIT, TimeUnit.MILLISECONDS)) {
+        checkFailure();
+        keepAlive();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PSQLException(GT.tr("Interrupted while waiting for replicated changes."),
+          PSQLState.UNEXPECTED_ERROR, e);
+    }
+  }
+
+  /**
+   * Applies a change on this thread, after all the changes before it.
+   */
+  private void applyAlone(Change change) throws SQLException {
+    awaitWorkers();
+    checkFailure();
+    try {
+      sink.apply(change);
+    } catch (Exception e) {
+      failure.compareAndSet(null, e);
+      checkFailure();
+    }
+  }
+
+  /**
+   * Returns the worker of a row, or -1 if the value of a key column was not sent.
+   */
+  int partition(Relation relation, Object[] values) {
+    int hash = relation.getOid();
+    for (int i = 0; i < values.length; i++) {
+      if (relation.isKeyColumn(i)) {
+        Object value = values[i];
+        if (value == Change.UNCHANGED_TOAST) {
+          return -1;
+        }
+        hash = 31 * hash
+            + (value instanceof byte[] ? Arrays.hashCode((byte[]) value)
+                : value == null ? 0 : value.hashCode());
+      }
+    }
+    // spread the low bits, like HashMap
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+    return (hash & Integer.MAX_VALUE) % workers.length;
+  }
+
+  private static Object[] values(TupleData tuple) throws SQLException {
+    Object[] values = new Object[tuple.getColumnCount()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = tuple.isUnchangedToast(i) ? Change.UNCHANGED_TOAST : tuple.getObject(i);
+    }
+    return values;
+  }
+
+  /**
+   * Turns the decoded messages into changes, on the thread reading the stream.
+   */
+  private class Handler extends PgOutputHandler {
+    private Transaction current;
+
+    @Override
+    public void begin(long finalLSN, long commitTime, int xid) {
+      current = new Transaction(LogSequenceNumber.valueOf(finalLSN));
+      transactions.add(current);
+    }
+
+    @Override
+    public void commit(long commitLSN, long endLSN, long commitTime) throws SQLException {
+      Transaction transaction = transaction();
+      transaction.endLSN = endLSN;
+      transaction.pending.decrementAndGet();
+      current = null;
+    }
+
+    @Override
+    public void insert(Relation relation, TupleData newTuple) throws SQLException {
+      Transaction transaction = transaction();
+      Object[] newValues = values(newTuple);
+      dispatch(new Change(Kind.INSERT, relation, transaction.commitLSN, null, newValues),
+          transaction, partition(relation, newValues));
+    }
+
+    @Override
+    public void update(Relation relation, TupleData oldTuple, TupleData newTuple)
+        throws SQLException {
+      Transaction transaction = transaction();
+      Object[] oldValues = oldTuple == null ? null : values(oldTuple);
+      Object[] newValues = values(newTuple);
+      Change change = new Change(Kind.UPDATE, relation, transaction.commitLSN, oldValues,
+          newValues);
+      int partition = partition(relation, newValues);
+      if (partition < 0 || oldValues != null && partition(relation, oldValues) != partition) {
+        applyAlone(change);
+      } else {
+        dispatch(change, transaction, partition);
+      }
+    }
+
+    @Override
+    public void delete(Relation relation, TupleData oldTuple) throws SQLException {
+      Transaction transaction = transaction();
+      Object[] oldValues = values(oldTuple);
+      dispatch(new Change(Kind.DELETE, relation, transaction.commitLSN, oldValues, null),
+          transaction, partition(relation, oldValues));
+    }
+
+    @Override
+    public void truncate(Relation[] relations, boolean cascade, boolean restartIdentity)
+        throws SQLException {
+      Transaction transaction = transaction();
+      for (Relation relation : relations) {
+        applyAlone(new Change(Kind.TRUNCATE, relation, transaction.commitLSN, null, null));
+      }
+    }
+
+    private Transaction transaction() throws PSQLException {
+      if (current == null) {
+        throw new PSQLException(GT.tr("The pgoutput stream sent a change outside a transaction."),
+            PSQLState.PROTOCOL_VIOLATION);
+      }
+      return current;
+    }
+  }
+
+  private class Worker implements Runnable {
+    final BlockingQueue<Task> queue;
+
+    Worker(int capacity) {
+      this.queue = new ArrayBlockingQueue<Task>(capacity);
+    }
+
+    void stop() {
+      // the queue may be full if the consumer failed
+      queue.clear();
+      queue.offer(STOP);
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          Task task = queue.take();
+          if (task == STOP) {
+            return;
+          }
+          if (failure.get() != null) {
+            continue;
+          }
+          try {
+            sink.apply(task.change);
+          } catch (Exception e) {
+            // the transaction stays incomplete, so that it is never acknowledged
+            failure.compareAndSet(null, e);
+            signalProgress();
+            continue;
+          }
+          boolean transactionDone = task.transaction.pending.decrementAndGet() == 0;
+          if (inFlight.decrementAndGet() == 0 || transactionDone) {
+            signalProgress();
+          }
+        }
+      } catch (InterruptedException e) {
+        // stop
+      }
+    }
+
+    private void signalProgress() {
+      synchronized (progress) {
+        progress.notifyAll();
+      }
+    }
+  }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import org.postgresql.PGConnection;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Encoding;
+import org.postgresql.core.Oid;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes the messages of the {@code pgoutput} logical decoding plugin, as read from a
+ * {@link org.postgresql.replication.PGReplicationStream} started with
+ * {@code withSlotOption("proto_version", 1)} and {@code withSlotOption("publication_names", ...)},
+ * into calls to a {@link PgOutputHandler}.
+ *
+ * <p>The decoder keeps the tables described by Relation messages, which the server only sends
+ * once per session and table, so a decoder must see all the messages of a stream, in order. Rows
+ * are passed to the handler as {@link TupleData} views over the message, reused from one message
+ * to the next, so that decoding a row allocates nothing until its values are read.</p>
+ *
+ * <p>A decoder created with a connection also decodes dates and times, and the types of the
+ * binary codecs registered on that connection. The connection should not be the replication
+ * connection, which cannot run queries while streaming.</p>
+ *
+ * <p>Like {@link org.postgresql.replication.PGReplicationStream}, this class is not thread
+ * safe.</p>
+ */
+public class PgOutputDecoder {
+  private final BaseConnection connection;
+  private final Encoding encoding;
+  private final Map<Integer, Relation> relations = new HashMap<Integer, Relation>();
+  private final Map<Integer, String> typeNames = new HashMap<Integer, String>();
+  private final TupleData oldTuple = new TupleData(this);
+  private final TupleData newTuple = new TupleData(this);
+  private Relation lastRelation;
+  private byte[] scratch = new byte[256];
+
+  /**
+   * Creates a decoder for UTF-8 streams that decodes dates, times and types other than the
+   * builtin numeric, text, bytea and uuid types as strings, or bytes in binary format.
+   */
+  public PgOutputDecoder() {
+    this.connection = null;
+    this.encoding = Encoding.getDatabaseEncoding("UTF8");
+  }
+
+  /**
+   * Creates a decoder that uses the given connection to decode values.
+   *
+   * @param connection a connection to the database the stream comes from
+   * @throws SQLException if the encoding of the connection cannot be determined
+   */
+  public PgOutputDecoder(PGConnection connection) throws SQLException {
+    this.connection = (BaseConnection) connection;
+    this.encoding = this.connection.getEncoding();
+  }
+
+  BaseConnection getConnection() {
+    return connection;
+  }
+
+  Encoding getEncoding() {
+    return encoding;
+  }
+
+  /**
+   * Returns an array to copy values of direct buffers into.
+   */
+  byte[] getScratch(int length) {
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    return scratch;
+  }
+
+  /**
+   * Returns the name of a type, as announced by a Type message for types that are not builtin.
+   */
+  String getTypeName(int oid) throws SQLException {
+    String name = typeNames.get(oid);
+    if (name == null) {
+      name = connection != null ? connection.getTypeInfo().getPGType(oid) : Oid.toString(oid);
+    }
+    return name;
+  }
+
+  /**
+   * @param oid the oid of a table
+   * @return the table as last described by a Relation message, or null if none was received
+   */
+  public Relation getRelation(int oid) {
+    return relations.get(oid);
+  }
+
+  /**
+   * Decodes a message and calls the handler.
+   *
+   * @param message the message, from its position to its limit, as returned by
+   *     {@link org.postgresql.replication.PGReplicationStream#read()}
+   * @param handler the handler to call
+   * @throws SQLException if the message is malformed, refers to a table that was not described,
+   *     or if the handler fails
+   */
+  public void decode(ByteBuffer message, PgOutputHandler handler) throws SQLException {
+    ByteBuffer buffer =
+        message.order() == ByteOrder.BIG_ENDIAN ? message : message.duplicate().order(
+            ByteOrder.BIG_ENDIAN);
+    try {
+      decode(buffer, buffer.position(), handler);
+    } catch (IndexOutOfBoundsException e) {
+      throw new PSQLException(GT.tr("The pgoutput message is truncated."),
+          PSQLState.PROTOCOL_VIOLATION, e);
+    }
+  }
+
+  private void decode(ByteBuffer buffer, int position, PgOutputHandler handler)
+      throws SQLException {
+    int type = buffer.get(position++);
+    switch (type) {
+      case 'B':
+        handler.begin(buffer.getLong(position), buffer.getLong(position + 8),
+            buffer.getInt(position + 16));
+        break;
+
+      case 'C':
+        // skip the unused flags
+        handler.commit(buffer.getLong(position + 1), buffer.getLong(position + 9),
+            buffer.getLong(position + 17));
+        break;
+
+      case 'O':
+        handler.origin(buffer.getLong(position), readString(buffer, position + 8));
+        break;
+
+      case 'R':
+        handler.relation(decodeRelation(buffer, position));
+        break;
+
+      case 'Y': {
+        int oid = buffer.getInt(position);
+        String namespace = readString(buffer, position + 4);
+        String name = readString(buffer, stringEnd(buffer, position + 4) + 1);
+        typeNames.put(oid, name);
+        handler.type(oid, namespace, name);
+        break;
+      }
+
+      case 'I': {
+        Relation relation = relation(buffer.getInt(position));
+        expect(buffer, position + 4, 'N');
+        newTuple.parse(relation, buffer, position + 5, false);
+        handler.insert(relation, newTuple);
+        break;
+      }
+
+      case 'U': {
+        Relation relation = relation(buffer.getInt(position));
+        position += 4;
+        TupleData old = null;
+        byte kind = buffer.get(position);
+        if (kind == 'K' || kind == 'O') {
+          position = oldTuple.parse(relation, buffer, position + 1, kind == 'K');
+          old = oldTuple;
+        }
+        expect(buffer, position, 'N');
+        newTuple.parse(relation, buffer, position + 1, false);
+        handler.update(relation, old, newTuple);
+        break;
+      }
+
+      case 'D': {
+        Relation relation = relation(buffer.getInt(position));
+        byte kind = buffer.get(position + 4);
+        if (kind != 'K' && kind != 'O') {
+          throw unexpected("K", kind);
+        }
+        oldTuple.parse(relation, buffer, position + 5, kind == 'K');
+        handler.delete(relation, oldTuple);
+        break;
+      }
+
+      case 'T': {
+        int count = buffer.getInt(position);
+        int options = buffer.get(position + 4);
+        Relation[] truncated = new Relation[count];
+        for (int i = 0; i < count; i++) {
+          truncated[i] = relation(buffer.getInt(position + 5 + 4 * i));
+        }
+        handler.truncate(truncated, (options & 1) != 0, (options & 2) != 0);
+        break;
+      }
+
+      case 'M': {
+        boolean transactional = (buffer.get(position) & 1) != 0;
+        long lsn = buffer.getLong(position + 1);
+        String prefix = readString(buffer, position + 9);
+        position = stringEnd(buffer, position + 9) + 1;
+        int length = buffer.getInt(position);
+        ByteBuffer content = buffer.duplicate();
+        content.limit(position + 4 + length);
+        content.position(position + 4);
+        handler.message(lsn, transactional, prefix, content.slice());
+        break;
+      }
+
+      default:
+        throw new PSQLException(
+            GT.tr("Unexpected pgoutput message type: {0}", (char) type),
+            PSQLState.PROTOCOL_VIOLATION);
+    }
+  }
+
+  private Relation decodeRelation(ByteBuffer buffer, int position) throws SQLException {
+    int oid = buffer.getInt(position);
+    position += 4;
+    String namespace = readString(buffer, position);
+    position = stringEnd(buffer, position) + 1;
+    String name = readString(buffer, position);
+    position = stringEnd(buffer, position) + 1;
+    char replicaIdentity = (char) buffer.get(position++);
+    int count = buffer.getShort(position) & 0xFFFF;
+    position += 2;
+
+    String[] columnNames = new String[count];
+    int[] columnTypes = new int[count];
+    int[] columnTypeModifiers = new int[count];
+    boolean[] keyColumns = new boolean[count];
+    for (int i = 0; i < count; i++) {
+      keyColumns[i] = (buffer.get(position++) & 1) != 0;
+      columnNames[i] = readString(buffer, position);
+      position = stringEnd(buffer, position) + 1;
+      columnTypes[i] = buffer.getInt(position);
+      columnTypeModifiers[i] = buffer.getInt(position + 4);
+      position += 8;
+    }
+
+    Relation relation = new Relation(oid, namespace, name, replicaIdentity, columnNames,
+        columnTypes, columnTypeModifiers, keyColumns);
+    relations.put(oid, relation);
+    lastRelation = relation;
+    return relation;
+  }
+
+  private Relation relation(int oid) throws PSQLException {
+    // changes usually come in runs on the same table, which spares boxing the oid
+    Relation relation = lastRelation;
+    if (relation == null || relation.getOid() != oid) {
+      relation = relations.get(oid);
+      if (relation == null) {
+        throw new PSQLException(
+            GT.tr("The pgoutput stream refers to table {0}, which no Relation message described.",
+                oid & 0xFFFFFFFFL),
+            PSQLState.PROTOCOL_VIOLATION);
+      }
+      lastRelation = relation;
+    }
+    return relation;
+  }
+
+  private static void expect(ByteBuffer buffer, int position, char expected) throws PSQLException {
+    byte kind = buffer.get(position);
+    if (kind != expected) {
+      throw unexpected(String.valueOf(expected), kind);
+    }
+  }
+
+  private static PSQLException unexpected(String expected, byte kind) {
+    return new PSQLException(
+        GT.tr("Expected tuple type {0} in pgoutput message, got {1}.", expected, (char) kind),
+        PSQLState.PROTOCOL_VIOLATION);
+  }
+
+  private static int stringEnd(ByteBuffer buffer, int position) {
+    while (buffer.get(position) != 0) {
+      position++;
+    }
+    return position;
+  }
+
+  private String readString(ByteBuffer buffer, int position) throws PSQLException {
+    int length = stringEnd(buffer, position) - position;
+    byte[] bytes = getScratch(length);
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(position + i);
+    }
+    try {
+      return encoding.decode(bytes, 0, length);
+    } catch (IOException ioe) {
+      throw new PSQLException(GT.tr("Invalid character data was found."),
+          PSQLState.DATA_ERROR, ioe);
+    }
+  }
+}
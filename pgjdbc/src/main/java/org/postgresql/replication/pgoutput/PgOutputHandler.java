@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+
+/**
+ * Receives the events {@link PgOutputDecoder} decodes. The methods do nothing by default, so that
+ * handlers override the events they are interested in.
+ *
+ * <p>The {@link TupleData} passed to the methods is reused for the next message: it is only valid
+ * until the method returns. Timestamps are in microseconds since 2000-01-01 00:00:00 UTC.</p>
+ */
+public abstract class PgOutputHandler {
+
+  /**
+   * @param finalLSN the LSN of the commit record of the transaction
+   * @param commitTime the commit time of the transaction
+   * @param xid the id of the transaction
+   * @throws SQLException to stop the decoding
+   */
+  public void begin(long finalLSN, long commitTime, int xid) throws SQLException {
+  }
+
+  /**
+   * @param commitLSN the LSN of the commit record
+   * @param endLSN the end LSN of the transaction
+   * @param commitTime the commit time of the transaction
+   * @throws SQLException to stop the decoding
+   */
+  public void commit(long commitLSN, long endLSN, long commitTime) throws SQLException {
+  }
+
+  /**
+   * @param originLSN the LSN of the commit on the origin server
+   * @param name the name of the origin
+   * @throws SQLException to stop the decoding
+   */
+  public void origin(long originLSN, String name) throws SQLException {
+  }
+
+  /**
+   * @param relation a table described for the first time, or described again after a change
+   * @throws SQLException to stop the decoding
+   */
+  public void relation(Relation relation) throws SQLException {
+  }
+
+  /**
+   * @param oid the oid of a data type used by a table
+   * @param namespace the schema of the type
+   * @param name the name of the type
+   * @throws SQLException to stop the decoding
+   */
+  public void type(int oid, String namespace, String name) throws SQLException {
+  }
+
+  /**
+   * @param relation the table
+   * @param newTuple the inserted row
+   * @throws SQLException to stop the decoding
+   */
+  public void insert(Relation relation, TupleData newTuple) throws SQLException {
+  }
+
+  /**
+   * @param relation the table
+   * @param oldTuple the old row, only sent when the replica identity is full or when the key
+   *     changed; see {@link TupleData#isKeyOnly()}. Otherwise null
+   * @param newTuple the new row, where unchanged TOASTed values are not sent
+   * @throws SQLException to stop the decoding
+   */
+  public void update(Relation relation, TupleData oldTuple, TupleData newTuple)
+      throws SQLException {
+  }
+
+  /**
+   * @param relation the table
+   * @param oldTuple the replica identity columns of the deleted row, or the whole row when the
+   *     replica identity is full
+   * @throws SQLException to stop the decoding
+   */
+  public void delete(Relation relation, TupleData oldTuple) throws SQLException {
+  }
+
+  /**
+   * @param relations the truncated tables
+   * @param cascade whether TRUNCATE was run with CASCADE
+   * @param restartIdentity whether TRUNCATE was run with RESTART IDENTITY
+   * @throws SQLException to stop the decoding
+   */
+  public void truncate(Relation[] relations, boolean cascade, boolean restartIdentity)
+      throws SQLException {
+  }
+
+  /**
+   * @param messageLSN the LSN of the message
+   * @param transactional whether the message was emitted as part of a transaction
+   * @param prefix the prefix given to {@code pg_logical_emit_message}
+   * @param content the content of the message, valid until the method returns
+   * @throws SQLException to stop the decoding
+   */
+  public void message(long messageLSN, boolean transactional, String prefix, ByteBuffer content)
+      throws SQLException {
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+/**
+ * A table as described by a pgoutput Relation message. The server describes a table before the
+ * first change to it in a session, and again after its definition changed.
+ */
+public class Relation {
+  private final int oid;
+  private final String namespace;
+  private final String name;
+  private final char replicaIdentity;
+  private final String[] columnNames;
+  private final int[] columnTypes;
+  private final int[] columnTypeModifiers;
+  private final boolean[] keyColumns;
+
+  Relation(int oid, String namespace, String name, char replicaIdentity, String[] columnNames,
+      int[] columnTypes, int[] columnTypeModifiers, boolean[] keyColumns) {
+    this.oid = oid;
+    this.namespace = namespace;
+    this.name = name;
+    this.replicaIdentity = replicaIdentity;
+    this.columnNames = columnNames;
+    this.columnTypes = columnTypes;
+    this.columnTypeModifiers = columnTypeModifiers;
+    this.keyColumns = keyColumns;
+  }
+
+  /**
+   * @return the oid of the table
+   */
+  public int getOid() {
+    return oid;
+  }
+
+  /**
+   * @return the schema of the table
+   */
+  public String getNamespace() {
+    return namespace;
+  }
+
+  /**
+   * @return the name of the table
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the replica identity setting of the table: {@code 'd'} (default), {@code 'n'}
+   *     (nothing), {@code 'f'} (all columns) or {@code 'i'} (index)
+   */
+  public char getReplicaIdentity() {
+    return replicaIdentity;
+  }
+
+  /**
+   * @return the number of columns
+   */
+  public int getColumnCount() {
+    return columnNames.length;
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the name of the column
+   */
+  public String getColumnName(int column) {
+    return columnNames[column];
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the oid of the type of the column
+   */
+  public int getColumnType(int column) {
+    return columnTypes[column];
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the type modifier of the column
+   */
+  public int getColumnTypeModifier(int column) {
+    return columnTypeModifiers[column];
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return {@code true} if the column is part of the replica identity of the table
+   */
+  public boolean isKeyColumn(int column) {
+    return keyColumns[column];
+  }
+
+  /**
+   * @param name the name of a column
+   * @return the index of the column, or -1 if the table has no such column
+   */
+  public int findColumn(String name) {
+    for (int i = 0; i < columnNames.length; i++) {
+      if (columnNames[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public String toString() {
+    return namespace + '.' + name;
+  }
+}
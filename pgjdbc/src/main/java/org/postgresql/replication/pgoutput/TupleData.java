@@ -0,0 +1,528 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.postgresql.jdbc.TimestampUtils;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.GT;
+import org.postgresql.util.PGBinaryCodec;
+import org.postgresql.util.PGbytea;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * The column values of a row in a pgoutput Insert, Update or Delete message. The values are not
+ * copied out of the message: the accessors decode them from the message buffer when called, and
+ * the instance is reused for the next message, so it is only valid while the
+ * {@link PgOutputHandler} method it was passed to runs.
+ *
+ * <p>Values are sent in text format, or in binary format with the {@code binary} option of
+ * PostgreSQL 14 and later; the accessors decode both. Like {@link java.sql.ResultSet}, the
+ * primitive accessors return 0 or {@code false} for null values.</p>
+ */
+public class TupleData {
+  private static final byte NULL = 'n';
+  private static final byte UNCHANGED_TOAST = 'u';
+  private static final byte TEXT = 't';
+  private static final byte BINARY = 'b';
+
+  private final PgOutputDecoder decoder;
+  private Relation relation;
+  private ByteBuffer buffer;
+  private boolean keyOnly;
+  private int columnCount;
+  private byte[] kinds = new byte[16];
+  private int[] offsets = new int[16];
+  private int[] lengths = new int[16];
+
+  // the array and offset holding the value last loaded by loadValue
+  private byte[] valueArray;
+  private int valueOffset;
+
+  TupleData(PgOutputDecoder decoder) {
+    this.decoder = decoder;
+  }
+
+  /**
+   * Reads the TupleData structure at the given position of the buffer.
+   *
+   * @return the position after the structure
+   */
+  int parse(Relation relation, ByteBuffer buffer, int position, boolean keyOnly)
+      throws PSQLException {
+    this.relation = relation;
+    this.buffer = buffer;
+    this.keyOnly = keyOnly;
+    int count = buffer.getShort(position) & 0xFFFF;
+    position += 2;
+    if (count > kinds.length) {
+      int size = Math.max(count, kinds.length * 2);
+      kinds = new byte[size];
+      offsets = new int[size];
+      lengths = new int[size];
+    }
+    for (int i = 0; i < count; i++) {
+      byte kind = buffer.get(position++);
+      kinds[i] = kind;
+      if (kind == TEXT || kind == BINARY) {
+        int length = buffer.getInt(position);
+        offsets[i] = position + 4;
+        lengths[i] = length;
+        position += 4 + length;
+      } else if (kind == NULL || kind == UNCHANGED_TOAST) {
+        offsets[i] = position;
+        lengths[i] = -1;
+      } else {
+        throw new PSQLException(GT.tr("Unexpected tuple data kind: {0}", (char) kind),
+            PSQLState.PROTOCOL_VIOLATION);
+      }
+    }
+    columnCount = count;
+    return position;
+  }
+
+  /**
+   * @return the table the row belongs to
+   */
+  public Relation getRelation() {
+    return relation;
+  }
+
+  /**
+   * @return the number of columns
+   */
+  public int getColumnCount() {
+    return columnCount;
+  }
+
+  /**
+   * @return {@code true} if this is the old row of an update or delete that only holds the replica
+   *     identity columns, the other columns being null
+   */
+  public boolean isKeyOnly() {
+    return keyOnly;
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return {@code true} if the value is null
+   */
+  public boolean isNull(int column) {
+    return kind(column) == NULL;
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return {@code true} if the value is a TOASTed value that did not change, and was not sent
+   */
+  public boolean isUnchangedToast(int column) {
+    return kind(column) == UNCHANGED_TOAST;
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return {@code true} if the value is in binary format
+   */
+  public boolean isBinary(int column) {
+    return kind(column) == BINARY;
+  }
+
+  /**
+   * Returns the message buffer, for reading values without decoding them.
+   *
+   * @return the buffer holding the values
+   * @see #getOffset(int)
+   * @see #getLength(int)
+   */
+  public ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the position of the value in {@link #getBuffer()}
+   */
+  public int getOffset(int column) {
+    kind(column);
+    return offsets[column];
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the length of the value in bytes, or -1 if it is null or was not sent
+   */
+  public int getLength(int column) {
+    kind(column);
+    return lengths[column];
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the value as a string, or null
+   * @throws SQLException if the value was not sent or cannot be decoded
+   */
+  public String getString(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return null;
+    }
+    if (kinds[column] == TEXT) {
+      return decodeString(column, 0);
+    }
+    switch (relation.getColumnType(column)) {
+      case Oid.CHAR:
+      case Oid.BPCHAR:
+      case Oid.VARCHAR:
+      case Oid.TEXT:
+      case Oid.NAME:
+      case Oid.JSON:
+      case Oid.XML:
+        return decodeString(column, 0);
+      case Oid.JSONB:
+        // skip the format version
+        return decodeString(column, 1);
+      default:
+        Object value = getObject(column);
+        return value instanceof byte[] ? PGbytea.toPGString((byte[]) value) : String.valueOf(value);
+    }
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the value as a boolean, {@code false} if null
+   * @throws SQLException if the value was not sent or is not a boolean
+   */
+  public boolean getBoolean(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return false;
+    }
+    if (kinds[column] == BINARY) {
+      return buffer.get(offsets[column]) != 0;
+    }
+    // the server sends booleans as t or f
+    if (lengths[column] == 1) {
+      byte value = buffer.get(offsets[column]);
+      if (value == 't') {
+        return true;
+      } else if (value == 'f') {
+        return false;
+      }
+    }
+    throw badValue(column, "boolean");
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the value as an int, 0 if null
+   * @throws SQLException if the value was not sent or is not an integer that fits in an int
+   */
+  public int getInt(int column) throws SQLException {
+    long value = getLong(column);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "int", value),
+          PSQLState.NUMERIC_VALUE_OUT_OF_RANGE);
+    }
+    return (int) value;
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the value as a long, 0 if null
+   * @throws SQLException if the value was not sent or is not an integer that fits in a long
+   */
+  public long getLong(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return 0;
+    }
+    int offset = offsets[column];
+    int length = lengths[column];
+    if (kinds[column] == BINARY) {
+      switch (length) {
+        case 2:
+          return buffer.getShort(offset);
+        case 4:
+          return relation.getColumnType(column) == Oid.OID
+              ? buffer.getInt(offset) & 0xFFFFFFFFL : buffer.getInt(offset);
+        case 8:
+          return buffer.getLong(offset);
+        default:
+          throw badValue(column, "long");
+      }
+    }
+
+    // parse the digits in place rather than through a String
+    int end = offset + length;
+    boolean negative = length > 0 && buffer.get(offset) == '-';
+    int i = negative || length > 0 && buffer.get(offset) == '+' ? offset + 1 : offset;
+    if (i == end || end - i > 19) {
+      throw badValue(column, "long");
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9 || value < Long.MIN_VALUE / 10) {
+        throw badValue(column, "long");
+      }
+      long next = value * 10 - digit;
+      if (next > value) {
+        throw badValue(column, "long");
+      }
+      value = next;
+    }
+    if (!negative) {
+      if (value == Long.MIN_VALUE) {
+        throw badValue(column, "long");
+      }
+      value = -value;
+    }
+    return value;
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the value as a double, 0 if null
+   * @throws SQLException if the value was not sent or is not a number
+   */
+  public double getDouble(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return 0;
+    }
+    if (kinds[column] == BINARY) {
+      switch (relation.getColumnType(column)) {
+        case Oid.FLOAT4:
+          return buffer.getFloat(offsets[column]);
+        case Oid.FLOAT8:
+          return buffer.getDouble(offsets[column]);
+        case Oid.NUMERIC:
+          return getBigDecimal(column).doubleValue();
+        default:
+          return getLong(column);
+      }
+    }
+    String value = decodeString(column, 0);
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw badValue(column, "double");
+    }
+  }
+
+  /**
+   * @param column the column index, from 0
+   * @return the value as a BigDecimal, or null
+   * @throws SQLException if the value was not sent or is not a number
+   */
+  public BigDecimal getBigDecimal(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return null;
+    }
+    if (kinds[column] == BINARY) {
+      switch (relation.getColumnType(column)) {
+        case Oid.NUMERIC:
+          loadValue(column);
+          Number number = ByteConverter.numeric(valueArray, valueOffset);
+          if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+          }
+          throw badValue(column, "BigDecimal");
+        case Oid.FLOAT4:
+        case Oid.FLOAT8:
+          return BigDecimal.valueOf(getDouble(column));
+        default:
+          return BigDecimal.valueOf(getLong(column));
+      }
+    }
+    try {
+      return new BigDecimal(decodeString(column, 0));
+    } catch (NumberFormatException e) {
+      throw badValue(column, "BigDecimal");
+    }
+  }
+
+  /**
+   * Returns the value of a {@code bytea} column, or the bytes of the value as sent for other
+   * types.
+   *
+   * @param column the column index, from 0
+   * @return the bytes, or null
+   * @throws SQLException if the value was not sent or cannot be decoded
+   */
+  public byte[] getBytes(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return null;
+    }
+    loadValue(column);
+    byte[] bytes = Arrays.copyOfRange(valueArray, valueOffset, valueOffset + lengths[column]);
+    if (kinds[column] == TEXT && relation.getColumnType(column) == Oid.BYTEA) {
+      return PGbytea.toBytes(bytes);
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns the value as an object of the class {@link java.sql.ResultSet#getObject(int)} would
+   * return for the common types. Dates and times, and the types of codecs registered with
+   * {@link org.postgresql.PGConnection#addBinaryCodec}, are decoded when the decoder was created
+   * with a connection; other values are returned as strings, or as bytes when in binary format.
+   *
+   * @param column the column index, from 0
+   * @return the value, or null
+   * @throws SQLException if the value was not sent or cannot be decoded
+   */
+  public Object getObject(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return null;
+    }
+    int oid = relation.getColumnType(column);
+    boolean binary = kinds[column] == BINARY;
+    switch (oid) {
+      case Oid.BOOL:
+        return getBoolean(column);
+      case Oid.INT2:
+      case Oid.INT4:
+        return getInt(column);
+      case Oid.INT8:
+      case Oid.OID:
+        return getLong(column);
+      case Oid.FLOAT4:
+        return (float) getDouble(column);
+      case Oid.FLOAT8:
+        return getDouble(column);
+      case Oid.NUMERIC:
+        if (binary) {
+          loadValue(column);
+          return ByteConverter.numeric(valueArray, valueOffset);
+        }
+        String numeric = decodeString(column, 0);
+        return "NaN".equals(numeric) ? (Object) Double.NaN : getBigDecimal(column);
+      case Oid.CHAR:
+      case Oid.BPCHAR:
+      case Oid.VARCHAR:
+      case Oid.TEXT:
+      case Oid.NAME:
+      case Oid.JSON:
+      case Oid.JSONB:
+      case Oid.XML:
+        return getString(column);
+      case Oid.BYTEA:
+        return getBytes(column);
+      case Oid.UUID:
+        if (binary) {
+          int offset = offsets[column];
+          return new UUID(buffer.getLong(offset), buffer.getLong(offset + 8));
+        }
+        try {
+          return UUID.fromString(decodeString(column, 0));
+        } catch (IllegalArgumentException e) {
+          throw badValue(column, "uuid");
+        }
+      default:
+        break;
+    }
+
+    BaseConnection connection = decoder.getConnection();
+    if (connection == null) {
+      return binary ? getBytes(column) : decodeString(column, 0);
+    }
+    TimestampUtils timestampUtils = connection.getTimestampUtils();
+    switch (oid) {
+      case Oid.DATE:
+        return binary ? timestampUtils.toDateBin(null, getBytes(column))
+            : timestampUtils.toDate(null, decodeString(column, 0));
+      case Oid.TIME:
+      case Oid.TIMETZ:
+        return binary ? timestampUtils.toTimeBin(null, getBytes(column))
+            : timestampUtils.toTime(null, decodeString(column, 0));
+      case Oid.TIMESTAMP:
+      case Oid.TIMESTAMPTZ:
+        if (binary) {
+          return timestampUtils.toTimestampBin(null, getBytes(column), oid == Oid.TIMESTAMPTZ);
+        }
+        return timestampUtils.toTimestamp(null, decodeString(column, 0));
+      default:
+        break;
+    }
+
+    String typeName = decoder.getTypeName(oid);
+    if (binary) {
+      PGBinaryCodec<?> codec = connection.getTypeInfo().getBinaryCodec(typeName);
+      if (codec == null) {
+        return getBytes(column);
+      }
+      loadValue(column);
+      return codec.decode(valueArray, valueOffset, lengths[column]);
+    }
+    return connection.getObject(typeName, decodeString(column, 0), null);
+  }
+
+  private byte kind(int column) {
+    if (column < 0 || column >= columnCount) {
+      throw new IndexOutOfBoundsException("Column: " + column + ", Count: " + columnCount);
+    }
+    return kinds[column];
+  }
+
+  /**
+   * @return false if the value is null
+   * @throws PSQLException if the value was not sent
+   */
+  private boolean hasValue(int column) throws PSQLException {
+    byte kind = kind(column);
+    if (kind == UNCHANGED_TOAST) {
+      throw new PSQLException(
+          GT.tr("The value of column {0} did not change and was not sent.",
+              relation.getColumnName(column)),
+          PSQLState.OBJECT_NOT_IN_STATE);
+    }
+    return kind != NULL;
+  }
+
+  /**
+   * Makes the value available in {@link #valueArray} from {@link #valueOffset} on, copying it only
+   * when the buffer is not backed by an array.
+   */
+  private void loadValue(int column) {
+    int length = lengths[column];
+    if (buffer.hasArray()) {
+      valueArray = buffer.array();
+      valueOffset = buffer.arrayOffset() + offsets[column];
+      return;
+    }
+    byte[] scratch = decoder.getScratch(length);
+    int offset = offsets[column];
+    for (int i = 0; i < length; i++) {
+      scratch[i] = buffer.get(offset + i);
+    }
+    valueArray = scratch;
+    valueOffset = 0;
+  }
+
+  private String decodeString(int column, int skip) throws SQLException {
+    loadValue(column);
+    try {
+      return decoder.getEncoding().decode(valueArray, valueOffset + skip, lengths[column] - skip);
+    } catch (IOException ioe) {
+      throw new PSQLException(
+          GT.tr("Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."),
+          PSQLState.DATA_ERROR, ioe);
+    }
+  }
+
+  private PSQLException badValue(int column, String type) throws SQLException {
+    String value = kinds[column] == TEXT ? decodeString(column, 0)
+        : lengths[column] + " bytes";
+    return new PSQLException(GT.tr("Bad value for type {0} : {1}", type, value),
+        PSQLState.DATA_TYPE_MISMATCH);
+  }
+}
@@ -39,7 +39,7 @@ public class MakeSSL extends ObjectFactory {
     if (classname == null) {
       // If sslmode is set, use the libpq compatible factory
       if (sslmode != null) {
-        factory = new LibPQFactory(info);
+        factory = LibPQFactory.getInstance(info);
       } else {
         factory = (SSLSocketFactory) SSLSocketFactory.getDefault();
       }
@@ -62,6 +62,7 @@ public class MakeSSL extends ObjectFactory {
       newConnection.startHandshake();
     } catch (IOException ex) {
       if (factory instanceof LibPQFactory) { // throw any KeyManager exception
+        ((LibPQFactory) factory).evict();
         ((LibPQFactory) factory).throwKeyManagerException();
       }
       throw new PSQLException(GT.tr("SSL error: {0}", ex.getMessage()),
@@ -44,7 +44,8 @@ import javax.security.auth.callback.UnsupportedCallbackException;
 import javax.security.auth.x500.X500Principal;
 
 /**
- * A Key manager that only loads the keys, if necessary.
+ * A Key manager that only loads the keys, if necessary. It may be shared by concurrent connections
+ * through {@link LibPQFactory#getInstance}.
  */
 public class LazyKeyManager implements X509KeyManager {
   private X509Certificate[] cert = null;
@@ -77,7 +78,7 @@ public class LazyKeyManager implements X509KeyManager {
    *
    * @throws PSQLException if any exception is stored in {@link #error} and can be raised
    */
-  public void throwKeyManagerException() throws PSQLException {
+  public synchronized void throwKeyManagerException() throws PSQLException {
     if (error != null) {
       throw error;
     }
@@ -119,7 +120,7 @@ public class LazyKeyManager implements X509KeyManager {
   }
 
   @Override
-  public X509Certificate[] getCertificateChain(String alias) {
+  public synchronized X509Certificate[] getCertificateChain(String alias) {
     if (cert == null && certfile != null) {
       // If certfile is null, we do not load the certificate
       // The certificate must be loaded
@@ -161,7 +162,7 @@ public class LazyKeyManager implements X509KeyManager {
   }
 
   @Override
-  public PrivateKey getPrivateKey(String alias) {
+  public synchronized PrivateKey getPrivateKey(String alias) {
     RandomAccessFile raf = null;
     try {
       if (key == null && keyfile != null) {
@@ -14,6 +14,7 @@ import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 
 import java.io.Console;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -26,8 +27,11 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import javax.naming.InvalidNameException;
@@ -53,8 +57,22 @@ public class LibPQFactory extends WrappedFactory implements HostnameVerifier {
 
   private static final int ALT_DNS_NAME = 2;
 
+  private static final int CACHE_SIZE = 16;
+
+  // SSL settings -> factory. Sharing a factory shares its SSLContext, so the key and certificate
+  // files are read once, and the client session cache of the context lets later connections to a
+  // server resume the TLS session instead of going through a full handshake.
+  private static final Map<List<Object>, LibPQFactory> CACHE =
+      new LinkedHashMap<List<Object>, LibPQFactory>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, LibPQFactory> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
   LazyKeyManager km = null;
   String sslmode;
+  private List<Object> cacheKey;
 
   /**
    * @param info the connection parameters The following parameters are used:
@@ -66,15 +84,8 @@ public class LibPQFactory extends WrappedFactory implements HostnameVerifier {
       sslmode = PGProperty.SSL_MODE.get(info);
       SSLContext ctx = SSLContext.getInstance("TLS"); // or "SSL" ?
 
-      // Determinig the default file location
-      String pathsep = System.getProperty("file.separator");
-      String defaultdir;
+      String defaultdir = defaultDirectory();
       boolean defaultfile = false;
-      if (System.getProperty("os.name").toLowerCase().contains("windows")) { // It is Windows
-        defaultdir = System.getenv("APPDATA") + pathsep + "postgresql" + pathsep;
-      } else {
-        defaultdir = System.getProperty("user.home") + pathsep + ".postgresql" + pathsep;
-      }
 
       // Load the client's certificate and key
       String sslcertfile = PGProperty.SSL_CERT.get(info);
@@ -178,6 +189,78 @@ public class LibPQFactory extends WrappedFactory implements HostnameVerifier {
     }
   }
 
+  /**
+   * Returns a factory for the given connection parameters, sharing it with earlier connections
+   * made with the same SSL settings as long as the key and certificate files did not change.
+   * Factories given a {@code sslpassword} or a {@code sslpasswordcallback} are never shared: the
+   * password, or the callback handler built from the connection properties with their user and
+   * password, must not be kept in the static cache after the connection closes nor be reused for
+   * other users.
+   *
+   * @param info the connection parameters, see {@link #LibPQFactory(Properties)}
+   * @return a factory, possibly shared
+   * @throws PSQLException if security error appears when initializing factory
+   */
+  public static LibPQFactory getInstance(Properties info) throws PSQLException {
+    if (PGProperty.SSL_PASSWORD.get(info) != null
+        || PGProperty.SSL_PASSWORD_CALLBACK.get(info) != null) {
+      return new LibPQFactory(info);
+    }
+    List<Object> key = cacheKey(info);
+    synchronized (CACHE) {
+      LibPQFactory factory = CACHE.get(key);
+      if (factory != null) {
+        return factory;
+      }
+    }
+    LibPQFactory factory = new LibPQFactory(info);
+    factory.cacheKey = key;
+    synchronized (CACHE) {
+      CACHE.put(key, factory);
+    }
+    return factory;
+  }
+
+  /**
+   * Stops sharing this factory with later connections, for instance after a failed handshake, so
+   * that the next connection reads the key and certificate files again.
+   */
+  public void evict() {
+    synchronized (CACHE) {
+      if (cacheKey != null && CACHE.get(cacheKey) == this) {
+        CACHE.remove(cacheKey);
+      }
+    }
+  }
+
+  private static List<Object> cacheKey(Properties info) {
+    String defaultdir = defaultDirectory();
+    String sslcertfile = PGProperty.SSL_CERT.get(info);
+    String sslkeyfile = PGProperty.SSL_KEY.get(info);
+    String sslrootcertfile = PGProperty.SSL_ROOT_CERT.get(info);
+    return Arrays.<Object>asList(
+        PGProperty.SSL_MODE.get(info),
+        sslcertfile,
+        sslkeyfile,
+        sslrootcertfile,
+        // replaced key or certificate files are picked up by new connections
+        lastModified(sslcertfile == null ? defaultdir + "postgresql.crt" : sslcertfile),
+        lastModified(sslkeyfile == null ? defaultdir + "postgresql.pk8" : sslkeyfile),
+        lastModified(sslrootcertfile == null ? defaultdir + "root.crt" : sslrootcertfile));
+  }
+
+  private static long lastModified(String file) {
+    return "".equals(file) ? 0 : new File(file).lastModified(); // NOSONAR
+  }
+
+  private static String defaultDirectory() {
+    String pathsep = System.getProperty("file.separator");
+    if (System.getProperty("os.name").toLowerCase().contains("windows")) { // It is Windows
+      return System.getenv("APPDATA") + pathsep + "postgresql" + pathsep;
+    }
+    return System.getProperty("user.home") + pathsep + ".postgresql" + pathsep;
+  }
+
   /**
    * Propagates any exception from {@link LazyKeyManager}
    *
@@ -5,6 +5,10 @@
 
 package org.postgresql.util;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
 /**
  * Helper methods to parse java base types from byte arrays.
  *
@@ -12,6 +16,11 @@ package org.postgresql.util;
  */
 public class ByteConverter {
 
+  private static final int NBASE = 10000;
+  private static final BigInteger BIG_NBASE = BigInteger.valueOf(NBASE);
+  private static final int NUMERIC_NEG = 0x4000;
+  private static final int NUMERIC_NAN = 0xC000;
+
   private ByteConverter() {
     // prevent instantiation of static helper class
   }
@@ -96,6 +105,53 @@ public class ByteConverter {
     return Double.longBitsToDouble(int8(bytes, idx));
   }
 
+  /**
+   * Parses a numeric value from the byte array. The value is in the format of the backend's
+   * {@code numeric_send}: a header of four int2 (digit count, weight of the first digit, sign and
+   * display scale) followed by the digits in base 10000.
+   *
+   * @param bytes The byte array to parse.
+   * @param idx The starting index of the parse in the byte array.
+   * @return parsed value, {@link Double#NaN} for {@code NaN} and a {@link BigDecimal} otherwise.
+   */
+  public static Number numeric(byte[] bytes, int idx) {
+    int ndigits = int2(bytes, idx);
+    int weight = int2(bytes, idx + 2);
+    int sign = int2(bytes, idx + 4) & 0xFFFF;
+    int dscale = int2(bytes, idx + 6);
+
+    if (sign == NUMERIC_NAN) {
+      return Double.NaN;
+    }
+
+    long unscaled = 0;
+    BigInteger bigUnscaled = null;
+    int pos = idx + 8;
+    for (int i = 0; i < ndigits; i++, pos += 2) {
+      int digit = int2(bytes, pos);
+      // 4 more decimal digits fit as long as the value stays below 10^14
+      if (bigUnscaled == null && unscaled < 100000000000000L) {
+        unscaled = unscaled * NBASE + digit;
+      } else {
+        if (bigUnscaled == null) {
+          bigUnscaled = BigInteger.valueOf(unscaled);
+        }
+        bigUnscaled = bigUnscaled.multiply(BIG_NBASE).add(BigInteger.valueOf(digit));
+      }
+    }
+
+    // the last digit has weight (weight - ndigits + 1), every weight unit is 4 decimal digits
+    int scale = 4 * (ndigits - 1 - weight);
+    BigDecimal value = bigUnscaled == null
+        ? BigDecimal.valueOf(unscaled, scale)
+        : new BigDecimal(bigUnscaled, scale);
+    if (sign == NUMERIC_NEG) {
+      value = value.negate();
+    }
+    // digits are padded to multiples of 4, drop or add zeros to get the display scale
+    return value.setScale(dscale, RoundingMode.DOWN);
+  }
+
   /**
    * Encodes a long value to the byte array.
    *
@@ -15,9 +15,23 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 public class HStoreConverter {
+  /**
+   * Binary codec for hstore values. Values are decoded into a {@code Map<String, String>} view
+   * that only decodes the keys and values that are looked up, and maps are encoded without
+   * intermediate copies. Register it with
+   * {@link org.postgresql.PGConnection#addBinaryCodec(String, PGBinaryCodec)} to transfer hstore
+   * in binary format, as the type is an extension and has no fixed OID.
+   */
+  public static final PGBinaryCodec<Map<String, String>> BINARY_CODEC = new BinaryCodec();
+
   public static Map<String, String> fromBytes(byte[] b, Encoding encoding) throws SQLException {
+    return fromBytes(b, 0, encoding);
+  }
+
+  public static Map<String, String> fromBytes(byte[] b, int offset, Encoding encoding)
+      throws SQLException {
     Map<String, String> m = new HashMap<String, String>();
-    int pos = 0;
+    int pos = offset;
     int numElements = ByteConverter.int4(b, pos);
     pos += 4;
     try {
@@ -47,6 +61,12 @@ public class HStoreConverter {
   }
 
   public static byte[] toBytes(Map<?, ?> m, Encoding encoding) throws SQLException {
+    if ("UTF-8".equals(encoding.name())) {
+      byte[] bytes = new byte[utf8Length(m)];
+      writeUtf8(m, bytes, 0);
+      return bytes;
+    }
+
     ByteArrayOutputStream baos = new ByteArrayOutputStream(4 + 10 * m.size());
     byte[] lenBuf = new byte[4];
     try {
@@ -77,6 +97,86 @@ public class HStoreConverter {
     return baos.toByteArray();
   }
 
+  private static int utf8Length(Map<?, ?> m) {
+    int length = 4;
+    for (Entry<?, ?> e : m.entrySet()) {
+      length += 8 + utf8Length(e.getKey().toString());
+      if (e.getValue() != null) {
+        length += utf8Length(e.getValue().toString());
+      }
+    }
+    return length;
+  }
+
+  private static void writeUtf8(Map<?, ?> m, byte[] bytes, int pos) {
+    ByteConverter.int4(bytes, pos, m.size());
+    pos += 4;
+    for (Entry<?, ?> e : m.entrySet()) {
+      String key = e.getKey().toString();
+      ByteConverter.int4(bytes, pos, utf8Length(key));
+      pos = writeUtf8(key, bytes, pos + 4);
+
+      if (e.getValue() == null) {
+        ByteConverter.int4(bytes, pos, -1);
+        pos += 4;
+      } else {
+        String val = e.getValue().toString();
+        ByteConverter.int4(bytes, pos, utf8Length(val));
+        pos = writeUtf8(val, bytes, pos + 4);
+      }
+    }
+  }
+
+  /**
+   * Computes the length of the UTF-8 encoding of a string, unpaired surrogates are replaced by
+   * {@code '?'} just like {@link String#getBytes(String)} does.
+   */
+  private static int utf8Length(String s) {
+    int length = s.length();
+    for (int i = 0; i < s.length(); i++) {
+      char ch = s.charAt(i);
+      if (ch >= 0x80) {
+        if (ch < 0x800) {
+          length += 1;
+        } else if (Character.isHighSurrogate(ch) && i + 1 < s.length()
+            && Character.isLowSurrogate(s.charAt(i + 1))) {
+          // 4 bytes for the pair
+          length += 2;
+          i++;
+        } else if (ch < Character.MIN_SURROGATE || ch > Character.MAX_SURROGATE) {
+          length += 2;
+        }
+      }
+    }
+    return length;
+  }
+
+  private static int writeUtf8(String s, byte[] bytes, int pos) {
+    for (int i = 0; i < s.length(); i++) {
+      char ch = s.charAt(i);
+      if (ch < 0x80) {
+        bytes[pos++] = (byte) ch;
+      } else if (ch < 0x800) {
+        bytes[pos++] = (byte) (0xC0 | (ch >> 6));
+        bytes[pos++] = (byte) (0x80 | (ch & 0x3F));
+      } else if (Character.isHighSurrogate(ch) && i + 1 < s.length()
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int cp = Character.toCodePoint(ch, s.charAt(++i));
+        bytes[pos++] = (byte) (0xF0 | (cp >> 18));
+        bytes[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+        bytes[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        bytes[pos++] = (byte) (0x80 | (cp & 0x3F));
+      } else if (ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+        bytes[pos++] = '?';
+      } else {
+        bytes[pos++] = (byte) (0xE0 | (ch >> 12));
+        bytes[pos++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+        bytes[pos++] = (byte) (0x80 | (ch & 0x3F));
+      }
+    }
+    return pos;
+  }
+
   public static String toString(Map<?, ?> map) {
     if (map.isEmpty()) {
       return "";
@@ -150,4 +250,29 @@ public class HStoreConverter {
     }
     return pos;
   }
+
+  private static class BinaryCodec implements PGBinaryCodec<Map<String, String>> {
+    private static final Encoding ENCODING = Encoding.getJVMEncoding("UTF-8");
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Class<Map<String, String>> getJavaClass() {
+      return (Class<Map<String, String>>) (Class<?>) Map.class;
+    }
+
+    @Override
+    public int lengthInBytes(Map<String, String> value) {
+      return utf8Length(value);
+    }
+
+    @Override
+    public void encode(Map<String, String> value, byte[] bytes, int offset) {
+      writeUtf8(value, bytes, offset);
+    }
+
+    @Override
+    public Map<String, String> decode(byte[] bytes, int offset, int length) throws SQLException {
+      return new LazyHStoreMap(bytes, offset, length, ENCODING);
+    }
+  }
 }
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.util;
+
+import org.postgresql.core.Encoding;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-mostly view of a binary hstore value. Building the view only records where the keys and
+ * values are, a key or value is decoded the first time it is looked up. Operations that need all
+ * entries (iteration, {@code equals}, {@code toString}, ...) and modifications decode the whole
+ * value into a {@link HashMap} once and delegate to it from then on.
+ *
+ * <p>The view keeps a reference to the buffer it was created from, which must not be modified
+ * afterwards. Like {@link HashMap}, it is not thread-safe. Decoding errors surface as
+ * {@link IllegalStateException} since {@link Map} methods cannot throw checked exceptions.</p>
+ */
+final class LazyHStoreMap extends AbstractMap<String, String> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  // four ints per entry: key offset, key length, value offset, value length (-1 for NULL)
+  private static final int KEY_OFFSET = 0;
+  private static final int KEY_LENGTH = 1;
+  private static final int VALUE_OFFSET = 2;
+  private static final int VALUE_LENGTH = 3;
+  private static final int ENTRY_SIZE = 4;
+
+  private final transient byte[] bytes;
+  private final transient Encoding encoding;
+  private final transient int[] index;
+  private final transient int size;
+  // the backend sends keys ordered by length and then bytes, which allows binary search
+  private final transient boolean sorted;
+  private transient String[] values;
+  private transient Map<String, String> materialized;
+
+  LazyHStoreMap(byte[] bytes, int offset, int length, Encoding encoding) throws PSQLException {
+    this.bytes = bytes;
+    this.encoding = encoding;
+
+    int end = offset + length;
+    if (length < 4) {
+      throw badEncoding();
+    }
+    size = ByteConverter.int4(bytes, offset);
+    if (size < 0 || size > (length - 4) / 8) {
+      throw badEncoding();
+    }
+    index = new int[size * ENTRY_SIZE];
+
+    boolean ordered = true;
+    int pos = offset + 4;
+    for (int i = 0, e = 0; i < size; i++, e += ENTRY_SIZE) {
+      if (pos + 4 > end) {
+        throw badEncoding();
+      }
+      int keyLength = ByteConverter.int4(bytes, pos);
+      pos += 4;
+      if (keyLength < 0 || pos + keyLength + 4 > end) {
+        throw badEncoding();
+      }
+      index[e + KEY_OFFSET] = pos;
+      index[e + KEY_LENGTH] = keyLength;
+      pos += keyLength;
+
+      int valueLength = ByteConverter.int4(bytes, pos);
+      pos += 4;
+      if (valueLength < -1 || pos + Math.max(valueLength, 0) > end) {
+        throw badEncoding();
+      }
+      index[e + VALUE_OFFSET] = pos;
+      index[e + VALUE_LENGTH] = valueLength;
+      if (valueLength > 0) {
+        pos += valueLength;
+      }
+
+      if (ordered && i > 0) {
+        ordered = compareKey(bytes, index[e + KEY_OFFSET], keyLength, e - ENTRY_SIZE) > 0;
+      }
+    }
+    sorted = ordered;
+  }
+
+  private static PSQLException badEncoding() {
+    return new PSQLException(GT.tr("Unsupported binary encoding of {0}.", "hstore"),
+        PSQLState.DATA_ERROR);
+  }
+
+  /**
+   * Compares a key with the key of an entry the way hstore orders them: shorter keys first, keys of
+   * the same length by their bytes.
+   */
+  private int compareKey(byte[] key, int keyOffset, int keyLength, int entry) {
+    int otherLength = index[entry + KEY_LENGTH];
+    if (keyLength != otherLength) {
+      return keyLength < otherLength ? -1 : 1;
+    }
+    int otherOffset = index[entry + KEY_OFFSET];
+    for (int i = 0; i < keyLength; i++) {
+      int a = key[keyOffset + i] & 0xFF;
+      int b = bytes[otherOffset + i] & 0xFF;
+      if (a != b) {
+        return a < b ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private int indexOf(Object key) {
+    if (!(key instanceof String)) {
+      return -1;
+    }
+    byte[] k;
+    try {
+      k = encoding.encode((String) key);
+    } catch (IOException ioe) {
+      throw new IllegalStateException(ioe);
+    }
+
+    if (sorted) {
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = compareKey(k, 0, k.length, mid * ENTRY_SIZE);
+        if (cmp == 0) {
+          return mid;
+        }
+        if (cmp > 0) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return -1;
+    }
+
+    for (int i = 0; i < size; i++) {
+      if (compareKey(k, 0, k.length, i * ENTRY_SIZE) == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private String decode(int offset, int length) {
+    try {
+      return encoding.decode(bytes, offset, length);
+    } catch (IOException ioe) {
+      throw new IllegalStateException(ioe);
+    }
+  }
+
+  private String valueAt(int i) {
+    int e = i * ENTRY_SIZE;
+    int valueLength = index[e + VALUE_LENGTH];
+    if (valueLength == -1) {
+      return null;
+    }
+    if (values == null) {
+      values = new String[size];
+    }
+    String value = values[i];
+    if (value == null) {
+      value = decode(index[e + VALUE_OFFSET], valueLength);
+      values[i] = value;
+    }
+    return value;
+  }
+
+  private Map<String, String> materialize() {
+    if (materialized == null) {
+      Map<String, String> map = new HashMap<String, String>(size * 4 / 3 + 1);
+      for (int i = 0; i < size; i++) {
+        int e = i * ENTRY_SIZE;
+        map.put(decode(index[e + KEY_OFFSET], index[e + KEY_LENGTH]), valueAt(i));
+      }
+      materialized = map;
+      values = null;
+    }
+    return materialized;
+  }
+
+  @Override
+  public String get(Object key) {
+    if (materialized != null) {
+      return materialized.get(key);
+    }
+    int i = indexOf(key);
+    return i < 0 ? null : valueAt(i);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (materialized != null) {
+      return materialized.containsKey(key);
+    }
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return materialized != null ? materialized.size() : size;
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return materialize().entrySet();
+  }
+
+  @Override
+  public String put(String key, String value) {
+    return materialize().put(key, value);
+  }
+
+  @Override
+  public String remove(Object key) {
+    return materialize().remove(key);
+  }
+
+  @Override
+  public void putAll(Map<? extends String, ? extends String> m) {
+    materialize().putAll(m);
+  }
+
+  @Override
+  public void clear() {
+    materialize().clear();
+  }
+
+  private Object writeReplace() {
+    return new HashMap<String, String>(materialize());
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.util;
+
+import java.sql.SQLException;
+
+/**
+ * A PGBinaryCodec converts values of a PostgreSQL data type between their binary wire format and a
+ * Java object, without a round trip through the text representation used by {@link PGobject}.
+ *
+ * <p>Codecs are registered per type name with
+ * {@link org.postgresql.PGConnection#addBinaryCodec(String, PGBinaryCodec)}. Once registered, the
+ * type is transferred in binary format (unless binary transfer is disabled for it), values are
+ * decoded straight from the row data by {@code ResultSet.getObject} and instances of
+ * {@link #getJavaClass()} passed to {@code PreparedStatement.setObject} are encoded directly into
+ * the parameter buffer. Values that still arrive in text format, for instance in simple query
+ * mode, fall back to the {@link PGobject} handling of the type.</p>
+ *
+ * <p>Any text embedded in a binary value is in the client encoding, which is always UTF-8 for
+ * this driver.</p>
+ *
+ * <p>Implementations must be stateless and thread-safe, as a single codec instance may be shared
+ * by several connections.</p>
+ *
+ * @param <T> the Java type values are decoded into
+ */
+public interface PGBinaryCodec<T> {
+  /**
+   * Returns the class of the values handled by this codec. {@code PreparedStatement.setObject}
+   * uses it to find the codec for a parameter value.
+   *
+   * @return the Java class of decoded values
+   */
+  Class<T> getJavaClass();
+
+  /**
+   * Returns the number of bytes {@link #encode} needs to store the given value.
+   *
+   * @param value the value to encode, never null
+   * @return the length of the binary representation of the value
+   * @throws SQLException if the value cannot be represented by the type
+   */
+  int lengthInBytes(T value) throws SQLException;
+
+  /**
+   * Stores the binary representation of the value in the given buffer.
+   *
+   * @param value the value to encode, never null
+   * @param bytes the buffer to store the value in, it is guaranteed to have at least
+   *        {@link #lengthInBytes} bytes available after {@code offset}
+   * @param offset the offset in the buffer where the value must be stored
+   * @throws SQLException if the value cannot be represented by the type
+   */
+  void encode(T value, byte[] bytes, int offset) throws SQLException;
+
+  /**
+   * Creates a value from its binary representation.
+   *
+   * @param bytes the buffer containing the value
+   * @param offset the offset in the buffer where the value starts
+   * @param length the length of the binary representation
+   * @return the decoded value
+   * @throws SQLException if the bytes do not hold a valid value of the type
+   */
+  T decode(byte[] bytes, int offset, int length) throws SQLException;
+}
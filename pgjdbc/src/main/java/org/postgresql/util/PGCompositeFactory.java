@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.util;
+
+import java.sql.SQLException;
+
+/**
+ * A PGCompositeFactory builds Java objects from the attributes of a composite (row) value, such as
+ * a column of a {@code CREATE TYPE ... AS (...)} type or a {@code ROW(...)} expression.
+ *
+ * <p>Factories are registered per type name with
+ * {@link org.postgresql.PGConnection#addCompositeType(String, PGCompositeFactory)}. Values of the
+ * type, and elements of arrays of the type, are then returned by {@code ResultSet.getObject} and
+ * {@code Array.getArray} as instances of {@link #getJavaClass()}. The values are read from the
+ * binary record format when available, so the driver never has to tokenize the text
+ * representation.</p>
+ *
+ * <p>The attributes are converted the same way {@code ResultSet.getObject} converts columns:
+ * numbers to their boxed type ({@code numeric} to {@link java.math.BigDecimal}), character types
+ * to {@link String}, {@code bytea} to {@code byte[]}, date and time types to their
+ * {@code java.sql} type, arrays to Java arrays and nested composites through their own factory.
+ * Types the driver cannot decode from the binary format make the value fail to decode; exclude
+ * the composite type with the {@code binaryTransferDisable} connection property in that case.</p>
+ *
+ * @param <T> the Java type composite values are converted into
+ */
+public interface PGCompositeFactory<T> {
+  /**
+   * Returns the class of the objects created by this factory, which is used as component type of
+   * arrays of the composite type.
+   *
+   * @return the Java class of created objects
+   */
+  Class<T> getJavaClass();
+
+  /**
+   * Creates an object from the attributes of a composite value.
+   *
+   * @param attributeNames the attribute names in declaration order, or null for anonymous
+   *        {@code record} values. The array is shared and must not be modified.
+   * @param attributes the attribute values in declaration order, null for SQL NULL. Anonymous
+   *        {@code record} values received in text format do not carry attribute types, so their
+   *        attributes are passed as strings.
+   * @return the object representing the composite value
+   * @throws SQLException if the attributes cannot be mapped
+   */
+  T create(String[] attributeNames, Object[] attributes) throws SQLException;
+}
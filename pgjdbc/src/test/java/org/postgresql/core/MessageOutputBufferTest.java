@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class MessageOutputBufferTest {
+
+  /**
+   * Counts the writes that reach the socket.
+   */
+  private static class CountingStream extends ByteArrayOutputStream {
+    int writes;
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+      writes++;
+      super.write(b, off, len);
+    }
+
+    @Override
+    public synchronized void write(int b) {
+      writes++;
+      super.write(b);
+    }
+  }
+
+  private static int length(byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+        | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+  }
+
+  private final CountingStream socket = new CountingStream();
+  private final MessageOutputBuffer out = new MessageOutputBuffer(socket, 8192);
+
+  @Test
+  public void testBackPatchedLength() throws IOException {
+    out.startMessage('E');
+    out.write(new byte[]{'p', 0});
+    out.writeInteger4(0x01020304);
+    out.endMessage();
+    out.startMessage('S');
+    out.endMessage();
+    assertEquals(0, socket.writes);
+    out.flush();
+
+    assertEquals(1, socket.writes);
+    assertArrayEquals(
+        new byte[]{'E', 0, 0, 0, 10, 'p', 0, 1, 2, 3, 4, 'S', 0, 0, 0, 4},
+        socket.toByteArray());
+  }
+
+  @Test
+  public void testPipelineIsSentInOneWrite() throws IOException {
+    byte[] value = new byte[100000];
+    Arrays.fill(value, (byte) 'x');
+    for (int i = 0; i < 5; i++) {
+      out.startMessage('B');
+      out.writeInteger2(1);
+      out.writeInteger4(value.length);
+      out.write(value);
+      out.endMessage();
+    }
+    out.flush();
+
+    assertEquals(1, socket.writes);
+    byte[] sent = socket.toByteArray();
+    assertEquals(5 * (1 + 4 + 2 + 4 + value.length), sent.length);
+    assertEquals('B', sent[0]);
+    assertEquals(4 + 2 + 4 + value.length, length(sent, 1));
+  }
+
+  @Test
+  public void testLargeValuesAreWrittenDirectly() throws IOException {
+    byte[] value = new byte[MessageOutputBuffer.MAXIMUM_COALESCED_SIZE + 1];
+    out.write('B');
+    out.writeInteger4(4 + value.length);
+    out.write(value);
+    assertEquals(2, socket.writes);
+    out.write('S');
+    out.writeInteger4(4);
+    out.flush();
+    assertEquals(3, socket.writes);
+    assertEquals(1 + 4 + value.length + 1 + 4, socket.size());
+  }
+
+  @Test
+  public void testLargeMessageStaysWhole() throws IOException {
+    byte[] value = new byte[MessageOutputBuffer.MAXIMUM_COALESCED_SIZE * 2];
+    out.startMessage('P');
+    out.write(value);
+    out.endMessage();
+    assertEquals(0, socket.writes);
+    out.flush();
+    assertEquals(1, socket.writes);
+    byte[] sent = socket.toByteArray();
+    assertEquals(4 + value.length, length(sent, 1));
+  }
+
+  @Test
+  public void testFlushWithOpenMessage() throws IOException {
+    out.startMessage('Q');
+    try {
+      out.flush();
+      fail("flush must not send a message without its length");
+    } catch (IllegalStateException expected) {
+      // ok
+    }
+    out.endMessage();
+    out.flush();
+    assertEquals(5, socket.size());
+  }
+}
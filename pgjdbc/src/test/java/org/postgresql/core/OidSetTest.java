@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class OidSetTest {
+
+  @Test
+  public void testEmpty() {
+    assertEquals(0, OidSet.EMPTY.size());
+    assertFalse(OidSet.EMPTY.contains(Oid.UNSPECIFIED));
+    assertFalse(OidSet.EMPTY.contains(Oid.INT4));
+    assertFalse(OidSet.EMPTY.contains(100000));
+    assertSame(OidSet.EMPTY, OidSet.of(new HashSet<Integer>()));
+  }
+
+  @Test
+  public void testDenseAndSparse() {
+    // -1 stands for OID 4294967295
+    Set<Integer> oids = new HashSet<Integer>(
+        Arrays.asList(Oid.UNSPECIFIED, Oid.INT4, Oid.JSONB, OidSet.DENSE_LIMIT - 1,
+            OidSet.DENSE_LIMIT, 16385, 1000000, Integer.MAX_VALUE, -1, Integer.MIN_VALUE));
+    OidSet set = OidSet.of(oids);
+    assertEquals(oids.size(), set.size());
+    for (int oid : oids) {
+      assertTrue(String.valueOf(oid), set.contains(oid));
+    }
+    assertFalse(set.contains(Oid.INT8));
+    assertFalse(set.contains(OidSet.DENSE_LIMIT + 2));
+    assertFalse(set.contains(-2));
+    assertEquals(new TreeSet<Integer>(oids), set.toSet());
+  }
+
+  @Test
+  public void testRandom() {
+    Random random = new Random(42);
+    Set<Integer> oids = new HashSet<Integer>();
+    for (int i = 0; i < 500; i++) {
+      oids.add(random.nextInt());
+      oids.add(random.nextInt(OidSet.DENSE_LIMIT * 2));
+    }
+    OidSet set = OidSet.of(oids);
+    for (int i = 0; i < 100000; i++) {
+      int oid = i % 2 == 0 ? random.nextInt() : random.nextInt(OidSet.DENSE_LIMIT * 2);
+      assertEquals(oids.contains(oid), set.contains(oid));
+    }
+  }
+
+  @Test
+  public void testCanonical() {
+    OidSet set = OidSet.of(Arrays.asList(Oid.INT4, Oid.TEXT, 20000));
+    assertSame(set, OidSet.of(Arrays.asList(20000, Oid.TEXT, Oid.INT4, Oid.TEXT)));
+    assertSame(set, OidSet.of(Arrays.asList(Oid.INT4, Oid.TEXT)).with(20000));
+    assertSame(set, set.with(Oid.TEXT));
+  }
+}
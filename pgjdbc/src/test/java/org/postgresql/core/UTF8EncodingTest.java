@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+public class UTF8EncodingTest {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final String[] SAMPLES = {
+      "",
+      "a",
+      "Hello world",
+      "0123456789abcdefghijklmnopqrstuvwxyz",
+      "Grüße café",
+      "Hello мир",
+      "你好，世界",
+      "Hi " + new String(Character.toChars(0x1F600)) + " there",
+  };
+
+  private final Encoding encoding = Encoding.getJVMEncoding("UTF-8");
+
+  @Test
+  public void testSkipAscii() {
+    byte[] bytes = new byte[40];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = 'x';
+    }
+    assertEquals(40, UTF8Encoding.skipAscii(bytes, 0, 40));
+    assertEquals(25, UTF8Encoding.skipAscii(bytes, 3, 25));
+    // every position relative to the 8 byte blocks
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) 0xC3;
+      assertEquals(i, UTF8Encoding.skipAscii(bytes, 0, 40));
+      assertEquals(i == 0 ? 40 : i, UTF8Encoding.skipAscii(bytes, 1, 40));
+      bytes[i] = 'x';
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    for (String sample : SAMPLES) {
+      // vary the position of the non ASCII characters relative to the 8 byte blocks
+      for (int pad = 0; pad < 10; pad++) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pad; i++) {
+          sb.append('.');
+        }
+        String s = sb.append(sample).append(sample).toString();
+        byte[] expected = s.getBytes(UTF_8);
+        assertArrayEquals(s, expected, encoding.encode(s));
+        assertArrayEquals(s, expected, Utils.encodeUTF8(s));
+        assertEquals(s, encoding.decode(expected));
+
+        byte[] shifted = new byte[expected.length + 5];
+        System.arraycopy(expected, 0, shifted, 3, expected.length);
+        assertEquals(s, encoding.decode(shifted, 3, expected.length));
+      }
+    }
+  }
+
+  @Test
+  public void testDecodeInvalid() {
+    byte[][] invalid = {
+        {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', (byte) 0x80},
+        {'a', (byte) 0xC3},
+        {'a', (byte) 0xC0, (byte) 0x80},
+        {'a', 'b', 'c', (byte) 0xED, (byte) 0xA0, (byte) 0x80},
+        {(byte) 0xF8, 'a'},
+    };
+    for (byte[] bytes : invalid) {
+      try {
+        encoding.decode(bytes);
+        fail("Expected an IOException for invalid UTF-8");
+      } catch (IOException expected) {
+        // ok
+      }
+    }
+  }
+}
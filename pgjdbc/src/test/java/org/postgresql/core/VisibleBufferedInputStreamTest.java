@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+public class VisibleBufferedInputStreamTest {
+  private static final int INITIAL_SIZE = 8192;
+
+  /**
+   * Returns at most 1000 bytes per read, like a socket would.
+   */
+  private static InputStream chunked(byte[] bytes) {
+    return new ByteArrayInputStream(bytes) {
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        return super.read(b, off, Math.min(len, 1000));
+      }
+    };
+  }
+
+  private static byte[] bytes(int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (i % 251 + 1);
+    }
+    return bytes;
+  }
+
+  @Test
+  public void testShrinksAfterSpike() throws IOException {
+    int spike = 1000000;
+    VisibleBufferedInputStream in =
+        new VisibleBufferedInputStream(chunked(bytes(spike + 100)), INITIAL_SIZE);
+    assertTrue(in.ensureBytes(spike));
+    assertTrue(in.getBuffer().length >= spike);
+    assertEquals(spike, in.skip(spike));
+
+    in.adaptBufferSize();
+    assertEquals(VisibleBufferedInputStream.MAXIMUM_RETAINED_SIZE, in.getBuffer().length);
+    // the demand decays while the following requests need no more than the initial size
+    for (int i = 0; i < 10; i++) {
+      in.adaptBufferSize();
+    }
+    assertEquals(INITIAL_SIZE, in.getBuffer().length);
+
+    // unread bytes are preserved
+    for (int i = 0; i < 100; i++) {
+      assertEquals((spike + i) % 251 + 1, in.read());
+    }
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void testKeepsBufferForSteadyDemand() throws IOException {
+    int size = 20000;
+    VisibleBufferedInputStream in =
+        new VisibleBufferedInputStream(chunked(bytes(size * 10)), INITIAL_SIZE);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(in.ensureBytes(size));
+      byte[] buffer = in.getBuffer();
+      in.skip(size);
+      in.adaptBufferSize();
+      assertEquals(32768, in.getBuffer().length);
+      if (i > 0) {
+        // the buffer is not reallocated on every request
+        assertTrue(buffer == in.getBuffer());
+      }
+    }
+  }
+
+  @Test
+  public void testDoesNotDropUnreadBytes() throws IOException {
+    int size = 50000;
+    byte[] data = bytes(size);
+    VisibleBufferedInputStream in = new VisibleBufferedInputStream(chunked(data), INITIAL_SIZE);
+    assertTrue(in.ensureBytes(size));
+    assertEquals(100, in.skip(100));
+    // more than the target size is still buffered, so the buffer is kept
+    in.adaptBufferSize();
+    in.adaptBufferSize();
+    byte[] rest = new byte[size - 100];
+    assertEquals(rest.length, in.read(rest, 0, rest.length));
+    byte[] expected = new byte[rest.length];
+    System.arraycopy(data, 100, expected, 0, expected.length);
+    assertArrayEquals(expected, rest);
+  }
+
+  @Test
+  public void testLargeReadBypassesBuffer() throws IOException {
+    int size = 1000000;
+    byte[] data = bytes(size);
+    VisibleBufferedInputStream in = new VisibleBufferedInputStream(chunked(data), INITIAL_SIZE);
+    byte[] to = new byte[size];
+    int read = 0;
+    while (read < size) {
+      read += in.read(to, read, size - read);
+    }
+    assertArrayEquals(data, to);
+    assertEquals(INITIAL_SIZE, in.getBuffer().length);
+  }
+
+  @Test
+  public void testScanLongCString() throws IOException {
+    int length = 100000;
+    byte[] data = bytes(length + 1);
+    data[length] = 0;
+    VisibleBufferedInputStream in = new VisibleBufferedInputStream(chunked(data), INITIAL_SIZE);
+    assertEquals(length + 1, in.scanCStringLength());
+    byte[] buffer = in.getBuffer();
+    for (int i = 0; i < length; i++) {
+      assertEquals(data[i], buffer[in.getIndex() + i]);
+    }
+    in.skip(length + 1);
+    in.adaptBufferSize();
+    assertEquals(VisibleBufferedInputStream.MAXIMUM_RETAINED_SIZE, in.getBuffer().length);
+  }
+
+  @Test
+  public void testReadIntoByteBuffer() throws IOException {
+    int size = 100000;
+    byte[] data = bytes(size);
+    for (ByteBuffer to : new ByteBuffer[]{ByteBuffer.allocate(size + 10),
+        ByteBuffer.allocateDirect(size + 10)}) {
+      VisibleBufferedInputStream in = new VisibleBufferedInputStream(chunked(data), INITIAL_SIZE);
+      to.position(10);
+      assertEquals(1, in.read());
+      assertTrue(in.read(to, size - 1));
+      assertEquals(size + 9, to.position());
+      assertFalse(in.read(to, 1));
+
+      byte[] got = new byte[size - 1];
+      to.position(10);
+      to.get(got);
+      byte[] expected = new byte[size - 1];
+      System.arraycopy(data, 1, expected, 0, expected.length);
+      assertArrayEquals(expected, got);
+      assertEquals(INITIAL_SIZE, in.getBuffer().length);
+    }
+  }
+}
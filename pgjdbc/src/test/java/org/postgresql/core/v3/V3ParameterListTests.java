@@ -7,6 +7,8 @@ package org.postgresql.core.v3;
 
 import static org.junit.Assert.assertEquals;
 
+import org.postgresql.core.OidSet;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -33,6 +35,16 @@ public class V3ParameterListTests {
         public boolean useBinaryForReceive(int oid) {
             return false;
         }
+
+        @Override
+        public OidSet getBinarySendOids() {
+            return OidSet.EMPTY;
+        }
+
+        @Override
+        public OidSet getBinaryReceiveOids() {
+            return OidSet.EMPTY;
+        }
     };
   }
 
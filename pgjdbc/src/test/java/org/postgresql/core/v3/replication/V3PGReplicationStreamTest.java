@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core.v3.replication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.copy.CopyDual;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.ReplicationMessageBatch;
+import org.postgresql.replication.ReplicationType;
+import org.postgresql.util.SharedTimer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+public class V3PGReplicationStreamTest {
+
+  /**
+   * Hands out queued messages and records the status updates written back.
+   */
+  private static class FakeCopyDual implements CopyDual {
+    final Queue<byte[]> messages = new LinkedList<byte[]>();
+    final List<byte[]> written = Collections.synchronizedList(new ArrayList<byte[]>());
+
+    @Override
+    public int readFromCopy(ByteBuffer buffer, boolean block) {
+      byte[] message = messages.peek();
+      if (message == null) {
+        return -1;
+      }
+      if (message.length <= buffer.remaining()) {
+        buffer.put(message);
+        messages.poll();
+      }
+      return message.length;
+    }
+
+    @Override
+    public int readPartFromCopy(ByteBuffer buffer, boolean block) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public byte[] readFromCopy() {
+      return messages.poll();
+    }
+
+    @Override
+    public byte[] readFromCopy(boolean block) {
+      return messages.poll();
+    }
+
+    @Override
+    public void writeToCopy(byte[] buf, int off, int siz) {
+      byte[] data = new byte[siz];
+      System.arraycopy(buf, off, data, 0, siz);
+      written.add(data);
+    }
+
+    @Override
+    public void flushCopy() {
+    }
+
+    @Override
+    public long endCopy() {
+      return 0;
+    }
+
+    @Override
+    public int getFieldCount() {
+      return 0;
+    }
+
+    @Override
+    public int getFormat() {
+      return 0;
+    }
+
+    @Override
+    public int getFieldFormat(int field) {
+      return 0;
+    }
+
+    @Override
+    public boolean isActive() {
+      return true;
+    }
+
+    @Override
+    public void cancelCopy() {
+    }
+
+    @Override
+    public long getHandledRowCount() {
+      return 0;
+    }
+  }
+
+  private static byte[] xLogData(long startLsn, String payload) {
+    byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer message = ByteBuffer.allocate(25 + data.length);
+    message.put((byte) 'w').putLong(startLsn).putLong(startLsn + 100).putLong(0).put(data);
+    return message.array();
+  }
+
+  private static byte[] keepAlive(long serverLsn, boolean replyRequired) {
+    ByteBuffer message = ByteBuffer.allocate(18);
+    message.put((byte) 'k').putLong(serverLsn).putLong(0).put((byte) (replyRequired ? 1 : 0));
+    return message.array();
+  }
+
+  private static String text(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private final FakeCopyDual copyDual = new FakeCopyDual();
+  private final V3PGReplicationStream stream = new V3PGReplicationStream(copyDual,
+      LogSequenceNumber.valueOf(1), 0, ReplicationType.LOGICAL);
+
+  @Test
+  public void testBatchReadsPendingMessages() throws SQLException {
+    copyDual.messages.add(xLogData(10, "first"));
+    copyDual.messages.add(keepAlive(20, false));
+    copyDual.messages.add(xLogData(30, "second"));
+    ReplicationMessageBatch batch = new ReplicationMessageBatch(ByteBuffer.allocateDirect(1024), 8);
+
+    assertEquals(2, stream.readPending(batch));
+    assertEquals("first", text(batch.getMessage(0)));
+    assertEquals("second", text(batch.getMessage(1)));
+    assertEquals(25, batch.getOffset(0));
+    assertEquals(6, batch.getLength(1));
+    assertEquals(LogSequenceNumber.valueOf(10), batch.getLSN(0));
+    assertEquals(LogSequenceNumber.valueOf(30), stream.getLastReceiveLSN());
+
+    assertEquals(0, stream.readPending(batch));
+    assertEquals(0, batch.size());
+  }
+
+  @Test
+  public void testKeepAliveIsAnswered() throws SQLException {
+    copyDual.messages.add(keepAlive(50, true));
+    copyDual.messages.add(xLogData(60, "data"));
+    ReplicationMessageBatch batch = new ReplicationMessageBatch(1024, 8);
+
+    assertEquals(1, stream.read(batch));
+    assertEquals(1, copyDual.written.size());
+    ByteBuffer reply = ByteBuffer.wrap(copyDual.written.get(0));
+    assertEquals('r', reply.get());
+    assertEquals(50, reply.getLong());
+    assertEquals("data", text(batch.getMessage(0)));
+  }
+
+  @Test
+  public void testBatchStopsWhenFull() throws SQLException {
+    for (int i = 0; i < 3; i++) {
+      copyDual.messages.add(xLogData(i + 1, "m" + i));
+    }
+    ReplicationMessageBatch batch = new ReplicationMessageBatch(1024, 2);
+    assertEquals(2, stream.readPending(batch));
+    assertEquals(1, stream.readPending(batch));
+    assertEquals("m2", text(batch.getMessage(0)));
+  }
+
+  @Test
+  public void testMessageLargerThanBuffer() throws SQLException {
+    copyDual.messages.add(xLogData(1, "small"));
+    copyDual.messages.add(xLogData(2, "a message that does not fit"));
+    ReplicationMessageBatch batch = new ReplicationMessageBatch(40, 8);
+
+    // the message that does not fit is left for the next read
+    assertEquals(1, stream.readPending(batch));
+    try {
+      stream.readPending(batch);
+      fail("a message larger than the buffer cannot be read");
+    } catch (SQLException expected) {
+      // ok
+    }
+    ReplicationMessageBatch larger = new ReplicationMessageBatch(100, 8);
+    assertEquals(1, stream.readPending(larger));
+    assertEquals("a message that does not fit", text(larger.getMessage(0)));
+    assertNull(copyDual.messages.peek());
+  }
+
+  @Test
+  public void testBackgroundStatusUpdates() throws Exception {
+    SharedTimer timer = new SharedTimer();
+    V3PGReplicationStream background = new V3PGReplicationStream(copyDual,
+        LogSequenceNumber.valueOf(1), 20, ReplicationType.LOGICAL, timer);
+    background.setFlushedLSN(LogSequenceNumber.valueOf(5));
+    assertEquals(1, timer.getRefCount());
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (copyDual.written.size() < 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertTrue("status updates are sent without reading", copyDual.written.size() >= 2);
+    ByteBuffer update = ByteBuffer.wrap(copyDual.written.get(1));
+    assertEquals(34, update.remaining());
+    assertEquals('r', update.get());
+    assertEquals(1, update.getLong());
+    assertEquals(5, update.getLong());
+    assertEquals(0, update.getLong());
+    long clockMillis = update.getLong() / 1000 + V3PGReplicationStream.POSTGRES_EPOCH_2000_01_01;
+    assertTrue("the clock is in microseconds since 2000",
+        Math.abs(System.currentTimeMillis() - clockMillis) < 60000);
+
+    background.close();
+    assertEquals(0, timer.getRefCount());
+    int sent = copyDual.written.size();
+    Thread.sleep(100);
+    assertEquals(sent, copyDual.written.size());
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.geometric;
+
+import static org.junit.Assert.assertEquals;
+
+import org.postgresql.util.HStoreConverter;
+import org.postgresql.util.PGBinaryCodec;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class GeometricCodecsTest {
+
+  private static <T> T roundTrip(PGBinaryCodec<T> codec, T value) throws SQLException {
+    // encode at an offset to make sure the codecs honour it
+    byte[] bytes = new byte[codec.lengthInBytes(value) + 3];
+    codec.encode(value, bytes, 3);
+    return codec.decode(bytes, 3, bytes.length - 3);
+  }
+
+  @Test
+  public void testPoint() throws SQLException {
+    PGpoint point = new PGpoint(1.5, -2.25);
+    assertEquals(point, roundTrip(GeometricCodecs.POINT, point));
+  }
+
+  @Test
+  public void testLseg() throws SQLException {
+    PGlseg lseg = new PGlseg(1, 2, 3, 4);
+    assertEquals(lseg, roundTrip(GeometricCodecs.LSEG, lseg));
+  }
+
+  @Test
+  public void testBox() throws SQLException {
+    PGbox box = new PGbox(3, 4, 1, 2);
+    assertEquals(box, roundTrip(GeometricCodecs.BOX, box));
+  }
+
+  @Test
+  public void testLine() throws SQLException {
+    PGline line = new PGline(1, -1, 0.5);
+    assertEquals(line, roundTrip(GeometricCodecs.LINE, line));
+  }
+
+  @Test
+  public void testCircle() throws SQLException {
+    PGcircle circle = new PGcircle(1, 2, 3.5);
+    assertEquals(circle, roundTrip(GeometricCodecs.CIRCLE, circle));
+  }
+
+  @Test
+  public void testPath() throws SQLException {
+    PGpoint[] points = {new PGpoint(0, 0), new PGpoint(1, 1), new PGpoint(2, 0)};
+    PGpath open = new PGpath(points, true);
+    assertEquals(open, roundTrip(GeometricCodecs.PATH, open));
+    PGpath closed = new PGpath(points, false);
+    assertEquals(closed, roundTrip(GeometricCodecs.PATH, closed));
+  }
+
+  @Test
+  public void testPolygon() throws SQLException {
+    PGpoint[] points = {new PGpoint(0, 0), new PGpoint(1, 1), new PGpoint(2, 0)};
+    PGpolygon polygon = new PGpolygon(points);
+    assertEquals(polygon, roundTrip(GeometricCodecs.POLYGON, polygon));
+  }
+
+  @Test
+  public void testHStore() throws SQLException {
+    Map<String, String> map = new LinkedHashMap<String, String>();
+    map.put("a", "1");
+    map.put("b", null);
+    map.put("ä", "€");
+    assertEquals(map, roundTrip(HStoreConverter.BINARY_CODEC, map));
+  }
+}
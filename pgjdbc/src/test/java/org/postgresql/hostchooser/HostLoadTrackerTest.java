@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.hostchooser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.util.HostSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class HostLoadTrackerTest {
+  private static final HostSpec FAST = new HostSpec("fast", 5432);
+  private static final HostSpec SLOW = new HostSpec("slow", 5432);
+  private static final HostSpec OTHER = new HostSpec("other", 5432);
+
+  @Before
+  public void setUp() {
+    HostLoadTracker.clear();
+  }
+
+  @Test
+  public void testMovingAverage() {
+    HostLoadTracker.recordLatency(FAST, 1000);
+    assertEquals(1000, HostLoadTracker.getLatencyNanos(FAST));
+    HostLoadTracker.recordLatency(FAST, 2000);
+    assertEquals(1000 + (long) (HostLoadTracker.ALPHA * 1000),
+        HostLoadTracker.getLatencyNanos(FAST));
+  }
+
+  @Test
+  public void testOpenConnections() {
+    HostLoadTracker.connectionOpened(FAST);
+    HostLoadTracker.connectionOpened(FAST);
+    HostLoadTracker.connectionClosed(FAST);
+    assertEquals(1, HostLoadTracker.getOpenConnections(FAST));
+    assertEquals(0, HostLoadTracker.getOpenConnections(SLOW));
+  }
+
+  @Test
+  public void testCheaperOfTwoComesFirst() {
+    HostLoadTracker.recordLatency(FAST, 1000000);
+    HostLoadTracker.recordLatency(SLOW, 5000000);
+    for (int i = 0; i < 20; i++) {
+      assertEquals(Arrays.asList(FAST, SLOW),
+          HostLoadTracker.orderByLoad(Arrays.asList(SLOW, FAST)));
+    }
+  }
+
+  @Test
+  public void testOpenConnectionsRaiseCost() {
+    HostLoadTracker.recordLatency(FAST, 1000000);
+    HostLoadTracker.recordLatency(SLOW, 3000000);
+    for (int i = 0; i < 3; i++) {
+      HostLoadTracker.connectionOpened(FAST);
+    }
+    assertEquals(Arrays.asList(SLOW, FAST),
+        HostLoadTracker.orderByLoad(Arrays.asList(FAST, SLOW)));
+  }
+
+  @Test
+  public void testReplicationLagRaisesCost() {
+    HostLoadTracker.recordLatency(FAST, 1000000);
+    HostLoadTracker.recordLatency(SLOW, 3000000);
+    GlobalHostStatusTracker.reportHostStatus(FAST, HostStatus.Secondary, 1000000, 10);
+    try {
+      assertEquals(Arrays.asList(SLOW, FAST),
+          HostLoadTracker.orderByLoad(Arrays.asList(FAST, SLOW)));
+    } finally {
+      GlobalHostStatusTracker.reportHostStatus(FAST, HostStatus.ConnectOK);
+    }
+  }
+
+  @Test
+  public void testUnknownHostsAreTried() {
+    HostLoadTracker.recordLatency(FAST, 1000);
+    assertEquals(Arrays.asList(OTHER, FAST),
+        HostLoadTracker.orderByLoad(Arrays.asList(FAST, OTHER)));
+  }
+
+  @Test
+  public void testAllHostsAreOrdered() {
+    HostLoadTracker.recordLatency(FAST, 1000);
+    HostLoadTracker.recordLatency(SLOW, 2000);
+    HostLoadTracker.recordLatency(OTHER, 3000);
+    List<HostSpec> hosts = Arrays.asList(SLOW, OTHER, FAST);
+    List<HostSpec> ordered = HostLoadTracker.orderByLoad(hosts);
+    assertEquals(3, ordered.size());
+    assertEquals(new HashSet<HostSpec>(hosts), new HashSet<HostSpec>(ordered));
+    // the slowest host can never win a choice between two hosts
+    assertEquals(OTHER, ordered.get(2));
+    assertTrue(HostLoadTracker.orderByLoad(Arrays.<HostSpec>asList()).isEmpty());
+  }
+}
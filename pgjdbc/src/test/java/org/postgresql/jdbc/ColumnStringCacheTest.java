@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.core.Encoding;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class ColumnStringCacheTest {
+  private final Encoding encoding = Encoding.getJVMEncoding("UTF-8");
+
+  private String decode(ColumnStringCache cache, String value) throws IOException {
+    // surround the value with other bytes, as in a row buffer
+    byte[] bytes = encoding.encode("<" + value + ">");
+    return cache.decode(bytes, 1, bytes.length - 2, encoding);
+  }
+
+  @Test
+  public void testRepeatedValuesShareInstance() throws IOException {
+    ColumnStringCache cache = new ColumnStringCache(true, false);
+    String active = decode(cache, "active");
+    String closed = decode(cache, "closed");
+    assertEquals("active", active);
+    assertEquals("closed", closed);
+    for (int i = 0; i < 10 * ColumnStringCache.SAMPLE_SIZE; i++) {
+      assertSame(active, decode(cache, "active"));
+      assertSame(closed, decode(cache, "closed"));
+    }
+    assertSame(decode(cache, ""), decode(cache, ""));
+    assertEquals("", decode(cache, ""));
+    assertTrue(cache.isEnabled());
+  }
+
+  @Test
+  public void testNone() throws IOException {
+    assertFalse(ColumnStringCache.NONE.isEnabled());
+    assertNotSame(decode(ColumnStringCache.NONE, "a"), decode(ColumnStringCache.NONE, "a"));
+  }
+
+  @Test
+  public void testLongValuesAreNotCached() throws IOException {
+    ColumnStringCache cache = new ColumnStringCache(true, true);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i <= ColumnStringCache.MAX_VALUE_LENGTH; i++) {
+      sb.append('x');
+    }
+    String value = sb.toString();
+    assertEquals(value, decode(cache, value));
+    assertNotSame(decode(cache, value), decode(cache, value));
+  }
+
+  @Test
+  public void testDisabledOnLowHitRate() throws IOException {
+    ColumnStringCache cache = new ColumnStringCache(true, false);
+    for (int i = 0; i < ColumnStringCache.SAMPLE_SIZE; i++) {
+      assertEquals("value " + i, decode(cache, "value " + i));
+    }
+    assertFalse(cache.isEnabled());
+    assertNotSame(decode(cache, "value 1"), decode(cache, "value 1"));
+  }
+
+  @Test
+  public void testAlwaysIgnoresHitRate() throws IOException {
+    ColumnStringCache cache = new ColumnStringCache(true, true);
+    for (int i = 0; i < 2 * ColumnStringCache.SAMPLE_SIZE; i++) {
+      assertEquals("value " + i, decode(cache, "value " + i));
+    }
+    assertTrue(cache.isEnabled());
+    // values decoded while the cache had room are still shared
+    assertSame(decode(cache, "value 1"), decode(cache, "value 1"));
+    // once full, other values are decoded without being cached
+    assertEquals("value 5000", decode(cache, "value 5000"));
+    assertNotSame(decode(cache, "value 5000"), decode(cache, "value 5000"));
+  }
+}
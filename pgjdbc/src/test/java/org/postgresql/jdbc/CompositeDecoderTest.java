@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import org.postgresql.util.PSQLException;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class CompositeDecoderTest {
+
+  @Test
+  public void testSimpleRecord() throws Exception {
+    assertEquals(Arrays.asList("1", "foo", "2018-01-01"),
+        CompositeDecoder.parseTextRecord("(1,foo,2018-01-01)"));
+  }
+
+  @Test
+  public void testNullAndEmpty() throws Exception {
+    assertEquals(Arrays.asList(null, "", null),
+        CompositeDecoder.parseTextRecord("(,\"\",)"));
+  }
+
+  @Test
+  public void testQuoted() throws Exception {
+    assertEquals(Arrays.asList("a b", "x,y", "say \"hi\"", "back\\slash"),
+        CompositeDecoder.parseTextRecord(
+            "(\"a b\",\"x,y\",\"say \"\"hi\"\"\",\"back\\\\slash\")"));
+  }
+
+  @Test
+  public void testNested() throws Exception {
+    assertEquals(Arrays.asList("1", "(2,\"a b\")", "{3,4}"),
+        CompositeDecoder.parseTextRecord("(1,\"(2,\"\"a b\"\")\",\"{3,4}\")"));
+  }
+
+  @Test
+  public void testNoAttributes() throws Exception {
+    assertEquals(Collections.emptyList(), CompositeDecoder.parseTextRecord("()"));
+  }
+
+  @Test(expected = PSQLException.class)
+  public void testNotARecord() throws Exception {
+    CompositeDecoder.parseTextRecord("1,2");
+  }
+
+  @Test(expected = PSQLException.class)
+  public void testUnterminatedQuote() throws Exception {
+    CompositeDecoder.parseTextRecord("(1,\"a)");
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jre8.sasl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.ongres.scram.common.ScramFunctions;
+import com.ongres.scram.common.ScramMechanisms;
+import com.ongres.scram.common.stringprep.StringPreparations;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Base64;
+
+public class ScramKeyCacheTest {
+  private static final String SERVER = "localhost:5432";
+  private static final String SALT = Base64.getEncoder().encodeToString(new byte[16]);
+
+  @Before
+  public void setUp() {
+    ScramKeyCache.clear();
+  }
+
+  private static ScramKeyCache.Keys keys(String user, String salt, String password) {
+    return ScramKeyCache.getKeys(ScramMechanisms.SCRAM_SHA_256, SERVER, user, salt, 4096,
+        password);
+  }
+
+  @Test
+  public void testKeysMatchDerivation() {
+    ScramKeyCache.Keys keys = keys("test", SALT, "secret");
+    byte[] salted = ScramFunctions.saltedPassword(ScramMechanisms.SCRAM_SHA_256,
+        StringPreparations.NO_PREPARATION, "secret", new byte[16], 4096);
+    assertArrayEquals(ScramFunctions.clientKey(ScramMechanisms.SCRAM_SHA_256, salted),
+        keys.clientKey);
+    assertArrayEquals(ScramFunctions.serverKey(ScramMechanisms.SCRAM_SHA_256, salted),
+        keys.serverKey);
+  }
+
+  @Test
+  public void testKeysAreReused() {
+    ScramKeyCache.Keys keys = keys("test", SALT, "secret");
+    assertSame(keys, keys("test", SALT, "secret"));
+    assertNotSame(keys, keys("other", SALT, "secret"));
+    assertEquals(2, ScramKeyCache.size());
+  }
+
+  @Test
+  public void testChangedPasswordReplacesEntry() {
+    ScramKeyCache.Keys keys = keys("test", SALT, "secret");
+    ScramKeyCache.Keys changed = keys("test", SALT, "changed");
+    assertNotSame(keys, changed);
+    assertEquals(1, ScramKeyCache.size());
+    assertSame(changed, keys("test", SALT, "changed"));
+  }
+
+  @Test
+  public void testEvict() {
+    ScramKeyCache.Keys keys = keys("test", SALT, "secret");
+    ScramKeyCache.evict(ScramMechanisms.SCRAM_SHA_256, SERVER, "test", SALT, 4096);
+    assertEquals(0, ScramKeyCache.size());
+    assertNotSame(keys, keys("test", SALT, "secret"));
+  }
+
+  @Test
+  public void testBounded() {
+    for (int i = 0; i < ScramKeyCache.CACHE_SIZE * 2; i++) {
+      keys("user" + i, SALT, "secret");
+    }
+    assertEquals(ScramKeyCache.CACHE_SIZE, ScramKeyCache.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSalt() {
+    keys("test", "not base64!", "secret");
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReplicationPublisherTest {
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+  /**
+   * Hands out queued messages, blocking while there are none.
+   */
+  private static class FakeStream implements PGReplicationStream {
+    final BlockingQueue<ByteBuffer> messages = new LinkedBlockingQueue<ByteBuffer>();
+    final AtomicInteger reads = new AtomicInteger();
+    final AtomicInteger statusUpdates = new AtomicInteger();
+    final CountDownLatch closed = new CountDownLatch(1);
+    volatile boolean ended;
+    volatile LogSequenceNumber flushed = LogSequenceNumber.INVALID_LSN;
+    long lsn;
+
+    @Override
+    public ByteBuffer read() throws SQLException {
+      reads.incrementAndGet();
+      try {
+        ByteBuffer message = messages.take();
+        if (message == END) {
+          ended = true;
+          return null;
+        }
+        lsn++;
+        return message;
+      } catch (InterruptedException e) {
+        throw new SQLException(e);
+      }
+    }
+
+    @Override
+    public ByteBuffer readPending() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int read(ReplicationMessageBatch batch) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int readPending(ReplicationMessageBatch batch) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LogSequenceNumber getLastReceiveLSN() {
+      return LogSequenceNumber.valueOf(lsn);
+    }
+
+    @Override
+    public LogSequenceNumber getLastFlushedLSN() {
+      return flushed;
+    }
+
+    @Override
+    public LogSequenceNumber getLastAppliedLSN() {
+      return LogSequenceNumber.INVALID_LSN;
+    }
+
+    @Override
+    public void setFlushedLSN(LogSequenceNumber flushed) {
+      this.flushed = flushed;
+    }
+
+    @Override
+    public void setAppliedLSN(LogSequenceNumber applied) {
+    }
+
+    @Override
+    public void forceUpdateStatus() {
+      statusUpdates.incrementAndGet();
+    }
+
+    @Override
+    public boolean isClosed() {
+      return ended || closed.getCount() == 0;
+    }
+
+    @Override
+    public void close() {
+      closed.countDown();
+    }
+  }
+
+  /**
+   * Records the signals it receives.
+   */
+  private static class RecordingSubscriber
+      implements ReplicationPublisher.Subscriber<ReplicationPublisher.Message> {
+    final BlockingQueue<Object> signals = new LinkedBlockingQueue<Object>();
+    volatile ReplicationPublisher.Subscription subscription;
+
+    @Override
+    public void onSubscribe(ReplicationPublisher.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(ReplicationPublisher.Message item) {
+      signals.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      signals.add(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      signals.add("complete");
+    }
+
+    Object next() throws InterruptedException {
+      return signals.poll(5, TimeUnit.SECONDS);
+    }
+  }
+
+  private final FakeStream stream = new FakeStream();
+
+  private ReplicationPublisher publisher(long statusInterval) {
+    return new ReplicationPublisher(new Callable<PGReplicationStream>() {
+      @Override
+      public PGReplicationStream call() {
+        return stream;
+      }
+    }, statusInterval);
+  }
+
+  private static ByteBuffer message(int value) {
+    ByteBuffer message = ByteBuffer.allocate(4);
+    message.putInt(0, value);
+    return message;
+  }
+
+  @Test
+  public void testHonorsDemand() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      stream.messages.add(message(i));
+    }
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher(0).subscribe(subscriber);
+    subscriber.subscription.request(2);
+
+    for (int i = 0; i < 2; i++) {
+      ReplicationPublisher.Message message = (ReplicationPublisher.Message) subscriber.next();
+      assertEquals(i, message.getPayload().getInt(0));
+      assertEquals(LogSequenceNumber.valueOf(i + 1), message.getLSN());
+    }
+    Thread.sleep(100);
+    // the reader does not read ahead of the demand
+    assertNull(subscriber.signals.poll());
+    assertEquals(2, stream.reads.get());
+    assertEquals(3, stream.messages.size());
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    for (int i = 2; i < 5; i++) {
+      assertEquals(i, ((ReplicationPublisher.Message) subscriber.next()).getPayload().getInt(0));
+    }
+    stream.messages.add(END);
+    assertEquals("complete", subscriber.next());
+    assertTrue(stream.isClosed());
+  }
+
+  @Test
+  public void testStatusUpdatesWhilePaused() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    ReplicationPublisher publisher = publisher(20);
+    publisher.setFlushedLSN(LogSequenceNumber.valueOf(42));
+    publisher.subscribe(subscriber);
+    Thread.sleep(200);
+    assertTrue(stream.statusUpdates.get() >= 2);
+    assertEquals(LogSequenceNumber.valueOf(42), stream.getLastFlushedLSN());
+    assertEquals(0, stream.reads.get());
+
+    subscriber.subscription.cancel();
+    assertTrue(stream.closed.await(5, TimeUnit.SECONDS));
+    assertNull(subscriber.signals.poll());
+  }
+
+  @Test
+  public void testInvalidRequest() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher(0).subscribe(subscriber);
+    subscriber.subscription.request(0);
+    assertTrue(subscriber.next() instanceof IllegalArgumentException);
+    assertTrue(stream.closed.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testSingleSubscriber() throws Exception {
+    ReplicationPublisher publisher = publisher(0);
+    RecordingSubscriber first = new RecordingSubscriber();
+    publisher.subscribe(first);
+    RecordingSubscriber second = new RecordingSubscriber();
+    publisher.subscribe(second);
+    assertTrue(second.next() instanceof IllegalStateException);
+    first.subscription.cancel();
+    assertTrue(stream.closed.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testStartFailure() throws Exception {
+    final SQLException failure = new SQLException("no slot");
+    ReplicationPublisher publisher = new ReplicationPublisher(
+        new Callable<PGReplicationStream>() {
+          @Override
+          public PGReplicationStream call() throws SQLException {
+            throw failure;
+          }
+        }, 0);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    assertEquals(failure, subscriber.next());
+  }
+}
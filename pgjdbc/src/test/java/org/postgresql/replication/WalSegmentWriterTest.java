@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Queue;
+
+public class WalSegmentWriterTest {
+  private static final int SEGMENT_SIZE = 1024 * 1024;
+  private static final long START = 0x01000000L;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Hands out queued physical messages, each message being the WAL after the previous one.
+   */
+  private static class FakeStream implements PGReplicationStream {
+    final Queue<byte[]> messages = new LinkedList<byte[]>();
+    long position = START;
+    boolean ended;
+    LogSequenceNumber flushed = LogSequenceNumber.INVALID_LSN;
+    int statusUpdates;
+
+    @Override
+    public ByteBuffer read() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ByteBuffer readPending() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int read(ReplicationMessageBatch batch) {
+      int count = readPending(batch);
+      if (count == 0) {
+        // the server ends the stream when it has no more messages
+        ended = true;
+      }
+      return count;
+    }
+
+    @Override
+    public int readPending(ReplicationMessageBatch batch) {
+      batch.clear();
+      ByteBuffer buffer = batch.getBuffer();
+      while (!messages.isEmpty() && !batch.isFull()
+          && messages.peek().length <= buffer.remaining()) {
+        byte[] message = messages.poll();
+        int offset = buffer.position();
+        buffer.put(message);
+        position += message.length;
+        batch.add(offset, message.length, position);
+      }
+      return batch.size();
+    }
+
+    @Override
+    public LogSequenceNumber getLastReceiveLSN() {
+      return LogSequenceNumber.valueOf(position);
+    }
+
+    @Override
+    public LogSequenceNumber getLastFlushedLSN() {
+      return flushed;
+    }
+
+    @Override
+    public LogSequenceNumber getLastAppliedLSN() {
+      return LogSequenceNumber.INVALID_LSN;
+    }
+
+    @Override
+    public void setFlushedLSN(LogSequenceNumber flushed) {
+      this.flushed = flushed;
+    }
+
+    @Override
+    public void setAppliedLSN(LogSequenceNumber applied) {
+    }
+
+    @Override
+    public void forceUpdateStatus() {
+      statusUpdates++;
+    }
+
+    @Override
+    public boolean isClosed() {
+      return ended;
+    }
+
+    @Override
+    public void close() {
+      ended = true;
+    }
+  }
+
+  private static byte[] wal(long start, int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) ((start + i) * 31 >>> 3);
+    }
+    return data;
+  }
+
+  private static byte[] content(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      byte[] content = new byte[(int) raf.length()];
+      raf.readFully(content);
+      return content;
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testSegmentName() {
+    int size = WalSegmentWriter.DEFAULT_SEGMENT_SIZE;
+    assertEquals("000000010000000000000001", WalSegmentWriter.getSegmentName(1, START, size));
+    assertEquals("00000001000000010000000A",
+        WalSegmentWriter.getSegmentName(1, 0x10A000000L, size));
+    assertEquals("000000020000000000000010",
+        WalSegmentWriter.getSegmentName(2, START, SEGMENT_SIZE));
+  }
+
+  @Test
+  public void testWritesAcrossSegments() throws IOException {
+    File directory = folder.getRoot();
+    WalSegmentWriter writer = new WalSegmentWriter(directory, 1, SEGMENT_SIZE);
+    assertEquals(LogSequenceNumber.INVALID_LSN, writer.getResumePosition());
+
+    int chunk = 384 * 1024;
+    for (int i = 0; i < 4; i++) {
+      long lsn = START + i * chunk;
+      ByteBuffer data = i % 2 == 0 ? ByteBuffer.wrap(wal(lsn, chunk))
+          : (ByteBuffer) ByteBuffer.allocateDirect(chunk).put(wal(lsn, chunk)).flip();
+      writer.write(data, lsn);
+      assertFalse(data.hasRemaining());
+    }
+    writer.close();
+
+    File complete = new File(directory, "000000010000000000000010");
+    File partial = new File(directory, "000000010000000000000011.partial");
+    assertTrue(complete.exists());
+    assertArrayEquals(wal(START, SEGMENT_SIZE), content(complete));
+    byte[] rest = content(partial);
+    assertEquals(SEGMENT_SIZE, rest.length);
+    int written = 4 * chunk - SEGMENT_SIZE;
+    assertArrayEquals(wal(START + SEGMENT_SIZE, written), Arrays.copyOf(rest, written));
+    assertArrayEquals(new byte[SEGMENT_SIZE - written],
+        Arrays.copyOfRange(rest, written, SEGMENT_SIZE));
+
+    assertEquals(LogSequenceNumber.valueOf(START + 4 * chunk), writer.getSyncedLSN());
+    assertEquals(LogSequenceNumber.valueOf(START + SEGMENT_SIZE), writer.getResumePosition());
+  }
+
+  @Test
+  public void testReceive() throws Exception {
+    File directory = folder.getRoot();
+    FakeStream stream = new FakeStream();
+    long lsn = START;
+    for (int i = 0; i < 40; i++) {
+      stream.messages.add(wal(lsn, 64 * 1024));
+      lsn += 64 * 1024;
+    }
+    WalSegmentWriter writer = new WalSegmentWriter(directory, 1, SEGMENT_SIZE);
+    writer.setBufferSize(256 * 1024);
+
+    writer.receive(stream);
+    assertEquals(LogSequenceNumber.valueOf(lsn), stream.flushed);
+    assertTrue(stream.statusUpdates > 0);
+    writer.close();
+
+    assertArrayEquals(wal(START, SEGMENT_SIZE),
+        content(new File(directory, "000000010000000000000010")));
+    assertArrayEquals(wal(START + SEGMENT_SIZE, SEGMENT_SIZE),
+        content(new File(directory, "000000010000000000000011")));
+    assertTrue(new File(directory, "000000010000000000000012.partial").exists());
+    assertEquals(LogSequenceNumber.valueOf(START + 2 * SEGMENT_SIZE), writer.getResumePosition());
+  }
+
+  @Test
+  public void testResumeIgnoresOtherFiles() throws IOException {
+    File directory = folder.getRoot();
+    assertTrue(new File(directory, "x.partial").createNewFile());
+    assertTrue(new File(directory, "00000001000000000000001.partial").createNewFile());
+    assertTrue(new File(directory, "000000020000000000000020").createNewFile());
+    assertTrue(new File(directory, "000000010000000000000010").createNewFile());
+    assertTrue(new File(directory, "000000010000000000000011.partial").createNewFile());
+    WalSegmentWriter writer = new WalSegmentWriter(directory, 1, SEGMENT_SIZE);
+    assertEquals(LogSequenceNumber.valueOf(START + SEGMENT_SIZE), writer.getResumePosition());
+  }
+
+  @Test
+  public void testUnalignedStartIsRejected() throws IOException {
+    WalSegmentWriter writer = new WalSegmentWriter(folder.getRoot(), 1, SEGMENT_SIZE);
+    try {
+      writer.write(ByteBuffer.wrap(wal(START + 1024, 1024)), START + 1024);
+      fail("a segment starting with zeros must not be written");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    writer.close();
+    assertEquals(0, folder.getRoot().list().length);
+  }
+
+  @Test
+  public void testGapIsRejected() throws IOException {
+    WalSegmentWriter writer = new WalSegmentWriter(folder.getRoot(), 1, SEGMENT_SIZE);
+    writer.write(ByteBuffer.wrap(wal(START, 1024)), START);
+    try {
+      writer.write(ByteBuffer.wrap(wal(START + 2048, 1024)), START + 2048);
+      fail("a gap must not be filled with zeros");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    writer.close();
+    assertEquals(LogSequenceNumber.valueOf(START + 1024), writer.getSyncedLSN());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSegmentSize() {
+    new WalSegmentWriter(folder.getRoot(), 1, 3 * 1024 * 1024);
+  }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.core.Oid;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.ReplicationMessageBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class ParallelChangeConsumerTest {
+  private static final int TABLE = 16384;
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+  /**
+   * Hands out queued messages without blocking.
+   */
+  private static class FakeStream implements PGReplicationStream {
+    final BlockingQueue<ByteBuffer> messages = new LinkedBlockingQueue<ByteBuffer>();
+    volatile boolean ended;
+    volatile LogSequenceNumber flushed = LogSequenceNumber.INVALID_LSN;
+    volatile LogSequenceNumber applied = LogSequenceNumber.INVALID_LSN;
+
+    @Override
+    public ByteBuffer read() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ByteBuffer readPending() {
+      ByteBuffer message = messages.poll();
+      if (message == END) {
+        ended = true;
+        return null;
+      }
+      return message;
+    }
+
+    @Override
+    public int read(ReplicationMessageBatch batch) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int readPending(ReplicationMessageBatch batch) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LogSequenceNumber getLastReceiveLSN() {
+      return LogSequenceNumber.INVALID_LSN;
+    }
+
+    @Override
+    public LogSequenceNumber getLastFlushedLSN() {
+      return flushed;
+    }
+
+    @Override
+    public LogSequenceNumber getLastAppliedLSN() {
+      return applied;
+    }
+
+    @Override
+    public void setFlushedLSN(LogSequenceNumber flushed) {
+      this.flushed = flushed;
+    }
+
+    @Override
+    public void setAppliedLSN(LogSequenceNumber applied) {
+      this.applied = applied;
+    }
+
+    @Override
+    public void forceUpdateStatus() {
+    }
+
+    @Override
+    public boolean isClosed() {
+      return ended;
+    }
+
+    @Override
+    public void close() {
+      ended = true;
+    }
+  }
+
+  /**
+   * Runs a consumer on another thread.
+   */
+  private static class Runner extends Thread {
+    final ParallelChangeConsumer consumer;
+    volatile SQLException failure;
+
+    Runner(ParallelChangeConsumer consumer) {
+      super("consumer");
+      this.consumer = consumer;
+      start();
+    }
+
+    @Override
+    public void run() {
+      try {
+        consumer.run();
+      } catch (SQLException e) {
+        failure = e;
+      }
+    }
+
+    SQLException finish() throws InterruptedException {
+      join(TimeUnit.SECONDS.toMillis(5));
+      assertTrue("the consumer should have stopped", !isAlive());
+      return failure;
+    }
+  }
+
+  private final FakeStream stream = new FakeStream();
+  private final PgOutputDecoder decoder = new PgOutputDecoder();
+  private Relation relation;
+
+  @Before
+  public void setUp() throws Exception {
+    decoder.decode(new PgOutputMessage('R').int4(TABLE).string("public").string("t").byte1('d')
+        .int2(2).byte1(1).string("id").int4(Oid.INT8).int4(-1)
+        .byte1(0).string("v").int4(Oid.TEXT).int4(-1).buffer(), new PgOutputHandler() { });
+    relation = decoder.getRelation(TABLE);
+  }
+
+  private void transaction(long lsn, PgOutputMessage... changes) throws Exception {
+    stream.messages.add(new PgOutputMessage('B').int8(lsn).int8(0).int4(1).buffer());
+    for (PgOutputMessage change : changes) {
+      stream.messages.add(change.buffer());
+    }
+    stream.messages.add(
+        new PgOutputMessage('C').byte1(0).int8(lsn).int8(lsn + 10).int8(0).buffer());
+  }
+
+  private static PgOutputMessage insert(long id, String value) throws Exception {
+    return new PgOutputMessage('I').int4(TABLE).byte1('N').int2(2).text(Long.toString(id))
+        .text(value);
+  }
+
+  private static PgOutputMessage update(long id, String value) throws Exception {
+    return new PgOutputMessage('U').int4(TABLE).byte1('N').int2(2).text(Long.toString(id))
+        .text(value);
+  }
+
+  private void awaitFlushed(long lsn) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!stream.flushed.equals(LogSequenceNumber.valueOf(lsn))
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(LogSequenceNumber.valueOf(lsn), stream.flushed);
+  }
+
+  @Test
+  public void testAcknowledgesCompleteTransactionsInOrder() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch laterApplied = new CountDownLatch(1);
+    ParallelChangeConsumer consumer =
+        new ParallelChangeConsumer(stream, decoder, new ParallelChangeConsumer.Sink() {
+          @Override
+          public void apply(ParallelChangeConsumer.Change change) throws Exception {
+            if (change.getNewValues()[0].equals(1L)) {
+              release.await();
+            } else {
+              laterApplied.countDown();
+            }
+          }
+        }, 4);
+    long other = 2;
+    while (consumer.partition(relation, new Object[]{other, null})
+        == consumer.partition(relation, new Object[]{1L, null})) {
+      other++;
+    }
+
+    transaction(100, insert(1, "slow"));
+    transaction(200, insert(other, "fast"));
+    Runner runner = new Runner(consumer);
+
+    assertTrue(laterApplied.await(5, TimeUnit.SECONDS));
+    Thread.sleep(50);
+    assertEquals("the first transaction is not applied yet", LogSequenceNumber.INVALID_LSN,
+        stream.flushed);
+
+    release.countDown();
+    awaitFlushed(210);
+    assertEquals(LogSequenceNumber.valueOf(210), stream.applied);
+    stream.messages.add(END);
+    assertEquals(null, runner.finish());
+    assertEquals(LogSequenceNumber.valueOf(210), consumer.getAcknowledgedLSN());
+  }
+
+  @Test
+  public void testAppliesChangesToARowInOrder() throws Exception {
+    final List<Object> values = Collections.synchronizedList(new ArrayList<Object>());
+    ParallelChangeConsumer consumer =
+        new ParallelChangeConsumer(stream, decoder, new ParallelChangeConsumer.Sink() {
+          @Override
+          public void apply(ParallelChangeConsumer.Change change) throws Exception {
+            if (change.getNewValues()[0].equals(1L)) {
+              Thread.sleep(5);
+              values.add(change.getNewValues()[1]);
+            }
+          }
+        }, 3, 2);
+
+    List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 20; i++) {
+      transaction(100 * (i + 1), update(1, "v" + i), insert(i + 10, "other"));
+      expected.add("v" + i);
+    }
+    stream.messages.add(END);
+    assertEquals(null, new Runner(consumer).finish());
+    assertEquals(expected, values);
+    assertEquals(LogSequenceNumber.valueOf(2010), stream.flushed);
+  }
+
+  @Test
+  public void testFailedTransactionIsNotAcknowledged() throws Exception {
+    final Exception boom = new Exception("boom");
+    ParallelChangeConsumer consumer =
+        new ParallelChangeConsumer(stream, decoder, new ParallelChangeConsumer.Sink() {
+          @Override
+          public void apply(ParallelChangeConsumer.Change change) throws Exception {
+            if (change.getNewValues()[0].equals(2L)) {
+              throw boom;
+            }
+          }
+        }, 2);
+
+    transaction(100, insert(1, "a"));
+    transaction(200, insert(2, "b"));
+    transaction(300, insert(3, "c"));
+    SQLException failure = new Runner(consumer).finish();
+    assertSame(boom, failure.getCause());
+    assertNotEquals(LogSequenceNumber.valueOf(210), stream.flushed);
+    assertNotEquals(LogSequenceNumber.valueOf(310), stream.flushed);
+  }
+
+  @Test
+  public void testTruncateWaitsForEarlierChanges() throws Exception {
+    final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    ParallelChangeConsumer consumer =
+        new ParallelChangeConsumer(stream, decoder, new ParallelChangeConsumer.Sink() {
+          @Override
+          public void apply(ParallelChangeConsumer.Change change) throws Exception {
+            if (change.getKind() == ParallelChangeConsumer.Kind.INSERT) {
+              Thread.sleep(50);
+            }
+            events.add(change.getKind() + " on " + Thread.currentThread().getName());
+          }
+        }, 2);
+
+    transaction(100, insert(1, "a"),
+        new PgOutputMessage('T').int4(1).byte1(0).int4(TABLE));
+    stream.messages.add(END);
+    assertEquals(null, new Runner(consumer).finish());
+    assertEquals(2, events.size());
+    assertTrue(events.get(0), events.get(0).startsWith("INSERT on PostgreSQL JDBC driver"));
+    assertEquals("TRUNCATE on consumer", events.get(1));
+    assertEquals(LogSequenceNumber.valueOf(110), stream.flushed);
+  }
+
+  @Test
+  public void testUpdateWithUnchangedToastKeyIsAppliedAlone() throws Exception {
+    final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    ParallelChangeConsumer consumer =
+        new ParallelChangeConsumer(stream, decoder, new ParallelChangeConsumer.Sink() {
+          @Override
+          public void apply(ParallelChangeConsumer.Change change) throws Exception {
+            if (change.getKind() == ParallelChangeConsumer.Kind.INSERT) {
+              Thread.sleep(50);
+            }
+            events.add(change.getKind() + " on " + Thread.currentThread().getName());
+          }
+        }, 2);
+
+    assertEquals(-1, consumer.partition(relation,
+        new Object[]{ParallelChangeConsumer.Change.UNCHANGED_TOAST, "v"}));
+    transaction(100, insert(1, "a"),
+        new PgOutputMessage('U').int4(TABLE).byte1('N').int2(2).byte1('u').text("b"));
+    stream.messages.add(END);
+    assertEquals(null, new Runner(consumer).finish());
+    assertEquals(2, events.size());
+    assertTrue(events.get(0), events.get(0).startsWith("INSERT on PostgreSQL JDBC driver"));
+    assertEquals("UPDATE on consumer", events.get(1));
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.core.Oid;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class PgOutputDecoderTest {
+  private static final int TABLE = 16384;
+
+  /**
+   * Records the events as strings, and the values of the rows.
+   */
+  private static class RecordingHandler extends PgOutputHandler {
+    final List<String> events = new ArrayList<String>();
+    final List<Object> values = new ArrayList<Object>();
+
+    @Override
+    public void begin(long finalLSN, long commitTime, int xid) {
+      events.add("begin " + finalLSN + " " + commitTime + " " + xid);
+    }
+
+    @Override
+    public void commit(long commitLSN, long endLSN, long commitTime) {
+      events.add("commit " + commitLSN + " " + endLSN + " " + commitTime);
+    }
+
+    @Override
+    public void relation(Relation relation) {
+      events.add("relation " + relation);
+    }
+
+    @Override
+    public void insert(Relation relation, TupleData newTuple) throws SQLException {
+      events.add("insert " + relation);
+      for (int i = 0; i < newTuple.getColumnCount(); i++) {
+        values.add(newTuple.getObject(i));
+      }
+    }
+
+    @Override
+    public void update(Relation relation, TupleData oldTuple, TupleData newTuple)
+        throws SQLException {
+      events.add("update " + relation + " old=" + (oldTuple == null ? null : oldTuple.getString(0))
+          + " new=" + newTuple.getString(0));
+    }
+
+    @Override
+    public void delete(Relation relation, TupleData oldTuple) throws SQLException {
+      events.add("delete " + relation + " key=" + oldTuple.getLong(0) + " keyOnly="
+          + oldTuple.isKeyOnly());
+    }
+
+    @Override
+    public void truncate(Relation[] relations, boolean cascade, boolean restartIdentity) {
+      events.add("truncate " + relations.length + " " + cascade + " " + restartIdentity);
+    }
+
+    @Override
+    public void message(long messageLSN, boolean transactional, String prefix,
+        ByteBuffer content) {
+      events.add("message " + prefix + " " + content.remaining());
+    }
+  }
+
+  private final PgOutputDecoder decoder = new PgOutputDecoder();
+  private final RecordingHandler handler = new RecordingHandler();
+
+  private void describeTable() throws Exception {
+    PgOutputMessage relation = new PgOutputMessage('R').int4(TABLE).string("public").string("t")
+        .byte1('d').int2(8);
+    relation.byte1(1).string("id").int4(Oid.INT8).int4(-1);
+    relation.byte1(0).string("name").int4(Oid.TEXT).int4(-1);
+    relation.byte1(0).string("flag").int4(Oid.BOOL).int4(-1);
+    relation.byte1(0).string("amount").int4(Oid.NUMERIC).int4(-1);
+    relation.byte1(0).string("ratio").int4(Oid.FLOAT8).int4(-1);
+    relation.byte1(0).string("uid").int4(Oid.UUID).int4(-1);
+    relation.byte1(0).string("data").int4(Oid.BYTEA).int4(-1);
+    relation.byte1(0).string("doc").int4(Oid.JSONB).int4(-1);
+    decoder.decode(relation.buffer(), handler);
+  }
+
+  @Test
+  public void testTransaction() throws Exception {
+    decoder.decode(new PgOutputMessage('B').int8(100).int8(200).int4(7).buffer(), handler);
+    describeTable();
+    UUID uuid = UUID.randomUUID();
+    PgOutputMessage insert = new PgOutputMessage('I').int4(TABLE).byte1('N').int2(8)
+        .text("-42").text("café").text("t").text("12.50").text("0.5")
+        .text(uuid.toString()).text("\\x0102").byte1('n');
+    decoder.decode(insert.direct(), handler);
+    decoder.decode(new PgOutputMessage('C').byte1(0).int8(100).int8(150).int8(200).buffer(),
+        handler);
+
+    assertEquals("begin 100 200 7", handler.events.get(0));
+    assertEquals("relation public.t", handler.events.get(1));
+    assertEquals("insert public.t", handler.events.get(2));
+    assertEquals("commit 100 150 200", handler.events.get(3));
+    assertEquals(-42L, handler.values.get(0));
+    assertEquals("café", handler.values.get(1));
+    assertEquals(true, handler.values.get(2));
+    assertEquals(new BigDecimal("12.50"), handler.values.get(3));
+    assertEquals(0.5, handler.values.get(4));
+    assertEquals(uuid, handler.values.get(5));
+    assertArrayEquals(new byte[]{1, 2}, (byte[]) handler.values.get(6));
+    assertNull(handler.values.get(7));
+
+    Relation relation = decoder.getRelation(TABLE);
+    assertEquals(8, relation.getColumnCount());
+    assertTrue(relation.isKeyColumn(0));
+    assertFalse(relation.isKeyColumn(1));
+    assertEquals(3, relation.findColumn("amount"));
+  }
+
+  @Test
+  public void testBinaryValues() throws Exception {
+    describeTable();
+    final UUID uuid = UUID.randomUUID();
+    ByteBuffer uuidBytes = ByteBuffer.allocate(16);
+    uuidBytes.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    PgOutputMessage insert = new PgOutputMessage('I').int4(TABLE).byte1('N').int2(8)
+        .value(ByteBuffer.allocate(8).putLong(1L << 40).array(), 'b')
+        .value("abc".getBytes(StandardCharsets.UTF_8), 'b')
+        .value(new byte[]{1}, 'b')
+        .byte1('u')
+        .value(ByteBuffer.allocate(8).putDouble(2.25).array(), 'b')
+        .value(uuidBytes.array(), 'b')
+        .value(new byte[]{1, 2, 3}, 'b')
+        .value("\u0001{\"a\": 1}".getBytes(StandardCharsets.UTF_8), 'b');
+
+    decoder.decode(insert.buffer(), new PgOutputHandler() {
+      @Override
+      public void insert(Relation relation, TupleData tuple) throws SQLException {
+        assertTrue(tuple.isBinary(0));
+        assertEquals(1L << 40, tuple.getLong(0));
+        assertEquals("abc", tuple.getString(1));
+        assertTrue(tuple.getBoolean(2));
+        assertTrue(tuple.isUnchangedToast(3));
+        try {
+          tuple.getBigDecimal(3);
+          fail("an unchanged TOASTed value was not sent");
+        } catch (SQLException expected) {
+          // ok
+        }
+        assertEquals(2.25, tuple.getDouble(4), 0);
+        assertEquals(uuid, tuple.getObject(5));
+        assertArrayEquals(new byte[]{1, 2, 3}, tuple.getBytes(6));
+        assertEquals("{\"a\": 1}", tuple.getString(7));
+        assertEquals(3, tuple.getLength(6));
+      }
+    });
+  }
+
+  @Test
+  public void testUpdateAndDelete() throws Exception {
+    describeTable();
+    decoder.decode(new PgOutputMessage('U').int4(TABLE).byte1('N').int2(1).text("1").buffer(),
+        handler);
+    decoder.decode(new PgOutputMessage('U').int4(TABLE).byte1('K').int2(1).text("1")
+        .byte1('N').int2(1).text("2").buffer(), handler);
+    decoder.decode(new PgOutputMessage('D').int4(TABLE).byte1('K').int2(1).text("2").buffer(),
+        handler);
+    decoder.decode(new PgOutputMessage('T').int4(1).byte1(3).int4(TABLE).buffer(), handler);
+    decoder.decode(new PgOutputMessage('M').byte1(1).int8(5).string("p").int4(3).byte1(1).byte1(2)
+        .byte1(3).buffer(), handler);
+
+    assertEquals("update public.t old=null new=1", handler.events.get(1));
+    assertEquals("update public.t old=1 new=2", handler.events.get(2));
+    assertEquals("delete public.t key=2 keyOnly=true", handler.events.get(3));
+    assertEquals("truncate 1 true true", handler.events.get(4));
+    assertEquals("message p 3", handler.events.get(5));
+  }
+
+  @Test
+  public void testTupleIsReused() throws Exception {
+    describeTable();
+    final List<TupleData> tuples = new ArrayList<TupleData>();
+    PgOutputHandler collecting = new PgOutputHandler() {
+      @Override
+      public void insert(Relation relation, TupleData newTuple) {
+        tuples.add(newTuple);
+      }
+    };
+    for (int i = 0; i < 2; i++) {
+      decoder.decode(new PgOutputMessage('I').int4(TABLE).byte1('N').int2(1).text("" + i).buffer(),
+          collecting);
+    }
+    assertSame(tuples.get(0), tuples.get(1));
+  }
+
+  @Test
+  public void testBadValues() throws Exception {
+    describeTable();
+    decoder.decode(new PgOutputMessage('I').int4(TABLE).byte1('N').int2(3)
+        .text("99999999999999999999").text("12x").text("maybe").buffer(), new PgOutputHandler() {
+          @Override
+          public void insert(Relation relation, TupleData tuple) {
+            for (int i = 0; i < 3; i++) {
+              try {
+                if (i == 2) {
+                  tuple.getBoolean(i);
+                } else {
+                  tuple.getLong(i);
+                }
+                fail("column " + i + " is not valid");
+              } catch (SQLException expected) {
+                // ok
+              }
+            }
+          }
+        });
+  }
+
+  @Test
+  public void testUnknownRelation() throws Exception {
+    try {
+      decoder.decode(new PgOutputMessage('I').int4(TABLE).byte1('N').int2(0).buffer(), handler);
+      fail("the table was not described");
+    } catch (SQLException expected) {
+      // ok
+    }
+  }
+
+  @Test
+  public void testTruncatedMessage() throws Exception {
+    try {
+      decoder.decode(new PgOutputMessage('B').int8(1).buffer(), handler);
+      fail("the message is truncated");
+    } catch (SQLException expected) {
+      // ok
+    }
+  }
+}
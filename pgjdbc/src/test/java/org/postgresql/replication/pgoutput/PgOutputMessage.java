@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds pgoutput messages.
+ */
+class PgOutputMessage {
+  private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  private final DataOutputStream out = new DataOutputStream(bytes);
+
+  PgOutputMessage(char type) throws IOException {
+    out.writeByte(type);
+  }
+
+  PgOutputMessage string(String value) throws IOException {
+    out.write(value.getBytes(StandardCharsets.UTF_8));
+    out.writeByte(0);
+    return this;
+  }
+
+  PgOutputMessage byte1(int value) throws IOException {
+    out.writeByte(value);
+    return this;
+  }
+
+  PgOutputMessage int2(int value) throws IOException {
+    out.writeShort(value);
+    return this;
+  }
+
+  PgOutputMessage int4(int value) throws IOException {
+    out.writeInt(value);
+    return this;
+  }
+
+  PgOutputMessage int8(long value) throws IOException {
+    out.writeLong(value);
+    return this;
+  }
+
+  PgOutputMessage text(String value) throws IOException {
+    return value(value.getBytes(StandardCharsets.UTF_8), 't');
+  }
+
+  PgOutputMessage value(byte[] value, char kind) throws IOException {
+    out.writeByte(kind);
+    out.writeInt(value.length);
+    out.write(value);
+    return this;
+  }
+
+  ByteBuffer buffer() {
+    return ByteBuffer.wrap(bytes.toByteArray());
+  }
+
+  ByteBuffer direct() {
+    byte[] array = bytes.toByteArray();
+    ByteBuffer direct = ByteBuffer.allocateDirect(array.length);
+    direct.put(array);
+    direct.flip();
+    return direct;
+  }
+}
@@ -9,9 +9,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import org.postgresql.PGConnection;
 import org.postgresql.core.ServerVersion;
 import org.postgresql.jdbc.PreferQueryMode;
 import org.postgresql.test.jdbc2.BaseTest4;
+import org.postgresql.util.HStoreConverter;
 
 import org.junit.Assume;
 import org.junit.Test;
@@ -113,4 +115,25 @@ public class HStoreTest extends BaseTest4 {
     assertEquals("\"a\"=>\"t'e\ns\\\"t\"", rs.getString(1));
   }
 
+  @Test
+  public void testHStoreBinaryCodec() throws SQLException {
+    con.unwrap(PGConnection.class).addBinaryCodec("hstore", HStoreConverter.BINARY_CODEC);
+
+    Map<String, String> correct = new HashMap<String, String>();
+    for (int i = 0; i < 100; i++) {
+      correct.put("key" + i, i % 10 == 0 ? null : "value " + i);
+    }
+    PreparedStatement pstmt = con.prepareStatement("SELECT ?::hstore");
+    pstmt.setObject(1, correct);
+    ResultSet rs = pstmt.executeQuery();
+    assertTrue(rs.next());
+    @SuppressWarnings("unchecked")
+    Map<String, String> map = (Map<String, String>) rs.getObject(1);
+    assertEquals("value 42", map.get("key42"));
+    assertTrue(map.containsKey("key50"));
+    assertEquals(null, map.get("key50"));
+    assertEquals(null, map.get("key100"));
+    assertEquals(correct, map);
+  }
+
 }
@@ -17,6 +17,7 @@ import static org.postgresql.hostchooser.HostStatus.Secondary;
 import static org.postgresql.test.TestUtil.closeDB;
 
 import org.postgresql.hostchooser.GlobalHostStatusTracker;
+import org.postgresql.hostchooser.HostMonitor;
 import org.postgresql.hostchooser.HostRequirement;
 import org.postgresql.test.TestUtil;
 import org.postgresql.util.HostSpec;
@@ -92,6 +93,16 @@ public class MultiHostsConnectionTest extends TestCase {
 
   private static Connection getConnection(HostRequirement hostType, boolean reset, boolean lb,
       String... targets) throws SQLException {
+    return getConnection(hostType, reset, lb, 0, targets);
+  }
+
+  private static Connection getParallelConnection(HostRequirement hostType, String... targets)
+      throws SQLException {
+    return getConnection(hostType, true, false, 100, targets);
+  }
+
+  private static Connection getConnection(HostRequirement hostType, boolean reset, boolean lb,
+      int parallelConnectDelay, String... targets) throws SQLException {
     TestUtil.closeDB(con);
 
     if (reset) {
@@ -106,6 +117,9 @@ public class MultiHostsConnectionTest extends TestCase {
     if (lb) {
       props.setProperty("loadBalanceHosts", "true");
     }
+    if (parallelConnectDelay > 0) {
+      props.setProperty("parallelConnectDelay", String.valueOf(parallelConnectDelay));
+    }
 
     StringBuilder sb = new StringBuilder();
     sb.append("jdbc:postgresql://");
@@ -221,6 +235,60 @@ public class MultiHostsConnectionTest extends TestCase {
     }
   }
 
+  public static void testParallelConnectToMaster() throws SQLException {
+    getParallelConnection(master, fake1, secondary1, master1);
+    assertRemote(masterIp);
+    assertGlobalState(master1, "Master");
+    assertFalse(con.isReadOnly());
+  }
+
+  public static void testParallelConnectToSlave() throws SQLException {
+    getParallelConnection(secondary, fake1, master1, secondary1);
+    assertRemote(secondaryIP);
+    assertGlobalState(secondary1, "Secondary");
+  }
+
+  public static void testParallelConnectToSlaveFirst() throws SQLException {
+    getParallelConnection(preferSecondary, master1, fake1, secondary1);
+    assertRemote(secondaryIP);
+
+    // connect to master when there's no secondary
+    getParallelConnection(preferSecondary, fake1, master1);
+    assertRemote(masterIp);
+  }
+
+  public static void testParallelFailedConnection() throws SQLException {
+    try {
+      getParallelConnection(any, fake1, "127.127.217.218:1");
+      fail();
+    } catch (PSQLException ex) {
+    }
+    assertGlobalState(fake1, "ConnectFail");
+  }
+
+  public static void testHostMonitor() throws Exception {
+    Properties props = new Properties();
+    props.setProperty("user", user);
+    props.setProperty("password", password);
+    props.setProperty("hostMonitorInterval", "100");
+    resetGlobalState();
+    try {
+      TestUtil.closeDB(con);
+      con = DriverManager.getConnection("jdbc:postgresql://" + fake1 + "," + secondary1 + ","
+          + master1 + "/" + TestUtil.getDatabase(), props);
+      // the monitors find out the status of hosts the connection did not try
+      SECONDS.sleep(2);
+      assertGlobalState(fake1, "ConnectFail");
+      assertGlobalState(secondary1, "Secondary");
+      assertGlobalState(master1, "Master");
+
+      getConnection(master, false, fake1, secondary1, master1);
+      assertRemote(masterIp);
+    } finally {
+      HostMonitor.stopAll();
+    }
+  }
+
   public static void testLoadBalancing() throws SQLException {
     Set<String> connectedHosts = new HashSet<String>();
     boolean fake1FoundTried = false;
@@ -5,12 +5,17 @@
 
 package org.postgresql.test.jdbc2;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import org.postgresql.PGConnection;
 import org.postgresql.core.ServerVersion;
+import org.postgresql.fastpath.Fastpath;
+import org.postgresql.fastpath.FastpathArg;
+import org.postgresql.fastpath.FastpathBatch;
 import org.postgresql.largeobject.LargeObject;
 import org.postgresql.largeobject.LargeObjectManager;
 import org.postgresql.test.TestUtil;
@@ -19,8 +24,11 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Connection;
@@ -246,6 +254,89 @@ public class BlobTest {
     is2.close();
   }
 
+  @Test
+  public void testPipelinedStreams() throws Exception {
+    LargeObjectManager lom = ((org.postgresql.PGConnection) con).getLargeObjectAPI();
+    long oid = lom.createLO(LargeObjectManager.READWRITE);
+    LargeObject blob = lom.open(oid);
+
+    byte[] data = new byte[10000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 7);
+    }
+    OutputStream os = blob.getOutputStream(1000, 4);
+    os.write(data, 0, 3333);
+    os.write(data[3333]);
+    os.write(data, 3334, data.length - 3334);
+    os.flush();
+    assertEquals(data.length, blob.size());
+
+    blob.seek(0);
+    InputStream is = blob.getInputStream(700, 3);
+    byte[] read = new byte[data.length + 1];
+    assertEquals(data[0], (byte) is.read());
+    assertEquals(data.length - 1, is.read(read, 1, read.length - 1));
+    assertEquals(-1, is.read());
+    for (int i = 1; i < data.length; i++) {
+      assertEquals(data[i], read[i]);
+    }
+    blob.close();
+    lom.delete(oid);
+  }
+
+  @Test
+  public void testImportExportChannels() throws Exception {
+    LargeObjectManager lom = ((org.postgresql.PGConnection) con).getLargeObjectAPI();
+    byte[] data = new byte[200000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 13);
+    }
+    long oid = lom.importFrom(Channels.newChannel(new ByteArrayInputStream(data)));
+
+    ByteArrayOutputStream exported = new ByteArrayOutputStream();
+    assertEquals(data.length, lom.exportTo(oid, Channels.newChannel(exported)));
+    assertArrayEquals(data, exported.toByteArray());
+    lom.delete(oid);
+  }
+
+  @Test
+  public void testFastpathBatch() throws Exception {
+    LargeObjectManager lom = ((PGConnection) con).getLargeObjectAPI();
+    long oid = lom.createLO(LargeObjectManager.READWRITE);
+
+    Fastpath fp = ((PGConnection) con).getFastpathAPI();
+    int fd = fp.getInteger("lo_open", new FastpathArg[]{Fastpath.createOIDArg(oid),
+        new FastpathArg(LargeObjectManager.READWRITE)});
+    FastpathArg fdArg = new FastpathArg(fd);
+    FastpathBatch batch = fp.createBatch()
+        .add("lowrite", new FastpathArg[]{fdArg, new FastpathArg(new byte[]{1, 2, 3, 4, 5})})
+        .add("lo_lseek", new FastpathArg[]{fdArg, new FastpathArg(1), new FastpathArg(0)})
+        .add("loread", new FastpathArg[]{fdArg, new FastpathArg(3)})
+        .add("lo_tell", new FastpathArg[]{fdArg})
+        .add("lo_close", new FastpathArg[]{fdArg});
+    assertEquals(5, batch.size());
+    byte[][] results = batch.execute();
+    assertEquals(0, batch.size());
+    assertEquals(5, results.length);
+    assertArrayEquals(new byte[]{2, 3, 4}, results[2]);
+    assertArrayEquals(new byte[]{0, 0, 0, 4}, results[3]);
+
+    lom.delete(oid);
+  }
+
+  @Test
+  public void testBuiltinFunctionIdsAreShared() throws Exception {
+    ((PGConnection) con).getLargeObjectAPI();
+    Connection other = TestUtil.openDB();
+    try {
+      Fastpath fp = ((PGConnection) other).getFastpathAPI();
+      assertTrue(fp.hasFunctions("lo_open", "loread", "lowrite"));
+      assertEquals(((PGConnection) con).getFastpathAPI().getID("loread"), fp.getID("loread"));
+    } finally {
+      TestUtil.closeDB(other);
+    }
+  }
+
   @Test
   public void testLargeLargeObject() throws Exception {
     if (!TestUtil.haveMinimumServerVersion(con, ServerVersion.v9_3)) {
@@ -14,6 +14,7 @@ import org.postgresql.PGConnection;
 import org.postgresql.copy.CopyIn;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.copy.CopyOut;
+import org.postgresql.copy.CopyRowHandler;
 import org.postgresql.copy.PGCopyOutputStream;
 import org.postgresql.core.ServerVersion;
 import org.postgresql.test.TestUtil;
@@ -30,11 +31,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.StringReader;
+import java.nio.channels.Channels;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author kato@iki.fi
@@ -161,6 +165,15 @@ public class CopyTest {
     assertEquals(0, rowCount);
   }
 
+  @Test
+  public void testCopyInFromChannel() throws SQLException, IOException {
+    String sql = "COPY copytest FROM STDIN";
+    long count = copyAPI.copyIn(sql,
+        Channels.newChannel(new ByteArrayInputStream(getData(origData))));
+    assertEquals(dataRows, count);
+    assertEquals(dataRows, getCount());
+  }
+
   @Test
   public void testCopyInFromReader() throws SQLException, IOException {
     String sql = "COPY copytest FROM STDIN";
@@ -237,6 +250,34 @@ public class CopyTest {
     }
   }
 
+  @Test
+  public void testCopyOutToChannel() throws SQLException, IOException {
+    testCopyInByRow(); // ensure we have some data.
+    String sql = "COPY copytest TO STDOUT";
+    ByteArrayOutputStream copydata = new ByteArrayOutputStream();
+    long count = copyAPI.copyOut(sql, Channels.newChannel(copydata));
+    assertEquals(dataRows, count);
+    assertEquals(new String(getData(origData)), new String(copydata.toByteArray()));
+  }
+
+  @Test
+  public void testCopyOutToRowHandler() throws SQLException, IOException {
+    testCopyInByRow(); // ensure we have some data.
+    String sql = "COPY copytest TO STDOUT";
+    final List<String> rows = new ArrayList<String>();
+    long count = copyAPI.copyOut(sql, new CopyRowHandler() {
+      @Override
+      public void handleRow(byte[] row, int offset, int length) {
+        rows.add(new String(row, offset, length));
+      }
+    });
+    assertEquals(dataRows, count);
+    assertEquals(dataRows, rows.size());
+    for (int i = 0; i < dataRows; i++) {
+      assertEquals(origData[i], rows.get(i) + "\n");
+    }
+  }
+
   @Test
   public void testNonCopyOut() throws SQLException, IOException {
     String sql = "SELECT 1";
@@ -5,6 +5,7 @@
 
 package org.postgresql.test.jdbc2;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -46,6 +47,16 @@ public class EncodingTest {
     assertEquals(new String(new byte[]{97}), encoding.decode(new byte[]{97}));
   }
 
+  @Test
+  public void testDatabaseUtf8() throws Exception {
+    Encoding encoding = Encoding.getDatabaseEncoding("UTF8");
+    String text = "ascii, é€ " + new String(Character.toChars(0x1F600));
+    assertArrayEquals(text.getBytes("UTF-8"), encoding.encode(text));
+    assertEquals(text, encoding.decode(text.getBytes("UTF-8")));
+    // malformed input is replaced, as by the JDK decoder
+    assertEquals("a" + (char) 0xFFFD + "b", encoding.decode(new byte[]{97, (byte) 0xC3, 98}));
+  }
+
   @Test
   public void testReader() throws Exception {
     Encoding encoding = Encoding.getDatabaseEncoding("SQL_ASCII");
@@ -5,19 +5,34 @@
 
 package org.postgresql.test.jdbc2;
 
+import org.postgresql.core.MessageOutputBufferTest;
+import org.postgresql.core.OidSetTest;
 import org.postgresql.core.OidToStringTest;
 import org.postgresql.core.OidValueOfTest;
 import org.postgresql.core.ParserTest;
 import org.postgresql.core.ReturningParserTest;
+import org.postgresql.core.UTF8EncodingTest;
+import org.postgresql.core.VisibleBufferedInputStreamTest;
 import org.postgresql.core.v3.V3ParameterListTests;
+import org.postgresql.core.v3.replication.V3PGReplicationStreamTest;
+import org.postgresql.geometric.GeometricCodecsTest;
+import org.postgresql.hostchooser.HostLoadTrackerTest;
+import org.postgresql.jdbc.ColumnStringCacheTest;
+import org.postgresql.jdbc.CompositeDecoderTest;
 import org.postgresql.jdbc.DeepBatchedInsertStatementTest;
 import org.postgresql.jdbc.PrimitiveArraySupportTest;
+import org.postgresql.replication.ReplicationPublisherTest;
+import org.postgresql.replication.WalSegmentWriterTest;
+import org.postgresql.replication.pgoutput.ParallelChangeConsumerTest;
+import org.postgresql.replication.pgoutput.PgOutputDecoderTest;
 import org.postgresql.test.core.JavaVersionTest;
 import org.postgresql.test.core.NativeQueryBindLengthTest;
 import org.postgresql.test.util.ExpressionPropertiesTest;
 import org.postgresql.test.util.LruCacheTest;
 import org.postgresql.test.util.ServerVersionParseTest;
 import org.postgresql.test.util.ServerVersionTest;
+import org.postgresql.util.ByteConverterTest;
+import org.postgresql.util.HStoreConverterTest;
 import org.postgresql.util.ReaderInputStreamTest;
 
 import org.junit.runner.RunWith;
@@ -43,6 +58,7 @@ import org.junit.runners.Suite;
         ColumnSanitiserEnabledTest.class,
         LruCacheTest.class,
         ReaderInputStreamTest.class,
+        GeometricCodecsTest.class,
         ServerVersionParseTest.class,
         ServerVersionTest.class,
 
@@ -67,6 +83,10 @@ import org.junit.runners.Suite;
         StringTypeUnspecifiedArrayTest.class,
         ArrayTest.class,
         PrimitiveArraySupportTest.class,
+        CompositeDecoderTest.class,
+        ColumnStringCacheTest.class,
+        ByteConverterTest.class,
+        HStoreConverterTest.class,
         RefCursorTest.class,
 
         DateTest.class,
@@ -81,6 +101,16 @@ import org.junit.runners.Suite;
 
         OidToStringTest.class,
         OidValueOfTest.class,
+        OidSetTest.class,
+        UTF8EncodingTest.class,
+        VisibleBufferedInputStreamTest.class,
+        MessageOutputBufferTest.class,
+        HostLoadTrackerTest.class,
+        V3PGReplicationStreamTest.class,
+        ReplicationPublisherTest.class,
+        PgOutputDecoderTest.class,
+        ParallelChangeConsumerTest.class,
+        WalSegmentWriterTest.class,
 
         PreparedStatementTest.class,
         StatementTest.class,
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.PGConnection;
+import org.postgresql.test.TestUtil;
+import org.postgresql.test.jdbc2.BaseTest4;
+import org.postgresql.util.PGCompositeFactory;
+import org.postgresql.util.PGInterval;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+@RunWith(Parameterized.class)
+public class CompositeTypeTest extends BaseTest4 {
+
+  public CompositeTypeTest(BinaryMode binaryMode) {
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "binary = {0}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (BinaryMode binaryMode : BinaryMode.values()) {
+      ids.add(new Object[]{binaryMode});
+    }
+    return ids;
+  }
+
+  private static class Item {
+    final int id;
+    final String name;
+    final BigDecimal price;
+    final Object[] tags;
+
+    Item(int id, String name, BigDecimal price, Object[] tags) {
+      this.id = id;
+      this.name = name;
+      this.price = price;
+      this.tags = tags;
+    }
+  }
+
+  private static class ItemFactory implements PGCompositeFactory<Item> {
+    @Override
+    public Class<Item> getJavaClass() {
+      return Item.class;
+    }
+
+    @Override
+    public Item create(String[] attributeNames, Object[] attributes) throws SQLException {
+      assertArrayEquals(new String[]{"id", "name", "price", "tags"}, attributeNames);
+      return new Item((Integer) attributes[0], (String) attributes[1],
+          (BigDecimal) attributes[2], (Object[]) attributes[3]);
+    }
+  }
+
+  private static class RecordFactory implements PGCompositeFactory<Object[]> {
+    @Override
+    public Class<Object[]> getJavaClass() {
+      return Object[].class;
+    }
+
+    @Override
+    public Object[] create(String[] attributeNames, Object[] attributes) {
+      assertNull(attributeNames);
+      return attributes;
+    }
+  }
+
+  private static class AttributesFactory implements PGCompositeFactory<Object[]> {
+    @Override
+    public Class<Object[]> getJavaClass() {
+      return Object[].class;
+    }
+
+    @Override
+    public Object[] create(String[] attributeNames, Object[] attributes) {
+      return attributes;
+    }
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createCompositeType(con, "compositeitem",
+        "id int4, name text, price numeric(10,2), tags text[]");
+    con.unwrap(PGConnection.class).addCompositeType("compositeitem", new ItemFactory());
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    TestUtil.dropType(con, "compositeitem");
+    super.tearDown();
+  }
+
+  @Test
+  public void testGetObject() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "SELECT ROW(1, 'a \"quoted\", name', 2.5, ARRAY['x', 'y z'])::compositeitem, "
+            + "ROW(2, NULL, NULL, NULL)::compositeitem");
+    ResultSet rs = ps.executeQuery();
+    assertTrue(rs.next());
+
+    Item item = (Item) rs.getObject(1);
+    assertEquals(1, item.id);
+    assertEquals("a \"quoted\", name", item.name);
+    assertEquals(new BigDecimal("2.50"), item.price);
+    assertArrayEquals(new Object[]{"x", "y z"}, item.tags);
+
+    item = (Item) rs.getObject(2);
+    assertEquals(2, item.id);
+    assertNull(item.name);
+    assertNull(item.price);
+    assertNull(item.tags);
+
+    rs.close();
+    ps.close();
+  }
+
+  @Test
+  public void testArrayOfComposites() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "SELECT array_agg(ROW(i, 'item ' || i, i * 1.5, NULL)::compositeitem ORDER BY i) "
+            + "FROM generate_series(1, 3) i");
+    ResultSet rs = ps.executeQuery();
+    assertTrue(rs.next());
+
+    Array array = rs.getArray(1);
+    Item[] items = (Item[]) array.getArray();
+    assertEquals(3, items.length);
+    for (int i = 0; i < items.length; i++) {
+      assertEquals(i + 1, items[i].id);
+      assertEquals("item " + (i + 1), items[i].name);
+      assertEquals(new BigDecimal(i + 1).multiply(new BigDecimal("1.5")).setScale(2),
+          items[i].price);
+    }
+
+    rs.close();
+    ps.close();
+  }
+
+  @Test
+  public void testAnonymousRecords() throws SQLException {
+    con.unwrap(PGConnection.class).addCompositeType("record", new RecordFactory());
+
+    PreparedStatement ps = con.prepareStatement(
+        "SELECT array_agg(ROW(i, 'r' || i) ORDER BY i) FROM generate_series(1, 2) i");
+    ResultSet rs = ps.executeQuery();
+    assertTrue(rs.next());
+
+    Object[] records = (Object[]) rs.getArray(1).getArray();
+    assertEquals(2, records.length);
+    for (int i = 0; i < records.length; i++) {
+      Object[] attributes = (Object[]) records[i];
+      // text records do not carry the attribute types
+      assertEquals(String.valueOf(i + 1), attributes[0].toString());
+      assertEquals("r" + (i + 1), attributes[1]);
+    }
+
+    rs.close();
+    ps.close();
+  }
+
+  @Test
+  public void testUnsupportedBinaryAttribute() throws SQLException {
+    // interval has no binary decoding, so the composite is received as text
+    TestUtil.createCompositeType(con, "compositeinterval", "id int4, duration interval");
+    try {
+      con.unwrap(PGConnection.class).addCompositeType("compositeinterval",
+          new AttributesFactory());
+
+      PreparedStatement ps = con.prepareStatement(
+          "SELECT ROW(1, '1 day')::compositeinterval, "
+              + "ARRAY[ROW(2, '2 hours')::compositeinterval]");
+      ResultSet rs = ps.executeQuery();
+      assertTrue(rs.next());
+
+      Object[] attributes = (Object[]) rs.getObject(1);
+      assertEquals(1, attributes[0]);
+      assertEquals(new PGInterval("1 day"), attributes[1]);
+
+      Object[] values = (Object[]) rs.getArray(2).getArray();
+      attributes = (Object[]) values[0];
+      assertEquals(2, attributes[0]);
+      assertEquals(new PGInterval("2 hours"), attributes[1]);
+
+      rs.close();
+      ps.close();
+    } finally {
+      TestUtil.dropType(con, "compositeinterval");
+    }
+  }
+}
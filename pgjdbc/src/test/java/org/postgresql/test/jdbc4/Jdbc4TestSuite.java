@@ -25,7 +25,11 @@ import org.junit.runners.Suite;
         CharacterStreamTest.class,
         UUIDTest.class,
         LibPQFactoryHostNameTest.class,
-        XmlTest.class
+        LibPQFactoryCacheTest.class,
+        XmlTest.class,
+        JsonbTest.class,
+        CompositeTypeTest.class,
+        StringDeduplicationTest.class
 })
 public class Jdbc4TestSuite {
 }
@@ -8,21 +8,54 @@ package org.postgresql.test.jdbc4;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import org.postgresql.PGPreparedStatement;
+import org.postgresql.PGProperty;
 import org.postgresql.core.ServerVersion;
-
+import org.postgresql.jdbc.PgResultSet;
 import org.postgresql.test.TestUtil;
 import org.postgresql.test.jdbc2.BaseTest4;
+import org.postgresql.util.PGobject;
 
 import org.junit.Assume;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Properties;
 
+@RunWith(Parameterized.class)
 public class JsonbTest extends BaseTest4 {
 
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  public JsonbTest(BinaryMode binaryMode) {
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "binary = {0}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (BinaryMode binaryMode : BinaryMode.values()) {
+      ids.add(new Object[]{binaryMode});
+    }
+    return ids;
+  }
+
   @Override
   public void setUp() throws Exception {
     super.setUp();
@@ -61,4 +94,101 @@ public class JsonbTest extends BaseTest4 {
     rs.close();
     stmt.close();
   }
+
+  @Test
+  public void testGetString() throws SQLException {
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("SELECT detail FROM jsonbtest WHERE detail ? 'a'");
+    assertTrue(rs.next());
+    assertEquals("{\"a\": 1}", rs.getString(1));
+    PGobject obj = (PGobject) rs.getObject(1);
+    assertEquals("jsonb", obj.getType());
+    assertEquals("{\"a\": 1}", obj.getValue());
+    rs.close();
+    stmt.close();
+  }
+
+  @Test
+  public void testStreamingAccessors() throws Exception {
+    PreparedStatement stmt = con.prepareStatement("SELECT detail, detail::json FROM jsonbtest WHERE detail ?? 'b'");
+    ResultSet rs = stmt.executeQuery();
+    assertTrue(rs.next());
+    for (int i = 1; i <= 2; i++) {
+      assertEquals("{\"b\": 1}", new String(readFully(rs.getBinaryStream(i)), UTF_8));
+      assertEquals("{\"b\": 1}", readFully(rs.getCharacterStream(i)));
+      assertEquals("{\"b\": 1}", new String(rs.getBytes(i), UTF_8));
+
+      ByteBuffer view = rs.unwrap(PgResultSet.class).getByteView(i);
+      byte[] viewBytes = new byte[view.remaining()];
+      view.get(viewBytes);
+      assertEquals("{\"b\": 1}", new String(viewBytes, UTF_8));
+    }
+    rs.close();
+    stmt.close();
+  }
+
+  @Test
+  public void testSetTextStream() throws SQLException {
+    byte[] doc = "{\"d\": \"é€\"}".getBytes(UTF_8);
+    PreparedStatement insert = con.prepareStatement("INSERT INTO jsonbtest (detail) VALUES (?)");
+    insert.unwrap(PGPreparedStatement.class)
+        .setTextStream(1, new ByteArrayInputStream(doc), doc.length, "jsonb");
+    assertEquals(1, insert.executeUpdate());
+    insert.close();
+
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("SELECT detail->>'d' FROM jsonbtest WHERE detail ? 'd'");
+    assertTrue(rs.next());
+    assertEquals("é€", rs.getString(1));
+    rs.close();
+    stmt.close();
+  }
+
+  @Test
+  public void testSetTextStreamLengthInSimpleMode() throws Exception {
+    // the length counts bytes, so multibyte characters must not make simple mode read further
+    byte[] doc = "{\"d\": \"é€\"}".getBytes(UTF_8);
+    byte[] data = Arrays.copyOf(doc, doc.length + 8);
+    Arrays.fill(data, doc.length, data.length, (byte) '}');
+    Properties props = new Properties();
+    PGProperty.PREFER_QUERY_MODE.set(props, "simple");
+    Connection simple = TestUtil.openDB(props);
+    try {
+      PreparedStatement insert =
+          simple.prepareStatement("INSERT INTO jsonbtest (detail) VALUES (?)");
+      insert.unwrap(PGPreparedStatement.class)
+          .setTextStream(1, new ByteArrayInputStream(data), doc.length, "jsonb");
+      assertEquals(1, insert.executeUpdate());
+      insert.close();
+    } finally {
+      TestUtil.closeDB(simple);
+    }
+
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("SELECT detail->>'d' FROM jsonbtest WHERE detail ? 'd'");
+    assertTrue(rs.next());
+    assertEquals("é€", rs.getString(1));
+    rs.close();
+    stmt.close();
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[16];
+    int n;
+    while ((n = in.read(buf)) != -1) {
+      out.write(buf, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  private static String readFully(Reader in) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    char[] buf = new char[16];
+    int n;
+    while ((n = in.read(buf)) != -1) {
+      sb.append(buf, 0, n);
+    }
+    return sb.toString();
+  }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc4;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.postgresql.PGProperty;
+import org.postgresql.ssl.jdbc4.LibPQFactory;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+
+public class LibPQFactoryCacheTest {
+
+  public static class NoPasswordCallbackHandler implements CallbackHandler {
+    public NoPasswordCallbackHandler(Properties info) {
+    }
+
+    @Override
+    public void handle(Callback[] callbacks) {
+    }
+  }
+
+  private static Properties sslProperties(String sslmode, String cert) {
+    Properties info = new Properties();
+    PGProperty.SSL_MODE.set(info, sslmode);
+    PGProperty.SSL_CERT.set(info, cert);
+    PGProperty.SSL_KEY.set(info, "");
+    return info;
+  }
+
+  @Test
+  public void testSameSettingsShareFactory() throws Exception {
+    LibPQFactory factory = LibPQFactory.getInstance(sslProperties("require", ""));
+    assertSame(factory, LibPQFactory.getInstance(sslProperties("require", "")));
+    assertNotSame(factory, LibPQFactory.getInstance(sslProperties("prefer", "")));
+
+    factory.evict();
+    LibPQFactory other = LibPQFactory.getInstance(sslProperties("require", ""));
+    assertNotSame(factory, other);
+    assertSame(other, LibPQFactory.getInstance(sslProperties("require", "")));
+  }
+
+  @Test
+  public void testFactoryWithPasswordIsNotShared() throws Exception {
+    Properties info = sslProperties("require", "");
+    PGProperty.SSL_PASSWORD.set(info, "secret");
+    assertNotSame(LibPQFactory.getInstance(info), LibPQFactory.getInstance(info));
+  }
+
+  @Test
+  public void testFactoryWithPasswordCallbackIsNotShared() throws Exception {
+    Properties info = sslProperties("require", "");
+    PGProperty.SSL_PASSWORD_CALLBACK.set(info, NoPasswordCallbackHandler.class.getName());
+    assertNotSame(LibPQFactory.getInstance(info), LibPQFactory.getInstance(info));
+  }
+
+  @Test
+  public void testChangedFileIsReloaded() throws Exception {
+    File cert = File.createTempFile("pgjdbc", ".crt");
+    try {
+      Properties info = sslProperties("require", cert.getAbsolutePath());
+      LibPQFactory factory = LibPQFactory.getInstance(info);
+      assertSame(factory, LibPQFactory.getInstance(info));
+
+      touch(cert);
+      assertNotSame(factory, LibPQFactory.getInstance(info));
+    } finally {
+      cert.delete();
+    }
+  }
+
+  private static void touch(File file) throws IOException {
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write('x');
+    } finally {
+      out.close();
+    }
+    // file systems with a coarse timestamp resolution might not see the change
+    file.setLastModified(file.lastModified() + 10000);
+  }
+}
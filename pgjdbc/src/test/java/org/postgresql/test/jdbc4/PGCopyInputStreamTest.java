@@ -18,6 +18,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
@@ -77,6 +78,30 @@ public class PGCopyInputStreamTest {
     assertEquals("0\n1\n2\n3\n", result.toString());
   }
 
+  @Test
+  public void testReadPartFromCopySplitsRows() throws SQLException, IOException {
+    insertSomeData();
+
+    sut = new PGCopyInputStream((PGConnection) _conn,
+        "COPY (select i from cpinstreamtest order by i asc) TO STDOUT WITH " + copyParams);
+
+    assertEquals('0', sut.read());
+    ByteBuffer buffer = ByteBuffer.allocate(3);
+    StringBuilder result = new StringBuilder(100);
+    int length;
+    while ((length = sut.readPartFromCopy(buffer, true)) >= 0) {
+      assertTrue(length <= 3);
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        result.append((char) buffer.get());
+      }
+      buffer.clear();
+    }
+
+    assertEquals("\n1\n2\n3\n", result.toString());
+    assertEquals(-1, sut.read());
+  }
+
   @Test
   public void testStreamCanBeClosedAfterReadUp() throws SQLException, IOException {
     insertSomeData();
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.PGProperty;
+import org.postgresql.jdbc.PgConnection;
+import org.postgresql.test.TestUtil;
+import org.postgresql.test.jdbc2.BaseTest4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+
+@RunWith(Parameterized.class)
+public class StringDeduplicationTest extends BaseTest4 {
+
+  public StringDeduplicationTest(BinaryMode binaryMode) {
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "binary = {0}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (BinaryMode binaryMode : BinaryMode.values()) {
+      ids.add(new Object[]{binaryMode});
+    }
+    return ids;
+  }
+
+  @Override
+  protected void updateProperties(Properties props) {
+    super.updateProperties(props);
+    PGProperty.DEDUPLICATE_STRINGS.set(props, true);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createEnumType(con, "dedupmood", "'sad', 'ok', 'happy'");
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    TestUtil.dropType(con, "dedupmood");
+    super.tearDown();
+  }
+
+  @Test
+  public void testLowCardinalityColumn() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "SELECT CASE WHEN i % 2 = 0 THEN 'even' ELSE 'odd' END, 'n' || i "
+            + "FROM generate_series(1, 10) i");
+    ResultSet rs = ps.executeQuery();
+    String odd = null;
+    String even = null;
+    for (int i = 1; rs.next(); i++) {
+      String value = rs.getString(1);
+      assertEquals(i % 2 == 0 ? "even" : "odd", value);
+      if (i == 1) {
+        odd = value;
+      } else if (i == 2) {
+        even = value;
+      } else {
+        assertSame(i % 2 == 0 ? even : odd, value);
+      }
+      assertEquals("n" + i, rs.getString(2));
+    }
+    rs.close();
+    ps.close();
+  }
+
+  @Test
+  public void testEnumAlwaysDeduplicated() throws SQLException {
+    con.unwrap(PgConnection.class).setDeduplicateStrings(false);
+    PreparedStatement ps = con.prepareStatement(
+        "SELECT 'happy'::dedupmood, 'happy'::text FROM generate_series(1, 3)");
+    ResultSet rs = ps.executeQuery();
+    // resolving the column type makes the enum known to the driver
+    assertEquals(Types.VARCHAR, rs.getMetaData().getColumnType(1));
+    assertTrue(rs.next());
+    String mood = rs.getString(1);
+    String text = rs.getString(2);
+    while (rs.next()) {
+      assertSame(mood, rs.getString(1));
+      assertNotSame(text, rs.getString(2));
+      assertEquals("happy", rs.getString(2));
+    }
+    rs.close();
+    ps.close();
+  }
+}
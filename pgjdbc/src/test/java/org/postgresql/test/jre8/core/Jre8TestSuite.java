@@ -5,6 +5,8 @@
 
 package org.postgresql.test.jre8.core;
 
+import org.postgresql.jre8.sasl.ScramKeyCacheTest;
+
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -13,6 +15,6 @@ import org.junit.runners.Suite;
  *         Twitter: @codefinger
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({SocksProxyTest.class})
+@Suite.SuiteClasses({SocksProxyTest.class, ScramKeyCacheTest.class})
 public class Jre8TestSuite {
 }
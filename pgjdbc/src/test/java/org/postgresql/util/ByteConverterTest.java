@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+public class ByteConverterTest {
+
+  private static byte[] numeric(int weight, int sign, int dscale, int... digits) {
+    byte[] bytes = new byte[8 + 2 * digits.length];
+    ByteConverter.int2(bytes, 0, digits.length);
+    ByteConverter.int2(bytes, 2, weight);
+    ByteConverter.int2(bytes, 4, sign);
+    ByteConverter.int2(bytes, 6, dscale);
+    for (int i = 0; i < digits.length; i++) {
+      ByteConverter.int2(bytes, 8 + 2 * i, digits[i]);
+    }
+    return bytes;
+  }
+
+  @Test
+  public void testNumericZero() {
+    assertEquals(new BigDecimal("0"), ByteConverter.numeric(numeric(0, 0, 0), 0));
+    assertEquals(new BigDecimal("0.00"), ByteConverter.numeric(numeric(0, 0, 2), 0));
+  }
+
+  @Test
+  public void testNumericFraction() {
+    // 1.50
+    assertEquals(new BigDecimal("1.50"), ByteConverter.numeric(numeric(0, 0, 2, 1, 5000), 0));
+    // -0.0001
+    assertEquals(new BigDecimal("-0.0001"),
+        ByteConverter.numeric(numeric(-1, 0x4000, 4, 1), 0));
+  }
+
+  @Test
+  public void testNumericLarge() {
+    // 12345678 * 10^8, the trailing digit groups are omitted
+    assertEquals(new BigDecimal("1234567800000000"),
+        ByteConverter.numeric(numeric(3, 0, 0, 1234, 5678), 0));
+    // more digits than fit in a long
+    assertEquals(new BigDecimal("1234567890123456789012.3456"),
+        ByteConverter.numeric(numeric(5, 0, 4, 12, 3456, 7890, 1234, 5678, 9012, 3456, 7800), 0));
+  }
+
+  @Test
+  public void testNumericNaN() {
+    assertEquals(Double.NaN, ByteConverter.numeric(numeric(0, 0xC000, 0), 0));
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.core.Encoding;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class HStoreConverterTest {
+
+  private static final Encoding UTF8 = Encoding.getJVMEncoding("UTF-8");
+
+  private static Map<String, String> decode(Map<String, String> map) throws SQLException {
+    byte[] bytes = HStoreConverter.toBytes(map, UTF8);
+    return HStoreConverter.BINARY_CODEC.decode(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Encodes the map the way the driver did before the direct UTF-8 encoder.
+   */
+  private static byte[] encodeWithGetBytes(Map<String, String> map) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    byte[] lenBuf = new byte[4];
+    ByteConverter.int4(lenBuf, 0, map.size());
+    baos.write(lenBuf);
+    for (Map.Entry<String, String> e : map.entrySet()) {
+      byte[] key = e.getKey().getBytes("UTF-8");
+      ByteConverter.int4(lenBuf, 0, key.length);
+      baos.write(lenBuf);
+      baos.write(key);
+      if (e.getValue() == null) {
+        ByteConverter.int4(lenBuf, 0, -1);
+        baos.write(lenBuf);
+      } else {
+        byte[] val = e.getValue().getBytes("UTF-8");
+        ByteConverter.int4(lenBuf, 0, val.length);
+        baos.write(lenBuf);
+        baos.write(val);
+      }
+    }
+    return baos.toByteArray();
+  }
+
+  @Test
+  public void testDirectEncoderMatchesGetBytes() throws Exception {
+    Map<String, String> map = new LinkedHashMap<String, String>();
+    map.put("ascii", "value");
+    map.put("ä", "€");
+    map.put("null", null);
+    map.put("pair", "😀");
+    // unpaired high surrogate
+    map.put("lone", new String(new char[]{'a', (char) 0xD83D, 'b'}));
+    map.put("", "");
+    assertArrayEquals(encodeWithGetBytes(map), HStoreConverter.toBytes(map, UTF8));
+    assertEquals(HStoreConverter.toBytes(map, UTF8).length,
+        HStoreConverter.BINARY_CODEC.lengthInBytes(map));
+  }
+
+  @Test
+  public void testLookupInBackendOrder() throws SQLException {
+    // the backend sends keys ordered by length, then bytes
+    Map<String, String> map = new LinkedHashMap<String, String>();
+    map.put("a", "1");
+    map.put("c", null);
+    map.put("ab", "2");
+    map.put("ba", "3");
+    map.put("ä", "4");
+    map.put("abc", "5");
+    Map<String, String> decoded = decode(map);
+
+    assertEquals(6, decoded.size());
+    for (Map.Entry<String, String> e : map.entrySet()) {
+      assertEquals(e.getValue(), decoded.get(e.getKey()));
+      assertTrue(decoded.containsKey(e.getKey()));
+    }
+    assertNull(decoded.get("b"));
+    assertFalse(decoded.containsKey("b"));
+    assertFalse(decoded.containsKey("abcd"));
+    assertFalse(decoded.containsKey(1));
+    assertEquals(map, decoded);
+  }
+
+  @Test
+  public void testLookupInArbitraryOrder() throws SQLException {
+    Map<String, String> map = new LinkedHashMap<String, String>();
+    map.put("zzz", "1");
+    map.put("a", "2");
+    map.put("mm", null);
+    Map<String, String> decoded = decode(map);
+
+    assertEquals("1", decoded.get("zzz"));
+    assertEquals("2", decoded.get("a"));
+    assertNull(decoded.get("mm"));
+    assertTrue(decoded.containsKey("mm"));
+    assertFalse(decoded.containsKey("b"));
+    assertEquals(map, decoded);
+  }
+
+  @Test
+  public void testModification() throws SQLException {
+    Map<String, String> map = new HashMap<String, String>();
+    map.put("a", "1");
+    map.put("b", "2");
+    Map<String, String> decoded = decode(map);
+
+    assertEquals("1", decoded.remove("a"));
+    decoded.put("c", "3");
+    assertEquals(2, decoded.size());
+    assertNull(decoded.get("a"));
+    assertEquals("3", decoded.get("c"));
+    decoded.clear();
+    assertTrue(decoded.isEmpty());
+  }
+
+  @Test
+  public void testEmpty() throws SQLException {
+    Map<String, String> decoded = decode(new HashMap<String, String>());
+    assertTrue(decoded.isEmpty());
+    assertNull(decoded.get("a"));
+  }
+
+  @Test(expected = PSQLException.class)
+  public void testTruncated() throws SQLException {
+    Map<String, String> map = new HashMap<String, String>();
+    map.put("key", "value");
+    byte[] bytes = HStoreConverter.toBytes(map, UTF8);
+    HStoreConverter.BINARY_CODEC.decode(bytes, 0, bytes.length - 1);
+  }
+}
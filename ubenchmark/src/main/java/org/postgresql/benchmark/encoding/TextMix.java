@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.encoding;
+
+/**
+ * Sample texts for the encoding benchmarks, from pure ASCII to mostly four byte sequences.
+ */
+final class TextMix {
+  private TextMix() {
+  }
+
+  static String repeat(String mix, int length) {
+    String unit;
+    if ("ascii".equals(mix)) {
+      unit = "Hello world,";
+    } else if ("latin".equals(mix)) {
+      unit = "Grüße café,";
+    } else if ("cyrillic".equals(mix)) {
+      unit = "Hello мир,";
+    } else if ("cjk".equals(mix)) {
+      unit = "你好，世界。";
+    } else if ("emoji".equals(mix)) {
+      unit = "Hi 😀🎉👍,";
+    } else {
+      throw new IllegalArgumentException("Unknown text mix: " + mix);
+    }
+    StringBuilder sb = new StringBuilder(unit.length() * length);
+    for (int i = 0; i < length; i++) {
+      sb.append(unit);
+    }
+    return sb.toString();
+  }
+}
@@ -48,6 +48,9 @@ public class UTF8Decoding {
   @Param({"1", "5", "10", "50", "100"})
   public int length;
 
+  @Param({"ascii", "latin", "cyrillic", "cjk", "emoji"})
+  public String mix;
+
   private byte[] source;
   private CharsetDecoder decoder;
   private Encoding encoding;
@@ -56,11 +59,7 @@ public class UTF8Decoding {
 
   @Setup
   public void setup() {
-    StringBuilder sb = new StringBuilder();
-    for (int i = 0; i < length; i++) {
-      sb.append("Hello мир,");
-    }
-    source = sb.toString().getBytes(UTF_8);
+    source = TextMix.repeat(mix, length).getBytes(UTF_8);
     decoder = UTF_8.newDecoder();
     encoding = Encoding.getJVMEncoding("UTF-8");
     buf = CharBuffer.allocate(10240);
@@ -6,6 +6,7 @@
 
 package org.postgresql.benchmark.encoding;
 
+import org.postgresql.core.Encoding;
 import org.postgresql.core.Utils;
 
 import org.openjdk.jmh.annotations.Benchmark;
@@ -25,6 +26,7 @@ import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
@@ -47,20 +49,21 @@ public class UTF8Encoding {
   @Param({"1", "5", "10", "50", "100"})
   public int length;
 
+  @Param({"ascii", "latin", "cyrillic", "cjk", "emoji"})
+  public String mix;
+
   private String source;
   private CharsetEncoder encoder;
   private ByteBuffer buf;
+  private Encoding encoding;
   private static final Charset UTF_8 = Charset.forName("UTF-8");
 
   @Setup
   public void setup() {
-    StringBuilder sb = new StringBuilder();
-    for (int i = 0; i < length; i++) {
-      sb.append("Hello мир,");
-    }
-    source = sb.toString();
+    source = TextMix.repeat(mix, length);
     encoder = UTF_8.newEncoder();
     buf = ByteBuffer.allocate(10240);
+    encoding = Encoding.getJVMEncoding("UTF-8");
   }
 
   @Benchmark
@@ -76,6 +79,11 @@ public class UTF8Encoding {
     return Utils.encodeUTF8(source);
   }
 
+  @Benchmark
+  public byte[] encodingEncodeUTF8_current() throws IOException {
+    return encoding.encode(source);
+  }
+
   @Benchmark
   public byte[] string_getBytes() {
     return source.getBytes(UTF_8);